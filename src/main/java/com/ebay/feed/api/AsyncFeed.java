@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.api;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.ebay.feed.model.feed.download.BulkFeedResponse;
+import com.ebay.feed.model.feed.download.GetFeedResponse;
+import com.ebay.feed.model.feed.operation.feed.BulkFeedRequest;
+import com.ebay.feed.model.feed.operation.feed.FeedRequest;
+import com.ebay.feed.model.feed.operation.filter.FeedFilterRequest;
+import com.ebay.feed.model.feed.operation.filter.Response;
+
+/**
+ * <div>
+ * Asynchronous variant of the {@link Feed} interface. Every method returns immediately, with a
+ * future which completes with the same response as the corresponding method of {@link Feed}. The
+ * futures never complete exceptionally; failures are reported through the status code of the
+ * response.<br>
+ * <ul>
+ * <li>get - To download the feed files, without blocking a thread while waiting for the API</li>
+ * <li>getAll - To download the feed files of many level one categories, concurrently</li>
+ * <li>unzip - To unzip the gzipped files</li>
+ * <li>filter - To apply filters to the unzipped file and create a new file with the filtered
+ * contents</li>
+ * <li>getAndUnzip - To download the feed file, and unzip it while the ranges arrive</li>
+ * <li>getAndFilter - To download, unzip and filter the feed file in one pass, without intermediate
+ * files</li>
+ * <li>processConfigFile - To process the requests of a config file</li>
+ * </ul>
+ * </div>
+ */
+public interface AsyncFeed {
+
+  /**
+   * <p>
+   * Filters the contents of an unzipped feed file, on the executor
+   * </p>
+   * 
+   * @param filterRequest Consists of all the parameters that are required for filtering
+   * @return CompletableFuture Completes with the Response
+   */
+  public CompletableFuture<Response> filter(FeedFilterRequest filterRequest);
+
+  /**
+   * <p>
+   * Unzips a downloaded feed file, on the executor
+   * </p>
+   * 
+   * @param filePath The absolute path to the gzipped feed file
+   * @return CompletableFuture Completes with the Response
+   */
+  public CompletableFuture<Response> unzip(String filePath);
+
+  /**
+   * <p>
+   * Downloads the feed file as specified by the parameters in the request. The range requests are
+   * enqueued on the http client, and no thread waits for the API while the file is downloaded
+   * </p>
+   * 
+   * @param feedRequest Container for capturing parameters for downloading feed file
+   * @param downloadDirectory The local directory where the file should be downloaded. Default
+   *        location is the current working directory
+   * @return CompletableFuture Completes with the GetFeedResponse
+   */
+  public CompletableFuture<GetFeedResponse> get(FeedRequest feedRequest, String downloadDirectory);
+
+  /**
+   * <p>
+   * Downloads the feed files of the level one categories in the request, or of all the level one
+   * categories of the marketplace. The feed files are downloaded largest first, at most
+   * maxConcurrentDownloads at a time, and the number of requests to the API host is limited by
+   * maxRequestsPerHost of the {@link com.ebay.feed.model.client.ClientConfig}
+   * </p>
+   * 
+   * @param bulkFeedRequest Container for capturing parameters for downloading the feed files
+   * @param downloadDirectory The local directory where the files should be downloaded. Default
+   *        location is the current working directory
+   * @return CompletableFuture Completes with the BulkFeedResponse
+   */
+  public CompletableFuture<BulkFeedResponse> getAll(BulkFeedRequest bulkFeedRequest,
+      String downloadDirectory);
+
+  /**
+   * <p>
+   * Downloads the feed file, and unzips it while it is downloaded, on the executor. One executor
+   * thread is used for the duration of the call, and another thread unzips the file
+   * </p>
+   * 
+   * @param feedRequest Container for capturing parameters for downloading feed file
+   * @param downloadDirectory The local directory where the file should be downloaded
+   * @return CompletableFuture Completes with the GetFeedResponse, with the path of the unzipped
+   *         file
+   */
+  public CompletableFuture<GetFeedResponse> getAndUnzip(FeedRequest feedRequest,
+      String downloadDirectory);
+
+  /**
+   * <p>
+   * Downloads, unzips and filters the feed file in one pass, on the executor. Decompression reads
+   * the ranges as a stream, so one executor thread is used for the duration of the call
+   * </p>
+   * 
+   * @param feedRequest Container for capturing parameters for downloading feed file
+   * @param filterRequest Consists of all the parameters that are required for filtering
+   * @param downloadDirectory The local directory where the filtered file should be created
+   * @return CompletableFuture Completes with the Response
+   */
+  public CompletableFuture<Response> getAndFilter(FeedRequest feedRequest,
+      FeedFilterRequest filterRequest, String downloadDirectory);
+
+  /**
+   * <p>
+   * Processes the requests of a config file, on the executor
+   * </p>
+   * 
+   * @param configFile The absolute path of the config file
+   * @param token The oAuth token with the appropriate scope
+   * @return CompletableFuture Completes with the list of responses
+   */
+  public CompletableFuture<List<Response>> processConfigFile(String configFile, String token);
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.api;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ebay.feed.constants.Constants;
+import com.ebay.feed.download.BulkScheduler;
+import com.ebay.feed.download.DownloadListener;
+import com.ebay.feed.model.client.ClientConfig;
+import com.ebay.feed.model.feed.download.BulkFeedResponse;
+import com.ebay.feed.model.feed.download.DownloadConfig;
+import com.ebay.feed.model.feed.download.GetFeedResponse;
+import com.ebay.feed.model.feed.operation.feed.BulkFeedRequest;
+import com.ebay.feed.model.feed.operation.feed.FeedRequest;
+import com.ebay.feed.model.feed.operation.filter.FeedFilterRequest;
+import com.ebay.feed.model.feed.operation.filter.Response;
+import com.ebay.feed.storage.LocalStorage;
+import com.ebay.feed.storage.Storage;
+import com.ebay.feed.util.FeedUtil;
+import com.ebay.feed.util.HttpClientUtil;
+
+/**
+ * <p>
+ * Asynchronous implementation of the SDK capabilities. Downloads are made with range requests that
+ * are enqueued on the shared http client, whose dispatcher limits the number of concurrent requests
+ * (see {@link ClientConfig}). Unzipping, filtering and the bookkeeping between range requests run
+ * on the executor supplied by the caller.
+ * </p>
+ */
+public class AsyncFeedImpl implements AsyncFeed {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AsyncFeedImpl.class);
+  private final FeedImpl feed;
+  private final Taxonomy taxonomy;
+  private final OkHttpClient client;
+  private final Executor executor;
+  private final FeedUtil feedUtils = new FeedUtil();
+
+  /**
+   * 
+   * @param executor Executor for unzipping, filtering and the work between range requests
+   */
+  public AsyncFeedImpl(Executor executor) {
+    this(new DownloadConfig.DownloadConfigBuilder().build(),
+        new ClientConfig.ClientConfigBuilder().build(), executor);
+  }
+
+  /**
+   * 
+   * @param downloadConfig Settings which control how the feed files are downloaded
+   * @param clientConfig Settings of the http client
+   * @param executor Executor for unzipping, filtering and the work between range requests
+   */
+  public AsyncFeedImpl(DownloadConfig downloadConfig, ClientConfig clientConfig, Executor executor) {
+    this(downloadConfig, clientConfig, new LocalStorage(), executor);
+  }
+
+  /**
+   * 
+   * @param downloadConfig Settings which control how the feed files are downloaded
+   * @param clientConfig Settings of the http client
+   * @param storage Storage the unzipped and filtered files are written to
+   * @param executor Executor for unzipping, filtering and the work between range requests
+   */
+  public AsyncFeedImpl(DownloadConfig downloadConfig, ClientConfig clientConfig, Storage storage,
+      Executor executor) {
+    this.feed = new FeedImpl(downloadConfig, clientConfig, storage);
+    this.taxonomy = new TaxonomyImpl(clientConfig);
+    this.client = HttpClientUtil.getClient(clientConfig);
+    this.executor = executor;
+  }
+
+  /**
+   * <p>
+   * Sets the listener which receives the progress of the feed files downloaded afterwards
+   * </p>
+   *
+   * @param listener The listener, or null to stop receiving progress
+   */
+  public void setDownloadListener(DownloadListener listener) {
+    feed.setDownloadListener(listener);
+  }
+
+  @Override
+  public CompletableFuture<Response> filter(FeedFilterRequest filterRequest) {
+    return CompletableFuture.supplyAsync(() -> feed.filter(filterRequest), executor);
+  }
+
+  @Override
+  public CompletableFuture<Response> unzip(String filePath) {
+    return CompletableFuture.supplyAsync(() -> feed.unzip(filePath), executor);
+  }
+
+  @Override
+  public CompletableFuture<GetFeedResponse> get(FeedRequest feedRequest, String downloadDirectory) {
+    return feed.getAsync(feedRequest, downloadDirectory, executor);
+  }
+
+  @Override
+  public CompletableFuture<BulkFeedResponse> getAll(BulkFeedRequest bulkFeedRequest,
+      String downloadDirectory) {
+
+    LOGGER.debug("********* Begin Feed.getAll() with {}", bulkFeedRequest);
+
+    if (bulkFeedRequest == null) {
+      return CompletableFuture.completedFuture(new BulkFeedResponse(Constants.FAILURE_CODE,
+          "bulkFeedRequest is null.Aborting..", null));
+    }
+
+    BulkScheduler scheduler =
+        new BulkScheduler(client, bulkFeedRequest.getMaxConcurrentDownloads());
+
+    return CompletableFuture.supplyAsync(() -> getCategoryIds(bulkFeedRequest), executor)
+        .thenCompose(categoryIds -> {
+
+          if (categoryIds.isEmpty()) {
+            return CompletableFuture.completedFuture(new BulkFeedResponse(Constants.FAILURE_CODE,
+                "No level one categories found.Aborting..", null));
+          }
+
+          Map<String, Request> requests = new LinkedHashMap<>();
+          for (String categoryId : categoryIds) {
+            FeedRequest feedRequest = bulkFeedRequest.toFeedRequest(categoryId);
+            requests.put(categoryId, feedUtils.generateRequest(feedRequest, new Request.Builder())
+                .build());
+          }
+
+          return scheduler.probeSizes(requests)
+              .thenCompose(sizes -> scheduler.schedule(sizes,
+                  categoryId -> feed.getAsync(bulkFeedRequest.toFeedRequest(categoryId),
+                      downloadDirectory, executor)))
+              .thenApply(this::toBulkResponse);
+
+        }).exceptionally(e -> {
+          LOGGER.error("Exception in Feed.getAll()", e);
+          Throwable cause =
+              e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+          return new BulkFeedResponse(Constants.FAILURE_CODE, cause.getMessage(), null);
+        });
+  }
+
+  /**
+   * <p>
+   * Returns the categories of the request, or all the level one categories of the marketplace if
+   * the request has none
+   * </p>
+   */
+  private List<String> getCategoryIds(BulkFeedRequest bulkFeedRequest) {
+
+    if (!bulkFeedRequest.getCategoryIds().isEmpty())
+      return bulkFeedRequest.getCategoryIds();
+
+    String categoryTreeId =
+        taxonomy.getCategoryTreeId(bulkFeedRequest.getToken(), bulkFeedRequest.getMarketplaceId());
+    if (categoryTreeId == null)
+      throw new CompletionException(new IllegalStateException(
+          "Could not get the category tree id for " + bulkFeedRequest.getMarketplaceId()));
+
+    return taxonomy.getLevelOneCategories(bulkFeedRequest.getToken(), categoryTreeId);
+  }
+
+  private BulkFeedResponse toBulkResponse(Map<String, GetFeedResponse> responses) {
+
+    int failures = 0;
+    for (GetFeedResponse response : responses.values()) {
+      if (response == null || !Constants.SUCCESS_CODE.equals(response.getStatusCode()))
+        failures++;
+    }
+
+    if (failures == 0)
+      return new BulkFeedResponse(Constants.SUCCESS_CODE, Constants.SUCCESS, responses);
+
+    return new BulkFeedResponse(Constants.FAILURE_CODE, failures + " of " + responses.size()
+        + " feed files could not be downloaded", responses);
+  }
+
+  @Override
+  public CompletableFuture<GetFeedResponse> getAndUnzip(FeedRequest feedRequest,
+      String downloadDirectory) {
+    return CompletableFuture.supplyAsync(() -> feed.getAndUnzip(feedRequest, downloadDirectory),
+        executor);
+  }
+
+  @Override
+  public CompletableFuture<Response> getAndFilter(FeedRequest feedRequest,
+      FeedFilterRequest filterRequest, String downloadDirectory) {
+    return CompletableFuture.supplyAsync(
+        () -> feed.getAndFilter(feedRequest, filterRequest, downloadDirectory), executor);
+  }
+
+  @Override
+  public CompletableFuture<List<Response>> processConfigFile(String configFile, String token) {
+    return CompletableFuture.supplyAsync(() -> feed.processConfigFile(configFile, token), executor);
+  }
+}
@@ -28,6 +28,9 @@ import com.ebay.feed.model.feed.operation.filter.Response;
  * <li>unzip - To unzip the gzipped files filter</li>
  * <li>filter - To apply filters to the unzipped file and create a new file with the filtered
  * contents</li>
+ * <li>getAndUnzip - To download the feed file, and unzip it while the ranges arrive</li>
+ * <li>getAndFilter - To download, unzip and filter the feed file in one pass, without intermediate
+ * files</li>
  * </ul>
  * </div>
  * 
@@ -38,7 +41,9 @@ public interface Feed {
 
   /**
    * <p>
-   * Filters the contents of an unzipped feed file
+   * Filters the contents of an unzipped feed file. If the input file is the gzipped feed file,
+   * ending with .gz, it is decompressed on another thread while it is filtered, and the unzipped
+   * file is never created
    * </p>
    * 
    * @param filterRequest <div>
@@ -72,6 +77,10 @@ public interface Feed {
    * values, if a file is available, then it is downloaded and the method returns the file path.
    * 
    * If the file is not available, then the error details are returned.
+   * 
+   * If previewBytes is set in the feedRequest, then only the first previewBytes of the feed file are
+   * fetched, and the rows recovered from them are written to an unzipped file ending with -preview,
+   * which can be filtered like an unzipped feed file.
    * </p>
    * 
    * @param feedRequest Container for capturing parameters for downloading feed file
@@ -81,6 +90,44 @@ public interface Feed {
    */
   public GetFeedResponse get(FeedRequest feedRequest, String downloadDirectory);
 
+  /**
+   * <p>
+   * Downloads the feed file as get does, and unzips it while it is downloaded. A thread of its own
+   * unzips the file up to the last range which is complete, so the unzipped file is complete
+   * shortly after the download, instead of after get and unzip one after the other. Both the
+   * gzipped and the unzipped feed files are kept.
+   * 
+   * A feed file which has not changed since it was cached, or which is downloaded to other storage
+   * than the local one, is unzipped once it is complete. If previewBytes is set in the feedRequest,
+   * the unzipped preview file is created as get does.
+   * </p>
+   * 
+   * @param feedRequest Container for capturing parameters for downloading feed file
+   * @param downloadDirectory The local directory where the file should be downloaded. Default
+   *        location is the current working directory
+   * @return GetFeedResponse GetFeedResponse with the path of the unzipped file
+   */
+  public GetFeedResponse getAndUnzip(FeedRequest feedRequest, String downloadDirectory);
+
+  /**
+   * <p>
+   * Downloads, unzips and filters the feed file in one pass. The ranges of the feed file are
+   * unzipped and filtered as they arrive, and only the filtered file is written to disk. Neither
+   * the gzipped nor the unzipped feed file is created.
+   * 
+   * The inputFilePath of the filter request is ignored. If previewBytes is set in the feedRequest,
+   * then only the rows recovered from the first previewBytes of the feed file are filtered.
+   * </p>
+   * 
+   * @param feedRequest Container for capturing parameters for downloading feed file
+   * @param filterRequest Consists of all the parameters that are required for filtering
+   * @param downloadDirectory The local directory where the filtered file should be created. Default
+   *        location is the current working directory
+   * @return Response Response
+   */
+  public Response getAndFilter(FeedRequest feedRequest, FeedFilterRequest filterRequest,
+      String downloadDirectory);
+
   /**
    * <pre>
    * Given a config file, this method parses the input, and performs necessary actions,
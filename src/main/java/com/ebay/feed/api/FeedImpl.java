@@ -15,7 +15,6 @@
 
 package com.ebay.feed.api;
 
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -23,15 +22,15 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
-import okhttp3.Response;
 
 
 import org.apache.commons.lang3.StringUtils;
@@ -39,14 +38,29 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ebay.feed.constants.Constants;
+import com.ebay.feed.download.CacheLock;
+import com.ebay.feed.download.DownloadListener;
+import com.ebay.feed.download.FeedCache;
+import com.ebay.feed.download.RangeDownloader;
+import com.ebay.feed.download.RangeInputStream;
+import com.ebay.feed.download.RangeManifest;
+import com.ebay.feed.download.RetryPolicy;
+import com.ebay.feed.download.TruncatedGzipInputStream;
+import com.ebay.feed.model.client.ClientConfig;
+import com.ebay.feed.model.feed.download.DownloadConfig;
 import com.ebay.feed.model.feed.download.GetFeedResponse;
 import com.ebay.feed.model.feed.operation.config.ConfigFileBasedRequest;
 import com.ebay.feed.model.feed.operation.config.ConfigRequest;
 import com.ebay.feed.model.feed.operation.feed.FeedRequest;
 import com.ebay.feed.model.feed.operation.filter.FeedFilterRequest;
+import com.ebay.feed.storage.LocalStorage;
+import com.ebay.feed.storage.Storage;
+import com.ebay.feed.unzip.PipelinedUnzip;
+import com.ebay.feed.unzip.ReadAheadInputStream;
 import com.ebay.feed.model.feed.operation.internal.InvokeResponse;
 import com.ebay.feed.util.FeedUtil;
 import com.ebay.feed.util.FilterUtil;
+import com.ebay.feed.util.HttpClientUtil;
 import com.ebay.feed.validator.FeedValidator;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -59,6 +73,8 @@ import com.google.gson.GsonBuilder;
  * <li>unzip - To unzip the gzipped files filter</li>
  * <li>filter - To apply filters to the unzipped file and create a new file with the filtered
  * contents</li>
+ * <li>getAndFilter - To download, unzip and filter the feed file in one pass, without intermediate
+ * files</li>
  * </ul>
  * </div>
  * 
@@ -68,20 +84,78 @@ import com.google.gson.GsonBuilder;
 public class FeedImpl implements Feed {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(FeedImpl.class);
+  private static final String PREVIEW_SUFFIX = "-preview";
+  private static final String GZIP_SUFFIX = ".gz";
   private OkHttpClient client = null;
   private FeedUtil feedUtils = null;
   private FilterUtil filterUtils = null;
   private FeedValidator feedValidator = null;
+  private RangeDownloader rangeDownloader = null;
+  private FeedCache feedCache = null;
+  private RetryPolicy retryPolicy = null;
+  private boolean isSharedCache;
+  private int unzipParallelism;
+  private Storage storage = null;
 
   public FeedImpl() {
-    client =
-        new OkHttpClient.Builder().connectTimeout(Constants.TIMEOUT, TimeUnit.SECONDS)
-            .writeTimeout(Constants.TIMEOUT, TimeUnit.SECONDS)
-            .readTimeout(Constants.TIMEOUT, TimeUnit.SECONDS).build();
-    LOGGER.debug("Initialized http client with timeout in seconds - {} ", Constants.TIMEOUT);
-    feedUtils = new FeedUtil();
-    feedValidator = new FeedValidator();
-    filterUtils = new FilterUtil();
+    this(new DownloadConfig.DownloadConfigBuilder().build());
+  }
+
+  /**
+   * 
+   * @param downloadConfig Settings which control how the feed files are downloaded. Eg - number
+   *        of ranges to download concurrently
+   */
+  public FeedImpl(DownloadConfig downloadConfig) {
+    this(downloadConfig, new ClientConfig.ClientConfigBuilder().build());
+  }
+
+  /**
+   * 
+   * @param downloadConfig Settings which control how the feed files are downloaded
+   * @param clientConfig Settings of the http client. The client, and its connections, are shared
+   *        with the taxonomy calls and with other API instances created with the same settings
+   */
+  public FeedImpl(DownloadConfig downloadConfig, ClientConfig clientConfig) {
+    this(downloadConfig, clientConfig, new LocalStorage());
+  }
+
+  /**
+   * 
+   * @param downloadConfig Settings which control how the feed files are downloaded
+   * @param clientConfig Settings of the http client
+   * @param storage Storage the unzipped and filtered files are written to, eg S3Storage. Feed files
+   *        are downloaded to local disk, and the filtered files of getAndFilter are written to the
+   *        storage without a local copy
+   */
+  public FeedImpl(DownloadConfig downloadConfig, ClientConfig clientConfig, Storage storage) {
+    client = HttpClientUtil.getClient(clientConfig);
+    feedUtils = new FeedUtil(downloadConfig.getDecompressor());
+    feedValidator = new FeedValidator(storage);
+    this.storage = storage;
+    filterUtils = new FilterUtil(new TaxonomyImpl(clientConfig), storage);
+    rangeDownloader = new RangeDownloader(client, downloadConfig);
+    retryPolicy = new RetryPolicy(downloadConfig);
+    isSharedCache = downloadConfig.isSharedCache();
+    unzipParallelism = downloadConfig.getUnzipParallelism();
+    if (downloadConfig.isCacheEnabled())
+      feedCache =
+          new FeedCache(client, TimeUnit.HOURS.toMillis(downloadConfig.getCacheMaxAgeHours()),
+              downloadConfig.getCacheMaxBytes());
+    LOGGER.debug("Initialized feed with {}", downloadConfig);
+  }
+
+  /**
+   * <p>
+   * Sets the listener which receives the progress of the feed files downloaded afterwards - the
+   * start, bytes written, completion and retries of each range, and the overall throughput and
+   * estimated time to completion of each file
+   * </p>
+   *
+   * @param listener The listener, or null to stop receiving progress
+   */
+  public void setDownloadListener(DownloadListener listener) {
+    rangeDownloader.setListener(listener);
   }
 
   /*
@@ -109,7 +183,9 @@ public class FeedImpl implements Feed {
 
       // update leaf categories in case of level two and three filters
       filterRequest.getLeafCategoryIds().addAll(filterUtils.calculateLeaves(filterRequest));
-      filteredFilePath = filterUtils.filter(path, filterRequest);
+      filteredFilePath =
+          isGzipped(path) ? filterGzipped(path, filterRequest) : filterUtils.filter(path,
+              filterRequest);
 
     } catch (Exception e) {
       LOGGER.error("Exception in Feed.filter()", e);
@@ -123,6 +199,28 @@ public class FeedImpl implements Feed {
 
 
 
+  /**
+   * <p>
+   * Filters a gzipped feed file without unzipping it to disk. The file is decompressed on a thread
+   * of its own, ahead of the filter, so that decompressing and filtering overlap. The filtered file
+   * is named after the unzipped file, which is never created
+   * </p>
+   */
+  private String filterGzipped(Path path, FeedFilterRequest filterRequest) throws Exception {
+
+    String fileName = path.toString();
+    Path basePath = Paths.get(fileName.substring(0, fileName.length() - GZIP_SUFFIX.length()));
+    try (InputStream in = Files.newInputStream(path);
+        InputStream readAhead =
+            new ReadAheadInputStream(feedUtils.getDecompressor().decompress(in))) {
+      return filterUtils.filter(readAhead, basePath, filterRequest);
+    }
+  }
+
+  private boolean isGzipped(Path path) {
+    return path.toString().endsWith(GZIP_SUFFIX);
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -145,7 +243,7 @@ public class FeedImpl implements Feed {
 
     String unzippedFilePath = null;
     try {
-      unzippedFilePath = feedUtils.unzip(path);
+      unzippedFilePath = feedUtils.unzip(path, storage, unzipParallelism);
     } catch (Exception e) {
       LOGGER.error("Exception in Feed.unzip()", e);
       e.printStackTrace();
@@ -168,23 +266,19 @@ public class FeedImpl implements Feed {
     LOGGER.debug("********* Begin Feed.get()");
 
     GetFeedResponse response = null;
-    Path downloadDirectoryPath = null;
 
     if (feedRequest == null) {
       return new GetFeedResponse(-1, "feedRequest is null.Aborting..", null, null);
     }
 
-    // if null, then take default path - current directory
-    if (downloadDirectory == null) {
-      downloadDirectoryPath = Paths.get(".").toAbsolutePath().normalize();
-    } else {
-      downloadDirectoryPath = Paths.get(downloadDirectory);
-    }
+    Path downloadDirectoryPath = getDownloadDirectoryPath(downloadDirectory);
 
     LOGGER.debug("feedRequest params = {}", feedRequest.toString());
 
     try {
-      response = process(feedRequest, downloadDirectoryPath);
+      response =
+          feedRequest.getPreviewBytes() > 0 ? preview(feedRequest, downloadDirectoryPath)
+              : process(feedRequest, downloadDirectoryPath);
 
     } catch (Exception e) {
       LOGGER.error("Exception in Feed.get()", e);
@@ -198,9 +292,311 @@ public class FeedImpl implements Feed {
 
   /**
    * <p>
-   * The process method performs pre requisite functions, before calling the feed API - Adds
-   * additional headers including range - Creates default file/folder path and cleansup if already
-   * present
+   * Asynchronous variant of get. The checks of the local file run on the executor, the range
+   * requests are enqueued on the http client, and the future completes once the file is downloaded
+   * </p>
+   * 
+   * @param feedRequest Container for capturing parameters for downloading feed file
+   * @param downloadDirectory The local directory where the file should be downloaded
+   * @param executor Executor for the work between the http calls
+   * @return CompletableFuture Completes with the GetFeedResponse. Never completes exceptionally
+   */
+  CompletableFuture<GetFeedResponse> getAsync(FeedRequest feedRequest, String downloadDirectory,
+      Executor executor) {
+
+    LOGGER.debug("********* Begin Feed.getAsync()");
+
+    if (feedRequest == null) {
+      return CompletableFuture.completedFuture(new GetFeedResponse(-1,
+          "feedRequest is null.Aborting..", null, null));
+    }
+
+    // a preview is a single streamed request, with nothing to resume
+    if (feedRequest.getPreviewBytes() > 0)
+      return CompletableFuture.supplyAsync(() -> get(feedRequest, downloadDirectory), executor);
+
+    Path downloadDirectoryPath = getDownloadDirectoryPath(downloadDirectory);
+
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return prepare(feedRequest, downloadDirectoryPath);
+      } catch (IOException e) {
+        throw new CompletionException(e);
+      }
+    }, executor).thenCompose(download -> {
+      if (download.response != null) {
+        download.unlock();
+        return CompletableFuture.completedFuture(download.response);
+      }
+      return rangeDownloader.downloadAsync(download.request, download.pathToFile,
+          download.manifest, download.chunkSizeLimit, executor).thenApplyAsync(
+          responseFlag -> toResponse(download, responseFlag, downloadDirectoryPath), executor)
+          .whenComplete((response, e) -> download.unlock());
+    }).exceptionally(e -> {
+      LOGGER.error("Exception in Feed.getAsync()", e);
+      Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+      return new GetFeedResponse(Constants.FAILURE_CODE, cause.getMessage(), null, null);
+    });
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see com.ebay.feed.api.Feed#getAndFilter(com.ebay.feed.model.FeedRequest,
+   * com.ebay.feed.model.FeedFilterRequest, java.lang.String)
+   */
+  @Override
+  public com.ebay.feed.model.feed.operation.filter.Response getAndFilter(FeedRequest feedRequest,
+      FeedFilterRequest filterRequest, String downloadDirectory) {
+
+    LOGGER.debug("********* Begin Feed.getAndFilter()");
+
+    if (!feedValidator.isValidFeedRequest(feedRequest)) {
+      return createResponse(-1, "Mandatory feedRequest parameters are null. Aborting..", null,
+          filterRequest);
+    }
+
+    if (!feedValidator.isValidFilterCriteria(filterRequest)) {
+      return createResponse(-1, "Null or empty filterRequest. Cannot filter. Aborting...", null,
+          filterRequest);
+    }
+
+    Path downloadDirectoryPath = getDownloadDirectoryPath(downloadDirectory);
+
+    LOGGER.debug("feedRequest params = {}, filter params = {}", feedRequest, filterRequest);
+
+    String filteredFilePath = null;
+
+    try (RangeInputStream rangeStream = openStream(feedRequest)) {
+
+      // update leaf categories in case of level two and three filters
+      filterRequest.getLeafCategoryIds().addAll(filterUtils.calculateLeaves(filterRequest));
+
+      // name the filtered file after the unzipped file, which is never created
+      rangeStream.open();
+      Path basePath = getUnzippedPath(feedRequest, rangeStream, downloadDirectoryPath);
+
+      // a preview is filtered over the rows recovered from the first bytes. The feed is downloaded
+      // and decompressed on a thread of its own, ahead of the filter
+      InputStream rows =
+          feedRequest.getPreviewBytes() > 0 ? new TruncatedGzipInputStream(rangeStream)
+              : feedUtils.getDecompressor().decompress(rangeStream);
+      filteredFilePath =
+          filterUtils.filter(new ReadAheadInputStream(rows), basePath, filterRequest);
+
+    } catch (Exception e) {
+      LOGGER.error("Exception in Feed.getAndFilter()", e);
+      return createResponse(-1, e.getMessage(), null, filterRequest);
+    }
+    LOGGER.debug("Exiting Feed.getAndFilter() and created filtered file  = {}", filteredFilePath);
+    return createResponse(Constants.SUCCESS_CODE, Constants.SUCCESS, filteredFilePath,
+        filterRequest);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see com.ebay.feed.api.Feed#getAndUnzip(com.ebay.feed.model.FeedRequest, java.lang.String)
+   */
+  @Override
+  public GetFeedResponse getAndUnzip(FeedRequest feedRequest, String downloadDirectory) {
+
+    LOGGER.debug("********* Begin Feed.getAndUnzip()");
+
+    if (feedRequest == null) {
+      return new GetFeedResponse(-1, "feedRequest is null.Aborting..", null, null);
+    }
+
+    // a preview is unzipped already
+    if (feedRequest.getPreviewBytes() > 0)
+      return get(feedRequest, downloadDirectory);
+
+    Path downloadDirectoryPath = getDownloadDirectoryPath(downloadDirectory);
+
+    LOGGER.debug("feedRequest params = {}", feedRequest.toString());
+
+    GetFeedResponse response = null;
+    try {
+      PreparedDownload download = prepare(feedRequest, downloadDirectoryPath);
+      try {
+        response =
+            download.response != null ? download.response : unzipWhileDownloading(download,
+                downloadDirectoryPath);
+      } finally {
+        download.unlock();
+      }
+
+    } catch (Exception e) {
+      LOGGER.error("Exception in Feed.getAndUnzip()", e);
+      return new GetFeedResponse(Constants.FAILURE_CODE, e.getMessage(), null, null);
+    }
+
+    // a cached feed file, or a download to other storage, is unzipped once complete
+    if (Constants.SUCCESS_CODE.equals(response.getStatusCode())
+        && response.getFilePath().endsWith(GZIP_SUFFIX)) {
+      com.ebay.feed.model.feed.operation.filter.Response unzipResponse =
+          unzip(response.getFilePath());
+      GetFeedResponse unzipped =
+          new GetFeedResponse(unzipResponse.getStatusCode(), unzipResponse.getMessage(),
+              unzipResponse.getFilePath(), null);
+      unzipped.setDownloadMetrics(response.getDownloadMetrics());
+      response = unzipped;
+    }
+
+    LOGGER.debug("Exiting Feed.getAndUnzip()  {}", response.getFilePath());
+    return response;
+  }
+
+  /**
+   * <p>
+   * Downloads the feed file, and unzips it on another thread as the ranges are committed. The
+   * unzipped file is only moved next to the feed file once the download has succeeded, and the
+   * feed file has its final name. Files on other storage than the local one are not unzipped while
+   * downloading, since the unzipped file cannot be moved there
+   * </p>
+   *
+   * @param download The prepared download
+   * @param downloadDirectory Local directory where files are downloaded
+   * @return GetFeedResponse Response with the path of the unzipped file, or of the gzipped file if
+   *         it still has to be unzipped
+   */
+  private GetFeedResponse unzipWhileDownloading(PreparedDownload download, Path downloadDirectory) {
+
+    if (!(storage instanceof LocalStorage))
+      return invoker(download, downloadDirectory);
+
+    String feedPath = download.feedPath.toString();
+    Path temp =
+        Paths.get(feedPath.substring(0, feedPath.length() - GZIP_SUFFIX.length())
+            + PipelinedUnzip.TEMP_SUFFIX);
+    PipelinedUnzip pipeline =
+        new PipelinedUnzip(download.pathToFile, temp, feedUtils.getDecompressor());
+    pipeline.start();
+
+    InvokeResponse responseFlag =
+        rangeDownloader.download(download.request, download.pathToFile, download.manifest,
+            download.chunkSizeLimit, pipeline::commit);
+
+    // the unzipping completes before the feed file is renamed
+    IOException unzipFailure = null;
+    if (responseFlag.getStatusCode() == 200 || responseFlag.getStatusCode() == 206) {
+      try {
+        pipeline.finish();
+      } catch (IOException e) {
+        unzipFailure = e;
+      }
+    }
+
+    GetFeedResponse response = toResponse(download, responseFlag, downloadDirectory);
+    try {
+      if (unzipFailure != null)
+        throw unzipFailure;
+      if (!Constants.SUCCESS_CODE.equals(response.getStatusCode())) {
+        pipeline.abort();
+        return response;
+      }
+
+      String filePath = response.getFilePath();
+      Path unzippedPath =
+          Paths.get(filePath.substring(0, filePath.length() - GZIP_SUFFIX.length()));
+      pipeline.moveTo(unzippedPath);
+      response.setFilePath(unzippedPath.toString());
+      return response;
+
+    } catch (IOException e) {
+      LOGGER.error("Exception while unzipping {}", download.pathToFile, e);
+      pipeline.abort();
+      GetFeedResponse failure =
+          new GetFeedResponse(Constants.FAILURE_CODE, e.getMessage(), null, null);
+      failure.setDownloadMetrics(response.getDownloadMetrics());
+      return failure;
+    }
+  }
+
+  /**
+   * <p>
+   * Fetches the first bytes of the feed file, as set in the previewBytes of the request, and writes
+   * the rows recovered from them to an unzipped preview file. The preview is neither cached nor
+   * resumed, since the preview file is not the feed file
+   * </p>
+   *
+   * @param feedRequest
+   * @param downloadDirectory Local directory of the preview file
+   * @return GetFeedResponse Response with the path of the unzipped preview file
+   * @throws IOException
+   */
+  private GetFeedResponse preview(FeedRequest feedRequest, Path downloadDirectory)
+      throws IOException {
+
+    LOGGER.debug("Entering Feed.preview()");
+
+    if (!feedValidator.isValidFeedRequest(feedRequest)) {
+      return new GetFeedResponse(-1, "Mandatory feedRequest parameters are null. Aborting..",
+          null, null);
+    }
+
+    try (RangeInputStream rangeStream = openStream(feedRequest);
+        TruncatedGzipInputStream rows = new TruncatedGzipInputStream(rangeStream)) {
+
+      rangeStream.open();
+      Path previewPath = getUnzippedPath(feedRequest, rangeStream, downloadDirectory);
+
+      byte[] buffer = new byte[Constants.DEFAULT_BUFFER_SIZE];
+      try (OutputStream out = storage.create(previewPath.toString())) {
+        int len;
+        while ((len = rows.read(buffer)) != -1) {
+          out.write(buffer, 0, len);
+        }
+      }
+
+      LOGGER.debug("Created preview file = {}, truncated = {}", previewPath, rows.isTruncated());
+      return new GetFeedResponse(Constants.SUCCESS_CODE, Constants.SUCCESS,
+          previewPath.toString(), null);
+    }
+  }
+
+  /**
+   * <p>
+   * Streams the feed file, or its first bytes in case of a preview
+   * </p>
+   */
+  private RangeInputStream openStream(FeedRequest feedRequest) {
+    Request request = feedUtils.generateRequest(feedRequest, new Request.Builder()).build();
+    return new RangeInputStream(client, request, feedUtils.getChunkSizeLimit(feedRequest),
+        retryPolicy, Math.max(feedRequest.getPreviewBytes(), 0));
+  }
+
+  /**
+   * <p>
+   * Path of the unzipped feed file, named after the last modified date of the streamed file. In
+   * case of a preview, the name ends with -preview, so that it is never mistaken for the feed file
+   * </p>
+   */
+  private Path getUnzippedPath(FeedRequest feedRequest, RangeInputStream rangeStream,
+      Path downloadDirectory) {
+
+    String fileName = feedUtils.generateFileName(feedRequest);
+    if (rangeStream.getLastModified() != null)
+      fileName = fileName.replace("null", rangeStream.getLastModified());
+    fileName = fileName.substring(0, fileName.length() - 3);
+    if (feedRequest.getPreviewBytes() > 0)
+      fileName = fileName + PREVIEW_SUFFIX;
+    return downloadDirectory.resolve(fileName);
+  }
+
+  /**
+   * <p>
+   * If null, then take default path - current directory
+   * </p>
+   */
+  private Path getDownloadDirectoryPath(String downloadDirectory) {
+    return downloadDirectory == null ? Paths.get(".").toAbsolutePath().normalize() : Paths
+        .get(downloadDirectory);
+  }
+
+  /**
+   * <p>
+   * Downloads the feed file, after the pre requisite functions
    * </p>
    * 
    * @param feedRequest
@@ -212,37 +608,125 @@ public class FeedImpl implements Feed {
   private GetFeedResponse process(FeedRequest feedRequest, Path downloadDirectory)
       throws IOException {
 
-    LOGGER.debug("Entering Feed.process()");
+    PreparedDownload download = prepare(feedRequest, downloadDirectory);
+    try {
+      if (download.response != null)
+        return download.response;
 
-    if (feedRequest.getToken() == null || feedRequest.getType() == null
-        || feedRequest.getCategoryId() == null || feedRequest.getMarketplaceId() == null) {
-      return new GetFeedResponse(-1, "Mandatory feedRequest parameters are null. Aborting..", null,
-          null);
+      // invoke request
+      return invoker(download, downloadDirectory);
+    } finally {
+      download.unlock();
     }
+  }
+
+  /**
+   * <p>
+   * The prepare method performs pre requisite functions, before calling the feed API - Creates
+   * default file/folder path - Waits for the lock on the feed file in a shared directory - Returns
+   * the cached file if caching is enabled and the file has not changed on the server - Resumes a
+   * partially downloaded file if its manifest is present, or cleans up the file if it is already
+   * present without a manifest
+   * </p>
+   * 
+   * @param feedRequest
+   * @param downloadDirectory Optional local directory where files can be downloaded. Default is
+   *        current working directory
+   * @return PreparedDownload The download to be made, or the response if there is nothing to
+   *         download
+   * @throws IOException
+   */
+  private PreparedDownload prepare(FeedRequest feedRequest, Path downloadDirectory)
+      throws IOException {
+
+    LOGGER.debug("Entering Feed.prepare()");
 
-    Request.Builder requestBuilder = new Request.Builder();
+    PreparedDownload download = new PreparedDownload();
+
+    if (!feedValidator.isValidFeedRequest(feedRequest)) {
+      download.response =
+          new GetFeedResponse(-1, "Mandatory feedRequest parameters are null. Aborting..", null,
+              null);
+      return download;
+    }
 
     Path pathToFile =
         Paths.get(downloadDirectory.toString() + "/" + feedUtils.generateFileName(feedRequest));
     LOGGER.debug("Path to store file = {}", pathToFile);
 
+    // generate static request
+    Request request = feedUtils.generateRequest(feedRequest, new Request.Builder()).build();
+
+    // in a shared directory, the file is downloaded by one process at a time
+    if (isSharedCache)
+      download.lock = CacheLock.acquire(pathToFile);
+
+    try {
+      prepareFile(download, request, pathToFile);
+    } catch (IOException | RuntimeException e) {
+      download.unlock();
+      throw e;
+    }
+    download.chunkSizeLimit = feedUtils.getChunkSizeLimit(feedRequest);
+    return download;
+  }
+
+  /**
+   * <p>
+   * Returns the cached file if it has not changed on the server, or prepares the file the feed is
+   * downloaded into. In a shared directory, this is a temporary file, which is published once
+   * complete
+   * </p>
+   *
+   * @param download The download being prepared
+   * @param request The API request
+   * @param pathToFile Path of the feed file
+   * @throws IOException
+   */
+  private void prepareFile(PreparedDownload download, Request request, Path pathToFile)
+      throws IOException {
+
+    download.feedPath = pathToFile;
+    FeedCache.Probe probe = null;
+    if (feedCache != null) {
+      probe = feedCache.lookup(request, pathToFile);
+      if (probe != null && probe.isFresh()) {
+        LOGGER.debug("Feed file has not changed. Returning cached file {}", probe.getPath());
+        download.response =
+            new GetFeedResponse(Constants.SUCCESS_CODE, Constants.SUCCESS, probe.getPath()
+                .toString(), null);
+        return;
+      }
+    }
+
+    if (download.lock != null)
+      pathToFile = download.lock.getTempPath();
+
+    RangeManifest manifest = null;
     if (Files.exists(pathToFile)) {
-      Files.delete(pathToFile);
+      manifest = RangeManifest.load(pathToFile);
+      if (manifest != null && manifest.isConsistent(Files.size(pathToFile))) {
+        LOGGER.debug("Resuming download with {}", manifest);
+      } else {
+        // no longer a cache entry, so that it is not evicted while it is downloaded again
+        Files.deleteIfExists(FeedCache.getCachedPath(pathToFile));
+        Files.delete(pathToFile);
+        Files.deleteIfExists(RangeManifest.getManifestPath(pathToFile));
+        manifest = null;
+      }
     } else {
       Files.createDirectories(pathToFile.getParent());
     }
 
-    Path path = Files.createFile(pathToFile);
-
-    // generate static request
-    requestBuilder = feedUtils.generateRequest(feedRequest, requestBuilder);
-
-    // generate dynamic header    
-    Long chunkSizeLimit = feedUtils.getChunkSizeLimit(feedRequest);
-    requestBuilder.addHeader(Constants.RANGE_HEADER, Constants.RANGE_PREFIX + chunkSizeLimit);
+    if (manifest == null) {
+      Files.createFile(pathToFile);
+      manifest = new RangeManifest(pathToFile);
+    }
 
-    // invoke request
-    return invoker(requestBuilder, path, true, chunkSizeLimit);
+    download.request = request;
+    download.pathToFile = pathToFile;
+    download.manifest = manifest;
+    download.probe = probe;
   }
 
   /**
@@ -250,68 +734,113 @@ public class FeedImpl implements Feed {
    * Invokes the feed API with the max range value of 100 MB. If the file is lesser than 100 MB,
    * then it returns the downloaded file path along with the status.
    * 
-   * If the file is greater than 100 MB - Iteratively calls feed API, with incrementing range
-   * headers - Appends content to file - Downloads entire content and returns with downloaded file
-   * path.
+   * If the file is greater than 100 MB - Reads the total size from the first content range, and
+   * downloads the remaining ranges, concurrently if configured - Writes each range at its own offset
+   * in the file - Records completed ranges in the manifest - Downloads entire content and returns
+   * with downloaded file path.
    * 
    * </p>
    * 
-   * @param request The API request
-   * @param path Path of the downloaded or partially downloading file, where contents need to be
-   *        appended
-   * @param isStart - THe first request sets this parameter to true. If subsequent requests are
-   *        required in case of 206, then this is set to false.
-   * @param chunkSizeLimit - This indicates the max chunkSize limit. For prod, it is 100 MB and for sandbox, it is 10MB.
+   * @param download The prepared download
+   * @param downloadDirectory Local directory where files are downloaded
    * @return
    */
-  private GetFeedResponse invoker(Request.Builder requestBuilder, Path path, boolean isStart, Long chunkSizeLimit) {
+  private GetFeedResponse invoker(PreparedDownload download, Path downloadDirectory) {
 
     LOGGER.debug("Entering Feed.invoker()");
 
-    Request request = requestBuilder.build();
-
-    LOGGER.debug("API request = {}", request.toString());
-
-    InvokeResponse responseFlag = invokeIteratively(request, path);
-
-    LOGGER.debug("First API Response = {}", responseFlag.toString());
-
-    if (responseFlag.getStatusCode() == 200) {
-      LOGGER.debug("First API Response is 200. All done..");
-      return new GetFeedResponse(Constants.SUCCESS_CODE, Constants.SUCCESS, fixFilePath(path,responseFlag), null);
-
-    } else if (responseFlag.getStatusCode() == 206) {
-
-      LOGGER.debug("First API Response is 206. Performing iterations...");
-
-      long requestRangeUpperLimit =
-          Long.valueOf(requestBuilder.build().header("Range").split("-")[1]) + 1;
-      long responseRangeUpperLimit = Long.valueOf(responseFlag.getContentRange().split("/")[1]);
+    LOGGER.debug("API request = {}", download.request.toString());
 
-      while (requestRangeUpperLimit <= responseRangeUpperLimit) {
+    InvokeResponse responseFlag =
+        rangeDownloader.download(download.request, download.pathToFile, download.manifest,
+            download.chunkSizeLimit);
 
-        long newUpperLimit = requestRangeUpperLimit + chunkSizeLimit;
-        String val = "bytes=" + requestRangeUpperLimit + "-" + newUpperLimit;
+    return toResponse(download, responseFlag, downloadDirectory);
+  }
 
-        requestBuilder.removeHeader(Constants.RANGE_HEADER);
-        requestBuilder.addHeader(Constants.RANGE_HEADER, val);
+  /**
+   * <p>
+   * Creates the response for a completed download. A successfully downloaded file is renamed if
+   * required, and published to the cache
+   * </p>
+   * 
+   * @param download The prepared download
+   * @param responseFlag Status of the download
+   * @param downloadDirectory Local directory where files are downloaded
+   * @return
+   */
+  private GetFeedResponse toResponse(PreparedDownload download, InvokeResponse responseFlag,
+      Path downloadDirectory) {
+
+    LOGGER.debug("API Response = {}", responseFlag.toString());
+
+    if (responseFlag.getStatusCode() != 200 && responseFlag.getStatusCode() != 206) {
+      LOGGER.debug("API Response is error. Aborting...");
+      GetFeedResponse response =
+          new GetFeedResponse(Constants.FAILURE_CODE,
+              responseFlag.getMessage() != null ? responseFlag.getMessage() : Constants.FAILURE,
+              null, null);
+      response.setDownloadMetrics(responseFlag.getDownloadMetrics());
+      return response;
+    }
 
-        responseFlag = invokeIteratively(requestBuilder.build(), path);
+    LOGGER.debug("Download complete. All done..");
+    String filePath;
+    if (download.lock != null) {
+      try {
+        filePath = publish(download, responseFlag);
+      } catch (IOException e) {
+        LOGGER.error("Unable to publish the downloaded file to the shared directory", e);
+        return new GetFeedResponse(Constants.FAILURE_CODE, e.getMessage(), null, null);
+      }
+    } else {
+      filePath = fixFilePath(download.pathToFile, responseFlag);
+    }
+    GetFeedResponse response =
+        new GetFeedResponse(Constants.SUCCESS_CODE, Constants.SUCCESS, filePath, null);
+    response.setDownloadMetrics(responseFlag.getDownloadMetrics());
 
-        if (responseFlag == null) {
-          return new GetFeedResponse(-1, "Internal error. Please check the logs..", null, null);
+    if (download.probe != null) {
+      Path downloadedPath = Paths.get(filePath);
+      if (download.lock == null) {
+        try {
+          feedCache.publish(downloadedPath, download.probe);
+          feedCache.record(downloadedPath);
+        } catch (IOException e) {
+          LOGGER.error("Unable to publish downloaded file to the cache", e);
         }
-
-        requestRangeUpperLimit =
-            Long.valueOf(requestBuilder.build().header(Constants.RANGE_HEADER).split("-")[1]) + 1;
-        responseRangeUpperLimit = Long.valueOf(responseFlag.getContentRange().split("/")[1]);
-
       }
-      return new GetFeedResponse(Constants.SUCCESS_CODE, Constants.SUCCESS, fixFilePath(path,responseFlag), null);
-    } else {
-      LOGGER.debug("First API Response is error. Aborting...");
-      return new GetFeedResponse(Constants.FAILURE_CODE, Constants.FAILURE, null, null);
+      feedCache.evict(downloadDirectory, downloadedPath);
     }
+    return response;
+  }
+
+  /**
+   * <p>
+   * Publishes the temporary file of a download in a shared directory. Its modified time is set for
+   * the cache before it is renamed, so that other processes see a complete, fresh feed file as soon
+   * as it appears. It is recorded as a cache entry once it is in place
+   * </p>
+   *
+   * @param download The completed download
+   * @param invokeResponse Status of the download
+   * @return String Path of the published feed file
+   * @throws IOException If the file cannot be published
+   */
+  private String publish(PreparedDownload download, InvokeResponse invokeResponse)
+      throws IOException {
+
+    Path target = download.feedPath;
+    String lastModified = invokeResponse.getLastModified();
+    if (target.toString().contains("null") && !StringUtils.isEmpty(lastModified))
+      target = Paths.get(target.toString().replace("null", lastModified));
+
+    if (download.probe != null)
+      feedCache.publish(download.pathToFile, download.probe);
+    download.lock.publish(target);
+    if (download.probe != null)
+      feedCache.record(target);
+    return target.toString();
   }
 
   /**
@@ -337,57 +866,6 @@ public class FeedImpl implements Feed {
 	    return newFilePath.toString();
   }
   
-  /**
-   * <p>
-   * Invoked, only if the file size is greater than max chunk size
-   * </p>
-   * 
-   * @param request The API request
-   * @param path Path of the downloaded or partially downloading file, where contents need to be
-   *        appended
-   * @return
-   */
-  private InvokeResponse invokeIteratively(Request request, Path path) {
-
-    InvokeResponse responseFlag = null;
-
-    try (Response response = client.newCall(request).execute()) {
-
-      if (!response.isSuccessful()) {
-        LOGGER.debug("Error in API response - status = {}, body = {}", response.code(), response
-            .body().string());
-        return new InvokeResponse(null, response.code());
-      }
-
-      InputStream is = response.body().byteStream();
-
-      OutputStream outStream = new FileOutputStream(path.toString(), true);
-      byte[] buffer = new byte[1024];
-      int bytesRead;
-      while ((bytesRead = is.read(buffer)) != -1) {
-        outStream.write(buffer, 0, bytesRead);
-      }
-      outStream.flush();
-      outStream.close();
-      is.close();
-
-      String lastModifiedHeader = response.header(Constants.LAST_MODIFIED_DATE_HEADER);
-      String lastModifiedDate = null;
-      if(!StringUtils.isEmpty(lastModifiedHeader)){
-    	  LocalDate localDate = LocalDate.parse(lastModifiedHeader, DateTimeFormatter.RFC_1123_DATE_TIME);
-    	  lastModifiedDate = localDate.format(DateTimeFormatter.BASIC_ISO_DATE);
-      }
-
-      responseFlag =
-          new InvokeResponse(response.header(Constants.CONTENT_RANGE_HEADER), response.code(), lastModifiedDate);
-
-    } catch (Throwable t) {
-		  LOGGER.error("Exception in feed.invokeIteratively()", t);			      
-		  responseFlag = new InvokeResponse(null, 400);
-    }
-    return responseFlag;
-  }
-
   /*
    * (non-Javadoc)
    * 
@@ -405,7 +883,6 @@ public class FeedImpl implements Feed {
 
     // container for holding list of responses
     List<com.ebay.feed.model.feed.operation.filter.Response> responses = new LinkedList<>();
-    GetFeedResponse getFeedResponse = null;
     com.ebay.feed.model.feed.operation.filter.Response unzipResponse = null;
     FeedRequest feedRequest = null;
     FeedFilterRequest filterRequest = null;
@@ -446,15 +923,26 @@ public class FeedImpl implements Feed {
             // set token
             feedRequest.setToken(Constants.TOKEN_BEARER_PREFIX + token);
 
-            // download
-            getFeedResponse = get(feedRequest, null);
+            if (configRequest.isUnzipWhileDownloading()) {
 
-            // success response, proceed to unzip
-            if (getFeedResponse != null && getFeedResponse.getStatusCode() == 0) {
+              // download, and unzip while the ranges arrive. A preview is unzipped already
+              unzipResponse = getAndUnzip(feedRequest, null);
 
-              // unzip
-              unzipResponse = unzip(getFeedResponse.getFilePath());
+            } else {
 
+              // download
+              GetFeedResponse getFeedResponse = get(feedRequest, null);
+
+              // success response, proceed to unzip. A preview is unzipped already
+              if (getFeedResponse != null && getFeedResponse.getStatusCode() == 0) {
+
+                // unzip
+                unzipResponse =
+                    feedRequest.getPreviewBytes() > 0 ? createResponse(Constants.SUCCESS_CODE,
+                        Constants.SUCCESS, getFeedResponse.getFilePath(), null)
+                        : unzip(getFeedResponse.getFilePath());
+
+              }
             }
           }
 
@@ -513,4 +1001,36 @@ public class FeedImpl implements Feed {
     return new com.ebay.feed.model.feed.operation.filter.Response(statusCode, message, filePath,
         appliedFilters);
   }
+
+  /**
+   * <p>
+   * Result of the pre requisite functions. Either the response, if there is nothing to download,
+   * or the parameters of the download
+   * </p>
+   */
+  private static class PreparedDownload {
+    private GetFeedResponse response;
+    private Request request;
+    private Path pathToFile;
+    private RangeManifest manifest;
+    private long chunkSizeLimit;
+    private FeedCache.Probe probe;
+    private Path feedPath;
+    private CacheLock lock;
+
+    /**
+     * <p>
+     * Releases the lock on the feed file in a shared directory
+     * </p>
+     */
+    private void unlock() {
+      if (lock == null)
+        return;
+      try {
+        lock.close();
+      } catch (IOException e) {
+        LOGGER.error("Unable to release the lock on {}", feedPath, e);
+      }
+    }
+  }
 }
@@ -15,6 +15,7 @@
 package com.ebay.feed.api;
 
 import java.io.IOException;
+import java.util.List;
 import com.ebay.feed.model.feed.operation.taxonomy.CategoryResponse;
 
 
@@ -30,6 +31,9 @@ import com.ebay.feed.model.feed.operation.taxonomy.CategoryResponse;
  * and level three categories to leaf categories. Useful when filtering on level two or level three
  * categories
  * </li>
+ * <li>
+ * <b>getLevelOneCategories</b> - Get the ids of the level one categories of the category tree
+ * </li>
  *  
  * </ul>
  * </div>
@@ -65,4 +69,15 @@ public interface Taxonomy {
    */
   public CategoryResponse loadLeafCategories(String token, String categoryTreeId, String categoryId);
 
+  /**
+   * <p>
+   * Returns the ids of the level one categories of the category tree
+   * </p>
+   * 
+   * @param token OAUth token
+   * @param categoryTreeId The category tree id for the marketplace
+   * @return List of level one category ids. Empty if the category tree could not be loaded
+   */
+  public List<String> getLevelOneCategories(String token, String categoryTreeId);
+
 }
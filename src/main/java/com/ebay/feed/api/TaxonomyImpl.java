@@ -14,23 +14,29 @@
 
 package com.ebay.feed.api;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.ebay.feed.constants.Constants;
+import com.ebay.feed.model.client.ClientConfig;
 import com.ebay.feed.model.feed.operation.taxonomy.CategoryResponse;
 import com.ebay.feed.model.taxonomy.CategorySubtreeNode;
 import com.ebay.feed.model.taxonomy.TaxonomyResponse;
+import com.ebay.feed.util.HttpClientUtil;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
 
 /**
  * <div>
@@ -43,6 +49,8 @@ import com.google.gson.JsonParser;
  * <b>loadLeafCategories</b> - Creates a map between level two categories to leaf categories, and
  * level three categories to leaf categories. Useful when filtering on level two or level three
  * categories</li>
+ * <li>
+ * <b>getLevelOneCategories</b> - Get the ids of the level one categories of the category tree</li>
  * 
  * </ul>
  * </div>
@@ -53,15 +61,39 @@ import com.google.gson.JsonParser;
 public class TaxonomyImpl implements Taxonomy {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(TaxonomyImpl.class);
+
+  // taxonomy calls are small, so they keep shorter connect and write timeouts than feed downloads
+  private static final ClientConfig DEFAULT_CONFIG = new ClientConfig.ClientConfigBuilder()
+      .connectTimeout(10).writeTimeout(10).readTimeout(30).build();
+  private static final ClientConfig FEED_DEFAULT_CONFIG =
+      new ClientConfig.ClientConfigBuilder().build();
+
   private OkHttpClient client = null;
   private Gson gson = null;
 
+  /**
+   * <p>
+   * Creates the taxonomy with its default client, whose connect and write timeouts are 10 seconds,
+   * and read timeout 30 seconds
+   * </p>
+   */
   public TaxonomyImpl() {
+    this(HttpClientUtil.getClient(DEFAULT_CONFIG));
+  }
 
-    client =
-        new OkHttpClient.Builder().connectTimeout(10, TimeUnit.SECONDS)
-            .writeTimeout(10, TimeUnit.SECONDS).readTimeout(30, TimeUnit.SECONDS).build();
+  /**
+   * 
+   * @param clientConfig Settings of the http client, which is shared with other API instances
+   *        created with the same settings. A config with only default settings keeps the default
+   *        timeouts of the taxonomy, instead of the longer ones of feed downloads
+   */
+  public TaxonomyImpl(ClientConfig clientConfig) {
+    this(HttpClientUtil.getClient(FEED_DEFAULT_CONFIG.equals(clientConfig) ? DEFAULT_CONFIG
+        : clientConfig));
+  }
 
+  private TaxonomyImpl(OkHttpClient client) {
+    this.client = client;
     gson = new Gson();
   }
 
@@ -139,6 +171,111 @@ public class TaxonomyImpl implements Taxonomy {
     return categoryResponse;
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see com.ebay.feed.api.Taxonomy#getLevelOneCategories(java.lang.String, java.lang.String)
+   */
+  @Override
+  public List<String> getLevelOneCategories(String token, String categoryTreeId) {
+
+    LOGGER.debug("Entering Taxonomy.getLevelOneCategories() with categoryTreeId = {}",
+        categoryTreeId);
+
+    List<String> categoryIds = new ArrayList<>();
+    Request.Builder requestBuilder = new Request.Builder();
+    requestBuilder.url(Constants.TAXONOMY_CATEGORY_SUBTREE_BASE + categoryTreeId);
+    requestBuilder.addHeader(Constants.AUTHORIZATION_HEADER, token);
+
+    try (Response response = client.newCall(requestBuilder.build()).execute()) {
+
+      if (response.isSuccessful()) {
+        categoryIds = readLevelOneCategories(response.body().charStream());
+        LOGGER.debug("Obtained level one categories = {}", categoryIds);
+      } else {
+        throw new Exception(response.body().string());
+      }
+    } catch (Exception e) {
+      LOGGER.error("Exception in getLevelOneCategories()", e);
+    }
+    return categoryIds;
+  }
+
+  /**
+   * <p>
+   * Reads the category ids of the children of the root node. The whole category tree is large, so
+   * it is streamed, and the levels below the level one categories are skipped without being parsed
+   * into objects
+   * </p>
+   * 
+   * @param json The category tree, as returned by the taxonomy API
+   * @return List of level one category ids
+   */
+  static List<String> readLevelOneCategories(Reader json) throws IOException {
+
+    List<String> categoryIds = new ArrayList<>();
+    try (JsonReader reader = new JsonReader(json)) {
+
+      reader.beginObject();
+      while (reader.hasNext()) {
+
+        if (!"rootCategoryNode".equals(reader.nextName())) {
+          reader.skipValue();
+          continue;
+        }
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+
+          if (!"childCategoryTreeNodes".equals(reader.nextName())) {
+            reader.skipValue();
+            continue;
+          }
+
+          reader.beginArray();
+          while (reader.hasNext()) {
+            String categoryId = readCategoryId(reader);
+            if (categoryId != null)
+              categoryIds.add(categoryId);
+          }
+          reader.endArray();
+        }
+        reader.endObject();
+      }
+      reader.endObject();
+    }
+    return categoryIds;
+  }
+
+  /**
+   * <p>
+   * Reads the category id of a category tree node, skipping its children
+   * </p>
+   */
+  private static String readCategoryId(JsonReader reader) throws IOException {
+
+    String categoryId = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+
+      if (!"category".equals(reader.nextName())) {
+        reader.skipValue();
+        continue;
+      }
+
+      reader.beginObject();
+      while (reader.hasNext()) {
+        if ("categoryId".equals(reader.nextName()))
+          categoryId = reader.nextString();
+        else
+          reader.skipValue();
+      }
+      reader.endObject();
+    }
+    reader.endObject();
+    return categoryId;
+  }
+
   /**
    * <p>
    * Loads the relationship between level three and leaf categories in a map
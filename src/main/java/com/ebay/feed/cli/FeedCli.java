@@ -33,6 +33,8 @@ import com.ebay.feed.api.FeedImpl;
 import com.ebay.feed.auth.CredentialLoader;
 import com.ebay.feed.enums.EnvTypeEnum;
 import com.ebay.feed.enums.FeedTypeEnum;
+import com.ebay.feed.model.feed.download.DownloadConfig;
+import com.ebay.feed.model.feed.download.DownloadConfig.DownloadConfigBuilder;
 import com.ebay.feed.model.feed.download.GetFeedResponse;
 import com.ebay.feed.model.feed.operation.feed.FeedRequest;
 import com.ebay.feed.model.feed.operation.feed.FeedRequest.FeedRequestBuilder;
@@ -148,6 +150,10 @@ public class FeedCli {
     filterItem.setArgs(Option.UNLIMITED_VALUES);
     options.addOption(filterItem);    
 
+    options.addOption("gzip", false, "gzip the filtered file, on several threads");
+
+    options.addOption("gzipthreads", true, "number of threads which gzip the filtered file");
+
     /**
      * Overrides for file locations
      */
@@ -156,6 +162,20 @@ public class FeedCli {
     options.addOption("dl", "downloadlocation", true,
         "override for changing the directory where files are downloaded");
 
+    // download settings
+    options.addOption("parallel", true, "number of ranges of the feed file downloaded concurrently");
+
+    options.addOption("adaptive", false,
+        "size each range from the measured throughput, instead of the max chunk size");
+
+    options.addOption("cache", false,
+        "reuse a previously downloaded feed file if it has not changed on the server");
+
+    options.addOption("stream", false,
+        "unzip and filter the feed file while downloading, without intermediate files");
+
+    options.addOption("pipelined", false, "unzip the feed file while its ranges are downloaded");
+
     // oauth related
     options.addOption("cl", "credentiallocation", true,
         "directory where the credentials file is located");
@@ -246,6 +266,12 @@ public class FeedCli {
     if (cmd.hasOption("itemf"))
       filterRequest.setItemIds(new HashSet<String>(Arrays.asList(cmd.getOptionValues("itemf"))));
 
+    if (cmd.hasOption("gzip"))
+      filterRequest.setGzipOutput(true);
+
+    if (cmd.hasOption("gzipthreads"))
+      filterRequest.setGzipParallelism(Integer.valueOf(cmd.getOptionValue("gzipthreads")));
+
     if (cmd.hasOption("c1"))
       filterRequest.setLevelOneCategory(cmd.getOptionValue("c1"));
 
@@ -264,6 +290,18 @@ public class FeedCli {
     if (cmd.hasOption("authscopes"))
       scopes = new ArrayList<String>(Arrays.asList(cmd.getOptionValues("authscopes")));
 
+    // populate download settings
+    DownloadConfigBuilder downloadConfigBuilder = new DownloadConfigBuilder();
+
+    if (cmd.hasOption("parallel"))
+      downloadConfigBuilder.parallelism(Integer.valueOf(cmd.getOptionValue("parallel")));
+
+    if (cmd.hasOption("adaptive"))
+      downloadConfigBuilder.adaptiveChunkSize(true);
+
+    if (cmd.hasOption("cache"))
+      downloadConfigBuilder.cacheEnabled(true);
+
     if (cmd.hasOption("help")) {
       HelpFormatter formatter = new HelpFormatter();
       formatter.setOptionComparator(null);
@@ -275,7 +313,8 @@ public class FeedCli {
       AuthRequest authRequest = new AuthRequest(credentialFile, scopes);
 
       // start processing
-      start(feedRequest, filterRequest, authRequest, optionalDownloadPath);
+      start(feedRequest, filterRequest, authRequest, optionalDownloadPath,
+          downloadConfigBuilder.build(), cmd.hasOption("stream"), cmd.hasOption("pipelined"));
     }
   }
 
@@ -286,12 +325,16 @@ public class FeedCli {
    * 
    * @param feedRequest
    * @param filterRequest
+   * @param downloadConfig
+   * @param isStreaming
+   * @param isPipelined
    * @throws Exception
    */
   private static void start(FeedRequest feedRequest, FeedFilterRequest filterRequest,
-      AuthRequest authRequest, String optionalDownloadPath) throws Exception {
+      AuthRequest authRequest, String optionalDownloadPath, DownloadConfig downloadConfig,
+      boolean isStreaming, boolean isPipelined) throws Exception {
 
-    Feed feed = new FeedImpl();
+    Feed feed = new FeedImpl(downloadConfig);
 
     // if token is null, then retrieve from oauth lib and set in request
     if (feedRequest.getToken() == null) {
@@ -301,17 +344,33 @@ public class FeedCli {
       filterRequest.setToken(credentialLoader.getOauthResponse().getAccessToken().get().getToken());
     }
 
-    // download feed
-    GetFeedResponse getFeedResponse = feed.get(feedRequest, optionalDownloadPath);
-
-    if (getFeedResponse.getStatusCode() != 0)
+    // download, unzip and filter in one pass
+    if (isStreaming) {
+      Response filterResponse = feed.getAndFilter(feedRequest, filterRequest, optionalDownloadPath);
+      System.out.println("Filter response = " + filterResponse.toString());
       return;
+    }
 
-    // unzip
-    Response unzipResponse = feed.unzip(getFeedResponse.getFilePath());
-    
-    if (unzipResponse.getStatusCode() != 0)
-      return;
+    Response unzipResponse;
+    if (isPipelined) {
+
+      // download feed, and unzip it while the ranges arrive
+      unzipResponse = feed.getAndUnzip(feedRequest, optionalDownloadPath);
+
+      if (unzipResponse.getStatusCode() != 0)
+        return;
+
+    } else {
+
+      // download feed
+      GetFeedResponse getFeedResponse = feed.get(feedRequest, optionalDownloadPath);
+
+      if (getFeedResponse.getStatusCode() != 0)
+        return;
+
+      // unzip
+      unzipResponse = feed.unzip(getFeedResponse.getFilePath());
+    }
 
     // filter
     filterRequest.setInputFilePath(unzipResponse.getFilePath());
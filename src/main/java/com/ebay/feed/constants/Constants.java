@@ -26,10 +26,58 @@ public class Constants {
   // max content that can be downloaded in one request, in bytes
   public static final Long PROD_CHUNK_SIZE = 104857600L;
   public static final Long SANDBOX_CHUNK_SIZE = 10485760L;
-  
+
+  // number of ranges downloaded concurrently, once the first response is received
+  public static final Integer DEFAULT_PARALLELISM = 1;
+
+  // size of the buffers used to write downloaded ranges to disk, in bytes
+  public static final Integer DEFAULT_BUFFER_SIZE = 1048576;
+
+  // smallest chunk size chosen by adaptive range sizing, in bytes
+  public static final Long DEFAULT_MIN_CHUNK_SIZE = 1048576L;
+
+  // retries of a failed range, and the backoff before the first and any later retry, in millis
+  public static final Integer DEFAULT_MAX_RETRIES = 3;
+  public static final Long DEFAULT_RETRY_BACKOFF = 500L;
+  public static final Long DEFAULT_RETRY_MAX_BACKOFF = 30000L;
+
+  // shortest wait for the response headers of a range before it is hedged, in millis
+  public static final Long DEFAULT_HEDGE_MIN_DELAY = 100L;
+
+  // threads which unzip a feed file made of several gzip members
+  public static final Integer DEFAULT_UNZIP_PARALLELISM = 1;
+
+  // size of the buffers the gzipped bytes are read into while unzipping, in bytes
+  public static final Integer DEFAULT_UNZIP_BUFFER_SIZE = 262144;
+
+  // blocks of unzipped bytes read ahead of the filter, on a thread of their own
+  public static final Integer DEFAULT_READ_AHEAD_BLOCKS = 4;
+
+  // unzipped bytes between the checkpoints of a feed file index, in bytes
+  public static final Long DEFAULT_INDEX_SPAN = 1048576L;
+
+  // threads which gzip a filtered file, and the unzipped bytes of each gzip member they write
+  public static final Integer DEFAULT_GZIP_PARALLELISM = Runtime.getRuntime().availableProcessors();
+  public static final Integer DEFAULT_GZIP_BLOCK_SIZE = 1048576;
+
   // timeout for http client
   public static final Integer TIMEOUT = 30;
 
+  // idle connections kept in the shared http connection pool, and for how long in seconds
+  public static final Integer DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+  public static final Long DEFAULT_KEEP_ALIVE = 300L;
+
+  // concurrent asynchronous requests in total, and per host
+  public static final Integer DEFAULT_MAX_REQUESTS = 64;
+  public static final Integer DEFAULT_MAX_REQUESTS_PER_HOST = 5;
+
+  // feed files downloaded at the same time by a bulk download
+  public static final Integer DEFAULT_MAX_CONCURRENT_DOWNLOADS = 4;
+
+  // size of the parts of a multipart upload to S3, in bytes, and the default region
+  public static final Integer DEFAULT_S3_PART_SIZE = 8388608;
+  public static final String DEFAULT_S3_REGION = "us-east-1";
+
   // api related constants
   public static final String AUTHORIZATION_HEADER = "Authorization";
   
@@ -49,6 +97,7 @@ public class Constants {
   public static final String RANGE_HEADER = "Range";
   public static final String CONTENT_RANGE_HEADER = "Content-Range";
   public static final String LAST_MODIFIED_DATE_HEADER = "Last-Modified";
+  public static final String RETRY_AFTER_HEADER = "Retry-After";
   public static final String TOKEN_BEARER_PREFIX = "Bearer ";
   public static final String TRUE = "true";
   public static final String FALSE = "false";
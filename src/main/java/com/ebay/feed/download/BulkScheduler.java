@@ -0,0 +1,191 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ebay.feed.constants.Constants;
+import com.ebay.feed.model.feed.operation.internal.ByteRange;
+import com.ebay.feed.model.feed.operation.internal.ContentRange;
+
+/**
+ * <p>
+ * Schedules the downloads of many feed files. The size of each feed file is found with a one byte
+ * range request, and the downloads are started largest first, so that the longest download does
+ * not start last and hold up the whole batch. At most maxConcurrentDownloads feed files are
+ * downloaded at the same time; the number of requests to each host is limited by the dispatcher of
+ * the http client.
+ * </p>
+ */
+public class BulkScheduler {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BulkScheduler.class);
+  private static final int OK = 200;
+  private static final int PARTIAL_CONTENT = 206;
+
+  private final OkHttpClient client;
+  private final int maxConcurrentDownloads;
+
+  /**
+   *
+   * @param client Http client
+   * @param maxConcurrentDownloads Max number of feed files downloaded at the same time
+   */
+  public BulkScheduler(OkHttpClient client, int maxConcurrentDownloads) {
+    this.client = client;
+    this.maxConcurrentDownloads = Math.max(1, maxConcurrentDownloads);
+  }
+
+  /**
+   * <p>
+   * Requests the first byte of each feed file, concurrently, to find its size
+   * </p>
+   *
+   * @param requests The API requests, without the range header, by key
+   * @return CompletableFuture Completes with the size of each feed file, by key. The size is -1 if
+   *         it could not be found
+   */
+  public CompletableFuture<Map<String, Long>> probeSizes(Map<String, Request> requests) {
+
+    Map<String, Long> sizes = new ConcurrentHashMap<>();
+    List<CompletableFuture<Void>> probes = new ArrayList<>();
+    for (Map.Entry<String, Request> entry : requests.entrySet()) {
+      probes.add(probeSize(entry.getValue()).thenAccept(size -> sizes.put(entry.getKey(), size)));
+    }
+
+    return CompletableFuture.allOf(probes.toArray(new CompletableFuture<?>[probes.size()]))
+        .thenApply(done -> sizes);
+  }
+
+  /**
+   * <p>
+   * Runs the downloads largest first, keeping at most maxConcurrentDownloads of them running. Each
+   * download starts as soon as a running one completes
+   * </p>
+   *
+   * @param sizes Size of each feed file, by key
+   * @param download Starts the download for a key
+   * @return CompletableFuture Completes with the result of each download, by key, largest first
+   */
+  public <T> CompletableFuture<Map<String, T>> schedule(Map<String, Long> sizes,
+      Function<String, CompletableFuture<T>> download) {
+
+    List<String> order = largestFirst(sizes);
+    Queue<String> pending = new ConcurrentLinkedQueue<>(order);
+    Map<String, T> results = new ConcurrentHashMap<>();
+
+    int workers = Math.min(maxConcurrentDownloads, order.size());
+    LOGGER.debug("Scheduling {} downloads with {} workers", order.size(), workers);
+
+    List<CompletableFuture<Void>> chains = new ArrayList<>();
+    for (int i = 0; i < workers; i++) {
+      chains.add(next(pending, results, download));
+    }
+
+    return CompletableFuture.allOf(chains.toArray(new CompletableFuture<?>[chains.size()]))
+        .thenApply(done -> {
+          Map<String, T> ordered = new LinkedHashMap<>();
+          for (String key : order) {
+            ordered.put(key, results.get(key));
+          }
+          return ordered;
+        });
+  }
+
+  /**
+   * @param sizes Size of each feed file, by key
+   * @return List The keys, largest feed file first. Unknown sizes are last
+   */
+  static List<String> largestFirst(Map<String, Long> sizes) {
+    List<String> order = new ArrayList<>(sizes.keySet());
+    order.sort(Comparator.comparing((String key) -> sizes.get(key)).reversed());
+    return order;
+  }
+
+  /**
+   * <p>
+   * Starts the next pending download, and, once it completes, the one after it, until no downloads
+   * are pending
+   * </p>
+   */
+  private <T> CompletableFuture<Void> next(Queue<String> pending, Map<String, T> results,
+      Function<String, CompletableFuture<T>> download) {
+
+    String key = pending.poll();
+    if (key == null)
+      return CompletableFuture.completedFuture(null);
+
+    LOGGER.debug("Starting download of {}", key);
+    return download.apply(key).thenCompose(result -> {
+      results.put(key, result);
+      return next(pending, results, download);
+    });
+  }
+
+  private CompletableFuture<Long> probeSize(Request request) {
+
+    CompletableFuture<Long> future = new CompletableFuture<>();
+    Request probeRequest =
+        request.newBuilder().header(Constants.RANGE_HEADER, new ByteRange(0, 0).toHeaderValue())
+            .build();
+
+    client.newCall(probeRequest).enqueue(new Callback() {
+
+      @Override
+      public void onFailure(Call call, IOException e) {
+        LOGGER.debug("Could not find the size of {}", call.request().url(), e);
+        future.complete(-1L);
+      }
+
+      @Override
+      public void onResponse(Call call, Response response) {
+        try {
+          long size = -1;
+          if (response.code() == PARTIAL_CONTENT) {
+            ContentRange contentRange =
+                ContentRange.parse(response.header(Constants.CONTENT_RANGE_HEADER));
+            if (contentRange != null)
+              size = contentRange.getTotal();
+          } else if (response.code() == OK) {
+            size = response.body().contentLength();
+          }
+          future.complete(size);
+        } finally {
+          response.close();
+        }
+      }
+    });
+    return future;
+  }
+}
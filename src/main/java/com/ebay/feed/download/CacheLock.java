@@ -0,0 +1,188 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Exclusive lock on a feed file in a download directory shared by several processes. The lock is
+ * held on a lock file next to the feed file, with a {@link java.nio.channels.FileLock}, so that only
+ * one process on the host downloads the feed file at a time. File locks are held by the whole JVM,
+ * so threads of the same process also wait on a semaphore per lock file. The lock may be released
+ * by a different thread than the one which acquired it.
+ * </p>
+ * <p>
+ * The holder downloads into the temporary file, and publishes it with an atomic rename, so other
+ * processes never see a partial feed file. Lock files are never deleted, since a process could be
+ * waiting on a lock file which another process deletes.
+ * </p>
+ */
+public class CacheLock implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CacheLock.class);
+  private static final String LOCK_SUFFIX = ".lock";
+  private static final String TEMP_SUFFIX = ".part";
+
+  private static final ConcurrentMap<Path, Semaphore> LOCAL_LOCKS = new ConcurrentHashMap<>();
+
+  private final Path pathToFile;
+  private final Semaphore localLock;
+  private final FileChannel channel;
+  private final AtomicBoolean isReleased = new AtomicBoolean();
+
+  private CacheLock(Path pathToFile, Semaphore localLock, FileChannel channel) {
+    this.pathToFile = pathToFile;
+    this.localLock = localLock;
+    this.channel = channel;
+  }
+
+  /**
+   * <p>
+   * Waits until no other thread or process holds the lock on the feed file, and acquires it
+   * </p>
+   *
+   * @param pathToFile Path of the feed file
+   * @return CacheLock The acquired lock, which must be closed
+   * @throws IOException If the lock file cannot be created or locked, or the thread is interrupted
+   */
+  public static CacheLock acquire(Path pathToFile) throws IOException {
+
+    Path lockPath = getLockPath(pathToFile).toAbsolutePath().normalize();
+    Semaphore localLock = LOCAL_LOCKS.computeIfAbsent(lockPath, path -> new Semaphore(1));
+    try {
+      localLock.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for " + lockPath);
+    }
+    return lock(pathToFile, lockPath, localLock, true);
+  }
+
+  /**
+   * <p>
+   * Acquires the lock on the feed file if no other thread or process holds it, without waiting
+   * </p>
+   *
+   * @param pathToFile Path of the feed file
+   * @return CacheLock The acquired lock, which must be closed, or null if the lock is held
+   * @throws IOException If the lock file cannot be created or locked
+   */
+  public static CacheLock tryAcquire(Path pathToFile) throws IOException {
+
+    Path lockPath = getLockPath(pathToFile).toAbsolutePath().normalize();
+    Semaphore localLock = LOCAL_LOCKS.computeIfAbsent(lockPath, path -> new Semaphore(1));
+    if (!localLock.tryAcquire())
+      return null;
+    return lock(pathToFile, lockPath, localLock, false);
+  }
+
+  /**
+   * <p>
+   * Locks the lock file once the semaphore of this process is acquired, waiting for other
+   * processes if requested. Returns null if another process holds the lock and it is not waited
+   * for
+   * </p>
+   */
+  private static CacheLock lock(Path pathToFile, Path lockPath, Semaphore localLock,
+      boolean isWaiting) throws IOException {
+
+    FileChannel channel = null;
+    try {
+      Files.createDirectories(lockPath.getParent());
+      channel =
+          FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+      if (isWaiting) {
+        LOGGER.debug("Waiting for lock {}", lockPath);
+        channel.lock();
+      } else if (channel.tryLock() == null) {
+        channel.close();
+        localLock.release();
+        return null;
+      }
+      LOGGER.debug("Acquired lock {}", lockPath);
+      return new CacheLock(pathToFile, localLock, channel);
+
+    } catch (IOException | RuntimeException e) {
+      if (channel != null)
+        channel.close();
+      localLock.release();
+      throw e;
+    }
+  }
+
+  /**
+   * @param pathToFile Path of the feed file
+   * @return Path Path of the lock file for the feed file
+   */
+  public static Path getLockPath(Path pathToFile) {
+    return Paths.get(pathToFile.toString() + LOCK_SUFFIX);
+  }
+
+  /**
+   * @return Path Path of the temporary file the feed file is downloaded into
+   */
+  public Path getTempPath() {
+    return Paths.get(pathToFile.toString() + TEMP_SUFFIX);
+  }
+
+  /**
+   * <p>
+   * Publishes the downloaded temporary file as the feed file, with an atomic rename which replaces
+   * any previous version of the feed file
+   * </p>
+   *
+   * @param target Path of the published feed file. It differs from the path of the lock when the
+   *        file name is completed with the last modified date
+   * @throws IOException If the file cannot be renamed
+   */
+  public void publish(Path target) throws IOException {
+    Files.move(getTempPath(), target, StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+    LOGGER.debug("Published {}", target);
+  }
+
+  /**
+   * <p>
+   * Releases the lock. Releasing it again has no effect
+   * </p>
+   */
+  @Override
+  public void close() throws IOException {
+    if (!isReleased.compareAndSet(false, true))
+      return;
+    try {
+      // closing the channel releases the file lock
+      channel.close();
+    } finally {
+      localLock.release();
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import java.nio.file.Path;
+
+import com.ebay.feed.model.feed.download.DownloadProgress;
+import com.ebay.feed.model.feed.operation.internal.ByteRange;
+
+/**
+ * <div>
+ * Receives the progress of feed file downloads. Events are delivered on the threads which download
+ * the ranges, concurrently when ranges are downloaded in parallel, so implementations must be
+ * thread safe and return quickly. Exceptions thrown by the listener are logged and ignored.
+ * <ul>
+ * <li><b>onRangeStart</b> - A request for a range is sent, including retries</li>
+ * <li><b>onBytesWritten</b> - A buffer of the range has been written to the file</li>
+ * <li><b>onRangeComplete</b> - The range has been written completely</li>
+ * <li><b>onRetry</b> - The range failed, and is retried after the backoff</li>
+ * <li><b>onProgress</b> - Overall progress of the file, after every write</li>
+ * </ul>
+ * </div>
+ */
+public interface DownloadListener {
+
+  /**
+   * @param path Path of the feed file
+   * @param range The requested range
+   */
+  default void onRangeStart(Path path, ByteRange range) {}
+
+  /**
+   * @param path Path of the feed file
+   * @param range The range being written
+   * @param bytes Number of bytes written
+   */
+  default void onBytesWritten(Path path, ByteRange range, long bytes) {}
+
+  /**
+   * @param path Path of the feed file
+   * @param range The requested range
+   * @param bytes Number of bytes written for the range
+   * @param elapsedMillis Time from the request to the last byte
+   */
+  default void onRangeComplete(Path path, ByteRange range, long bytes, long elapsedMillis) {}
+
+  /**
+   * @param path Path of the feed file
+   * @param range The range which failed
+   * @param retry Number of the retry, starting at 1
+   * @param statusCode Status code of the failed attempt, -1 for a network error
+   * @param backoffMillis Time until the retry
+   */
+  default void onRetry(Path path, ByteRange range, int retry, int statusCode, long backoffMillis) {}
+
+  /**
+   * @param progress Overall progress of the feed file
+   */
+  default void onProgress(DownloadProgress progress) {}
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongConsumer;
+
+/**
+ * <p>
+ * Writes the response bodies of all the ranges of a feed file through a single file channel, which
+ * stays open for the whole download. Bytes are moved from the response source into large direct
+ * buffers, and written with positional writes, so ranges from several workers can be written
+ * concurrently. Buffers are pooled and reused across ranges. If the sink has a
+ * {@link GzipVerifier}, the bytes are offered to it as they are written, and bytes which were
+ * written out of order are read back from the file once the bytes before them are complete.
+ * </p>
+ * <p>
+ * The offset up to which the file is complete, and verified if there is a verifier, is passed to
+ * the commit consumer of the sink, if any, so that the file can be read while it is downloaded.
+ * </p>
+ */
+public class DownloadSink implements Closeable {
+
+  private final RandomAccessFile file;
+  private final FileChannel channel;
+  private final int bufferSize;
+  private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+  private final GzipVerifier verifier;
+  private final Path path;
+  private final LongConsumer onCommitted;
+  private volatile boolean isFailed = false;
+
+  /**
+   *
+   * @param path Path of the file being downloaded. The file must exist
+   * @param bufferSize Size of the direct buffers, in bytes
+   * @throws IOException If the file cannot be opened
+   */
+  public DownloadSink(Path path, int bufferSize) throws IOException {
+    this(path, bufferSize, null);
+  }
+
+  /**
+   *
+   * @param path Path of the file being downloaded. The file must exist
+   * @param bufferSize Size of the direct buffers, in bytes
+   * @param verifier Verifier of the gzipped file, or null
+   * @throws IOException If the file cannot be opened
+   */
+  public DownloadSink(Path path, int bufferSize, GzipVerifier verifier) throws IOException {
+    this(path, bufferSize, verifier, null);
+  }
+
+  /**
+   *
+   * @param path Path of the file being downloaded. The file must exist
+   * @param bufferSize Size of the direct buffers, in bytes
+   * @param verifier Verifier of the gzipped file, or null
+   * @param onCommitted Receives the offset up to which the file is complete, each time it is
+   *        checked. It is called from the threads which download the ranges, possibly with an
+   *        offset lower than one it has already received. May be null
+   * @throws IOException If the file cannot be opened
+   */
+  public DownloadSink(Path path, int bufferSize, GzipVerifier verifier, LongConsumer onCommitted)
+      throws IOException {
+    this.file = new RandomAccessFile(path.toFile(), "rw");
+    this.channel = file.getChannel();
+    this.bufferSize = bufferSize;
+    this.verifier = verifier;
+    this.path = path;
+    this.onCommitted = onCommitted;
+  }
+
+  /**
+   * <p>
+   * Reads the source until it is exhausted, and writes the bytes to the file starting at the
+   * position
+   * </p>
+   *
+   * @param source The response body source
+   * @param position Offset in the file, where the first byte is written
+   * @return long Number of bytes written
+   * @throws IOException If the source cannot be read, or the file cannot be written
+   */
+  public long write(ReadableByteChannel source, long position) throws IOException {
+    return write(source, position, null);
+  }
+
+  /**
+   * <p>
+   * Reads the source until it is exhausted, and writes the bytes to the file starting at the
+   * position. The number of bytes in each buffer is passed to the consumer once written
+   * </p>
+   *
+   * @param source The response body source
+   * @param position Offset in the file, where the first byte is written
+   * @param onWritten Receives the number of bytes of each write. May be null
+   * @return long Number of bytes written
+   * @throws IOException If the source cannot be read, or the file cannot be written
+   */
+  public long write(ReadableByteChannel source, long position, LongConsumer onWritten)
+      throws IOException {
+
+    ByteBuffer buffer = buffers.poll();
+    if (buffer == null)
+      buffer = ByteBuffer.allocateDirect(bufferSize);
+
+    long written = 0;
+    try {
+      boolean isExhausted = false;
+      while (!isExhausted) {
+
+        // fill the buffer as much as possible, to keep the number of writes low
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+          if (source.read(buffer) == -1) {
+            isExhausted = true;
+            break;
+          }
+        }
+
+        buffer.flip();
+        if (verifier != null)
+          verifier.offer(position + written, buffer);
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+          written += channel.write(buffer, position + written);
+        }
+        if (onWritten != null && length > 0)
+          onWritten.accept(length);
+      }
+    } finally {
+      buffers.offer(buffer);
+    }
+    return written;
+  }
+
+  /**
+   * <p>
+   * Flushes the written bytes to the storage device
+   * </p>
+   *
+   * @throws IOException If the file cannot be flushed
+   */
+  public void force() throws IOException {
+    channel.force(false);
+  }
+
+  /**
+   * <p>
+   * Extends the file to its full size, before the ranges are written, so that the file system can
+   * allocate it in one piece, and ranges can be written at any offset. A file which is already as
+   * large is left as it is
+   * </p>
+   *
+   * @param size Full size of the file
+   * @throws IOException If the file cannot be extended
+   */
+  public void preallocate(long size) throws IOException {
+    if (file.length() < size)
+      file.setLength(size);
+  }
+
+  /**
+   *
+   * @param size New size of the file
+   * @throws IOException If the file cannot be truncated
+   */
+  public void truncate(long size) throws IOException {
+    channel.truncate(size);
+    if (verifier != null && size < verifier.getPosition()) {
+      verifier.reset();
+      isFailed = false;
+    }
+  }
+
+  /**
+   * <p>
+   * Verifies the bytes of the file up to the offset, which must all have been written. Only the
+   * bytes which were not verified while they were written are read back from the file. The offset
+   * is then committed
+   * </p>
+   *
+   * @param end Offset up to which the file is complete
+   * @throws IOException If the file cannot be read, or is not a valid gzip file
+   */
+  public void verify(long end) throws IOException {
+
+    if (verifier == null) {
+      commit(end);
+      return;
+    }
+
+    ByteBuffer buffer = buffers.poll();
+    if (buffer == null)
+      buffer = ByteBuffer.allocateDirect(bufferSize);
+
+    try {
+      long position;
+      while ((position = verifier.getPosition()) < end && !verifier.isFailed()) {
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), end - position));
+        if (channel.read(buffer, position) == -1)
+          throw new EOFException("Feed file ends at " + position + ", expected " + end);
+        buffer.flip();
+        verifier.offer(position, buffer);
+      }
+      verifier.check();
+    } catch (IOException e) {
+      isFailed = true;
+      throw e;
+    } finally {
+      buffers.offer(buffer);
+    }
+    commit(end);
+  }
+
+  /**
+   * @return boolean Indicates whether verify has failed since the file was last truncated below the
+   *         verified bytes, so that the file must be discarded
+   */
+  public boolean isFailed() {
+    return isFailed;
+  }
+
+  private void commit(long end) {
+    if (onCommitted != null)
+      onCommitted.accept(end);
+  }
+
+  /**
+   * <p>
+   * Checks that the file has the expected size, and, with a verifier, that it is a complete and
+   * valid gzip file
+   * </p>
+   *
+   * @param total Expected size of the file
+   * @throws IOException If the file is incomplete, or is not a valid gzip file
+   */
+  public void verifyAll(long total) throws IOException {
+
+    if (channel.size() != total)
+      throw new EOFException("Feed file has " + channel.size() + " bytes, expected " + total);
+
+    if (verifier == null) {
+      commit(total);
+      return;
+    }
+
+    verify(total);
+    verifier.finish(total);
+  }
+
+  /**
+   * @return long Number of bytes available for the file on its file store
+   * @throws IOException If the file store cannot be read
+   */
+  public long getUsableSpace() throws IOException {
+    return Files.getFileStore(path).getUsableSpace();
+  }
+
+  /**
+   * @return long Current size of the file
+   * @throws IOException If the size cannot be read
+   */
+  public long size() throws IOException {
+    return channel.size();
+  }
+
+  @Override
+  public void close() throws IOException {
+    buffers.clear();
+    if (verifier != null)
+      verifier.end();
+    file.close();
+  }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ebay.feed.constants.Constants;
+import com.ebay.feed.model.feed.operation.internal.ByteRange;
+import com.ebay.feed.model.feed.operation.internal.ContentRange;
+import com.ebay.feed.util.FeedUtil;
+
+/**
+ * <p>
+ * Reuses feed files which were downloaded earlier into the same directory. The file name generated
+ * for a feed request identifies the feed file, and a one byte range request tells the current size
+ * and last modified time of the feed file on the server. A file on disk is fresh if it has the same
+ * size, and its modified time was set to the last modified time of the feed file when it was
+ * downloaded. Fresh files are returned without downloading them again.
+ * </p>
+ * <p>
+ * Once a downloaded feed file is in place, an empty marker file is written next to it, whose
+ * modified time is the time the feed file was cached. Only feed files with a marker are cache
+ * entries. They are evicted when they were cached longer ago than the max age, or, oldest first,
+ * when the total size of the entries exceeds the max size. Other files in the directory, such as
+ * filtered files and downloads in progress, are never evicted.
+ * </p>
+ */
+public class FeedCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(FeedCache.class);
+  private static final int OK = 200;
+  private static final int PARTIAL_CONTENT = 206;
+  private static final String CACHED_SUFFIX = ".cached";
+
+  private final OkHttpClient client;
+  private final long maxAgeMillis;
+  private final long maxBytes;
+  private final FeedUtil feedUtils = new FeedUtil();
+
+  /**
+   *
+   * @param client Http client
+   * @param maxAgeMillis Feed files older than this are evicted. 0 for no limit
+   * @param maxBytes Max total size of the feed files in a directory. 0 for no limit
+   */
+  public FeedCache(OkHttpClient client, long maxAgeMillis, long maxBytes) {
+    this.client = client;
+    this.maxAgeMillis = maxAgeMillis;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * <p>
+   * Requests the first byte of the feed file, to find its size and last modified time, and checks
+   * whether the file on disk is still fresh. Returns null if the server could not be reached
+   * </p>
+   *
+   * @param request The API request, without the range header
+   * @param pathToFile Path where the feed file is downloaded
+   * @return Probe The result of the lookup, or null
+   */
+  public Probe lookup(Request request, Path pathToFile) {
+
+    Request probeRequest =
+        request.newBuilder().header(Constants.RANGE_HEADER, new ByteRange(0, 0).toHeaderValue())
+            .build();
+
+    try (Response response = client.newCall(probeRequest).execute()) {
+
+      long total;
+      if (response.code() == PARTIAL_CONTENT) {
+        ContentRange contentRange =
+            ContentRange.parse(response.header(Constants.CONTENT_RANGE_HEADER));
+        if (contentRange == null)
+          return null;
+        total = contentRange.getTotal();
+      } else if (response.code() == OK) {
+        total = response.body().contentLength();
+      } else {
+        LOGGER.debug("Could not look up cached feed file - status = {}", response.code());
+        return null;
+      }
+
+      String lastModifiedHeader = response.header(Constants.LAST_MODIFIED_DATE_HEADER);
+      if (StringUtils.isEmpty(lastModifiedHeader))
+        return null;
+
+      FileTime lastModified =
+          FileTime.from(ZonedDateTime.parse(lastModifiedHeader,
+              DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+
+      // bootstrap files without date are named after the last modified date
+      Path path = pathToFile;
+      if (path.toString().contains("null"))
+        path =
+            Paths.get(path.toString().replace("null",
+                feedUtils.getLastModifiedDate(lastModifiedHeader)));
+
+      boolean isFresh =
+          Files.exists(path) && !Files.exists(RangeManifest.getManifestPath(path))
+              && Files.size(path) == total
+              && Files.getLastModifiedTime(path).toMillis() == lastModified.toMillis();
+
+      Probe probe = new Probe(path, total, lastModified, isFresh);
+      LOGGER.debug("Cache lookup = {}", probe);
+      return probe;
+
+    } catch (Exception e) {
+      LOGGER.error("Exception in FeedCache.lookup()", e);
+      return null;
+    }
+  }
+
+  /**
+   * <p>
+   * Marks a downloaded feed file as fresh, by setting its modified time to the last modified time
+   * of the feed file on the server
+   * </p>
+   *
+   * @param path Path of the downloaded feed file
+   * @param probe Result of the lookup before the download
+   * @throws IOException If the modified time cannot be set
+   */
+  public void publish(Path path, Probe probe) throws IOException {
+    Files.setLastModifiedTime(path, probe.getLastModified());
+  }
+
+  /**
+   * <p>
+   * Records a published feed file as a cache entry, cached now, by writing its marker. It is called
+   * once the feed file is in place, under its final name
+   * </p>
+   *
+   * @param path Path of the published feed file
+   * @throws IOException If the marker cannot be written
+   */
+  public void record(Path path) throws IOException {
+    Files.write(getCachedPath(path), new byte[0]);
+  }
+
+  /**
+   * @param path Path of a feed file
+   * @return Path Path of the marker which records the feed file as a cache entry
+   */
+  public static Path getCachedPath(Path path) {
+    return Paths.get(path.toString() + CACHED_SUFFIX);
+  }
+
+  /**
+   * <p>
+   * Deletes the cache entries in the directory which were cached longer ago than the max age, and
+   * then the oldest entries until their total size is within the max size. Only feed files with a
+   * marker are deleted, and never the ones being downloaded again, locked by a download in a shared
+   * directory, or the file which should be kept
+   * </p>
+   *
+   * @param directory Directory where the feed files are downloaded
+   * @param keep Path of a feed file that must not be evicted, or null
+   */
+  public void evict(Path directory, Path keep) {
+
+    if (maxAgeMillis <= 0 && maxBytes <= 0)
+      return;
+
+    List<Path> entries = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + CACHED_SUFFIX)) {
+      for (Path marker : stream) {
+        String name = marker.toString();
+        Path path = Paths.get(name.substring(0, name.length() - CACHED_SUFFIX.length()));
+
+        // the marker of a feed file which was deleted by someone else
+        if (!Files.exists(path)) {
+          Files.deleteIfExists(marker);
+          continue;
+        }
+        if (!path.equals(keep) && !Files.exists(RangeManifest.getManifestPath(path)))
+          entries.add(path);
+      }
+
+      entries.sort(Comparator.comparingLong(this::getCachedMillis));
+
+      long totalBytes = keep != null && Files.exists(keep) ? Files.size(keep) : 0;
+      for (Path path : entries) {
+        totalBytes += Files.size(path);
+      }
+
+      long now = System.currentTimeMillis();
+      for (Path path : entries) {
+
+        boolean isExpired = maxAgeMillis > 0 && now - getCachedMillis(path) > maxAgeMillis;
+        boolean isOverBudget = maxBytes > 0 && totalBytes > maxBytes;
+        if (!isExpired && !isOverBudget)
+          continue;
+
+        long size = Files.size(path);
+        if (delete(path)) {
+          totalBytes -= size;
+          LOGGER.debug("Evicted cached feed file {}", path);
+        }
+      }
+
+    } catch (IOException e) {
+      LOGGER.error("Exception in FeedCache.evict()", e);
+    }
+  }
+
+  /**
+   * <p>
+   * Deletes a cache entry, unless another download holds its lock. The marker is deleted first, so
+   * that a failure never leaves a marker without its feed file
+   * </p>
+   */
+  private boolean delete(Path path) throws IOException {
+
+    if (!Files.exists(CacheLock.getLockPath(path))) {
+      Files.deleteIfExists(getCachedPath(path));
+      Files.delete(path);
+      return true;
+    }
+
+    try (CacheLock lock = CacheLock.tryAcquire(path)) {
+      if (lock == null) {
+        LOGGER.debug("Not evicting {}, which is locked by a download", path);
+        return false;
+      }
+      Files.deleteIfExists(getCachedPath(path));
+      Files.delete(path);
+      return true;
+    }
+  }
+
+  private long getCachedMillis(Path path) {
+    try {
+      return Files.getLastModifiedTime(getCachedPath(path)).toMillis();
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * <p>
+   * Result of a cache lookup
+   * </p>
+   */
+  public static class Probe {
+
+    private final Path path;
+    private final long total;
+    private final FileTime lastModified;
+    private final boolean isFresh;
+
+    public Probe(Path path, long total, FileTime lastModified, boolean isFresh) {
+      this.path = path;
+      this.total = total;
+      this.lastModified = lastModified;
+      this.isFresh = isFresh;
+    }
+
+    /**
+     * @return Path Path of the feed file on disk, named after the last modified date if required
+     */
+    public Path getPath() {
+      return path;
+    }
+
+    public long getTotal() {
+      return total;
+    }
+
+    public FileTime getLastModified() {
+      return lastModified;
+    }
+
+    public boolean isFresh() {
+      return isFresh;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder builder = new StringBuilder();
+      builder.append("Probe [path=").append(path).append(", total=").append(total)
+          .append(", lastModified=").append(lastModified).append(", isFresh=").append(isFresh)
+          .append("]");
+      return builder.toString();
+    }
+  }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * <p>
+ * Checks the integrity of a gzipped feed file while it is being downloaded. The bytes of the file
+ * are offered in the order of the file, and each gzip member is inflated, without keeping the
+ * output, to compute the CRC32 and size of its contents, which are compared with the trailer of
+ * the member. Bytes offered again, such as those of a retried range, are skipped, and bytes beyond
+ * the next expected offset are ignored, to be offered again once the bytes before them have been.
+ * </p>
+ */
+public class GzipVerifier {
+
+  private static final int GZIP_MAGIC = 0x8b1f;
+  private static final int FHCRC = 2;
+  private static final int FEXTRA = 4;
+  private static final int FNAME = 8;
+  private static final int FCOMMENT = 16;
+  private static final int TRAILER_SIZE = 8;
+
+  private static final int HEADER = 0;
+  private static final int BODY = 1;
+  private static final int TRAILER = 2;
+
+  private final Inflater inflater = new Inflater(true);
+  private final CRC32 crc = new CRC32();
+  private final byte[] input = new byte[65536];
+  private final byte[] output = new byte[65536];
+  private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+  private volatile long position = 0;
+  private int state = HEADER;
+  private int members = 0;
+  private long memberSize = 0;
+  private ZipException failure;
+
+  /**
+   * @return long Offset of the next byte expected by the verifier
+   */
+  public long getPosition() {
+    return position;
+  }
+
+  /**
+   * <p>
+   * Offers bytes of the file. Only the bytes at and after the next expected offset are verified;
+   * nothing is verified if the bytes start after it. A failure is kept, and reported by check and
+   * finish, so that the writer of the bytes is not interrupted by it
+   * </p>
+   *
+   * @param offset Offset of the first byte in the file
+   * @param bytes The bytes, from the position to the limit of the buffer, which is not modified
+   */
+  public synchronized void offer(long offset, ByteBuffer bytes) {
+
+    if (failure != null)
+      return;
+
+    long end = offset + bytes.remaining();
+    if (offset > position || end <= position)
+      return;
+
+    ByteBuffer remaining = bytes.duplicate();
+    remaining.position(remaining.position() + (int) (position - offset));
+    try {
+      while (remaining.hasRemaining()) {
+        int length = Math.min(input.length, remaining.remaining());
+        remaining.get(input, 0, length);
+        update(input, 0, length);
+        position += length;
+      }
+    } catch (ZipException e) {
+      failure = e;
+    }
+  }
+
+  /**
+   * @throws ZipException If the bytes verified so far are not a valid gzip file
+   */
+  public synchronized void check() throws ZipException {
+    if (failure != null)
+      throw failure;
+  }
+
+  /**
+   * @return boolean Indicates whether the bytes verified so far are not a valid gzip file
+   */
+  public synchronized boolean isFailed() {
+    return failure != null;
+  }
+
+  /**
+   * <p>
+   * Starts over from the beginning of the file, when the file is discarded
+   * </p>
+   */
+  public synchronized void reset() {
+    pending.reset();
+    state = HEADER;
+    members = 0;
+    memberSize = 0;
+    failure = null;
+    position = 0;
+  }
+
+  /**
+   * <p>
+   * Releases the inflater. The verifier cannot be used afterwards
+   * </p>
+   */
+  public synchronized void end() {
+    inflater.end();
+  }
+
+  /**
+   * <p>
+   * Checks that the whole file has been verified, and that it ends with a complete gzip member
+   * </p>
+   *
+   * @param total Size of the file
+   * @throws ZipException If the file is incomplete, or is not a valid gzip file
+   */
+  public synchronized void finish(long total) throws ZipException {
+
+    check();
+    if (position != total)
+      throw new ZipException("Verified " + position + " of " + total + " bytes");
+    if (members == 0 || state != HEADER || pending.size() > 0)
+      throw new ZipException("Truncated gzip file, " + total + " bytes");
+  }
+
+  private void update(byte[] bytes, int off, int len) throws ZipException {
+
+    int end = off + len;
+    while (off < end) {
+
+      if (state == HEADER) {
+        pending.write(bytes[off++]);
+        if (isHeaderComplete(pending.toByteArray())) {
+          pending.reset();
+          startMember();
+        }
+        continue;
+      }
+
+      if (state == TRAILER) {
+        pending.write(bytes[off++]);
+        if (pending.size() == TRAILER_SIZE) {
+          checkTrailer(pending.toByteArray());
+          pending.reset();
+          state = HEADER;
+        }
+        continue;
+      }
+
+      inflater.setInput(bytes, off, end - off);
+      try {
+        int inflated;
+        while ((inflated = inflater.inflate(output)) > 0) {
+          crc.update(output, 0, inflated);
+          memberSize += inflated;
+        }
+      } catch (DataFormatException e) {
+        throw new ZipException("Corrupt gzip data near offset " + position + ": " + e.getMessage());
+      }
+
+      if (inflater.finished()) {
+        off = end - inflater.getRemaining();
+        state = TRAILER;
+      } else if (inflater.needsDictionary()) {
+        throw new ZipException("Unsupported gzip data near offset " + position);
+      } else {
+        off = end;
+      }
+    }
+  }
+
+  private void startMember() {
+    inflater.reset();
+    crc.reset();
+    memberSize = 0;
+    members++;
+    state = BODY;
+  }
+
+  private void checkTrailer(byte[] trailer) throws ZipException {
+
+    long expectedCrc = readInt(trailer, 0);
+    long expectedSize = readInt(trailer, 4);
+    if (expectedCrc != crc.getValue())
+      throw new ZipException("CRC mismatch in gzip member " + members + " ending at offset "
+          + position);
+    if (expectedSize != (memberSize & 0xffffffffL))
+      throw new ZipException("Size mismatch in gzip member " + members + " ending at offset "
+          + position);
+  }
+
+  /**
+   * <p>
+   * Checks whether the bytes contain a complete gzip header
+   * </p>
+   */
+  private boolean isHeaderComplete(byte[] header) throws ZipException {
+
+    if (header.length >= 2 && (readShort(header, 0) != GZIP_MAGIC))
+      throw new ZipException("Not in gzip format near offset " + position);
+    if (header.length >= 3 && header[2] != 8)
+      throw new ZipException("Unsupported compression method near offset " + position);
+    if (header.length < 10)
+      return false;
+
+    int flags = header[3] & 0xff;
+    int length = 10;
+    if ((flags & FEXTRA) != 0) {
+      if (header.length < length + 2)
+        return false;
+      length += 2 + readShort(header, length);
+    }
+    if ((flags & FNAME) != 0) {
+      length = skipString(header, length);
+      if (length < 0)
+        return false;
+    }
+    if ((flags & FCOMMENT) != 0) {
+      length = skipString(header, length);
+      if (length < 0)
+        return false;
+    }
+    if ((flags & FHCRC) != 0)
+      length += 2;
+    return header.length >= length;
+  }
+
+  private static int skipString(byte[] header, int start) {
+    for (int i = start; i < header.length; i++) {
+      if (header[i] == 0)
+        return i + 1;
+    }
+    return -1;
+  }
+
+  private static int readShort(byte[] bytes, int off) {
+    return (bytes[off] & 0xff) | ((bytes[off + 1] & 0xff) << 8);
+  }
+
+  private static long readInt(byte[] bytes, int off) {
+    return ((long) readShort(bytes, off + 2) << 16) | readShort(bytes, off);
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ebay.feed.model.feed.download.DownloadProgress;
+import com.ebay.feed.model.feed.operation.internal.ByteRange;
+
+/**
+ * <p>
+ * Counts the bytes of one download, and passes the events of its ranges to the listener, along
+ * with the overall throughput and estimated time to completion. Does nothing without a listener
+ * </p>
+ */
+class ProgressTracker {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ProgressTracker.class);
+
+  private final DownloadListener listener;
+  private final Path path;
+  private final long startNanos = System.nanoTime();
+  private final AtomicLong written = new AtomicLong();
+
+  private volatile long totalBytes = -1;
+  private volatile long resumedBytes = 0;
+
+  ProgressTracker(DownloadListener listener, Path path) {
+    this.listener = listener;
+    this.path = path;
+  }
+
+  /**
+   * <p>
+   * Records the total size of the file, once it is known, and the bytes which were downloaded by
+   * an earlier attempt
+   * </p>
+   */
+  void start(long totalBytes, long resumedBytes) {
+    this.totalBytes = totalBytes;
+    this.resumedBytes = resumedBytes;
+  }
+
+  void rangeStart(ByteRange range) {
+    if (listener == null)
+      return;
+    try {
+      listener.onRangeStart(path, range);
+    } catch (RuntimeException e) {
+      LOGGER.error("Exception in DownloadListener.onRangeStart()", e);
+    }
+  }
+
+  void bytesWritten(ByteRange range, long bytes) {
+    if (listener == null)
+      return;
+
+    long sessionBytes = written.addAndGet(bytes);
+    try {
+      listener.onBytesWritten(path, range, bytes);
+      listener.onProgress(getProgress(sessionBytes));
+    } catch (RuntimeException e) {
+      LOGGER.error("Exception in DownloadListener.onBytesWritten()", e);
+    }
+  }
+
+  void rangeComplete(ByteRange range, long bytes, long elapsedNanos) {
+    if (listener == null)
+      return;
+    try {
+      listener.onRangeComplete(path, range, bytes, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    } catch (RuntimeException e) {
+      LOGGER.error("Exception in DownloadListener.onRangeComplete()", e);
+    }
+  }
+
+  void retry(ByteRange range, int retry, int statusCode, long backoffMillis) {
+    if (listener == null)
+      return;
+    try {
+      listener.onRetry(path, range, retry, statusCode, backoffMillis);
+    } catch (RuntimeException e) {
+      LOGGER.error("Exception in DownloadListener.onRetry()", e);
+    }
+  }
+
+  /**
+   * <p>
+   * Bytes of a failed attempt, which are written again by its retry, are counted twice, so the
+   * downloaded bytes are capped at the total
+   * </p>
+   */
+  private DownloadProgress getProgress(long sessionBytes) {
+
+    long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+    double bytesPerSecond = sessionBytes * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+
+    long total = totalBytes;
+    long downloaded = resumedBytes + sessionBytes;
+    long etaMillis = -1;
+    if (total >= 0) {
+      downloaded = Math.min(downloaded, total);
+      if (bytesPerSecond > 0)
+        etaMillis = (long) ((total - downloaded) * 1000 / bytesPerSecond);
+    }
+
+    return new DownloadProgress(path, total, downloaded, bytesPerSecond, etaMillis,
+        TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+  }
+}
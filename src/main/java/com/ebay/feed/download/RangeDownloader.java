@@ -0,0 +1,982 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ebay.feed.constants.Constants;
+import com.ebay.feed.model.feed.download.DownloadConfig;
+import com.ebay.feed.model.feed.operation.internal.ByteRange;
+import com.ebay.feed.model.feed.operation.internal.ContentRange;
+import com.ebay.feed.model.feed.operation.internal.InvokeResponse;
+import com.ebay.feed.util.FeedUtil;
+
+/**
+ * <p>
+ * Downloads a feed file in ranges. The first range tells the total size of the file, after which
+ * the remaining ranges are fetched by a configurable number of workers. Each range is written at
+ * its own offset in the file, through a {@link DownloadSink} which stays open for the whole
+ * download, so the ranges may complete in any order. Completed ranges are recorded
+ * in a {@link RangeManifest}, so that a failed download can be resumed from the first missing range.
+ * A range which fails with a transient error is retried on its own, as decided by the
+ * {@link RetryPolicy}, without restarting the other ranges. The size of each range is chosen by a
+ * {@link RangeSizer}, which also collects the measurements returned with the response.
+ * </p>
+ * <p>
+ * If hedging is enabled, a duplicate request is sent for a range whose response headers are later
+ * than a percentile of the times to first byte measured by the sizer. The first request to receive
+ * its response headers writes the range, and the other is cancelled, or closed unread.
+ * </p>
+ */
+public class RangeDownloader {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RangeDownloader.class);
+  private static final int OK = 200;
+  private static final int PARTIAL_CONTENT = 206;
+
+  // timer for the retries of asynchronous downloads. It only hands retries to the http client
+  private static final ScheduledExecutorService RETRY_SCHEDULER = Executors
+      .newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "feed-retry-scheduler");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private OkHttpClient client = null;
+  private FeedUtil feedUtils = null;
+  private int parallelism;
+  private int bufferSize;
+  private RetryPolicy retryPolicy = null;
+  private boolean isAdaptive;
+  private long minChunkSize;
+  private boolean isVerified;
+  private double hedgePercentile;
+  private long hedgeMinDelayMillis;
+  private volatile DownloadListener listener;
+
+  public RangeDownloader(OkHttpClient client, DownloadConfig downloadConfig) {
+    this.client = client;
+    this.parallelism = downloadConfig.getParallelism();
+    this.bufferSize = downloadConfig.getBufferSize();
+    this.retryPolicy = new RetryPolicy(downloadConfig);
+    this.isAdaptive = downloadConfig.isAdaptiveChunkSize();
+    this.minChunkSize = downloadConfig.getMinChunkSize();
+    this.isVerified = downloadConfig.isVerifyIntegrity();
+    this.hedgePercentile = downloadConfig.getHedgePercentile();
+    this.hedgeMinDelayMillis = downloadConfig.getHedgeMinDelayMillis();
+    this.feedUtils = new FeedUtil();
+  }
+
+  /**
+   * <p>
+   * Sets the listener which receives the progress of the downloads started afterwards
+   * </p>
+   *
+   * @param listener The listener, or null to stop receiving progress
+   */
+  public void setListener(DownloadListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * <p>
+   * Downloads the feed file. The first request is for the first range which is missing in the
+   * manifest. If the server returns the whole file (200), the download is complete. Otherwise the
+   * total size and last modified date are checked against the manifest; if the file has changed on
+   * the server, the previously downloaded ranges are discarded. The remaining ranges are then
+   * downloaded.
+   * </p>
+   *
+   * @param request The API request, without the range header
+   * @param path Path of the file being downloaded
+   * @param manifest Manifest of the ranges which have already been downloaded
+   * @param chunkSizeLimit Max chunk size for one request
+   * @return InvokeResponse Status of the download, along with the content range and last modified
+   *         date of the first response, and the download metrics
+   */
+  public InvokeResponse download(Request request, Path path, RangeManifest manifest,
+      long chunkSizeLimit) {
+    return download(request, path, manifest, chunkSizeLimit, null);
+  }
+
+  /**
+   * <p>
+   * Downloads the feed file, and passes the offset up to which the file is complete to the
+   * consumer after each range, so that the file can be read, such as unzipped, while the next
+   * ranges are downloaded. Offsets are passed once the ranges before them are recorded in the
+   * manifest, and verified if integrity checks are enabled
+   * </p>
+   *
+   * @param request The API request, without the range header
+   * @param path Path of the file being downloaded
+   * @param manifest Manifest of the ranges which have already been downloaded
+   * @param chunkSizeLimit Max chunk size for one request
+   * @param onCommitted Receives the offset up to which the file is complete. It is called from the
+   *        threads which download the ranges, and must be thread safe. May be null
+   * @return InvokeResponse Status of the download, as returned by download
+   */
+  public InvokeResponse download(Request request, Path path, RangeManifest manifest,
+      long chunkSizeLimit, LongConsumer onCommitted) {
+
+    RangeSizer sizer = new RangeSizer(chunkSizeLimit, minChunkSize, isAdaptive);
+    InvokeResponse response =
+        download(request, path, manifest, chunkSizeLimit, sizer, onCommitted);
+    response.setDownloadMetrics(sizer.getMetrics());
+    LOGGER.debug("Download metrics = {}", sizer.getMetrics());
+    return response;
+  }
+
+  /**
+   * <p>
+   * Downloads the feed file, with the sizer which chooses the size of the remaining ranges, and the
+   * consumer of the offsets up to which the file is complete
+   * </p>
+   */
+  private InvokeResponse download(Request request, Path path, RangeManifest manifest,
+      long chunkSizeLimit, RangeSizer sizer, LongConsumer onCommitted) {
+
+    AtomicReference<InvokeResponse> failure = new AtomicReference<>();
+    ProgressTracker progress = new ProgressTracker(listener, path);
+
+    try (DownloadSink sink = newSink(path, onCommitted)) {
+
+      ByteRange firstRange = manifest.firstMissing(chunkSizeLimit);
+      if (firstRange == null)
+        return allDownloaded(path, sink, manifest);
+
+      InvokeResponse firstResponse =
+          fetchWithRetry(request, firstRange, sink, sizer, progress, true);
+      RangePlanner planner = accept(firstRange, firstResponse, sink, sizer, progress, manifest);
+      if (planner == null)
+        return firstResponse;
+
+      downloadRemaining(request, path, sink, planner, sizer, progress, manifest, failure);
+      return finish(firstResponse, sink, manifest, failure);
+
+    } catch (Exception e) {
+      LOGGER.error("Exception in RangeDownloader.download()", e);
+      return new InvokeResponse(null, 400);
+    }
+  }
+
+  /**
+   * <p>
+   * Downloads the feed file without blocking the calling thread. Range requests are enqueued on the
+   * http client, so they are executed by its dispatcher, within its limits on concurrent requests.
+   * Completed ranges are recorded, and the next ranges planned, on the executor. Retries are
+   * scheduled after their backoff, instead of sleeping.
+   * </p>
+   *
+   * @param request The API request, without the range header
+   * @param path Path of the file being downloaded
+   * @param manifest Manifest of the ranges which have already been downloaded
+   * @param chunkSizeLimit Max chunk size for one request
+   * @param executor Executor for the work between range requests
+   * @return CompletableFuture Completes with the status of the download, as returned by download
+   */
+  public CompletableFuture<InvokeResponse> downloadAsync(Request request, Path path,
+      RangeManifest manifest, long chunkSizeLimit, Executor executor) {
+
+    RangeSizer sizer = new RangeSizer(chunkSizeLimit, minChunkSize, isAdaptive);
+    AtomicReference<InvokeResponse> failure = new AtomicReference<>();
+    ProgressTracker progress = new ProgressTracker(listener, path);
+
+    DownloadSink sink;
+    try {
+      sink = newSink(path, null);
+    } catch (IOException e) {
+      LOGGER.error("Exception in RangeDownloader.downloadAsync()", e);
+      return CompletableFuture.completedFuture(new InvokeResponse(null, 400));
+    }
+
+    CompletableFuture<InvokeResponse> result;
+    ByteRange firstRange = manifest.firstMissing(chunkSizeLimit);
+    if (firstRange == null) {
+      result =
+          CompletableFuture.supplyAsync(() -> allDownloaded(path, sink, manifest), executor);
+    } else {
+      result =
+          fetchAsyncWithRetry(request, firstRange, sink, sizer, progress, true, 0).thenComposeAsync(
+              firstResponse -> {
+                RangePlanner planner =
+                    accept(firstRange, firstResponse, sink, sizer, progress, manifest);
+                if (planner == null)
+                  return CompletableFuture.completedFuture(firstResponse);
+
+                LOGGER.debug("Downloading remaining ranges of {} with {} workers", path,
+                    parallelism);
+                CompletableFuture<?>[] workers = new CompletableFuture<?>[parallelism];
+                for (int i = 0; i < parallelism; i++) {
+                  workers[i] =
+                      downloadRangesAsync(request, sink, planner, sizer, progress, manifest,
+                          failure, executor);
+                }
+                return CompletableFuture.allOf(workers).thenApply(
+                    v -> finish(firstResponse, sink, manifest, failure));
+              }, executor);
+    }
+
+    return result.handle((response, e) -> {
+      try {
+        sink.close();
+      } catch (IOException closeException) {
+        LOGGER.error("Unable to close {}", path, closeException);
+      }
+      if (e != null) {
+        LOGGER.error("Exception in RangeDownloader.downloadAsync()", e);
+        response = new InvokeResponse(null, 400);
+      }
+      response.setDownloadMetrics(sizer.getMetrics());
+      LOGGER.debug("Download metrics = {}", sizer.getMetrics());
+      return response;
+    });
+  }
+
+  /**
+   * <p>
+   * Handles the response of an empty download, whose ranges were all downloaded earlier
+   * </p>
+   */
+  private InvokeResponse allDownloaded(Path path, DownloadSink sink, RangeManifest manifest) {
+    LOGGER.debug("All ranges of {} were downloaded earlier", path);
+    InvokeResponse invalid = verifyAll(sink, manifest, manifest.getTotal());
+    if (invalid != null)
+      return invalid;
+
+    try {
+      manifest.delete();
+    } catch (IOException e) {
+      throw new CompletionException(e);
+    }
+    return new InvokeResponse(null, PARTIAL_CONTENT, manifest.getLastModified());
+  }
+
+  /**
+   * <p>
+   * Handles the response to the first range. If the whole file was returned, or the request failed,
+   * there is nothing more to download, and null is returned. Otherwise the total size and last
+   * modified date are checked against the manifest; if the file has changed on the server, the
+   * previously downloaded ranges are discarded. The file is then extended to its total size, if
+   * there is enough disk space. Returns the planner for the remaining ranges
+   * </p>
+   */
+  private RangePlanner accept(ByteRange firstRange, InvokeResponse firstResponse,
+      DownloadSink sink, RangeSizer sizer, ProgressTracker progress, RangeManifest manifest) {
+
+    LOGGER.debug("First API Response = {}", firstResponse);
+
+    try {
+      if (firstResponse.getStatusCode() == OK) {
+        InvokeResponse invalid = verifyAll(sink, manifest, sink.size());
+        if (invalid != null)
+          return reject(firstResponse, invalid);
+        manifest.delete();
+        return null;
+      }
+
+      if (firstResponse.getStatusCode() != PARTIAL_CONTENT)
+        return null;
+
+      ContentRange contentRange = ContentRange.parse(firstResponse.getContentRange());
+      boolean isDiscarded = false;
+      if (!manifest.matches(contentRange.getTotal(), firstResponse.getLastModified())) {
+        if (manifest.getTotal() > 0) {
+          LOGGER.debug("Feed file has changed since {}. Discarding downloaded ranges", manifest);
+          sink.truncate(0);
+          isDiscarded = true;
+        }
+        manifest.reset(contentRange.getTotal(), firstResponse.getLastModified());
+      }
+
+      InvokeResponse unallocated = preallocate(sink, contentRange.getTotal());
+      if (unallocated != null)
+        return reject(firstResponse, unallocated);
+
+      progress.start(contentRange.getTotal(), manifest.getCompletedBytes());
+      if (!isDiscarded) {
+        sink.force();
+        manifest.markCompleted(new ByteRange(firstRange.getStart(), contentRange.getEnd()));
+        InvokeResponse invalid = verify(sink, manifest);
+        if (invalid != null) {
+          discard(sink, manifest);
+          return reject(firstResponse, invalid);
+        }
+      }
+
+      return new RangePlanner(0, contentRange.getTotal(), sizer, manifest);
+
+    } catch (IOException e) {
+      throw new CompletionException(e);
+    }
+  }
+
+  /**
+   * <p>
+   * Fails the download after the first range, by turning the first response into the failure
+   * </p>
+   */
+  private RangePlanner reject(InvokeResponse firstResponse, InvokeResponse failure) {
+    firstResponse.setStatusCode(failure.getStatusCode());
+    firstResponse.setMessage(failure.getMessage());
+    return null;
+  }
+
+  /**
+   * <p>
+   * Returns the first failure, or, once all the ranges are downloaded, checks the size and
+   * integrity of the file, deletes the manifest and returns the first response. It is called once
+   * all the workers have stopped, so a file which failed verification is only discarded when no
+   * range is being written or recorded any more
+   * </p>
+   */
+  private InvokeResponse finish(InvokeResponse firstResponse, DownloadSink sink,
+      RangeManifest manifest, AtomicReference<InvokeResponse> failure) {
+
+    if (failure.get() != null) {
+      if (sink.isFailed())
+        discard(sink, manifest);
+      return failure.get();
+    }
+
+    InvokeResponse invalid = verifyAll(sink, manifest, manifest.getTotal());
+    if (invalid != null)
+      return invalid;
+
+    try {
+      manifest.delete();
+    } catch (IOException e) {
+      throw new CompletionException(e);
+    }
+    return firstResponse;
+  }
+
+  /**
+   * <p>
+   * Downloads all the ranges handed out by the planner into the file
+   * </p>
+   */
+  private void downloadRemaining(Request request, Path path, DownloadSink sink,
+      RangePlanner planner, RangeSizer sizer, ProgressTracker progress, RangeManifest manifest,
+      AtomicReference<InvokeResponse> failure) throws Exception {
+
+    LOGGER.debug("Downloading remaining ranges of {} with {} workers", path, parallelism);
+
+    if (parallelism == 1) {
+      downloadRanges(request, sink, planner, sizer, progress, manifest, failure);
+      return;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    try {
+      List<Future<?>> workers = new ArrayList<>();
+      for (int i = 0; i < parallelism; i++) {
+        workers.add(executor.submit(() -> downloadRanges(request, sink, planner, sizer, progress,
+            manifest, failure)));
+      }
+      for (Future<?> worker : workers) {
+        worker.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * <p>
+   * Worker loop. Keeps taking ranges from the planner until all are downloaded, or until any worker
+   * has failed
+   * </p>
+   */
+  private void downloadRanges(Request request, DownloadSink sink, RangePlanner planner,
+      RangeSizer sizer, ProgressTracker progress, RangeManifest manifest,
+      AtomicReference<InvokeResponse> failure) {
+
+    ByteRange range = null;
+    while (failure.get() == null && (range = planner.next()) != null) {
+
+      complete(range, fetchWithRetry(request, range, sink, sizer, progress, false), sink,
+          manifest, failure);
+    }
+  }
+
+  /**
+   * <p>
+   * Asynchronous worker loop. Takes the next range from the planner once the previous one has
+   * completed, until all are downloaded, or until any worker has failed
+   * </p>
+   */
+  private CompletableFuture<Void> downloadRangesAsync(Request request, DownloadSink sink,
+      RangePlanner planner, RangeSizer sizer, ProgressTracker progress, RangeManifest manifest,
+      AtomicReference<InvokeResponse> failure, Executor executor) {
+
+    ByteRange range = failure.get() == null ? planner.next() : null;
+    if (range == null)
+      return CompletableFuture.completedFuture(null);
+
+    return fetchAsyncWithRetry(request, range, sink, sizer, progress, false, 0).thenComposeAsync(
+        response -> {
+          complete(range, response, sink, manifest, failure);
+          return downloadRangesAsync(request, sink, planner, sizer, progress, manifest, failure,
+              executor);
+        }, executor);
+  }
+
+  /**
+   * <p>
+   * Records a downloaded range in the manifest, or the failure if it could not be downloaded. A
+   * failed verification stops the workers, and the file is discarded once they have all stopped
+   * </p>
+   */
+  private void complete(ByteRange range, InvokeResponse response, DownloadSink sink,
+      RangeManifest manifest, AtomicReference<InvokeResponse> failure) {
+
+    if (response.getStatusCode() != PARTIAL_CONTENT) {
+      LOGGER.debug("Failed to download {}. Response = {}", range, response);
+      failure.compareAndSet(null, response);
+      return;
+    }
+
+    try {
+      sink.force();
+      manifest.markCompleted(range);
+    } catch (IOException e) {
+      LOGGER.error("Unable to record completed range in manifest", e);
+      failure.compareAndSet(null, new InvokeResponse(null, 400));
+      return;
+    }
+
+    InvokeResponse invalid = verify(sink, manifest);
+    if (invalid != null)
+      failure.compareAndSet(null, invalid);
+  }
+
+  /**
+   * <p>
+   * Checks that the disk has room for the rest of the file, and extends the file to its total size
+   * before the remaining ranges are downloaded, so that a full disk fails the download before it
+   * starts rather than midway. Returns the failure, or null
+   * </p>
+   */
+  private InvokeResponse preallocate(DownloadSink sink, long total) {
+
+    try {
+      long required = total - sink.size();
+      long usable = sink.getUsableSpace();
+      if (required > usable) {
+        InvokeResponse response = new InvokeResponse(null, 400);
+        response.setMessage("Not enough disk space for the feed file - " + required
+            + " bytes required, " + usable + " bytes usable");
+        LOGGER.error(response.getMessage());
+        return response;
+      }
+
+      sink.preallocate(total);
+      return null;
+
+    } catch (IOException e) {
+      LOGGER.error("Unable to preallocate feed file", e);
+      InvokeResponse response = new InvokeResponse(null, 400);
+      response.setMessage("Unable to preallocate feed file: " + e.getMessage());
+      return response;
+    }
+  }
+
+  /**
+   * <p>
+   * Verifies the file up to the first range which has not been downloaded yet, so that a corrupt
+   * file fails the download as soon as the damaged bytes are reached. Returns the failure, or null.
+   * The file is not discarded here, since other workers may still be writing ranges
+   * </p>
+   */
+  private InvokeResponse verify(DownloadSink sink, RangeManifest manifest) {
+    try {
+      sink.verify(manifest.nextMissing(0));
+      return null;
+    } catch (IOException e) {
+      return invalid(e);
+    }
+  }
+
+  /**
+   * <p>
+   * Checks that the file has the total size, and that it is a complete and valid gzip file, and
+   * discards it otherwise. It is only called when no range is being written. Returns the failure,
+   * or null
+   * </p>
+   */
+  private InvokeResponse verifyAll(DownloadSink sink, RangeManifest manifest, long total) {
+    try {
+      sink.verifyAll(total);
+      return null;
+    } catch (IOException e) {
+      discard(sink, manifest);
+      return invalid(e);
+    }
+  }
+
+  private InvokeResponse invalid(IOException e) {
+    LOGGER.error("Integrity check failed", e);
+    InvokeResponse response = new InvokeResponse(null, 400);
+    response.setMessage("Integrity check failed: " + e.getMessage());
+    return response;
+  }
+
+  /**
+   * <p>
+   * Discards a file which failed verification, so that the next download starts from scratch
+   * rather than resuming the damaged bytes. Must not be called while ranges are being written, or
+   * they would be recorded in a new manifest over the discarded bytes
+   * </p>
+   */
+  private void discard(DownloadSink sink, RangeManifest manifest) {
+
+    LOGGER.debug("Discarding downloaded file");
+    try {
+      sink.truncate(0);
+      manifest.delete();
+    } catch (IOException discardException) {
+      LOGGER.error("Unable to discard downloaded file", discardException);
+    }
+  }
+
+  private DownloadSink newSink(Path path, LongConsumer onCommitted) throws IOException {
+    return new DownloadSink(path, bufferSize, isVerified ? new GzipVerifier() : null,
+        onCommitted);
+  }
+
+  /**
+   * <p>
+   * Downloads one range, and retries it while the failure is transient. A retry writes the range
+   * again from its start offset, over any bytes written by the failed attempt; the range is only
+   * recorded in the manifest once an attempt has written it completely
+   * </p>
+   *
+   * @param request The API request, without the range header
+   * @param range The range to download
+   * @param sink Sink of the file being downloaded
+   * @param sizer Records the measurements of the range
+   * @param progress Receives the progress of the range
+   * @param isStart True for the first request, which may return the whole file
+   * @return InvokeResponse Status of the last attempt
+   */
+  private InvokeResponse fetchWithRetry(Request request, ByteRange range, DownloadSink sink,
+      RangeSizer sizer, ProgressTracker progress, boolean isStart) {
+
+    int retries = 0;
+    while (true) {
+
+      InvokeResponse response = fetch(request, range, sink, sizer, progress, isStart);
+      int statusCode = response.getStatusCode();
+      if (statusCode == PARTIAL_CONTENT || statusCode == OK
+          || !retryPolicy.shouldRetry(statusCode, retries))
+        return response;
+
+      retries++;
+      long backoffMillis = retryPolicy.getBackoffMillis(retries, response.getRetryAfter());
+      LOGGER.debug("Retrying {} in {} ms, retry {} - status = {}", new Object[] {range,
+          backoffMillis, retries, statusCode});
+      progress.retry(range, retries, statusCode, backoffMillis);
+      try {
+        Thread.sleep(backoffMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return response;
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Downloads one range asynchronously, and schedules a retry after the backoff while the failure
+   * is transient
+   * </p>
+   */
+  private CompletableFuture<InvokeResponse> fetchAsyncWithRetry(Request request, ByteRange range,
+      DownloadSink sink, RangeSizer sizer, ProgressTracker progress, boolean isStart, int retries) {
+
+    return fetchAsync(request, range, sink, sizer, progress, isStart).thenCompose(response -> {
+
+      int statusCode = response.getStatusCode();
+      if (statusCode == PARTIAL_CONTENT || statusCode == OK
+          || !retryPolicy.shouldRetry(statusCode, retries))
+        return CompletableFuture.completedFuture(response);
+
+      long backoffMillis = retryPolicy.getBackoffMillis(retries + 1, response.getRetryAfter());
+      LOGGER.debug("Retrying {} in {} ms, retry {} - status = {}", new Object[] {range,
+          backoffMillis, retries + 1, statusCode});
+      progress.retry(range, retries + 1, statusCode, backoffMillis);
+
+      CompletableFuture<InvokeResponse> retry = new CompletableFuture<>();
+      RETRY_SCHEDULER.schedule(
+          () -> fetchAsyncWithRetry(request, range, sink, sizer, progress, isStart, retries + 1)
+              .whenComplete((retryResponse, e) -> {
+                if (e != null)
+                  retry.completeExceptionally(e);
+                else
+                  retry.complete(retryResponse);
+              }), backoffMillis, TimeUnit.MILLISECONDS);
+      return retry;
+    });
+  }
+
+  /**
+   * <p>
+   * Enqueues the request for one range. The response body is written to the file by the dispatcher
+   * thread of the http client, as it arrives
+   * </p>
+   */
+  private CompletableFuture<InvokeResponse> fetchAsync(Request request, ByteRange range,
+      DownloadSink sink, RangeSizer sizer, ProgressTracker progress, boolean isStart) {
+
+    long hedgeDelayMillis = isStart ? -1 : getHedgeDelayMillis(sizer);
+    if (hedgeDelayMillis >= 0)
+      return new HedgedFetch(request, range, sink, sizer, progress).start(hedgeDelayMillis, false);
+
+    CompletableFuture<InvokeResponse> future = new CompletableFuture<>();
+    long startNanos = System.nanoTime();
+    progress.rangeStart(range);
+
+    client.newCall(toRangeRequest(request, range)).enqueue(new Callback() {
+
+      @Override
+      public void onFailure(Call call, IOException e) {
+        LOGGER.debug("Exception in RangeDownloader.fetchAsync() for {}", range, e);
+        future.complete(new InvokeResponse(null, RetryPolicy.IO_ERROR));
+      }
+
+      @Override
+      public void onResponse(Call call, Response response) {
+        future.complete(write(response, range, sink, sizer, progress, isStart, startNanos));
+      }
+    });
+    return future;
+  }
+
+  /**
+   * <p>
+   * Downloads one range and writes it to the file, starting at the offset of the range. If the
+   * whole file is returned (200), it is written from the beginning of the file
+   * </p>
+   *
+   * @param request The API request, without the range header
+   * @param range The range to download
+   * @param sink Sink of the file being downloaded
+   * @param sizer Records the measurements of the range
+   * @param progress Receives the progress of the range
+   * @param isStart True for the first request, which may return the whole file
+   * @return InvokeResponse Status of the request
+   */
+  private InvokeResponse fetch(Request request, ByteRange range, DownloadSink sink,
+      RangeSizer sizer, ProgressTracker progress, boolean isStart) {
+
+    long hedgeDelayMillis = isStart ? -1 : getHedgeDelayMillis(sizer);
+    if (hedgeDelayMillis >= 0)
+      return new HedgedFetch(request, range, sink, sizer, progress).start(hedgeDelayMillis, true)
+          .join();
+
+    long startNanos = System.nanoTime();
+    progress.rangeStart(range);
+    try {
+      return write(client.newCall(toRangeRequest(request, range)).execute(), range, sink, sizer,
+          progress, isStart, startNanos);
+    } catch (IOException e) {
+      LOGGER.debug("Exception in RangeDownloader.fetch() for {}", range, e);
+      return new InvokeResponse(null, RetryPolicy.IO_ERROR);
+    }
+  }
+
+  /**
+   * @return long Time to wait for the response headers of a range before hedging it, or -1 if
+   *         hedging is disabled, or too few ranges have completed to know what is late
+   */
+  private long getHedgeDelayMillis(RangeSizer sizer) {
+    if (hedgePercentile <= 0)
+      return -1;
+    long timeToFirstByteNanos = sizer.getTimeToFirstBytePercentile(hedgePercentile);
+    if (timeToFirstByteNanos < 0)
+      return -1;
+    return Math.max(hedgeMinDelayMillis, TimeUnit.NANOSECONDS.toMillis(timeToFirstByteNanos));
+  }
+
+  private Request toRangeRequest(Request request, ByteRange range) {
+    return request.newBuilder().header(Constants.RANGE_HEADER, range.toHeaderValue()).build();
+  }
+
+  /**
+   * <p>
+   * Checks the response to a range request, and writes its body to the file. The response is
+   * closed
+   * </p>
+   *
+   * @param response The response to the range request
+   * @param range The requested range
+   * @param sink Sink of the file being downloaded
+   * @param sizer Records the measurements of the range
+   * @param progress Receives the progress of the range
+   * @param isStart True for the first request, which may return the whole file
+   * @param startNanos Time at which the request was sent
+   * @return InvokeResponse Status of the request
+   */
+  private InvokeResponse write(Response response, ByteRange range, DownloadSink sink,
+      RangeSizer sizer, ProgressTracker progress, boolean isStart, long startNanos) {
+
+    try {
+
+      long timeToFirstByteNanos = System.nanoTime() - startNanos;
+
+      boolean isWholeFile = isStart && response.code() == OK;
+      if (response.code() != PARTIAL_CONTENT && !isWholeFile) {
+        LOGGER.debug("Error in API response - status = {}, body = {}", response.code(), response
+            .body().string());
+        InvokeResponse errorResponse = new InvokeResponse(null, response.code());
+        errorResponse.setRetryAfter(response.header(Constants.RETRY_AFTER_HEADER));
+        return errorResponse;
+      }
+
+      String contentRangeHeader = response.header(Constants.CONTENT_RANGE_HEADER);
+      ContentRange contentRange = null;
+      if (!isWholeFile) {
+        contentRange = ContentRange.parse(contentRangeHeader);
+        if (contentRange == null || contentRange.getStart() != range.getStart()) {
+          LOGGER.debug("Unexpected content range {} for {}", contentRangeHeader, range);
+          return new InvokeResponse(contentRangeHeader, 400);
+        }
+      }
+
+      if (isWholeFile)
+        progress.start(response.body().contentLength(), 0);
+
+      long position = isWholeFile ? 0 : range.getStart();
+      long written =
+          sink.write(response.body().source(), position, bytes -> progress.bytesWritten(range,
+              bytes));
+
+      if (isWholeFile)
+        sink.truncate(written);
+      else if (written != contentRange.length()) {
+        LOGGER.debug("Incomplete body for {} - {} bytes written", contentRangeHeader, written);
+        return new InvokeResponse(contentRangeHeader, RetryPolicy.IO_ERROR);
+      }
+
+      long elapsedNanos = System.nanoTime() - startNanos;
+      sizer.record(range.length(), written, timeToFirstByteNanos, elapsedNanos);
+      progress.rangeComplete(range, written, elapsedNanos);
+
+      LOGGER.debug("Downloaded {}", isWholeFile ? "whole file" : contentRangeHeader);
+      return new InvokeResponse(contentRangeHeader, response.code(),
+          feedUtils.getLastModifiedDate(response.header(Constants.LAST_MODIFIED_DATE_HEADER)));
+
+    } catch (IOException e) {
+      LOGGER.debug("Exception in RangeDownloader.write() for {}", range, e);
+      return new InvokeResponse(null, RetryPolicy.IO_ERROR);
+    } catch (Exception e) {
+      LOGGER.error("Exception in RangeDownloader.write()", e);
+      return new InvokeResponse(null, 400);
+    } finally {
+      response.close();
+    }
+  }
+
+  /**
+   * <p>
+   * Downloads one range with a request, and a duplicate request if no response headers have been
+   * received after the delay. Only the attempt which receives its partial content headers first
+   * writes the range, so the file and the progress never see the bytes of both. The other attempt
+   * is cancelled, or its response is closed unread, and counts as failed. If both attempts fail,
+   * the fetch completes with the status of the API if either attempt got one, or else with an io
+   * error, to be retried as usual
+   * </p>
+   */
+  private class HedgedFetch {
+
+    private final CompletableFuture<InvokeResponse> result = new CompletableFuture<>();
+    private final AtomicBoolean isStarted = new AtomicBoolean();
+    private int pending = 1;
+    private InvokeResponse failure;
+    private final List<Call> calls = new CopyOnWriteArrayList<>();
+
+    private final Request request;
+    private final ByteRange range;
+    private final DownloadSink sink;
+    private final RangeSizer sizer;
+    private final ProgressTracker progress;
+
+    private HedgedFetch(Request request, ByteRange range, DownloadSink sink, RangeSizer sizer,
+        ProgressTracker progress) {
+      this.request = toRangeRequest(request, range);
+      this.range = range;
+      this.sink = sink;
+      this.sizer = sizer;
+      this.progress = progress;
+    }
+
+    /**
+     * <p>
+     * Sends the first request, on the calling thread if blocking, or else on the dispatcher of the
+     * http client, and schedules the duplicate request
+     * </p>
+     */
+    private CompletableFuture<InvokeResponse> start(long delayMillis, boolean isBlocking) {
+
+      ScheduledFuture<?> hedge =
+          RETRY_SCHEDULER.schedule(this::hedge, delayMillis, TimeUnit.MILLISECONDS);
+      result.whenComplete((response, e) -> hedge.cancel(false));
+
+      progress.rangeStart(range);
+      Call call = newCall();
+      long startNanos = System.nanoTime();
+      if (!isBlocking) {
+        call.enqueue(callback(startNanos, false));
+        return result;
+      }
+
+      Response response;
+      try {
+        response = call.execute();
+      } catch (IOException e) {
+        LOGGER.debug("Exception in RangeDownloader.fetch() for {}", range, e);
+        complete(new InvokeResponse(null, RetryPolicy.IO_ERROR), false);
+        return result;
+      }
+      complete(writeIfFirst(call, response, startNanos), false);
+      return result;
+    }
+
+    /**
+     * <p>
+     * Sends the duplicate request, unless the response headers of the first request have arrived.
+     * The attempt is counted under the same lock as the failures, so the fetch cannot complete
+     * between the check and the count
+     * </p>
+     */
+    private void hedge() {
+
+      synchronized (this) {
+        if (isStarted.get() || result.isDone())
+          return;
+        pending++;
+      }
+      sizer.getMetrics().recordHedgeFired();
+      LOGGER.debug("Hedging {}", range);
+
+      Call call = newCall();
+      call.enqueue(callback(System.nanoTime(), true));
+      if (isStarted.get() || result.isDone())
+        call.cancel();
+    }
+
+    private Call newCall() {
+      Call call = client.newCall(request);
+      calls.add(call);
+      return call;
+    }
+
+    private Callback callback(long startNanos, boolean isHedge) {
+      return new Callback() {
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+          LOGGER.debug("Exception in RangeDownloader.fetchAsync() for {}", range, e);
+          complete(new InvokeResponse(null, RetryPolicy.IO_ERROR), isHedge);
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) {
+          complete(writeIfFirst(call, response, startNanos), isHedge);
+        }
+      };
+    }
+
+    /**
+     * <p>
+     * Writes the response if it is the first partial content of the range, and cancels the other
+     * attempt. An error response is checked without claiming the range, so that the other attempt
+     * can still write it. Otherwise the response is closed before any of its bytes are written, and
+     * the attempt fails
+     * </p>
+     */
+    private InvokeResponse writeIfFirst(Call winner, Response response, long startNanos) {
+
+      if (response.code() != PARTIAL_CONTENT)
+        return write(response, range, sink, sizer, progress, false, startNanos);
+
+      if (!isStarted.compareAndSet(false, true)) {
+        response.close();
+        LOGGER.debug("Response for {} closed unread, another attempt is writing it", range);
+        return new InvokeResponse(null, RetryPolicy.IO_ERROR);
+      }
+
+      for (Call call : calls) {
+        if (call != winner)
+          call.cancel();
+      }
+      return write(response, range, sink, sizer, progress, false, startNanos);
+    }
+
+    /**
+     * <p>
+     * Completes the fetch with the first success, cancelling the other attempt, or once both
+     * attempts failed, with the failure which has a status of the API, if any
+     * </p>
+     */
+    private void complete(InvokeResponse response, boolean isHedge) {
+
+      if (response.getStatusCode() == PARTIAL_CONTENT) {
+        if (!result.complete(response))
+          return;
+        if (isHedge) {
+          sizer.getMetrics().recordHedgeWon();
+          LOGGER.debug("Hedge won for {}", range);
+        }
+        for (Call call : calls) {
+          call.cancel();
+        }
+        return;
+      }
+
+      synchronized (this) {
+        if (failure == null || failure.getStatusCode() == RetryPolicy.IO_ERROR)
+          failure = response;
+        if (--pending == 0)
+          result.complete(failure);
+      }
+    }
+  }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Objects;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ebay.feed.constants.Constants;
+import com.ebay.feed.model.feed.operation.internal.ByteRange;
+import com.ebay.feed.model.feed.operation.internal.ContentRange;
+import com.ebay.feed.util.FeedUtil;
+
+/**
+ * <p>
+ * Presents the ranges of a feed file as one continuous stream, without writing them to disk. The
+ * ranges are requested in order, and the next range is requested once the body of the current one
+ * has been read completely. Used for processing the feed file while it is being downloaded. If a
+ * request or a response body fails with a transient error, the stream continues with a new request
+ * from the first byte that has not been read yet, as decided by the {@link RetryPolicy}. The stream
+ * can be limited to the first bytes of the feed file, for previewing it. Every range after the
+ * first one must have the same total size and last modified date as the first one, so that a feed
+ * file which is replaced while it is read fails the stream instead of mixing two files.
+ * </p>
+ */
+public class RangeInputStream extends InputStream {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RangeInputStream.class);
+  private static final int OK = 200;
+  private static final int PARTIAL_CONTENT = 206;
+
+  private final OkHttpClient client;
+  private final Request request;
+  private final long chunkSizeLimit;
+  private final RetryPolicy retryPolicy;
+  private final long limit;
+  private final FeedUtil feedUtils = new FeedUtil();
+
+  private long nextStart = 0;
+  private long position = 0;
+  private int bodyRetries = 0;
+  private long total = -1;
+  private String lastModified;
+  private String lastModifiedHeader;
+  private Response response;
+  private InputStream body;
+
+  /**
+   *
+   * @param client Http client
+   * @param request The API request, without the range header
+   * @param chunkSizeLimit Max chunk size for one request
+   */
+  public RangeInputStream(OkHttpClient client, Request request, long chunkSizeLimit) {
+    this(client, request, chunkSizeLimit, new RetryPolicy(0, 0, 0));
+  }
+
+  /**
+   *
+   * @param client Http client
+   * @param request The API request, without the range header
+   * @param chunkSizeLimit Max chunk size for one request
+   * @param retryPolicy Decides whether failed requests are retried
+   */
+  public RangeInputStream(OkHttpClient client, Request request, long chunkSizeLimit,
+      RetryPolicy retryPolicy) {
+    this(client, request, chunkSizeLimit, retryPolicy, 0);
+  }
+
+  /**
+   *
+   * @param client Http client
+   * @param request The API request, without the range header
+   * @param chunkSizeLimit Max chunk size for one request
+   * @param retryPolicy Decides whether failed requests are retried
+   * @param limit Number of bytes of the feed file to read, or 0 to read the whole file
+   */
+  public RangeInputStream(OkHttpClient client, Request request, long chunkSizeLimit,
+      RetryPolicy retryPolicy, long limit) {
+    this.client = client;
+    this.request = request;
+    this.chunkSizeLimit = chunkSizeLimit;
+    this.retryPolicy = retryPolicy;
+    this.limit = limit;
+  }
+
+  /**
+   * <p>
+   * Requests the first range. Once this returns, the total size and last modified date of the feed
+   * file are known
+   * </p>
+   *
+   * @throws IOException If the API returns an error
+   */
+  public void open() throws IOException {
+    if (total < 0)
+      nextRange();
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] single = new byte[1];
+    int bytesRead = read(single, 0, 1);
+    return bytesRead == -1 ? -1 : single[0] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+
+    // a whole file response is cut at the limit too
+    if (limit > 0) {
+      if (position >= limit)
+        return -1;
+      len = (int) Math.min(len, limit - position);
+    }
+
+    while (true) {
+
+      if (body == null && !nextRange())
+        return -1;
+
+      int bytesRead;
+      try {
+        bytesRead = body.read(b, off, len);
+      } catch (IOException e) {
+        closeRange();
+
+        // a whole file response cannot be resumed with a range request
+        if (total == 0 || !retryPolicy.shouldRetry(RetryPolicy.IO_ERROR, bodyRetries))
+          throw e;
+
+        bodyRetries++;
+        LOGGER.debug("Resuming stream at {} after {}", position, e.getMessage());
+        backoff(bodyRetries, null);
+        nextStart = position;
+        continue;
+      }
+
+      if (bytesRead != -1) {
+        position += bytesRead;
+        return bytesRead;
+      }
+
+      bodyRetries = 0;
+      closeRange();
+    }
+  }
+
+  /**
+   * <p>
+   * Requests the next range. Returns false if all the ranges have been read
+   * </p>
+   */
+  private boolean nextRange() throws IOException {
+
+    if (total >= 0 && nextStart >= total)
+      return false;
+
+    long end = nextStart + chunkSizeLimit;
+    if (total >= 0)
+      end = Math.min(end, total - 1);
+    if (limit > 0)
+      end = Math.min(end, limit - 1);
+    ByteRange range = new ByteRange(nextStart, end);
+    execute(range);
+
+    if (response.code() == OK && total < 0) {
+
+      // whole file in one response
+      total = 0;
+      nextStart = 0;
+
+    } else if (response.code() == PARTIAL_CONTENT) {
+
+      ContentRange contentRange =
+          ContentRange.parse(response.header(Constants.CONTENT_RANGE_HEADER));
+      if (contentRange == null || contentRange.getStart() != range.getStart()) {
+        closeRange();
+        throw new IOException("Unexpected content range for " + range);
+      }
+      String modified = response.header(Constants.LAST_MODIFIED_DATE_HEADER);
+      if (total > 0
+          && (contentRange.getTotal() != total || !Objects.equals(modified, lastModifiedHeader))) {
+        closeRange();
+        throw new IOException("Feed file changed while streaming, at " + range + " - total = "
+            + contentRange.getTotal() + ", last modified = " + modified);
+      }
+      total = contentRange.getTotal();
+      lastModifiedHeader = modified;
+      nextStart = contentRange.getEnd() + 1;
+
+    } else {
+      String message = "Error in API response - status = " + response.code() + ", body = "
+          + response.body().string();
+      closeRange();
+      throw new IOException(message);
+    }
+
+    if (lastModified == null)
+      lastModified =
+          feedUtils.getLastModifiedDate(response.header(Constants.LAST_MODIFIED_DATE_HEADER));
+
+    LOGGER.debug("Streaming {} of total = {}", range, total);
+    body = response.body().byteStream();
+    return true;
+  }
+
+  /**
+   * <p>
+   * Requests the range, and retries while the failure is transient. Once this returns, response
+   * holds a successful or a non retryable response
+   * </p>
+   */
+  private void execute(ByteRange range) throws IOException {
+
+    Request rangeRequest =
+        request.newBuilder().header(Constants.RANGE_HEADER, range.toHeaderValue()).build();
+
+    int retries = 0;
+    while (true) {
+
+      int statusCode;
+      String retryAfter = null;
+      try {
+        response = client.newCall(rangeRequest).execute();
+        statusCode = response.code();
+        if (statusCode == OK || statusCode == PARTIAL_CONTENT
+            || !retryPolicy.shouldRetry(statusCode, retries))
+          return;
+        retryAfter = response.header(Constants.RETRY_AFTER_HEADER);
+        closeRange();
+      } catch (IOException e) {
+        if (!retryPolicy.shouldRetry(RetryPolicy.IO_ERROR, retries))
+          throw e;
+        statusCode = RetryPolicy.IO_ERROR;
+      }
+
+      retries++;
+      LOGGER.debug("Retrying {}, retry {} - status = {}", new Object[] {range, retries, statusCode});
+      backoff(retries, retryAfter);
+    }
+  }
+
+  private void backoff(int retry, String retryAfter) throws IOException {
+    try {
+      retryPolicy.backoff(retry, retryAfter);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to retry");
+    }
+  }
+
+  private void closeRange() {
+    if (response != null)
+      response.close();
+    response = null;
+    body = null;
+  }
+
+  /**
+   * @return string Last modified date of the feed file, in the format yyyyMMdd
+   */
+  public String getLastModified() {
+    return lastModified;
+  }
+
+  @Override
+  public void close() throws IOException {
+    closeRange();
+  }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ebay.feed.model.feed.operation.internal.ByteRange;
+import com.google.gson.Gson;
+
+/**
+ * <div>
+ * Sidecar file which records the ranges of a feed file that have been completely written to disk.
+ * It is stored next to the feed file, with the suffix '.manifest', and is deleted once the
+ * download is complete. <br>
+ * If a download fails, the next download of the same file resumes from the first missing range,
+ * provided the total size and last modified date returned by the API still match.
+ * <ul>
+ * <li><b>total</b> - Total size of the feed file, from the Content-Range header</li>
+ * <li><b>lastModified</b> - Last modified date of the feed file, from the Last-Modified header</li>
+ * <li><b>completed</b> - Sorted, non overlapping ranges that have been written to disk</li>
+ * </ul>
+ * </div>
+ */
+public class RangeManifest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RangeManifest.class);
+  private static final String MANIFEST_SUFFIX = ".manifest";
+
+  private long total;
+  private String lastModified;
+  private List<ByteRange> completed = new ArrayList<>();
+
+  private transient Path manifestPath;
+
+  public RangeManifest(Path filePath) {
+    this.manifestPath = getManifestPath(filePath);
+  }
+
+  /**
+   * @param filePath Path of the feed file
+   * @return Path Path of the manifest for the feed file
+   */
+  public static Path getManifestPath(Path filePath) {
+    return Paths.get(filePath.toString() + MANIFEST_SUFFIX);
+  }
+
+  /**
+   * <p>
+   * Loads the manifest of a partially downloaded feed file. Returns null if there is no manifest,
+   * or if it cannot be read
+   * </p>
+   *
+   * @param filePath Path of the feed file
+   * @return RangeManifest The manifest, or null
+   */
+  public static RangeManifest load(Path filePath) {
+
+    Path manifestPath = getManifestPath(filePath);
+    if (!Files.exists(manifestPath))
+      return null;
+
+    try {
+      String contents = new String(Files.readAllBytes(manifestPath), StandardCharsets.UTF_8);
+      RangeManifest manifest = new Gson().fromJson(contents, RangeManifest.class);
+      if (manifest == null || manifest.completed == null)
+        return null;
+
+      manifest.manifestPath = manifestPath;
+      return manifest;
+
+    } catch (Exception e) {
+      LOGGER.debug("Could not read manifest {}", manifestPath, e);
+      return null;
+    }
+  }
+
+  /**
+   * <p>
+   * Checks that the partially downloaded file is not shorter than the ranges which are marked as
+   * completed
+   * </p>
+   *
+   * @param fileSize Current size of the feed file
+   * @return boolean Indicates whether the feed file can be resumed
+   */
+  public synchronized boolean isConsistent(long fileSize) {
+
+    if (completed.isEmpty())
+      return true;
+
+    ByteRange last = completed.get(completed.size() - 1);
+    return total > 0 && fileSize <= total && last.getEnd() < fileSize;
+  }
+
+  /**
+   * <p>
+   * Checks whether the file on the server is the same one that was partially downloaded
+   * </p>
+   *
+   * @param total Total size of the feed file on the server
+   * @param lastModified Last modified date of the feed file on the server
+   * @return boolean Indicates whether the completed ranges can be reused
+   */
+  public synchronized boolean matches(long total, String lastModified) {
+    return this.total == total
+        && (this.lastModified == null ? lastModified == null : this.lastModified
+            .equals(lastModified));
+  }
+
+  /**
+   * <p>
+   * Discards all the completed ranges, and starts tracking a new download
+   * </p>
+   *
+   * @param total Total size of the feed file on the server
+   * @param lastModified Last modified date of the feed file on the server
+   * @throws IOException If the manifest cannot be written
+   */
+  public synchronized void reset(long total, String lastModified) throws IOException {
+    this.total = total;
+    this.lastModified = lastModified;
+    this.completed.clear();
+    save();
+  }
+
+  /**
+   * <p>
+   * Records that a range has been written to disk, and persists the manifest
+   * </p>
+   *
+   * @param range The range that was written
+   * @throws IOException If the manifest cannot be written
+   */
+  public synchronized void markCompleted(ByteRange range) throws IOException {
+
+    List<ByteRange> merged = new ArrayList<>();
+    long start = range.getStart();
+    long end = range.getEnd();
+    int i = 0;
+
+    // ranges which end before the new range
+    while (i < completed.size() && completed.get(i).getEnd() + 1 < start) {
+      merged.add(completed.get(i++));
+    }
+
+    // ranges which overlap or touch the new range
+    while (i < completed.size() && completed.get(i).getStart() <= end + 1) {
+      start = Math.min(start, completed.get(i).getStart());
+      end = Math.max(end, completed.get(i).getEnd());
+      i++;
+    }
+    merged.add(new ByteRange(start, end));
+
+    while (i < completed.size()) {
+      merged.add(completed.get(i++));
+    }
+
+    completed = merged;
+    save();
+  }
+
+  /**
+   * @param offset Offset in the feed file
+   * @return long The first offset, starting at the given offset, which has not been downloaded
+   */
+  public synchronized long nextMissing(long offset) {
+    for (ByteRange range : completed) {
+      if (range.getStart() <= offset && offset <= range.getEnd())
+        return range.getEnd() + 1;
+    }
+    return offset;
+  }
+
+  /**
+   * @param offset Offset in the feed file
+   * @return long Start of the first completed range after the offset, or Long.MAX_VALUE if there is
+   *         none
+   */
+  public synchronized long nextCompleted(long offset) {
+    for (ByteRange range : completed) {
+      if (range.getStart() > offset)
+        return range.getStart();
+    }
+    return Long.MAX_VALUE;
+  }
+
+  /**
+   * <p>
+   * Returns the first range which still needs to be downloaded. If the total size is not known yet,
+   * this is the first chunk of the file. Returns null if the whole file has been downloaded
+   * </p>
+   *
+   * @param chunkSizeLimit Max chunk size for one request
+   * @return ByteRange The first missing range, or null
+   */
+  public synchronized ByteRange firstMissing(long chunkSizeLimit) {
+
+    if (total <= 0)
+      return new ByteRange(0, chunkSizeLimit);
+
+    long start = nextMissing(0);
+    if (start >= total)
+      return null;
+
+    long end = Math.min(Math.min(start + chunkSizeLimit, total - 1), nextCompleted(start) - 1);
+    return new ByteRange(start, end);
+  }
+
+  /**
+   * @return long Number of bytes which have been downloaded
+   */
+  public synchronized long getCompletedBytes() {
+    long bytes = 0;
+    for (ByteRange range : completed) {
+      bytes += range.length();
+    }
+    return bytes;
+  }
+
+  /**
+   * <p>
+   * Deletes the manifest, once the download is complete
+   * </p>
+   *
+   * @throws IOException If the manifest cannot be deleted
+   */
+  public synchronized void delete() throws IOException {
+    Files.deleteIfExists(manifestPath);
+  }
+
+  /**
+   * <p>
+   * Writes the manifest to a temporary file and moves it in place, so that a crash never leaves a
+   * half written manifest behind
+   * </p>
+   */
+  private void save() throws IOException {
+    Path tempPath = Paths.get(manifestPath.toString() + ".tmp");
+    Files.write(tempPath, new Gson().toJson(this).getBytes(StandardCharsets.UTF_8));
+    Files.move(tempPath, manifestPath, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  public long getTotal() {
+    return total;
+  }
+
+  public String getLastModified() {
+    return lastModified;
+  }
+
+  @Override
+  public synchronized String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("RangeManifest [total=").append(total).append(", lastModified=")
+        .append(lastModified).append(", completed=").append(completed).append("]");
+    return builder.toString();
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import com.ebay.feed.model.feed.operation.internal.ByteRange;
+
+/**
+ * <p>
+ * Hands out the ranges which are yet to be downloaded, in increasing order of offset. Ranges which
+ * are already marked as completed in the manifest, from a previous attempt, are skipped. Safe to be
+ * shared by several download workers. The size of each range is taken from a {@link RangeSizer}
+ * when the range is handed out.
+ * </p>
+ */
+public class RangePlanner {
+
+  private long nextStart;
+  private final long total;
+  private final RangeSizer sizer;
+  private final RangeManifest manifest;
+
+  /**
+   *
+   * @param start Offset of the first byte that still needs to be downloaded
+   * @param total Total size of the file, as returned in the Content-Range header
+   * @param chunkSizeLimit Max chunk size for one request
+   */
+  public RangePlanner(long start, long total, long chunkSizeLimit) {
+    this(start, total, chunkSizeLimit, null);
+  }
+
+  /**
+   *
+   * @param start Offset of the first byte that still needs to be downloaded
+   * @param total Total size of the file, as returned in the Content-Range header
+   * @param chunkSizeLimit Max chunk size for one request
+   * @param manifest Optional manifest of the ranges which have already been downloaded
+   */
+  public RangePlanner(long start, long total, long chunkSizeLimit, RangeManifest manifest) {
+    this(start, total, new RangeSizer(chunkSizeLimit), manifest);
+  }
+
+  /**
+   *
+   * @param start Offset of the first byte that still needs to be downloaded
+   * @param total Total size of the file, as returned in the Content-Range header
+   * @param sizer Chooses the chunk size of each range
+   * @param manifest Optional manifest of the ranges which have already been downloaded
+   */
+  public RangePlanner(long start, long total, RangeSizer sizer, RangeManifest manifest) {
+    this.nextStart = start;
+    this.total = total;
+    this.sizer = sizer;
+    this.manifest = manifest;
+  }
+
+  /**
+   * <p>
+   * Returns the next range to be downloaded, or null if the whole file has been handed out
+   * </p>
+   *
+   * @return ByteRange The next range
+   */
+  public synchronized ByteRange next() {
+
+    if (manifest != null)
+      nextStart = manifest.nextMissing(nextStart);
+
+    if (nextStart >= total)
+      return null;
+
+    long end = Math.min(nextStart + sizer.getChunkSize(), total - 1);
+    if (manifest != null)
+      end = Math.min(end, manifest.nextCompleted(nextStart) - 1);
+    ByteRange range = new ByteRange(nextStart, end);
+    nextStart = end + 1;
+    return range;
+  }
+
+  public long getTotal() {
+    return total;
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ebay.feed.model.feed.download.DownloadMetrics;
+
+/**
+ * <p>
+ * Chooses the chunk size of the next range request from the measured throughput and time to first
+ * byte of the completed ranges. Each request should take long enough for the time to first byte to
+ * be a small part of it, but not so long that a failed range loses much work. The chunk size is
+ * therefore sized to take 20 times the time to first byte, bounded between 1 and 30 seconds of
+ * transfer, and stays within the max chunk size of the API. It changes by at most a factor of two
+ * per range, to smooth out noisy measurements. If adaptive sizing is disabled, the chunk size stays
+ * at the max chunk size.
+ * </p>
+ * <p>
+ * The times to first byte of the last completed ranges are also kept, for the percentile after
+ * which a range request is hedged.
+ * </p>
+ */
+public class RangeSizer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RangeSizer.class);
+  private static final double SMOOTHING = 0.3;
+  private static final int OVERHEAD_FACTOR = 20;
+  private static final double MIN_RANGE_SECONDS = 1;
+  private static final double MAX_RANGE_SECONDS = 30;
+  private static final int TIME_TO_FIRST_BYTE_SAMPLES = 100;
+  private static final int MIN_TIME_TO_FIRST_BYTE_SAMPLES = 5;
+
+  private final long chunkSizeLimit;
+  private final long minChunkSize;
+  private final boolean isAdaptive;
+  private final DownloadMetrics metrics = new DownloadMetrics();
+
+  private long chunkSize;
+  private double throughput = -1;
+  private double timeToFirstByte = -1;
+  private final long[] timeToFirstByteSamples = new long[TIME_TO_FIRST_BYTE_SAMPLES];
+  private int sampleCount = 0;
+
+  /**
+   * <p>
+   * Creates a sizer which always uses the max chunk size
+   * </p>
+   *
+   * @param chunkSizeLimit Max chunk size for one request
+   */
+  public RangeSizer(long chunkSizeLimit) {
+    this(chunkSizeLimit, chunkSizeLimit, false);
+  }
+
+  /**
+   *
+   * @param chunkSizeLimit Max chunk size for one request
+   * @param minChunkSize Min chunk size for one request, when adaptive
+   * @param isAdaptive Indicates whether the chunk size follows the measurements
+   */
+  public RangeSizer(long chunkSizeLimit, long minChunkSize, boolean isAdaptive) {
+    this.chunkSizeLimit = chunkSizeLimit;
+    this.minChunkSize = Math.min(minChunkSize, chunkSizeLimit);
+    this.isAdaptive = isAdaptive;
+    this.chunkSize = chunkSizeLimit;
+  }
+
+  /**
+   * @return long Chunk size for the next request, with the same meaning as the max chunk size
+   */
+  public synchronized long getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * <p>
+   * Records a completed range, and adjusts the chunk size for the next request
+   * </p>
+   *
+   * @param rangeSize Size of the requested range
+   * @param bytes Number of bytes received
+   * @param timeToFirstByteNanos Time until the response headers were received
+   * @param elapsedNanos Time until the whole body was received
+   */
+  public synchronized void record(long rangeSize, long bytes, long timeToFirstByteNanos,
+      long elapsedNanos) {
+
+    metrics.record(rangeSize, bytes, timeToFirstByteNanos, elapsedNanos);
+    timeToFirstByteSamples[sampleCount++ % TIME_TO_FIRST_BYTE_SAMPLES] = timeToFirstByteNanos;
+    if (!isAdaptive)
+      return;
+
+    double seconds = TimeUnit.SECONDS.toNanos(1);
+    double rangeThroughput = bytes / (Math.max(elapsedNanos - timeToFirstByteNanos, 1) / seconds);
+    double rangeTimeToFirstByte = timeToFirstByteNanos / seconds;
+
+    throughput = throughput < 0 ? rangeThroughput : smooth(throughput, rangeThroughput);
+    timeToFirstByte =
+        timeToFirstByte < 0 ? rangeTimeToFirstByte : smooth(timeToFirstByte, rangeTimeToFirstByte);
+
+    double rangeSeconds =
+        Math.min(Math.max(OVERHEAD_FACTOR * timeToFirstByte, MIN_RANGE_SECONDS), MAX_RANGE_SECONDS);
+    long target = (long) Math.min(throughput * rangeSeconds, Long.MAX_VALUE / 4);
+
+    long next = Math.min(Math.max(target, chunkSize / 2), chunkSize * 2);
+    chunkSize = Math.min(Math.max(next, minChunkSize), chunkSizeLimit);
+
+    LOGGER.debug("Throughput = {} bytes/s, time to first byte = {} s. Next chunk size = {}",
+        new Object[] {(long) throughput, timeToFirstByte, chunkSize});
+  }
+
+  /**
+   * @param percentile Percentile, between 0 and 100
+   * @return long Percentile of the times to first byte of the last completed ranges, in nanos, or
+   *         -1 if too few ranges have completed
+   */
+  public synchronized long getTimeToFirstBytePercentile(double percentile) {
+
+    int count = Math.min(sampleCount, TIME_TO_FIRST_BYTE_SAMPLES);
+    if (count < MIN_TIME_TO_FIRST_BYTE_SAMPLES)
+      return -1;
+
+    long[] samples = Arrays.copyOf(timeToFirstByteSamples, count);
+    Arrays.sort(samples);
+    int index = (int) Math.ceil(percentile / 100 * count) - 1;
+    return samples[Math.min(Math.max(index, 0), count - 1)];
+  }
+
+  private double smooth(double average, double value) {
+    return average + SMOOTHING * (value - average);
+  }
+
+  /**
+   * @return DownloadMetrics Measurements of the recorded ranges
+   */
+  public DownloadMetrics getMetrics() {
+    return metrics;
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.ebay.feed.model.feed.download.DownloadConfig;
+
+/**
+ * <p>
+ * Decides whether a failed range request is retried, and how long to wait before the retry.
+ * Network errors, 408, 429 and 5xx responses are transient and are retried. Other 4xx responses
+ * will not succeed on a retry, and fail immediately. The backoff doubles with every attempt, up to
+ * the max backoff, and a random part of it is waited (full jitter), so that workers which failed
+ * together do not retry together. A Retry-After header in seconds takes precedence.
+ * </p>
+ */
+public class RetryPolicy {
+
+  /**
+   * Status code used for a request which failed without a response, or whose body could not be
+   * read completely
+   */
+  public static final int IO_ERROR = -1;
+
+  private static final int REQUEST_TIMEOUT = 408;
+  private static final int TOO_MANY_REQUESTS = 429;
+  private static final int SERVER_ERROR = 500;
+
+  private final int maxRetries;
+  private final long backoffMillis;
+  private final long maxBackoffMillis;
+
+  /**
+   *
+   * @param maxRetries Number of retries after the first attempt
+   * @param backoffMillis Backoff before the first retry
+   * @param maxBackoffMillis Upper bound of the backoff
+   */
+  public RetryPolicy(int maxRetries, long backoffMillis, long maxBackoffMillis) {
+    this.maxRetries = maxRetries;
+    this.backoffMillis = backoffMillis;
+    this.maxBackoffMillis = maxBackoffMillis;
+  }
+
+  public RetryPolicy(DownloadConfig downloadConfig) {
+    this(downloadConfig.getMaxRetries(), downloadConfig.getRetryBackoffMillis(), downloadConfig
+        .getRetryMaxBackoffMillis());
+  }
+
+  /**
+   * @param statusCode Status code of the failed request, or IO_ERROR
+   * @return boolean Indicates whether the failure is transient
+   */
+  public boolean isRetryable(int statusCode) {
+    return statusCode == IO_ERROR || statusCode == REQUEST_TIMEOUT
+        || statusCode == TOO_MANY_REQUESTS || statusCode >= SERVER_ERROR;
+  }
+
+  /**
+   * @param statusCode Status code of the failed request, or IO_ERROR
+   * @param retries Number of retries made so far
+   * @return boolean Indicates whether the request should be retried
+   */
+  public boolean shouldRetry(int statusCode, int retries) {
+    return retries < maxRetries && isRetryable(statusCode);
+  }
+
+  /**
+   * @param retry Number of the retry, starting at 1
+   * @param retryAfter Value of the Retry-After header, or null
+   * @return long Time to wait before the retry, in millis
+   */
+  public long getBackoffMillis(int retry, String retryAfter) {
+
+    if (retryAfter != null) {
+      try {
+        return Math.min(TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim())),
+            maxBackoffMillis);
+      } catch (NumberFormatException e) {
+        // http date, fall back to the computed backoff
+      }
+    }
+
+    long ceiling = backoffMillis << Math.min(retry - 1, 30);
+    if (ceiling <= 0 || ceiling > maxBackoffMillis)
+      ceiling = maxBackoffMillis;
+    return ceiling == 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+  }
+
+  /**
+   * <p>
+   * Waits before the retry
+   * </p>
+   *
+   * @param retry Number of the retry, starting at 1
+   * @param retryAfter Value of the Retry-After header, or null
+   * @throws InterruptedException If the thread is interrupted while waiting
+   */
+  public void backoff(int retry, String retryAfter) throws InterruptedException {
+    Thread.sleep(getBackoffMillis(retry, retryAfter));
+  }
+
+  public int getMaxRetries() {
+    return maxRetries;
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ebay.feed.constants.Constants;
+
+/**
+ * <p>
+ * Decompresses a gzipped feed file which may be cut short, such as the first bytes of a feed file
+ * fetched for a preview. The stream ends at the truncation point instead of failing, and only
+ * returns complete lines, so that the partial row at the truncation point is dropped. If the feed
+ * file is not truncated, the whole file is returned.
+ * </p>
+ */
+public class TruncatedGzipInputStream extends InputStream {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(TruncatedGzipInputStream.class);
+  private static final byte NEW_LINE = '\n';
+
+  private final InputStream compressed;
+  private GZIPInputStream gzip;
+  private byte[] buffer = new byte[Constants.DEFAULT_BUFFER_SIZE];
+
+  // bytes before complete end with a new line, and can be returned
+  private int position = 0;
+  private int complete = 0;
+  private int count = 0;
+  private boolean isEnded = false;
+  private boolean isTruncated = false;
+
+  /**
+   *
+   * @param compressed The gzipped feed file, which may be truncated
+   */
+  public TruncatedGzipInputStream(InputStream compressed) {
+    this.compressed = compressed;
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] single = new byte[1];
+    int bytesRead = read(single, 0, 1);
+    return bytesRead == -1 ? -1 : single[0] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+
+    if (len == 0)
+      return 0;
+
+    while (position == complete) {
+      if (isEnded)
+        return -1;
+      fill();
+    }
+
+    int bytesRead = Math.min(len, complete - position);
+    System.arraycopy(buffer, position, b, off, bytesRead);
+    position += bytesRead;
+    return bytesRead;
+  }
+
+  /**
+   * <p>
+   * Decompresses the next bytes into the buffer, after the bytes which are not returned yet. Grows
+   * the buffer if it holds a single partial line
+   * </p>
+   */
+  private void fill() throws IOException {
+
+    if (position > 0) {
+      System.arraycopy(buffer, position, buffer, 0, count - position);
+      complete -= position;
+      count -= position;
+      position = 0;
+    }
+    if (count == buffer.length)
+      buffer = Arrays.copyOf(buffer, buffer.length * 2);
+
+    int bytesRead;
+    try {
+      if (gzip == null)
+        gzip = new GZIPInputStream(compressed, Constants.DEFAULT_BUFFER_SIZE);
+      bytesRead = gzip.read(buffer, count, buffer.length - count);
+    } catch (EOFException e) {
+      LOGGER.debug("Gzip stream truncated, dropping {} bytes of the last row", count - complete);
+      isTruncated = true;
+      isEnded = true;
+      count = complete;
+      return;
+    }
+
+    if (bytesRead == -1) {
+      isEnded = true;
+      complete = count;
+      return;
+    }
+
+    for (int i = count + bytesRead - 1; i >= count; i--) {
+      if (buffer[i] == NEW_LINE) {
+        complete = i + 1;
+        break;
+      }
+    }
+    count += bytesRead;
+  }
+
+  /**
+   * @return boolean Whether the gzipped feed file was found to be truncated. Only known once the
+   *         stream has been read to the end
+   */
+  public boolean isTruncated() {
+    return isTruncated;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (gzip != null)
+      gzip.close();
+    else
+      compressed.close();
+  }
+}
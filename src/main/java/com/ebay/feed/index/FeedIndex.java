@@ -0,0 +1,561 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ebay.feed.constants.Constants;
+
+/**
+ * <p>
+ * Random-access index of a gzipped feed file, for looking up a few items by item id without
+ * unzipping the whole file.
+ * </p>
+ * <div>
+ * The index is built once, by decoding the feed file. Every span of unzipped bytes, usually 1 MB,
+ * it records a checkpoint at the start of the next deflate block: the offset of the block in the
+ * gzipped file, and the last 32 KB of unzipped bytes before it, which the block may refer to. The
+ * item id in the first column of every row is mapped to the checkpoint before the row. A lookup
+ * then decodes from that checkpoint until the row, which is a span rather than the whole file.
+ * </div>
+ * <div>
+ * The index is saved next to the feed file, with the size and modification time of the feed
+ * file, so that an index of a feed file downloaded again is not used. The checkpoint windows stay
+ * on disk, and are read by the lookups which need them.
+ * </div>
+ */
+public class FeedIndex {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(FeedIndex.class);
+
+  public static final String INDEX_SUFFIX = ".idx";
+
+  private static final int MAGIC = 0x46494458;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 28;
+  private static final int CHECKPOINT_SIZE = 25;
+
+  // rows are mapped to checkpoints by the top bits of the hash of their item id
+  private static final int CHECKPOINT_BITS = 24;
+  private static final long CHECKPOINT_MASK = (1L << CHECKPOINT_BITS) - 1;
+
+  private static final int LINE_START = 1;
+  private static final int MEMBER_START = 2;
+
+  private final Path feedFile;
+  private final Path indexFile;
+  private final List<Checkpoint> checkpoints;
+  private final long[] entries;
+
+  private FeedIndex(Path feedFile, Path indexFile, List<Checkpoint> checkpoints, long[] entries) {
+    this.feedFile = feedFile;
+    this.indexFile = indexFile;
+    this.checkpoints = checkpoints;
+    this.entries = entries;
+  }
+
+  /**
+   * <p>
+   * Path of the index of a feed file, next to it
+   * </p>
+   *
+   * @param feedFile The gzipped feed file
+   * @return Path The index file
+   */
+  public static Path getIndexPath(Path feedFile) {
+    return Paths.get(feedFile.toString() + INDEX_SUFFIX);
+  }
+
+  /**
+   * <p>
+   * Builds the index of a gzipped feed file, with a checkpoint every 1 MB of unzipped bytes
+   * </p>
+   *
+   * @param feedFile The gzipped feed file
+   * @return FeedIndex The index, saved next to the feed file
+   * @throws IOException If the feed file cannot be read or is not valid
+   */
+  public static FeedIndex build(Path feedFile) throws IOException {
+    return build(feedFile, getIndexPath(feedFile), Constants.DEFAULT_INDEX_SPAN);
+  }
+
+  /**
+   * <p>
+   * Builds the index of a gzipped feed file. Smaller spans make lookups faster, and the index
+   * larger
+   * </p>
+   *
+   * @param feedFile The gzipped feed file
+   * @param indexFile The index file, which is replaced
+   * @param span Unzipped bytes between checkpoints
+   * @return FeedIndex The index
+   * @throws IOException If the feed file cannot be read or is not valid
+   */
+  public static FeedIndex build(Path feedFile, Path indexFile, long span) throws IOException {
+
+    long start = System.currentTimeMillis();
+    Builder builder = new Builder(span);
+
+    try (InputStream in = Files.newInputStream(feedFile);
+        DataOutputStream out =
+            new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexFile)))) {
+
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(Files.size(feedFile));
+      out.writeLong(Files.getLastModifiedTime(feedFile).toMillis());
+      // the number of checkpoints is written once they are all known
+      out.writeInt(0);
+
+      builder.out = out;
+      builder.windowOffset = HEADER_SIZE;
+      new GzipDecoder(in).decode(builder, builder);
+      builder.entries = Arrays.copyOf(builder.entries, builder.entryCount);
+      Arrays.sort(builder.entries);
+
+      out.writeInt(builder.entryCount);
+      for (long entry : builder.entries) {
+        out.writeLong(entry);
+      }
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(indexFile);
+      throw e;
+    } finally {
+      builder.deflater.end();
+    }
+
+    try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.WRITE)) {
+      ByteBuffer count = ByteBuffer.allocate(4);
+      count.putInt(0, builder.checkpoints.size());
+      channel.write(count, HEADER_SIZE - 4);
+    }
+
+    LOGGER.info("Indexed {} rows of {} with {} checkpoints in {} ms",
+        new Object[] {builder.entryCount, feedFile, builder.checkpoints.size(),
+            System.currentTimeMillis() - start});
+    return new FeedIndex(feedFile, indexFile, builder.checkpoints, builder.entries);
+  }
+
+  /**
+   * <p>
+   * Opens the index of a gzipped feed file, saved next to it
+   * </p>
+   *
+   * @param feedFile The gzipped feed file
+   * @return FeedIndex The index
+   * @throws IOException If the index cannot be read, or is not the index of the feed file as it
+   *         is now
+   */
+  public static FeedIndex open(Path feedFile) throws IOException {
+    return open(feedFile, getIndexPath(feedFile));
+  }
+
+  /**
+   * <p>
+   * Opens the index of a gzipped feed file
+   * </p>
+   *
+   * @param feedFile The gzipped feed file
+   * @param indexFile The index file
+   * @return FeedIndex The index
+   * @throws IOException If the index cannot be read, or is not the index of the feed file as it
+   *         is now
+   */
+  public static FeedIndex open(Path feedFile, Path indexFile) throws IOException {
+
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+
+      if (in.readInt() != MAGIC || in.readInt() != VERSION)
+        throw new IOException("Not a feed file index: " + indexFile);
+      if (in.readLong() != Files.size(feedFile)
+          || in.readLong() != Files.getLastModifiedTime(feedFile).toMillis())
+        throw new IOException("Index " + indexFile + " is not the index of " + feedFile
+            + " as it is now, build it again");
+
+      int checkpointCount = in.readInt();
+      List<Checkpoint> checkpoints = new ArrayList<>(checkpointCount);
+      long offset = HEADER_SIZE;
+      for (int i = 0; i < checkpointCount; i++) {
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.bitOffset = in.readLong();
+        checkpoint.position = in.readLong();
+        checkpoint.flags = in.readByte();
+        checkpoint.windowSize = in.readInt();
+        checkpoint.windowLength = in.readInt();
+        checkpoint.windowOffset = offset + CHECKPOINT_SIZE;
+        offset = checkpoint.windowOffset + checkpoint.windowLength;
+        in.skipBytes(checkpoint.windowLength);
+        checkpoints.add(checkpoint);
+      }
+
+      long[] entries = new long[in.readInt()];
+      for (int i = 0; i < entries.length; i++) {
+        entries[i] = in.readLong();
+      }
+      return new FeedIndex(feedFile, indexFile, checkpoints, entries);
+    }
+  }
+
+  /**
+   * <p>
+   * Looks up the row of an item
+   * </p>
+   *
+   * @param itemId The item id, as in the first column of the feed file
+   * @return String The row, without its line separator, or null if the item is not in the feed
+   *         file
+   * @throws IOException If the feed file or the index cannot be read
+   */
+  public String lookup(String itemId) throws IOException {
+
+    byte[] id = itemId.getBytes(StandardCharsets.UTF_8);
+    long key = hash(id, 0, id.length) & ~CHECKPOINT_MASK;
+
+    // a few ids may share the hash, and the row is after one of their checkpoints
+    int index = lowerBound(key);
+    for (; index < entries.length && (entries[index] & ~CHECKPOINT_MASK) == key; index++) {
+      if (index > 0 && entries[index] == entries[index - 1])
+        continue;
+      String row = scan((int) (entries[index] & CHECKPOINT_MASK), id);
+      if (row != null)
+        return row;
+    }
+    return null;
+  }
+
+  /**
+   * @return int Number of checkpoints
+   */
+  public int getCheckpointCount() {
+    return checkpoints.size();
+  }
+
+  /**
+   * @return int Number of rows indexed, including the header row
+   */
+  public int getRowCount() {
+    return entries.length;
+  }
+
+  /**
+   * @return Path The index file
+   */
+  public Path getIndexFile() {
+    return indexFile;
+  }
+
+  private int lowerBound(long key) {
+    int low = 0;
+    int high = entries.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (entries[middle] < key)
+        low = middle + 1;
+      else
+        high = middle;
+    }
+    return low;
+  }
+
+  /**
+   * <p>
+   * Decodes from a checkpoint until the row of the item, or until the rows after the next
+   * checkpoint, which are not mapped to this one
+   * </p>
+   */
+  private String scan(int index, byte[] id) throws IOException {
+
+    Checkpoint checkpoint = checkpoints.get(index);
+    long end = index + 1 < checkpoints.size() ? checkpoints.get(index + 1).position
+        : Long.MAX_VALUE;
+    RowMatcher matcher =
+        new RowMatcher(id, checkpoint.position, (checkpoint.flags & LINE_START) != 0, end);
+
+    try (FileChannel channel = FileChannel.open(feedFile, StandardOpenOption.READ)) {
+      channel.position(checkpoint.bitOffset / 8);
+      InputStream in = Channels.newInputStream(channel);
+
+      if ((checkpoint.flags & MEMBER_START) != 0) {
+        new GzipDecoder(in).decode(matcher, null);
+      } else {
+        GzipDecoder decoder = new GzipDecoder(in, checkpoint.bitOffset, checkpoint.position,
+            readWindow(checkpoint));
+        decoder.resume(matcher);
+      }
+    }
+    return matcher.getRow();
+  }
+
+  private byte[] readWindow(Checkpoint checkpoint) throws IOException {
+
+    ByteBuffer compressed = ByteBuffer.allocate(checkpoint.windowLength);
+    try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+      while (compressed.hasRemaining()) {
+        if (channel.read(compressed, checkpoint.windowOffset + compressed.position()) < 0)
+          throw new IOException("Index " + indexFile + " is truncated");
+      }
+    }
+
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(compressed.array());
+      byte[] window = new byte[checkpoint.windowSize];
+      int length = 0;
+      while (length < window.length && !inflater.finished()) {
+        length += inflater.inflate(window, length, window.length - length);
+        if (inflater.needsInput())
+          break;
+      }
+      if (length != window.length)
+        throw new IOException("Index " + indexFile + " has a damaged window");
+      return window;
+    } catch (DataFormatException e) {
+      throw new IOException("Index " + indexFile + " has a damaged window", e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  /**
+   * <p>
+   * FNV-1a hash of an item id
+   * </p>
+   */
+  private static long hash(byte[] bytes, int off, int len) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = off; i < off + len; i++) {
+      hash ^= bytes[i] & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  private static class Checkpoint {
+    private long bitOffset;
+    private long position;
+    private byte flags;
+    private int windowSize;
+    private int windowLength;
+    private long windowOffset;
+  }
+
+  /**
+   * <p>
+   * Records the checkpoints while the feed file is decoded, and maps the rows to them
+   * </p>
+   */
+  private static class Builder implements GzipDecoder.Sink, GzipDecoder.BlockListener {
+
+    private static final int MAX_ID_LENGTH = 256;
+
+    private final long span;
+    private final List<Checkpoint> checkpoints = new ArrayList<>();
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final byte[] compressed = new byte[GzipDecoder.WINDOW_SIZE + 1024];
+    private DataOutputStream out;
+    private long windowOffset;
+
+    private long[] entries = new long[1024];
+    private int entryCount = 0;
+
+    // checkpoint of the row being read, and the item id read so far
+    private int rowCheckpoint = 0;
+    private long rowStart = 0;
+    private final byte[] id = new byte[MAX_ID_LENGTH];
+    private int idLength = 0;
+    private boolean isInId = true;
+
+    private Builder(long span) {
+      this.span = span;
+    }
+
+    @Override
+    public void onBlock(GzipDecoder decoder) throws IOException {
+
+      long position = decoder.getPosition();
+      Checkpoint last = checkpoints.isEmpty() ? null : checkpoints.get(checkpoints.size() - 1);
+      if (last != null && position - last.position < span)
+        return;
+      if (checkpoints.size() > CHECKPOINT_MASK)
+        throw new IOException("Too many checkpoints, index the feed file with a larger span");
+
+      Checkpoint checkpoint = new Checkpoint();
+      checkpoint.position = position;
+      if (last == null) {
+        // decoding from the first checkpoint starts with the gzip header
+        checkpoint.bitOffset = 0;
+        checkpoint.flags = LINE_START | MEMBER_START;
+      } else {
+        checkpoint.bitOffset = decoder.getBitOffset();
+        checkpoint.flags = (byte) (decoder.getLastByte() == '\n' ? LINE_START : 0);
+      }
+
+      byte[] window = last == null ? new byte[0] : decoder.getWindow();
+      deflater.reset();
+      deflater.setInput(window);
+      deflater.finish();
+      int length = 0;
+      while (!deflater.finished()) {
+        length += deflater.deflate(compressed, length, compressed.length - length);
+      }
+      checkpoint.windowSize = window.length;
+      checkpoint.windowLength = length;
+      checkpoint.windowOffset = windowOffset + CHECKPOINT_SIZE;
+      windowOffset = checkpoint.windowOffset + length;
+
+      out.writeLong(checkpoint.bitOffset);
+      out.writeLong(checkpoint.position);
+      out.writeByte(checkpoint.flags);
+      out.writeInt(checkpoint.windowSize);
+      out.writeInt(checkpoint.windowLength);
+      out.write(compressed, 0, length);
+      checkpoints.add(checkpoint);
+    }
+
+    @Override
+    public boolean write(byte[] bytes, int off, int len, long position) {
+
+      for (int i = off; i < off + len; i++) {
+        byte b = bytes[i];
+        if (isInId) {
+          if (b == '\t' || b == '\n') {
+            addEntry();
+            isInId = false;
+          } else if (idLength < MAX_ID_LENGTH) {
+            id[idLength++] = b;
+          }
+        }
+        if (b == '\n') {
+          rowStart = position + i - off + 1;
+          isInId = true;
+          idLength = 0;
+        }
+      }
+      return true;
+    }
+
+    private void addEntry() {
+
+      // the checkpoints up to the start of the row are all known, since they precede the bytes
+      while (rowCheckpoint + 1 < checkpoints.size()
+          && checkpoints.get(rowCheckpoint + 1).position <= rowStart) {
+        rowCheckpoint++;
+      }
+
+      if (entryCount == entries.length)
+        entries = Arrays.copyOf(entries, entries.length + (entries.length >> 1));
+      entries[entryCount++] = (hash(id, 0, idLength) & ~CHECKPOINT_MASK) | rowCheckpoint;
+    }
+  }
+
+  /**
+   * <p>
+   * Finds the row of an item among the rows which start before the end of a span
+   * </p>
+   */
+  private static class RowMatcher implements GzipDecoder.Sink {
+
+    private final byte[] id;
+    private final long end;
+    private final ByteArrayOutputStream row = new ByteArrayOutputStream();
+
+    private long rowStart;
+    private boolean isSkipping;
+    // bytes of the current row compared to the item id so far, or -1 once they differ
+    private int matched = 0;
+    private boolean isFound = false;
+
+    private RowMatcher(byte[] id, long start, boolean isLineStart, long end) {
+      this.id = id;
+      this.rowStart = start;
+      this.isSkipping = !isLineStart;
+      this.end = end;
+    }
+
+    @Override
+    public boolean write(byte[] bytes, int off, int len, long position) {
+
+      for (int i = off; i < off + len; i++) {
+        byte b = bytes[i];
+
+        if (isSkipping) {
+          // the rest of a row which starts before the checkpoint
+          if (b == '\n') {
+            isSkipping = false;
+            rowStart = position + i - off + 1;
+            if (rowStart >= end)
+              return false;
+          }
+          continue;
+        }
+
+        if (isFound) {
+          if (b == '\n')
+            return false;
+          row.write(b);
+          continue;
+        }
+
+        if (matched >= 0) {
+          if (matched == id.length && (b == '\t' || b == '\n')) {
+            isFound = true;
+            row.write(id, 0, id.length);
+            if (b == '\n')
+              return false;
+            row.write(b);
+            continue;
+          }
+          matched = matched < id.length && id[matched] == b ? matched + 1 : -1;
+        }
+
+        if (b == '\n') {
+          rowStart = position + i - off + 1;
+          matched = 0;
+          if (rowStart >= end)
+            return false;
+        }
+      }
+      return true;
+    }
+
+    private String getRow() {
+      return isFound ? new String(row.toByteArray(), StandardCharsets.UTF_8) : null;
+    }
+  }
+}
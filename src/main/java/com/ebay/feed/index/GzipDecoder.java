@@ -0,0 +1,544 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.index;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipException;
+
+/**
+ * <p>
+ * Decoder of gzipped files which, unlike the JDK inflater, reports the bit offset of every deflate
+ * block, and can resume decoding at such an offset given the last 32 KB of contents before it. This
+ * is what a random-access index of a gzipped file needs: the builder decodes the whole file once
+ * and records some block offsets with their windows, and a lookup decodes from the nearest one.
+ * </p>
+ * <p>
+ * Decoded bytes go through a ring buffer, which keeps the window of the last 32 KB, and are handed
+ * to the sink in segments. Concatenated gzip members are decoded one after the other.
+ * </p>
+ */
+class GzipDecoder {
+
+  /**
+   * <p>
+   * Receives the decoded bytes, in order
+   * </p>
+   */
+  interface Sink {
+
+    /**
+     * @param bytes Buffer holding the bytes
+     * @param off Offset of the first byte in the buffer
+     * @param len Number of bytes
+     * @param position Offset of the first byte in the decoded contents
+     * @return boolean False to stop decoding
+     */
+    boolean write(byte[] bytes, int off, int len, long position) throws IOException;
+  }
+
+  /**
+   * <p>
+   * Notified at the start of every deflate block, before its header is read
+   * </p>
+   */
+  interface BlockListener {
+
+    void onBlock(GzipDecoder decoder) throws IOException;
+  }
+
+  static final int WINDOW_SIZE = 32768;
+
+  private static final int RING_SIZE = 1 << 17;
+  private static final int RING_MASK = RING_SIZE - 1;
+  private static final int FLUSH_SIZE = WINDOW_SIZE;
+  private static final int MAX_BITS = 15;
+
+  private static final int GZIP_MAGIC = 0x8b1f;
+  private static final int FHCRC = 2;
+  private static final int FEXTRA = 4;
+  private static final int FNAME = 8;
+  private static final int FCOMMENT = 16;
+
+  private static final int[] LENGTH_BASE = {3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27,
+      31, 35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227, 258};
+  private static final int[] LENGTH_EXTRA = {0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2, 3, 3,
+      3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0};
+  private static final int[] DISTANCE_BASE = {1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129,
+      193, 257, 385, 513, 769, 1025, 1537, 2049, 3073, 4097, 6145, 8193, 12289, 16385, 24577};
+  private static final int[] DISTANCE_EXTRA = {0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6, 7, 7,
+      8, 8, 9, 9, 10, 10, 11, 11, 12, 12, 13, 13};
+  private static final int[] CODE_LENGTH_ORDER = {16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3,
+      13, 2, 14, 1, 15};
+
+  private static final Huffman FIXED_LITERALS;
+  private static final Huffman FIXED_DISTANCES;
+
+  static {
+    int[] lengths = new int[288];
+    for (int i = 0; i < 288; i++) {
+      lengths[i] = i < 144 ? 8 : i < 256 ? 9 : i < 280 ? 7 : 8;
+    }
+    FIXED_LITERALS = new Huffman(lengths, 0, 288);
+    int[] distances = new int[30];
+    java.util.Arrays.fill(distances, 5);
+    FIXED_DISTANCES = new Huffman(distances, 0, 30);
+  }
+
+  private final InputStream in;
+  private final byte[] input = new byte[65536];
+  private int inputPosition = 0;
+  private int inputLength = 0;
+  private long bytesRead;
+
+  // bits read ahead, of which the top padding bits are zeros past the end of the input
+  private long bitBuffer = 0;
+  private int bitCount = 0;
+  private int padding = 0;
+
+  private final byte[] ring = new byte[RING_SIZE];
+  private final long historyStart;
+  private long total;
+  private long flushed;
+  private long memberStart;
+
+  private final CRC32 crc;
+  private Sink sink;
+  private boolean isStopped = false;
+
+  /**
+   * <p>
+   * Decoder of a gzipped file from its start. The CRC32 and size of every member are checked
+   * </p>
+   *
+   * @param in The gzipped file
+   */
+  GzipDecoder(InputStream in) {
+    this.in = in;
+    this.historyStart = 0;
+    this.crc = new CRC32();
+  }
+
+  /**
+   * <p>
+   * Decoder which resumes at the start of a deflate block. Members are not checked, since only
+   * part of them is decoded
+   * </p>
+   *
+   * @param in The gzipped file, from the byte holding the first bit of the block
+   * @param bitOffset Offset of the block, in bits from the start of the file
+   * @param position Offset of the block contents in the decoded file
+   * @param window Decoded contents before the block, up to 32 KB
+   */
+  GzipDecoder(InputStream in, long bitOffset, long position, byte[] window) throws IOException {
+    this.in = in;
+    this.bytesRead = bitOffset / 8;
+    this.crc = null;
+    this.historyStart = position - window.length;
+    for (int i = 0; i < window.length; i++) {
+      ring[(int) (historyStart + i) & RING_MASK] = window[i];
+    }
+    this.total = position;
+    this.flushed = position;
+    bits((int) (bitOffset % 8));
+  }
+
+  /**
+   * <p>
+   * Decodes the file from the start, and then any further members
+   * </p>
+   */
+  void decode(Sink sink, BlockListener listener) throws IOException {
+    this.sink = sink;
+    while (!isStopped && startMember()) {
+      decodeMember(listener);
+    }
+    flush();
+  }
+
+  /**
+   * <p>
+   * Decodes from the block given to the constructor to the end of its member, and then any further
+   * members
+   * </p>
+   */
+  void resume(Sink sink) throws IOException {
+    this.sink = sink;
+    decodeMember(null);
+    while (!isStopped && startMember()) {
+      decodeMember(null);
+    }
+    flush();
+  }
+
+  /**
+   * @return long Offset of the next bit to be read, from the start of the file
+   */
+  long getBitOffset() {
+    return bytesRead * 8 - (bitCount - padding);
+  }
+
+  /**
+   * @return long Number of bytes decoded so far
+   */
+  long getPosition() {
+    return total;
+  }
+
+  /**
+   * @return byte[] The last 32 KB of decoded contents, or less at the start of the file
+   */
+  byte[] getWindow() {
+    int length = (int) Math.min(WINDOW_SIZE, total - historyStart);
+    byte[] window = new byte[length];
+    for (int i = 0; i < length; i++) {
+      window[i] = ring[(int) (total - length + i) & RING_MASK];
+    }
+    return window;
+  }
+
+  /**
+   * @return int The last decoded byte, or -1 at the start of the file
+   */
+  int getLastByte() {
+    return total > historyStart ? ring[(int) (total - 1) & RING_MASK] & 0xff : -1;
+  }
+
+  private void decodeMember(BlockListener listener) throws IOException {
+
+    boolean isLast = false;
+    while (!isLast && !isStopped) {
+
+      if (listener != null)
+        listener.onBlock(this);
+
+      int header = bits(3);
+      isLast = (header & 1) != 0;
+      switch (header >>> 1) {
+        case 0:
+          decodeStored();
+          break;
+        case 1:
+          decodeCodes(FIXED_LITERALS, FIXED_DISTANCES);
+          break;
+        case 2:
+          decodeDynamic();
+          break;
+        default:
+          throw new ZipException("Invalid deflate block type at bit " + getBitOffset());
+      }
+    }
+    if (isLast)
+      endMember();
+  }
+
+  /**
+   * <p>
+   * Reads the header of the next member. Returns false at the end of the file, or if the bytes
+   * after the last member are not a gzip header, which are ignored as GZIPInputStream does
+   * </p>
+   */
+  private boolean startMember() throws IOException {
+
+    boolean isFirst = bytesRead == 0;
+    if (!hasInput()) {
+      if (isFirst)
+        throw new EOFException("Empty gzip file");
+      return false;
+    }
+    if (bits(16) != GZIP_MAGIC) {
+      if (isFirst)
+        throw new ZipException("Not in GZIP format");
+      return false;
+    }
+    if (bits(8) != 8)
+      throw new ZipException("Unsupported compression method");
+
+    int flags = bits(8);
+    skipBytes(6);
+    if ((flags & FEXTRA) != 0)
+      skipBytes(bits(16));
+    if ((flags & FNAME) != 0)
+      skipString();
+    if ((flags & FCOMMENT) != 0)
+      skipString();
+    if ((flags & FHCRC) != 0)
+      skipBytes(2);
+
+    if (crc != null)
+      crc.reset();
+    memberStart = total;
+    return true;
+  }
+
+  private void endMember() throws IOException {
+
+    // the trailer starts at the next byte
+    bits(bitCount % 8);
+    long expectedCrc = bits(16) | ((long) bits(16) << 16);
+    long expectedSize = bits(16) | ((long) bits(16) << 16);
+
+    if (crc != null) {
+      flush();
+      if (expectedCrc != crc.getValue())
+        throw new ZipException("CRC mismatch in gzip member ending at byte " + bytesRead);
+      if (expectedSize != ((total - memberStart) & 0xffffffffL))
+        throw new ZipException("Size mismatch in gzip member ending at byte " + bytesRead);
+    }
+  }
+
+  private void decodeStored() throws IOException {
+
+    bits(bitCount % 8);
+    int length = bits(16);
+    int complement = bits(16);
+    if (length != (~complement & 0xffff))
+      throw new ZipException("Invalid stored block length at bit " + getBitOffset());
+
+    for (int i = 0; i < length; i++) {
+      ring[(int) total & RING_MASK] = (byte) bits(8);
+      total++;
+      if (total - flushed >= FLUSH_SIZE)
+        flush();
+    }
+  }
+
+  private void decodeDynamic() throws IOException {
+
+    int literalCount = bits(5) + 257;
+    int distanceCount = bits(5) + 1;
+    int codeLengthCount = bits(4) + 4;
+
+    int[] codeLengths = new int[19];
+    for (int i = 0; i < codeLengthCount; i++) {
+      codeLengths[CODE_LENGTH_ORDER[i]] = bits(3);
+    }
+    Huffman codeLengthCode = new Huffman(codeLengths, 0, 19);
+
+    int[] lengths = new int[literalCount + distanceCount];
+    int i = 0;
+    while (i < lengths.length) {
+      int symbol = decodeSymbol(codeLengthCode);
+      if (symbol < 16) {
+        lengths[i++] = symbol;
+        continue;
+      }
+
+      int repeat;
+      int value = 0;
+      if (symbol == 16) {
+        if (i == 0)
+          throw new ZipException("Invalid code lengths at bit " + getBitOffset());
+        value = lengths[i - 1];
+        repeat = 3 + bits(2);
+      } else if (symbol == 17) {
+        repeat = 3 + bits(3);
+      } else {
+        repeat = 11 + bits(7);
+      }
+      if (i + repeat > lengths.length)
+        throw new ZipException("Invalid code lengths at bit " + getBitOffset());
+      while (repeat-- > 0) {
+        lengths[i++] = value;
+      }
+    }
+    if (lengths[256] == 0)
+      throw new ZipException("Missing end of block code at bit " + getBitOffset());
+
+    decodeCodes(new Huffman(lengths, 0, literalCount),
+        new Huffman(lengths, literalCount, distanceCount));
+  }
+
+  private void decodeCodes(Huffman literals, Huffman distances) throws IOException {
+
+    while (true) {
+      int symbol = decodeSymbol(literals);
+
+      if (symbol < 256) {
+        ring[(int) total & RING_MASK] = (byte) symbol;
+        total++;
+
+      } else if (symbol == 256) {
+        return;
+
+      } else {
+        symbol -= 257;
+        if (symbol >= LENGTH_BASE.length)
+          throw new ZipException("Invalid length code at bit " + getBitOffset());
+        int length = LENGTH_BASE[symbol] + bits(LENGTH_EXTRA[symbol]);
+
+        int distanceSymbol = decodeSymbol(distances);
+        if (distanceSymbol >= DISTANCE_BASE.length)
+          throw new ZipException("Invalid distance code at bit " + getBitOffset());
+        int distance = DISTANCE_BASE[distanceSymbol] + bits(DISTANCE_EXTRA[distanceSymbol]);
+        if (distance > total - historyStart)
+          throw new ZipException("Invalid distance too far back at bit " + getBitOffset());
+
+        for (int i = 0; i < length; i++) {
+          ring[(int) total & RING_MASK] = ring[(int) (total - distance) & RING_MASK];
+          total++;
+        }
+      }
+
+      if (total - flushed >= FLUSH_SIZE) {
+        flush();
+        if (isStopped)
+          return;
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Hands the bytes decoded since the last flush to the sink
+   * </p>
+   */
+  private void flush() throws IOException {
+
+    while (flushed < total && !isStopped) {
+      int start = (int) flushed & RING_MASK;
+      int length = (int) Math.min(total - flushed, RING_SIZE - start);
+      if (crc != null)
+        crc.update(ring, start, length);
+      if (!sink.write(ring, start, length, flushed))
+        isStopped = true;
+      flushed += length;
+    }
+  }
+
+  private int decodeSymbol(Huffman code) throws IOException {
+    if (bitCount < MAX_BITS)
+      refill();
+    int entry = code.table[(int) bitBuffer & code.mask];
+    int length = entry & 15;
+    if (length == 0)
+      throw new ZipException("Invalid Huffman code at bit " + getBitOffset());
+    consume(length);
+    return entry >>> 4;
+  }
+
+  private int bits(int count) throws IOException {
+    if (count == 0)
+      return 0;
+    if (bitCount < count)
+      refill();
+    int value = (int) bitBuffer & ((1 << count) - 1);
+    consume(count);
+    return value;
+  }
+
+  private void consume(int count) throws EOFException {
+    bitBuffer >>>= count;
+    bitCount -= count;
+    if (bitCount < padding)
+      throw new EOFException("Unexpected end of gzip file");
+  }
+
+  private void refill() throws IOException {
+    while (bitCount <= 56) {
+      int b = nextByte();
+      if (b < 0) {
+        b = 0;
+        padding += 8;
+      }
+      bitBuffer |= (long) b << bitCount;
+      bitCount += 8;
+    }
+  }
+
+  private boolean hasInput() throws IOException {
+    if (bitCount > padding)
+      return true;
+    int b = nextByte();
+    if (b < 0)
+      return false;
+    // the buffer only holds padding, which is dropped
+    bitBuffer = b;
+    bitCount = 8;
+    padding = 0;
+    return true;
+  }
+
+  private int nextByte() throws IOException {
+    if (inputPosition == inputLength) {
+      if (padding > 0)
+        return -1;
+      inputLength = in.read(input, 0, input.length);
+      inputPosition = 0;
+      if (inputLength <= 0) {
+        inputLength = 0;
+        return -1;
+      }
+    }
+    bytesRead++;
+    return input[inputPosition++] & 0xff;
+  }
+
+  private void skipBytes(int count) throws IOException {
+    for (int i = 0; i < count; i++) {
+      bits(8);
+    }
+  }
+
+  private void skipString() throws IOException {
+    while (bits(8) != 0) {
+      continue;
+    }
+  }
+
+  /**
+   * <p>
+   * Canonical Huffman code, decoded with a table indexed by the next bits of the input, in the
+   * order they are read. Each entry holds the symbol and the length of its code
+   * </p>
+   */
+  private static class Huffman {
+
+    private final int[] table;
+    private final int mask;
+
+    private Huffman(int[] lengths, int off, int count) throws IllegalArgumentException {
+
+      int[] lengthCounts = new int[MAX_BITS + 1];
+      int maxLength = 0;
+      for (int i = 0; i < count; i++) {
+        lengthCounts[lengths[off + i]]++;
+        maxLength = Math.max(maxLength, lengths[off + i]);
+      }
+      lengthCounts[0] = 0;
+
+      int[] nextCode = new int[MAX_BITS + 2];
+      int code = 0;
+      for (int length = 1; length <= MAX_BITS; length++) {
+        code = (code + lengthCounts[length - 1]) << 1;
+        nextCode[length] = code;
+      }
+
+      table = new int[1 << maxLength];
+      mask = table.length - 1;
+      for (int symbol = 0; symbol < count; symbol++) {
+        int length = lengths[off + symbol];
+        if (length == 0)
+          continue;
+        int reversed = Integer.reverse(nextCode[length]++) >>> (32 - length);
+        for (int i = reversed; i < table.length; i += 1 << length) {
+          table[i] = symbol << 4 | length;
+        }
+      }
+    }
+  }
+}
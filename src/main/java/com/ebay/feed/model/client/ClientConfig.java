@@ -0,0 +1,260 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.model.client;
+
+import java.util.Objects;
+
+import com.ebay.feed.constants.Constants;
+import com.ebay.feed.util.RateLimiter;
+
+/**
+ * <div>
+ * Settings of the http client used for calling the feed and taxonomy APIs. API instances created
+ * with equal settings share the same http client, and hence its connections. Taxonomy calls made
+ * with the default settings keep their own default timeouts, of 10 seconds to connect and write,
+ * and 30 seconds to read. <br>
+ * <ul>
+ * <li><b>maxIdleConnections</b> - Number of idle connections kept in the pool. Default is 5</li>
+ * <li><b>keepAliveSeconds</b> - How long an idle connection is kept in the pool. Default is 300</li>
+ * <li><b>http2</b> - Prefers HTTP/2 when the server supports it. Default is true</li>
+ * <li><b>maxRequests</b> - Number of asynchronous requests executed concurrently. Default is 64</li>
+ * <li><b>maxRequestsPerHost</b> - Number of asynchronous requests executed concurrently for each
+ * host. Default is 5</li>
+ * <li><b>connectTimeout</b> - Connect timeout of each call, in seconds. Default is 30</li>
+ * <li><b>readTimeout</b> - Read timeout of each call, in seconds. Default is 30</li>
+ * <li><b>writeTimeout</b> - Write timeout of each call, in seconds. Default is 30</li>
+ * <li><b>maxBytesPerSecond</b> - Max rate at which response bodies are read, shared by all the
+ * calls of the client. Default is 0, no limit</li>
+ * <li><b>maxRequestsPerMinute</b> - Max rate at which calls are made, shared by all the calls of the
+ * client. Default is 0, no limit</li>
+ * <li><b>byteRateLimiter</b> - Custom limiter for the bytes read, used instead of
+ * maxBytesPerSecond. Can be shared by several clients</li>
+ * <li><b>requestRateLimiter</b> - Custom limiter for the calls made, used instead of
+ * maxRequestsPerMinute. Can be shared by several clients</li>
+ * </ul>
+ * </div>
+ */
+public class ClientConfig {
+
+  private int maxIdleConnections;
+  private long keepAliveSeconds;
+  private boolean http2;
+  private int maxRequests;
+  private int maxRequestsPerHost;
+  private long connectTimeout;
+  private long readTimeout;
+  private long writeTimeout;
+  private long maxBytesPerSecond;
+  private int maxRequestsPerMinute;
+  private RateLimiter byteRateLimiter;
+  private RateLimiter requestRateLimiter;
+
+  private ClientConfig(ClientConfigBuilder builder) {
+    this.maxIdleConnections = builder.maxIdleConnections;
+    this.keepAliveSeconds = builder.keepAliveSeconds;
+    this.http2 = builder.http2;
+    this.maxRequests = builder.maxRequests;
+    this.maxRequestsPerHost = builder.maxRequestsPerHost;
+    this.connectTimeout = builder.connectTimeout;
+    this.readTimeout = builder.readTimeout;
+    this.writeTimeout = builder.writeTimeout;
+    this.maxBytesPerSecond = builder.maxBytesPerSecond;
+    this.maxRequestsPerMinute = builder.maxRequestsPerMinute;
+    this.byteRateLimiter = builder.byteRateLimiter;
+    this.requestRateLimiter = builder.requestRateLimiter;
+  }
+
+  public int getMaxIdleConnections() {
+    return maxIdleConnections;
+  }
+
+  public long getKeepAliveSeconds() {
+    return keepAliveSeconds;
+  }
+
+  public boolean isHttp2() {
+    return http2;
+  }
+
+  public int getMaxRequests() {
+    return maxRequests;
+  }
+
+  public int getMaxRequestsPerHost() {
+    return maxRequestsPerHost;
+  }
+
+  public long getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  public long getReadTimeout() {
+    return readTimeout;
+  }
+
+  public long getWriteTimeout() {
+    return writeTimeout;
+  }
+
+  public long getMaxBytesPerSecond() {
+    return maxBytesPerSecond;
+  }
+
+  public int getMaxRequestsPerMinute() {
+    return maxRequestsPerMinute;
+  }
+
+  public RateLimiter getByteRateLimiter() {
+    return byteRateLimiter;
+  }
+
+  public RateLimiter getRequestRateLimiter() {
+    return requestRateLimiter;
+  }
+
+  public static class ClientConfigBuilder {
+    private int maxIdleConnections = Constants.DEFAULT_MAX_IDLE_CONNECTIONS;
+    private long keepAliveSeconds = Constants.DEFAULT_KEEP_ALIVE;
+    private boolean http2 = true;
+    private int maxRequests = Constants.DEFAULT_MAX_REQUESTS;
+    private int maxRequestsPerHost = Constants.DEFAULT_MAX_REQUESTS_PER_HOST;
+    private long connectTimeout = Constants.TIMEOUT;
+    private long readTimeout = Constants.TIMEOUT;
+    private long writeTimeout = Constants.TIMEOUT;
+    private long maxBytesPerSecond = 0;
+    private int maxRequestsPerMinute = 0;
+    private RateLimiter byteRateLimiter;
+    private RateLimiter requestRateLimiter;
+
+    public ClientConfigBuilder maxIdleConnections(final int maxIdleConnections) {
+      this.maxIdleConnections = maxIdleConnections;
+      return this;
+    }
+
+    public ClientConfigBuilder keepAliveSeconds(final long keepAliveSeconds) {
+      this.keepAliveSeconds = keepAliveSeconds;
+      return this;
+    }
+
+    public ClientConfigBuilder http2(final boolean http2) {
+      this.http2 = http2;
+      return this;
+    }
+
+    public ClientConfigBuilder maxRequests(final int maxRequests) {
+      this.maxRequests = maxRequests;
+      return this;
+    }
+
+    public ClientConfigBuilder maxRequestsPerHost(final int maxRequestsPerHost) {
+      this.maxRequestsPerHost = maxRequestsPerHost;
+      return this;
+    }
+
+    public ClientConfigBuilder connectTimeout(final long connectTimeout) {
+      this.connectTimeout = connectTimeout;
+      return this;
+    }
+
+    public ClientConfigBuilder readTimeout(final long readTimeout) {
+      this.readTimeout = readTimeout;
+      return this;
+    }
+
+    public ClientConfigBuilder writeTimeout(final long writeTimeout) {
+      this.writeTimeout = writeTimeout;
+      return this;
+    }
+
+    public ClientConfigBuilder maxBytesPerSecond(final long maxBytesPerSecond) {
+      this.maxBytesPerSecond = maxBytesPerSecond;
+      return this;
+    }
+
+    public ClientConfigBuilder maxRequestsPerMinute(final int maxRequestsPerMinute) {
+      this.maxRequestsPerMinute = maxRequestsPerMinute;
+      return this;
+    }
+
+    public ClientConfigBuilder byteRateLimiter(final RateLimiter byteRateLimiter) {
+      this.byteRateLimiter = byteRateLimiter;
+      return this;
+    }
+
+    public ClientConfigBuilder requestRateLimiter(final RateLimiter requestRateLimiter) {
+      this.requestRateLimiter = requestRateLimiter;
+      return this;
+    }
+
+    public ClientConfig build() {
+      if (maxIdleConnections < 0)
+        maxIdleConnections = Constants.DEFAULT_MAX_IDLE_CONNECTIONS;
+      if (keepAliveSeconds < 1)
+        keepAliveSeconds = Constants.DEFAULT_KEEP_ALIVE;
+      if (maxRequests < 1)
+        maxRequests = Constants.DEFAULT_MAX_REQUESTS;
+      if (maxRequestsPerHost < 1)
+        maxRequestsPerHost = Constants.DEFAULT_MAX_REQUESTS_PER_HOST;
+      if (connectTimeout < 0)
+        connectTimeout = Constants.TIMEOUT;
+      if (readTimeout < 0)
+        readTimeout = Constants.TIMEOUT;
+      if (writeTimeout < 0)
+        writeTimeout = Constants.TIMEOUT;
+      if (maxBytesPerSecond < 0)
+        maxBytesPerSecond = 0;
+      if (maxRequestsPerMinute < 0)
+        maxRequestsPerMinute = 0;
+      return new ClientConfig(this);
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o)
+      return true;
+    if (!(o instanceof ClientConfig))
+      return false;
+    ClientConfig other = (ClientConfig) o;
+    return maxIdleConnections == other.maxIdleConnections
+        && keepAliveSeconds == other.keepAliveSeconds && http2 == other.http2
+        && maxRequests == other.maxRequests && maxRequestsPerHost == other.maxRequestsPerHost
+        && connectTimeout == other.connectTimeout && readTimeout == other.readTimeout
+        && writeTimeout == other.writeTimeout && maxBytesPerSecond == other.maxBytesPerSecond
+        && maxRequestsPerMinute == other.maxRequestsPerMinute
+        && byteRateLimiter == other.byteRateLimiter
+        && requestRateLimiter == other.requestRateLimiter;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(maxIdleConnections, keepAliveSeconds, http2, maxRequests,
+        maxRequestsPerHost, connectTimeout, readTimeout, writeTimeout, maxBytesPerSecond,
+        maxRequestsPerMinute, byteRateLimiter, requestRateLimiter);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("ClientConfig [maxIdleConnections=").append(maxIdleConnections)
+        .append(", keepAliveSeconds=").append(keepAliveSeconds).append(", http2=").append(http2)
+        .append(", maxRequests=").append(maxRequests).append(", maxRequestsPerHost=")
+        .append(maxRequestsPerHost).append(", connectTimeout=").append(connectTimeout)
+        .append(", readTimeout=").append(readTimeout).append(", writeTimeout=")
+        .append(writeTimeout).append(", maxBytesPerSecond=").append(maxBytesPerSecond)
+        .append(", maxRequestsPerMinute=").append(maxRequestsPerMinute).append("]");
+    return builder.toString();
+  }
+}
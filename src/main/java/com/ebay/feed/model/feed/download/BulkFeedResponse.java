@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.model.feed.download;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * <div>
+ * Container for capturing the output of a bulk download. <br>
+ * <b>statusCode</b>
+ * <ul>
+ * <li>0 - Success, all the feed files were downloaded</li>
+ * <li>-1 - Failure, at least one feed file could not be downloaded</li>
+ * </ul>
+ * <br>
+ * <b>message</b> - Description of the operation result
+ * <br>
+ * <b>responses</b> - The response for each level one category, largest feed file first
+ * </div>
+ */
+public class BulkFeedResponse {
+
+  private Integer statusCode;
+  private String message;
+  private Map<String, GetFeedResponse> responses;
+
+  /**
+   *
+   * @param statusCode 0 success
+   * @param message Detailed message regarding the error
+   * @param responses The response for each level one category
+   */
+  public BulkFeedResponse(Integer statusCode, String message,
+      Map<String, GetFeedResponse> responses) {
+    this.statusCode = statusCode;
+    this.message = message;
+    this.responses =
+        responses == null ? Collections.<String, GetFeedResponse>emptyMap() : responses;
+  }
+
+  public Integer getStatusCode() {
+    return statusCode;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public Map<String, GetFeedResponse> getResponses() {
+    return responses;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("BulkFeedResponse [statusCode=").append(statusCode).append(", message=")
+        .append(message).append(", responses=").append(responses).append("]");
+    return builder.toString();
+  }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.model.feed.download;
+
+import com.ebay.feed.constants.Constants;
+import com.ebay.feed.unzip.Decompressor;
+import com.ebay.feed.unzip.InflaterDecompressor;
+
+/**
+ * <div>
+ * Settings which control how feed files are downloaded <br>
+ * <ul>
+ * <li><b>parallelism</b> - Number of ranges that are downloaded concurrently, once the total size
+ * of the file is known from the first response. Default is 1, which downloads the ranges one after
+ * the other</li>
+ * <li><b>bufferSize</b> - Size in bytes of the direct buffers used to move response bytes to the
+ * file. Default is 1 MB</li>
+ * <li><b>adaptiveChunkSize</b> - Sizes each range from the measured throughput and time to first
+ * byte of the previous ranges, within the max chunk size of the API. Default is false, which
+ * requests the max chunk size every time</li>
+ * <li><b>minChunkSize</b> - Smallest chunk size chosen by adaptive sizing, in bytes. Default is 1 MB
+ * </li>
+ * <li><b>maxRetries</b> - Number of times a range is retried after a network error, a 408, 429 or
+ * a 5xx response. Other errors fail the download without retries. Default is 3</li>
+ * <li><b>retryBackoffMillis</b> - Backoff before the first retry. It doubles with every retry, and a
+ * random part of it is waited, so that workers do not retry in step. Default is 500</li>
+ * <li><b>retryMaxBackoffMillis</b> - Upper bound of the backoff. Default is 30000</li>
+ * <li><b>cacheEnabled</b> - Reuses feed files downloaded earlier into the same directory, if they
+ * have not changed on the server. Default is false</li>
+ * <li><b>cacheMaxAgeHours</b> - Cached feed files older than this are deleted after a download.
+ * Default is 0, which keeps them regardless of age</li>
+ * <li><b>cacheMaxBytes</b> - Oldest cached feed files are deleted after a download, until their
+ * total size is within this limit. Default is 0, which keeps them regardless of size</li>
+ * <li><b>verifyIntegrity</b> - Checks, while the ranges are downloaded, that the CRC32 and size of
+ * each gzip member match its trailer. A damaged file fails the download and is discarded. It costs
+ * a full inflate of the file during the download, and fails bodies which are not gzipped. Default
+ * is false, in which case only the total size from the Content-Range header is checked</li>
+ * <li><b>hedgePercentile</b> - Sends a duplicate request for a range whose response headers have
+ * not arrived within this percentile of the times to first byte of the last ranges, Eg 95. The
+ * first request to complete the range wins, and the other is cancelled. Default is 0, no hedging
+ * </li>
+ * <li><b>hedgeMinDelayMillis</b> - Shortest wait before a range is hedged. Default is 100</li>
+ * <li><b>sharedCache</b> - Shares the download directory between processes. A feed file is
+ * downloaded by one process at a time, under a file lock, into a temporary file which is renamed
+ * atomically once complete; processes waiting on the lock reuse the published file. Implies
+ * cacheEnabled. Default is false</li>
+ * <li><b>unzipParallelism</b> - Number of threads which unzip a feed file made of several gzip
+ * members, such as one compressed in blocks. Each thread inflates a share of the members into its
+ * offset in the unzipped file. A file with a single member is unzipped by one thread. Default is
+ * 1</li>
+ * <li><b>decompressor</b> - Decompresses feed files when they are unzipped or filtered while
+ * downloading. Default is the InflaterDecompressor. DecompressorBenchmark picks the fastest on the
+ * host</li>
+ * </ul>
+ * </div>
+ */
+public class DownloadConfig {
+
+  private int parallelism;
+  private int bufferSize;
+  private boolean adaptiveChunkSize;
+  private long minChunkSize;
+  private int maxRetries;
+  private long retryBackoffMillis;
+  private long retryMaxBackoffMillis;
+  private boolean cacheEnabled;
+  private long cacheMaxAgeHours;
+  private long cacheMaxBytes;
+  private boolean verifyIntegrity;
+  private boolean sharedCache;
+  private double hedgePercentile;
+  private long hedgeMinDelayMillis;
+  private int unzipParallelism;
+  private Decompressor decompressor;
+
+  private DownloadConfig(DownloadConfigBuilder builder) {
+    this.parallelism = builder.parallelism;
+    this.bufferSize = builder.bufferSize;
+    this.adaptiveChunkSize = builder.adaptiveChunkSize;
+    this.minChunkSize = builder.minChunkSize;
+    this.maxRetries = builder.maxRetries;
+    this.retryBackoffMillis = builder.retryBackoffMillis;
+    this.retryMaxBackoffMillis = builder.retryMaxBackoffMillis;
+    this.cacheEnabled = builder.cacheEnabled;
+    this.cacheMaxAgeHours = builder.cacheMaxAgeHours;
+    this.cacheMaxBytes = builder.cacheMaxBytes;
+    this.verifyIntegrity = builder.verifyIntegrity;
+    this.sharedCache = builder.sharedCache;
+    this.hedgePercentile = builder.hedgePercentile;
+    this.hedgeMinDelayMillis = builder.hedgeMinDelayMillis;
+    this.unzipParallelism = builder.unzipParallelism;
+    this.decompressor = builder.decompressor;
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  public boolean isAdaptiveChunkSize() {
+    return adaptiveChunkSize;
+  }
+
+  public long getMinChunkSize() {
+    return minChunkSize;
+  }
+
+  public int getMaxRetries() {
+    return maxRetries;
+  }
+
+  public long getRetryBackoffMillis() {
+    return retryBackoffMillis;
+  }
+
+  public long getRetryMaxBackoffMillis() {
+    return retryMaxBackoffMillis;
+  }
+
+  public boolean isCacheEnabled() {
+    return cacheEnabled;
+  }
+
+  public long getCacheMaxAgeHours() {
+    return cacheMaxAgeHours;
+  }
+
+  public long getCacheMaxBytes() {
+    return cacheMaxBytes;
+  }
+
+  public boolean isVerifyIntegrity() {
+    return verifyIntegrity;
+  }
+
+  public boolean isSharedCache() {
+    return sharedCache;
+  }
+
+  public double getHedgePercentile() {
+    return hedgePercentile;
+  }
+
+  public long getHedgeMinDelayMillis() {
+    return hedgeMinDelayMillis;
+  }
+
+  public int getUnzipParallelism() {
+    return unzipParallelism;
+  }
+
+  public Decompressor getDecompressor() {
+    return decompressor;
+  }
+
+  public static class DownloadConfigBuilder {
+    private int parallelism = Constants.DEFAULT_PARALLELISM;
+    private int bufferSize = Constants.DEFAULT_BUFFER_SIZE;
+    private boolean adaptiveChunkSize = false;
+    private long minChunkSize = Constants.DEFAULT_MIN_CHUNK_SIZE;
+    private int maxRetries = Constants.DEFAULT_MAX_RETRIES;
+    private long retryBackoffMillis = Constants.DEFAULT_RETRY_BACKOFF;
+    private long retryMaxBackoffMillis = Constants.DEFAULT_RETRY_MAX_BACKOFF;
+    private boolean cacheEnabled = false;
+    private long cacheMaxAgeHours = 0;
+    private long cacheMaxBytes = 0;
+    private boolean verifyIntegrity = false;
+    private boolean sharedCache = false;
+    private double hedgePercentile = 0;
+    private long hedgeMinDelayMillis = Constants.DEFAULT_HEDGE_MIN_DELAY;
+    private int unzipParallelism = Constants.DEFAULT_UNZIP_PARALLELISM;
+    private Decompressor decompressor;
+
+    public DownloadConfigBuilder parallelism(final int parallelism) {
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    public DownloadConfigBuilder bufferSize(final int bufferSize) {
+      this.bufferSize = bufferSize;
+      return this;
+    }
+
+    public DownloadConfigBuilder adaptiveChunkSize(final boolean adaptiveChunkSize) {
+      this.adaptiveChunkSize = adaptiveChunkSize;
+      return this;
+    }
+
+    public DownloadConfigBuilder minChunkSize(final long minChunkSize) {
+      this.minChunkSize = minChunkSize;
+      return this;
+    }
+
+    public DownloadConfigBuilder maxRetries(final int maxRetries) {
+      this.maxRetries = maxRetries;
+      return this;
+    }
+
+    public DownloadConfigBuilder retryBackoffMillis(final long retryBackoffMillis) {
+      this.retryBackoffMillis = retryBackoffMillis;
+      return this;
+    }
+
+    public DownloadConfigBuilder retryMaxBackoffMillis(final long retryMaxBackoffMillis) {
+      this.retryMaxBackoffMillis = retryMaxBackoffMillis;
+      return this;
+    }
+
+    public DownloadConfigBuilder cacheEnabled(final boolean cacheEnabled) {
+      this.cacheEnabled = cacheEnabled;
+      return this;
+    }
+
+    public DownloadConfigBuilder cacheMaxAgeHours(final long cacheMaxAgeHours) {
+      this.cacheMaxAgeHours = cacheMaxAgeHours;
+      return this;
+    }
+
+    public DownloadConfigBuilder cacheMaxBytes(final long cacheMaxBytes) {
+      this.cacheMaxBytes = cacheMaxBytes;
+      return this;
+    }
+
+    public DownloadConfigBuilder verifyIntegrity(final boolean verifyIntegrity) {
+      this.verifyIntegrity = verifyIntegrity;
+      return this;
+    }
+
+    public DownloadConfigBuilder sharedCache(final boolean sharedCache) {
+      this.sharedCache = sharedCache;
+      return this;
+    }
+
+    public DownloadConfigBuilder hedgePercentile(final double hedgePercentile) {
+      this.hedgePercentile = hedgePercentile;
+      return this;
+    }
+
+    public DownloadConfigBuilder hedgeMinDelayMillis(final long hedgeMinDelayMillis) {
+      this.hedgeMinDelayMillis = hedgeMinDelayMillis;
+      return this;
+    }
+
+    public DownloadConfigBuilder unzipParallelism(final int unzipParallelism) {
+      this.unzipParallelism = unzipParallelism;
+      return this;
+    }
+
+    public DownloadConfigBuilder decompressor(final Decompressor decompressor) {
+      this.decompressor = decompressor;
+      return this;
+    }
+
+    public DownloadConfig build() {
+      if (parallelism < 1)
+        parallelism = Constants.DEFAULT_PARALLELISM;
+      if (bufferSize < 1)
+        bufferSize = Constants.DEFAULT_BUFFER_SIZE;
+      if (minChunkSize < 1)
+        minChunkSize = Constants.DEFAULT_MIN_CHUNK_SIZE;
+      if (maxRetries < 0)
+        maxRetries = Constants.DEFAULT_MAX_RETRIES;
+      if (retryBackoffMillis < 0)
+        retryBackoffMillis = Constants.DEFAULT_RETRY_BACKOFF;
+      if (retryMaxBackoffMillis < retryBackoffMillis)
+        retryMaxBackoffMillis = Math.max(retryBackoffMillis, Constants.DEFAULT_RETRY_MAX_BACKOFF);
+      if (cacheMaxAgeHours < 0)
+        cacheMaxAgeHours = 0;
+      if (cacheMaxBytes < 0)
+        cacheMaxBytes = 0;
+      if (sharedCache)
+        cacheEnabled = true;
+      if (hedgePercentile < 0 || hedgePercentile > 100)
+        hedgePercentile = 0;
+      if (hedgeMinDelayMillis < 0)
+        hedgeMinDelayMillis = Constants.DEFAULT_HEDGE_MIN_DELAY;
+      if (unzipParallelism < 1)
+        unzipParallelism = Constants.DEFAULT_UNZIP_PARALLELISM;
+      if (decompressor == null)
+        decompressor = new InflaterDecompressor();
+      return new DownloadConfig(this);
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("DownloadConfig [parallelism=").append(parallelism).append(", bufferSize=")
+        .append(bufferSize).append(", adaptiveChunkSize=").append(adaptiveChunkSize)
+        .append(", minChunkSize=").append(minChunkSize).append(", maxRetries=").append(maxRetries)
+        .append(", retryBackoffMillis=").append(retryBackoffMillis)
+        .append(", retryMaxBackoffMillis=").append(retryMaxBackoffMillis)
+        .append(", cacheEnabled=").append(cacheEnabled)
+        .append(", cacheMaxAgeHours=").append(cacheMaxAgeHours).append(", cacheMaxBytes=")
+        .append(cacheMaxBytes).append(", verifyIntegrity=").append(verifyIntegrity)
+        .append(", sharedCache=").append(sharedCache).append(", hedgePercentile=")
+        .append(hedgePercentile).append(", hedgeMinDelayMillis=").append(hedgeMinDelayMillis)
+        .append(", unzipParallelism=").append(unzipParallelism).append(", decompressor=")
+        .append(decompressor.getName()).append("]");
+    return builder.toString();
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.model.feed.download;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <div>
+ * Measurements of the ranges downloaded for a feed file <br>
+ * <ul>
+ * <li><b>rangeCount</b> - Number of ranges downloaded successfully</li>
+ * <li><b>bytes</b> - Number of bytes downloaded</li>
+ * <li><b>rangeSizes</b> - Size in bytes of each requested range, in the order the ranges completed
+ * </li>
+ * <li><b>throughput</b> - Bytes per second while receiving response bodies, averaged over all the
+ * ranges</li>
+ * <li><b>averageTimeToFirstByte</b> - Average time between sending a request and receiving the
+ * response headers, in millis</li>
+ * <li><b>hedgesFired</b> - Number of duplicate requests sent for ranges whose response headers
+ * were late</li>
+ * <li><b>hedgesWon</b> - Number of ranges downloaded by the duplicate request, before the original
+ * one</li>
+ * </ul>
+ * </div>
+ */
+public class DownloadMetrics {
+
+  private int rangeCount;
+  private long bytes;
+  private List<Long> rangeSizes = new ArrayList<>();
+  private long transferNanos;
+  private long timeToFirstByteNanos;
+  private int hedgesFired;
+  private int hedgesWon;
+
+  /**
+   * <p>
+   * Records a successfully downloaded range
+   * </p>
+   *
+   * @param rangeSize Size of the requested range
+   * @param bytes Number of bytes received
+   * @param timeToFirstByteNanos Time until the response headers were received
+   * @param elapsedNanos Time until the whole body was received
+   */
+  public synchronized void record(long rangeSize, long bytes, long timeToFirstByteNanos,
+      long elapsedNanos) {
+    this.rangeCount++;
+    this.bytes += bytes;
+    this.rangeSizes.add(rangeSize);
+    this.transferNanos += Math.max(elapsedNanos - timeToFirstByteNanos, 1);
+    this.timeToFirstByteNanos += timeToFirstByteNanos;
+  }
+
+  /**
+   * <p>
+   * Records a duplicate request sent for a range
+   * </p>
+   */
+  public synchronized void recordHedgeFired() {
+    this.hedgesFired++;
+  }
+
+  /**
+   * <p>
+   * Records a range downloaded by its duplicate request
+   * </p>
+   */
+  public synchronized void recordHedgeWon() {
+    this.hedgesWon++;
+  }
+
+  public synchronized int getRangeCount() {
+    return rangeCount;
+  }
+
+  public synchronized long getBytes() {
+    return bytes;
+  }
+
+  public synchronized List<Long> getRangeSizes() {
+    return new ArrayList<>(rangeSizes);
+  }
+
+  public synchronized long getThroughput() {
+    return transferNanos == 0 ? 0 : bytes * TimeUnit.SECONDS.toNanos(1) / transferNanos;
+  }
+
+  public synchronized long getAverageTimeToFirstByte() {
+    return rangeCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(timeToFirstByteNanos / rangeCount);
+  }
+
+  public synchronized int getHedgesFired() {
+    return hedgesFired;
+  }
+
+  public synchronized int getHedgesWon() {
+    return hedgesWon;
+  }
+
+  @Override
+  public synchronized String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("DownloadMetrics [rangeCount=").append(rangeCount).append(", bytes=")
+        .append(bytes).append(", rangeSizes=").append(rangeSizes).append(", throughput=")
+        .append(getThroughput()).append(", averageTimeToFirstByte=")
+        .append(getAverageTimeToFirstByte()).append(", hedgesFired=").append(hedgesFired)
+        .append(", hedgesWon=").append(hedgesWon).append("]");
+    return builder.toString();
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.model.feed.download;
+
+import java.nio.file.Path;
+
+/**
+ * <div>
+ * Snapshot of the progress of a feed file download <br>
+ * <ul>
+ * <li><b>path</b> - Path of the feed file</li>
+ * <li><b>totalBytes</b> - Size of the feed file. -1 until the first range has been received</li>
+ * <li><b>downloadedBytes</b> - Bytes of the feed file on disk, including ranges downloaded by an
+ * earlier attempt</li>
+ * <li><b>bytesPerSecond</b> - Average throughput since the download started</li>
+ * <li><b>etaMillis</b> - Estimated time until the download completes, at the average throughput.
+ * -1 if unknown</li>
+ * <li><b>elapsedMillis</b> - Time since the download started</li>
+ * </ul>
+ * </div>
+ */
+public class DownloadProgress {
+
+  private final Path path;
+  private final long totalBytes;
+  private final long downloadedBytes;
+  private final double bytesPerSecond;
+  private final long etaMillis;
+  private final long elapsedMillis;
+
+  public DownloadProgress(Path path, long totalBytes, long downloadedBytes, double bytesPerSecond,
+      long etaMillis, long elapsedMillis) {
+    this.path = path;
+    this.totalBytes = totalBytes;
+    this.downloadedBytes = downloadedBytes;
+    this.bytesPerSecond = bytesPerSecond;
+    this.etaMillis = etaMillis;
+    this.elapsedMillis = elapsedMillis;
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  public long getTotalBytes() {
+    return totalBytes;
+  }
+
+  public long getDownloadedBytes() {
+    return downloadedBytes;
+  }
+
+  public double getBytesPerSecond() {
+    return bytesPerSecond;
+  }
+
+  public long getEtaMillis() {
+    return etaMillis;
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("DownloadProgress [path=").append(path).append(", totalBytes=")
+        .append(totalBytes).append(", downloadedBytes=").append(downloadedBytes)
+        .append(", bytesPerSecond=").append(bytesPerSecond).append(", etaMillis=")
+        .append(etaMillis).append(", elapsedMillis=").append(elapsedMillis).append("]");
+    return builder.toString();
+  }
+}
@@ -44,6 +44,9 @@ import com.ebay.feed.model.feed.operation.filter.Response;
  * <b>appliedFilters</b> - List of all the filters that were applied
  * <br>
  * <b>errors</b> - List of errors returned by the API
+ * <br>
+ * <b>downloadMetrics</b> - Range sizes, throughput and time to first byte of the download. Null if
+ * nothing was downloaded
  * </div>
  * 
  * @author shanganesh
@@ -57,6 +60,7 @@ public class GetFeedResponse extends Response {
   }
 
   private List<ErrorData> errors;
+  private DownloadMetrics downloadMetrics;
 
   public List<ErrorData> getErrors() {
     return errors;
@@ -66,10 +70,19 @@ public class GetFeedResponse extends Response {
     this.errors = errors;
   }
 
+  public DownloadMetrics getDownloadMetrics() {
+    return downloadMetrics;
+  }
+
+  public void setDownloadMetrics(DownloadMetrics downloadMetrics) {
+    this.downloadMetrics = downloadMetrics;
+  }
+
   @Override
   public String toString() {
     StringBuilder builder = new StringBuilder();
-    builder.append("FeedApiResponse [errors=").append(errors).append("]");
+    builder.append("FeedApiResponse [errors=").append(errors).append(", downloadMetrics=")
+        .append(downloadMetrics).append("]");
     return builder.toString();
   }
 
@@ -28,6 +28,7 @@ public class ConfigRequest {
 
   private FeedRequest feedRequest;
   private FeedFilterRequest filterRequest;
+  private boolean unzipWhileDownloading;
 
   public FeedRequest getFeedRequest() {
     return feedRequest;
@@ -45,4 +46,16 @@ public class ConfigRequest {
     this.filterRequest = filterRequest;
   }
 
+  /**
+   * @return boolean Indicates whether the feed file is unzipped while its ranges are downloaded,
+   *         instead of after the download
+   */
+  public boolean isUnzipWhileDownloading() {
+    return unzipWhileDownloading;
+  }
+
+  public void setUnzipWhileDownloading(boolean unzipWhileDownloading) {
+    this.unzipWhileDownloading = unzipWhileDownloading;
+  }
+
 }
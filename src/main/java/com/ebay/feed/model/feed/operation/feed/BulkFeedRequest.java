@@ -0,0 +1,176 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.model.feed.operation.feed;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.ebay.feed.constants.Constants;
+import com.ebay.feed.enums.FeedTypeEnum;
+
+/**
+ * <div>
+ * Request parameters for downloading the feed files of many level one categories of a marketplace
+ * <br>
+ * <ul>
+ * <li><b>categoryIds</b> - The level one category ids. If empty, all the level one categories of
+ * the marketplace are downloaded</li>
+ * <li><b>marketplaceId</b> - The marketplace id for the feed files Eg EBAY_US</li>
+ * <li><b>date</b> - The date parameter for the feed files. Optional for bootstrap feed files</li>
+ * <li><b>feedScope</b> - Scope of the feed files - ALL_ACTIVE or NEWLY_LISTED</li>
+ * <li><b>token</b> - OAuth token</li>
+ * <li><b>type</b> - Currently supported - ITEM</li>
+ * <li><b>maxConcurrentDownloads</b> - Max number of feed files downloaded at the same time.
+ * Default is 4</li>
+ * </ul>
+ * </div>
+ */
+public class BulkFeedRequest {
+
+  private List<String> categoryIds;
+  private String marketplaceId;
+  private String date;
+  private String feedScope;
+  private String token;
+  private FeedTypeEnum type;
+  private String env;
+  private int maxConcurrentDownloads;
+
+  private BulkFeedRequest(BulkFeedRequestBuilder builder) {
+    this.categoryIds = Collections.unmodifiableList(new ArrayList<>(builder.categoryIds));
+    this.marketplaceId = builder.marketplaceId;
+    this.date = builder.date;
+    this.feedScope = builder.feedScope;
+    this.token = builder.token;
+    this.type = builder.type;
+    this.env = builder.env;
+    this.maxConcurrentDownloads = builder.maxConcurrentDownloads;
+  }
+
+  public List<String> getCategoryIds() {
+    return categoryIds;
+  }
+
+  public String getMarketplaceId() {
+    return marketplaceId;
+  }
+
+  public String getDate() {
+    return date;
+  }
+
+  public String getFeedScope() {
+    return feedScope;
+  }
+
+  public String getToken() {
+    return token;
+  }
+
+  public FeedTypeEnum getType() {
+    return type;
+  }
+
+  public String getEnv() {
+    return env;
+  }
+
+  public int getMaxConcurrentDownloads() {
+    return maxConcurrentDownloads;
+  }
+
+  /**
+   * <p>
+   * Creates the request for the feed file of one of the categories
+   * </p>
+   *
+   * @param categoryId Level one category id
+   * @return FeedRequest Request for the feed file of the category
+   */
+  public FeedRequest toFeedRequest(String categoryId) {
+    return new FeedRequest.FeedRequestBuilder().categoryId(categoryId).siteId(marketplaceId)
+        .date(date).feedScope(feedScope).token(token).type(type).env(env).build();
+  }
+
+  public static class BulkFeedRequestBuilder {
+    private List<String> categoryIds = new ArrayList<>();
+    private String marketplaceId;
+    private String date;
+    private String feedScope;
+    private String token;
+    private FeedTypeEnum type = FeedTypeEnum.ITEM;
+    private String env;
+    private int maxConcurrentDownloads = Constants.DEFAULT_MAX_CONCURRENT_DOWNLOADS;
+
+    public BulkFeedRequestBuilder categoryIds(final List<String> categoryIds) {
+      this.categoryIds = categoryIds == null ? new ArrayList<String>() : categoryIds;
+      return this;
+    }
+
+    public BulkFeedRequestBuilder siteId(final String marketplaceId) {
+      this.marketplaceId = marketplaceId;
+      return this;
+    }
+
+    public BulkFeedRequestBuilder date(final String date) {
+      this.date = date;
+      return this;
+    }
+
+    public BulkFeedRequestBuilder feedScope(final String feedScope) {
+      this.feedScope = feedScope;
+      return this;
+    }
+
+    public BulkFeedRequestBuilder token(final String token) {
+      this.token = token;
+
+      if (token != null && !token.startsWith(Constants.TOKEN_BEARER_PREFIX))
+        this.token = Constants.TOKEN_BEARER_PREFIX + token;
+
+      return this;
+    }
+
+    public BulkFeedRequestBuilder type(final FeedTypeEnum type) {
+      this.type = type;
+      return this;
+    }
+
+    public BulkFeedRequestBuilder env(final String env) {
+      this.env = env;
+      return this;
+    }
+
+    public BulkFeedRequestBuilder maxConcurrentDownloads(final int maxConcurrentDownloads) {
+      this.maxConcurrentDownloads = maxConcurrentDownloads;
+      return this;
+    }
+
+    public BulkFeedRequest build() {
+      return new BulkFeedRequest(this);
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("BulkFeedRequest [categoryIds=").append(categoryIds).append(", marketplaceId=")
+        .append(marketplaceId).append(", date=").append(date).append(", feedScope=")
+        .append(feedScope).append(", type=").append(type).append(", env=").append(env)
+        .append(", maxConcurrentDownloads=").append(maxConcurrentDownloads).append("]");
+    return builder.toString();
+  }
+}
@@ -28,6 +28,8 @@ import com.ebay.feed.enums.FeedTypeEnum;
   <li><b>feedScope</b> - Scope of the feed file - ALL_ACTIVE or NEWLY_LISTED</li>
   <li><b>token</b> - OAuth token</li>
   <li><b>type</b> - Currently supported - ITEM</li>
+  <li><b>previewBytes</b> - Optional. If set, only the first previewBytes of the gzipped feed file
+  are fetched, and the rows recovered from them are returned, for a quick sample of the feed</li>
   </ul>
   </div>
  * @author shanganesh
@@ -43,6 +45,7 @@ public class FeedRequest {
   private String token;
   private FeedTypeEnum type;
   private String env;
+  private long previewBytes;
 
   private FeedRequest(FeedRequestBuilder builder) {
     this.categoryId = builder.categoryId;
@@ -53,6 +56,7 @@ public class FeedRequest {
     this.snapshotDate = builder.snapshotDate;
     this.type = builder.type;
     this.env = builder.env;
+    this.previewBytes = builder.previewBytes;
   }
 
 
@@ -136,6 +140,14 @@ public class FeedRequest {
   public void setEnv(String env) {
     this.env = env;
   }
+
+  public long getPreviewBytes() {
+    return previewBytes;
+  }
+
+  public void setPreviewBytes(long previewBytes) {
+    this.previewBytes = previewBytes;
+  }
 	  
   public static class FeedRequestBuilder {
     private String categoryId;
@@ -146,6 +158,7 @@ public class FeedRequest {
     private String snapshotDate;
     private FeedTypeEnum type;
     private String env;
+    private long previewBytes;
     
     public FeedRequestBuilder categoryId(final String categoryId) {
       this.categoryId = categoryId;
@@ -191,6 +204,11 @@ public class FeedRequest {
         return this;
     }
 
+    public FeedRequestBuilder previewBytes(final long previewBytes) {
+      this.previewBytes = previewBytes;
+      return this;
+    }
+
     public FeedRequest build() {
       return new FeedRequest(this);
     }
@@ -203,7 +221,8 @@ public class FeedRequest {
     builder.append("FeedRequest [categoryId=").append(categoryId).append(", marketplaceId=")
         .append(marketplaceId).append(", date=").append(date).append(", snapshotDate=")
         .append(snapshotDate).append(", feedScope=").append(feedScope).append(", token=")
-        .append(token).append(", type=").append(type).append(", env=").append(env).append("]");
+        .append(token).append(", type=").append(type).append(", env=").append(env)
+        .append(", previewBytes=").append(previewBytes).append("]");
     return builder.toString();
   }
 }
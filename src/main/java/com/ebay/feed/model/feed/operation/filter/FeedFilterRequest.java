@@ -42,6 +42,9 @@ import com.ebay.feed.constants.Constants;
  * <li><b>inferredEpids</b> - Set of inferred epids for filtering</li>
  * <li><b>gtins</b> - Set of gtins for filtering</li>
  * <li><b>itemIds</b> - Set of item ids for filtering</li>
+ * <li></li>
+ * <li><b>gzipOutput</b> - Writes the filtered file gzipped, as a .gz file</li>
+ * <li><b>gzipParallelism</b> - Number of threads which gzip the filtered file</li>
  * </ul>
  * </div>
  * 
@@ -71,9 +74,14 @@ public class FeedFilterRequest {
   private Set<String> gtins;
   private Set<String> itemIds;
 
-  // file on which to the filters are applied
+  // file on which to the filters are applied. A gzipped file ending with .gz is filtered as it is
+  // decompressed, without unzipping it to disk
   private String inputFilePath;
 
+  // the filtered file is gzipped in blocks, each compressed into a gzip member on its own thread
+  private boolean gzipOutput;
+  private Integer gzipParallelism = Constants.DEFAULT_GZIP_PARALLELISM;
+
   public Set<String> getLeafCategoryIds() {
     return leafCategoryIds;
   }
@@ -170,6 +178,22 @@ public class FeedFilterRequest {
     this.inputFilePath = inputFilePath;
   }
 
+  public boolean isGzipOutput() {
+    return gzipOutput;
+  }
+
+  public void setGzipOutput(boolean gzipOutput) {
+    this.gzipOutput = gzipOutput;
+  }
+
+  public Integer getGzipParallelism() {
+    return gzipParallelism;
+  }
+
+  public void setGzipParallelism(Integer gzipParallelism) {
+    this.gzipParallelism = gzipParallelism;
+  }
+
   /**
    * Check if this instance is empty
    * 
@@ -231,7 +255,8 @@ public class FeedFilterRequest {
         .append(", levelTwoCategories=").append(levelTwoCategories).append(", epids=")
         .append(epids).append(", inferredEpids=").append(inferredEpids).append(", gtins=")
         .append(gtins).append(", itemIds=").append(itemIds).append(", inputFilePath=")
-        .append(inputFilePath).append("]");
+        .append(inputFilePath).append(", gzipOutput=").append(gzipOutput)
+        .append(", gzipParallelism=").append(gzipParallelism).append("]");
     return builder.toString();
   }
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.model.feed.operation.internal;
+
+/**
+ * <p>
+ * Used internally for tracking a byte range of the feed file. Both start and end are inclusive,
+ * mirroring the values used in the Range and Content-Range headers
+ * </p>
+ */
+public class ByteRange {
+
+  private long start;
+  private long end;
+
+  public ByteRange(long start, long end) {
+    super();
+    this.start = start;
+    this.end = end;
+  }
+
+  public long getStart() {
+    return start;
+  }
+
+  public long getEnd() {
+    return end;
+  }
+
+  /**
+   * @return long Number of bytes covered by this range
+   */
+  public long length() {
+    return end - start + 1;
+  }
+
+  /**
+   * @return string Value for the Range request header Eg - bytes=0-104857600
+   */
+  public String toHeaderValue() {
+    return "bytes=" + start + "-" + end;
+  }
+
+  @Override
+  public int hashCode() {
+    return (int) (start ^ (start >>> 32)) * 31 + (int) (end ^ (end >>> 32));
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (!(obj instanceof ByteRange))
+      return false;
+    ByteRange other = (ByteRange) obj;
+    return start == other.start && end == other.end;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("ByteRange [start=").append(start).append(", end=").append(end).append("]");
+    return builder.toString();
+  }
+}
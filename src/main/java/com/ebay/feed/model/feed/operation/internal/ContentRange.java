@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.model.feed.operation.internal;
+
+/**
+ * <p>
+ * Used internally for parsing the Content-Range response header Eg - bytes 0-104857600/5368709120
+ * </p>
+ */
+public class ContentRange extends ByteRange {
+
+  private long total;
+
+  public ContentRange(long start, long end, long total) {
+    super(start, end);
+    this.total = total;
+  }
+
+  public long getTotal() {
+    return total;
+  }
+
+  /**
+   * <p>
+   * Parses the value of the Content-Range header. Returns null if the value is absent or malformed
+   * </p>
+   *
+   * @param headerValue Value of the Content-Range header
+   * @return ContentRange The parsed range, or null
+   */
+  public static ContentRange parse(String headerValue) {
+
+    if (headerValue == null)
+      return null;
+
+    try {
+      String value = headerValue.trim();
+      if (value.startsWith("bytes"))
+        value = value.substring("bytes".length()).trim();
+
+      int slash = value.indexOf('/');
+      int dash = value.indexOf('-');
+      if (slash < 0 || dash < 0 || dash > slash)
+        return null;
+
+      long start = Long.parseLong(value.substring(0, dash).trim());
+      long end = Long.parseLong(value.substring(dash + 1, slash).trim());
+      long total = Long.parseLong(value.substring(slash + 1).trim());
+      return new ContentRange(start, end, total);
+
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("ContentRange [start=").append(getStart()).append(", end=").append(getEnd())
+        .append(", total=").append(total).append("]");
+    return builder.toString();
+  }
+}
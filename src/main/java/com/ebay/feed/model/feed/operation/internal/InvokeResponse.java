@@ -14,6 +14,8 @@
 
 package com.ebay.feed.model.feed.operation.internal;
 
+import com.ebay.feed.model.feed.download.DownloadMetrics;
+
 /**
  * <p>
  * Used internally for tracking iterative calls for large files
@@ -27,6 +29,9 @@ public class InvokeResponse {
   private String contentRange;
   private int statusCode;
   private String lastModified;
+  private String retryAfter;
+  private String message;
+  private DownloadMetrics downloadMetrics;
 
   public InvokeResponse(String contentRange, int statusCode) {
     super();
@@ -65,6 +70,39 @@ public class InvokeResponse {
 		this.lastModified = lastModified;
   }
 
+  /**
+   * @return string Value of the Retry-After header of an error response, or null
+   */
+  public String getRetryAfter() {
+    return retryAfter;
+  }
+
+  public void setRetryAfter(String retryAfter) {
+    this.retryAfter = retryAfter;
+  }
+
+  /**
+   * @return string Description of a failure which is not an API error, or null
+   */
+  public String getMessage() {
+    return message;
+  }
+
+  public void setMessage(String message) {
+    this.message = message;
+  }
+
+  /**
+   * @return DownloadMetrics Measurements of the ranges of the download, or null
+   */
+  public DownloadMetrics getDownloadMetrics() {
+    return downloadMetrics;
+  }
+
+  public void setDownloadMetrics(DownloadMetrics downloadMetrics) {
+    this.downloadMetrics = downloadMetrics;
+  }
+
 @Override
   public String toString() {
     StringBuilder builder = new StringBuilder();
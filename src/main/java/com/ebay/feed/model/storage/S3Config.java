@@ -0,0 +1,145 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ebay.feed.model.storage;
+
+import com.ebay.feed.constants.Constants;
+
+/**
+ * <div>
+ * Settings of an S3 compatible object store. Objects are addressed path style, as
+ * endpoint/bucket/key, which is supported by S3 and by local stand ins <br>
+ * <ul>
+ * <li><b>endpoint</b> - Base url of the object store Eg https://s3.us-east-1.amazonaws.com</li>
+ * <li><b>bucket</b> - Name of the bucket</li>
+ * <li><b>region</b> - Region used for signing the requests. Default is us-east-1</li>
+ * <li><b>accessKey</b> - Access key id</li>
+ * <li><b>secretKey</b> - Secret access key</li>
+ * <li><b>prefix</b> - Prepended to the key of every object Eg feeds/. Default is empty</li>
+ * <li><b>partSize</b> - Size of the parts of a multipart upload, and hence the memory used by each
+ * upload. S3 requires at least 5 MB. Default is 8 MB</li>
+ * </ul>
+ * </div>
+ */
+public class S3Config {
+
+  private String endpoint;
+  private String bucket;
+  private String region;
+  private String accessKey;
+  private String secretKey;
+  private String prefix;
+  private int partSize;
+
+  private S3Config(S3ConfigBuilder builder) {
+    this.endpoint = builder.endpoint;
+    this.bucket = builder.bucket;
+    this.region = builder.region;
+    this.accessKey = builder.accessKey;
+    this.secretKey = builder.secretKey;
+    this.prefix = builder.prefix;
+    this.partSize = builder.partSize;
+  }
+
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  public String getBucket() {
+    return bucket;
+  }
+
+  public String getRegion() {
+    return region;
+  }
+
+  public String getAccessKey() {
+    return accessKey;
+  }
+
+  public String getSecretKey() {
+    return secretKey;
+  }
+
+  public String getPrefix() {
+    return prefix;
+  }
+
+  public int getPartSize() {
+    return partSize;
+  }
+
+  public static class S3ConfigBuilder {
+    private String endpoint;
+    private String bucket;
+    private String region = Constants.DEFAULT_S3_REGION;
+    private String accessKey;
+    private String secretKey;
+    private String prefix = "";
+    private int partSize = Constants.DEFAULT_S3_PART_SIZE;
+
+    public S3ConfigBuilder endpoint(final String endpoint) {
+      this.endpoint = endpoint;
+      return this;
+    }
+
+    public S3ConfigBuilder bucket(final String bucket) {
+      this.bucket = bucket;
+      return this;
+    }
+
+    public S3ConfigBuilder region(final String region) {
+      this.region = region;
+      return this;
+    }
+
+    public S3ConfigBuilder accessKey(final String accessKey) {
+      this.accessKey = accessKey;
+      return this;
+    }
+
+    public S3ConfigBuilder secretKey(final String secretKey) {
+      this.secretKey = secretKey;
+      return this;
+    }
+
+    public S3ConfigBuilder prefix(final String prefix) {
+      this.prefix = prefix;
+      return this;
+    }
+
+    public S3ConfigBuilder partSize(final int partSize) {
+      this.partSize = partSize;
+      return this;
+    }
+
+    public S3Config build() {
+      if (region == null)
+        region = Constants.DEFAULT_S3_REGION;
+      if (prefix == null)
+        prefix = "";
+      if (partSize < 1)
+        partSize = Constants.DEFAULT_S3_PART_SIZE;
+      return new S3Config(this);
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("S3Config [endpoint=").append(endpoint).append(", bucket=").append(bucket)
+        .append(", region=").append(region).append(", prefix=").append(prefix)
+        .append(", partSize=").append(partSize).append("]");
+    return builder.toString();
+  }
+}
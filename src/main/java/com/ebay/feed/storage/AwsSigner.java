@@ -0,0 +1,173 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ebay.feed.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+
+/**
+ * <p>
+ * Signs requests to an S3 compatible object store with AWS signature version 4. The path and query
+ * of the request url must already be in canonical form - each path segment and query parameter
+ * encoded with {@link #uriEncode}, and the query parameters sorted by name - since they are signed
+ * as they are sent
+ * </p>
+ */
+class AwsSigner {
+
+  static final String ALGORITHM = "AWS4-HMAC-SHA256";
+  static final String SIGNED_HEADERS = "host;x-amz-content-sha256;x-amz-date";
+  static final String CONTENT_SHA256_HEADER = "x-amz-content-sha256";
+  static final String DATE_HEADER = "x-amz-date";
+
+  private static final String SERVICE = "s3";
+  private static final DateTimeFormatter AMZ_DATE_FORMAT = DateTimeFormatter.ofPattern(
+      "yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final String accessKey;
+  private final String secretKey;
+  private final String region;
+
+  AwsSigner(String accessKey, String secretKey, String region) {
+    this.accessKey = accessKey;
+    this.secretKey = secretKey;
+    this.region = region;
+  }
+
+  /**
+   * @param request The request to sign
+   * @param payload Bytes of the request body, empty if there is none
+   * @param off Offset of the body in the bytes
+   * @param len Length of the body
+   * @param nowMillis Time of the request
+   * @return Request The request with the date, payload hash and authorization headers
+   */
+  Request sign(Request request, byte[] payload, int off, int len, long nowMillis) {
+
+    String payloadHash = sha256Hex(payload, off, len);
+    String amzDate = AMZ_DATE_FORMAT.format(Instant.ofEpochMilli(nowMillis));
+    String host = hostHeader(request.url());
+    String signature =
+        signature(request.method(), request.url().encodedPath(), request.url().encodedQuery(),
+            host, payloadHash, amzDate);
+
+    return request.newBuilder().header("Host", host).header(DATE_HEADER, amzDate)
+        .header(CONTENT_SHA256_HEADER, payloadHash)
+        .header("Authorization", ALGORITHM + " Credential=" + accessKey + "/"
+            + scope(amzDate) + ", SignedHeaders=" + SIGNED_HEADERS + ", Signature=" + signature)
+        .build();
+  }
+
+  /**
+   * <p>
+   * Computes the signature of a request from its canonical parts
+   * </p>
+   */
+  String signature(String method, String encodedPath, String encodedQuery, String host,
+      String payloadHash, String amzDate) {
+
+    String canonicalRequest =
+        method + "\n" + encodedPath + "\n" + (encodedQuery == null ? "" : encodedQuery) + "\n"
+            + "host:" + host + "\n" + CONTENT_SHA256_HEADER + ":" + payloadHash + "\n"
+            + DATE_HEADER + ":" + amzDate + "\n\n" + SIGNED_HEADERS + "\n" + payloadHash;
+
+    byte[] canonicalBytes = canonicalRequest.getBytes(StandardCharsets.UTF_8);
+    String stringToSign =
+        ALGORITHM + "\n" + amzDate + "\n" + scope(amzDate) + "\n"
+            + sha256Hex(canonicalBytes, 0, canonicalBytes.length);
+
+    byte[] key = ("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8);
+    key = hmac(key, amzDate.substring(0, 8));
+    key = hmac(key, region);
+    key = hmac(key, SERVICE);
+    key = hmac(key, "aws4_request");
+    return hex(hmac(key, stringToSign));
+  }
+
+  private String scope(String amzDate) {
+    return amzDate.substring(0, 8) + "/" + region + "/" + SERVICE + "/aws4_request";
+  }
+
+  /**
+   * @return String Value of the host header, with the port unless it is the default of the scheme
+   */
+  static String hostHeader(HttpUrl url) {
+    return url.port() == HttpUrl.defaultPort(url.scheme()) ? url.host() : url.host() + ":"
+        + url.port();
+  }
+
+  /**
+   * <p>
+   * Percent encodes all but the unreserved characters, as required by signature version 4
+   * </p>
+   *
+   * @param value The value to encode
+   * @param isPath Keeps the slashes, for encoding an object key as a path
+   * @return String The encoded value
+   */
+  static String uriEncode(String value, boolean isPath) {
+    StringBuilder builder = new StringBuilder();
+    for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+      char c = (char) (b & 0xff);
+      if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-'
+          || c == '.' || c == '_' || c == '~' || (isPath && c == '/')) {
+        builder.append(c);
+      } else {
+        builder.append('%').append(Character.toUpperCase(HEX[c >> 4]))
+            .append(Character.toUpperCase(HEX[c & 0xf]));
+      }
+    }
+    return builder.toString();
+  }
+
+  static String sha256Hex(byte[] bytes, int off, int len) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(bytes, off, len);
+      return hex(digest.digest());
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static byte[] hmac(byte[] key, String data) {
+    try {
+      Mac mac = Mac.getInstance("HmacSHA256");
+      mac.init(new SecretKeySpec(key, "HmacSHA256"));
+      return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String hex(byte[] bytes) {
+    char[] chars = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+      chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+    }
+    return new String(chars);
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ebay.feed.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * Stores files as byte arrays on the heap. Meant for tests and small sandbox feeds; a production
+ * feed file does not fit in memory once unzipped
+ * </p>
+ */
+public class InMemoryStorage implements Storage {
+
+  private final ConcurrentMap<String, byte[]> files = new ConcurrentHashMap<>();
+
+  @Override
+  public OutputStream create(String key) {
+    return new ByteArrayOutputStream() {
+
+      private boolean isClosed = false;
+
+      @Override
+      public void close() {
+        if (isClosed)
+          return;
+        isClosed = true;
+        files.put(key, toByteArray());
+      }
+    };
+  }
+
+  @Override
+  public InputStream open(String key) throws IOException {
+    byte[] contents = files.get(key);
+    if (contents == null)
+      throw new FileNotFoundException(key);
+    return new ByteArrayInputStream(contents);
+  }
+
+  @Override
+  public boolean exists(String key) {
+    return files.containsKey(key);
+  }
+
+  @Override
+  public void delete(String key) {
+    files.remove(key);
+  }
+
+  /**
+   * @param key Key of the file
+   * @return byte[] Contents of the file, or null if it does not exist
+   */
+  public byte[] get(String key) {
+    return files.get(key);
+  }
+
+  /**
+   * @return Set Keys of all the files, sorted
+   */
+  public Set<String> keys() {
+    return new TreeSet<>(files.keySet());
+  }
+}
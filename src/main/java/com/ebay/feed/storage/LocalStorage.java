@@ -0,0 +1,54 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ebay.feed.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * <p>
+ * Stores files on local disk, at the path given by the key. Parent directories are created as
+ * required
+ * </p>
+ */
+public class LocalStorage implements Storage {
+
+  @Override
+  public OutputStream create(String key) throws IOException {
+    Path path = Paths.get(key);
+    Path parent = path.toAbsolutePath().getParent();
+    if (parent != null)
+      Files.createDirectories(parent);
+    return Files.newOutputStream(path);
+  }
+
+  @Override
+  public InputStream open(String key) throws IOException {
+    return Files.newInputStream(Paths.get(key));
+  }
+
+  @Override
+  public boolean exists(String key) {
+    return Files.exists(Paths.get(key));
+  }
+
+  @Override
+  public void delete(String key) throws IOException {
+    Files.deleteIfExists(Paths.get(key));
+  }
+}
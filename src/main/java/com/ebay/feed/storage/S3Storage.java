@@ -0,0 +1,205 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ebay.feed.storage;
+
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ebay.feed.model.client.ClientConfig;
+import com.ebay.feed.model.storage.S3Config;
+import com.ebay.feed.util.HttpClientUtil;
+
+/**
+ * <p>
+ * Stores files as objects in an S3 compatible object store. Files are written with streaming
+ * multipart uploads, one part at a time, so an upload holds one part in memory, whatever the size
+ * of the file. Files smaller than a part are written with a single put. The object key is the
+ * prefix followed by the key, without its leading slash.
+ * </p>
+ */
+public class S3Storage implements Storage {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(S3Storage.class);
+  private static final int NOT_FOUND = 404;
+  private static final int MAX_ERROR_BODY = 512;
+  private static final byte[] EMPTY = new byte[0];
+
+  private final OkHttpClient client;
+  private final S3Config config;
+  private final HttpUrl bucketUrl;
+  private final AwsSigner signer;
+
+  /**
+   *
+   * @param config Settings of the object store
+   */
+  public S3Storage(S3Config config) {
+    this(config, HttpClientUtil.getClient(new ClientConfig.ClientConfigBuilder().build()));
+  }
+
+  /**
+   *
+   * @param config Settings of the object store
+   * @param client Http client for the calls to the object store
+   */
+  public S3Storage(S3Config config, OkHttpClient client) {
+    this.client = client;
+    this.config = config;
+    this.signer = new AwsSigner(config.getAccessKey(), config.getSecretKey(), config.getRegion());
+
+    HttpUrl endpoint = HttpUrl.parse(config.getEndpoint());
+    if (endpoint == null)
+      throw new IllegalArgumentException("Invalid S3 endpoint " + config.getEndpoint());
+    String basePath = endpoint.encodedPath().endsWith("/") ? endpoint.encodedPath() : endpoint
+        .encodedPath() + "/";
+    this.bucketUrl =
+        endpoint.newBuilder().encodedPath(basePath + AwsSigner.uriEncode(config.getBucket(), false))
+            .query(null).build();
+  }
+
+  @Override
+  public OutputStream create(String key) {
+    return new S3UploadStream(this, toObjectKey(key), config.getPartSize());
+  }
+
+  @Override
+  public InputStream open(String key) throws IOException {
+
+    String objectKey = toObjectKey(key);
+    Response response = execute("GET", objectKey, null, EMPTY, 0, 0);
+    if (response.code() == NOT_FOUND) {
+      response.close();
+      throw new FileNotFoundException(objectKey);
+    }
+    check(response, "GET", objectKey);
+
+    return new FilterInputStream(response.body().byteStream()) {
+      @Override
+      public void close() throws IOException {
+        response.close();
+      }
+    };
+  }
+
+  @Override
+  public boolean exists(String key) throws IOException {
+
+    String objectKey = toObjectKey(key);
+    try (Response response = execute("HEAD", objectKey, null, EMPTY, 0, 0)) {
+      if (response.code() == NOT_FOUND)
+        return false;
+      check(response, "HEAD", objectKey);
+      return true;
+    }
+  }
+
+  @Override
+  public void delete(String key) throws IOException {
+
+    String objectKey = toObjectKey(key);
+    try (Response response = execute("DELETE", objectKey, null, EMPTY, 0, 0)) {
+      if (response.code() != NOT_FOUND)
+        check(response, "DELETE", objectKey);
+    }
+  }
+
+  /**
+   * <p>
+   * Maps a key to the object key - the prefix followed by the key, with forward slashes and without
+   * a leading slash
+   * </p>
+   */
+  String toObjectKey(String key) {
+    String objectKey = key.replace('\\', '/');
+    while (objectKey.startsWith("/"))
+      objectKey = objectKey.substring(1);
+    return config.getPrefix() + objectKey;
+  }
+
+  /**
+   * <p>
+   * Signs and executes a request for an object. The response must be closed
+   * </p>
+   *
+   * @param method Http method
+   * @param objectKey Key of the object
+   * @param query Query parameters, or null
+   * @param body Bytes of the request body
+   * @param off Offset of the body in the bytes
+   * @param len Length of the body
+   * @return Response The response of the object store
+   * @throws IOException If the object store cannot be reached
+   */
+  Response execute(String method, String objectKey, Map<String, String> query, byte[] body,
+      int off, int len) throws IOException {
+
+    HttpUrl.Builder urlBuilder =
+        bucketUrl.newBuilder().encodedPath(
+            bucketUrl.encodedPath() + "/" + AwsSigner.uriEncode(objectKey, true));
+
+    // the query is signed as sent, so it is encoded and sorted here
+    if (query != null && !query.isEmpty()) {
+      StringBuilder encodedQuery = new StringBuilder();
+      for (Map.Entry<String, String> parameter : new TreeMap<>(query).entrySet()) {
+        if (encodedQuery.length() > 0)
+          encodedQuery.append('&');
+        encodedQuery.append(AwsSigner.uriEncode(parameter.getKey(), false)).append('=')
+            .append(AwsSigner.uriEncode(parameter.getValue(), false));
+      }
+      urlBuilder.encodedQuery(encodedQuery.toString());
+    }
+
+    RequestBody requestBody = null;
+    if ("PUT".equals(method) || "POST".equals(method))
+      requestBody = RequestBody.create((MediaType) null, body, off, len);
+
+    Request request =
+        signer.sign(new Request.Builder().url(urlBuilder.build()).method(method, requestBody)
+            .build(), body, off, len, System.currentTimeMillis());
+
+    LOGGER.debug("S3 request = {} {}", method, request.url());
+    return client.newCall(request).execute();
+  }
+
+  /**
+   * <p>
+   * Fails with the status and the start of the body of an unsuccessful response
+   * </p>
+   */
+  static void check(Response response, String operation, String objectKey) throws IOException {
+    if (response.isSuccessful())
+      return;
+
+    String body = response.body() == null ? "" : response.body().string();
+    if (body.length() > MAX_ERROR_BODY)
+      body = body.substring(0, MAX_ERROR_BODY);
+    throw new IOException("S3 " + operation + " of " + objectKey + " failed - status = "
+        + response.code() + ", body = " + body);
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ebay.feed.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import okhttp3.Response;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Writes an object with a multipart upload, as the bytes are written to the stream. Bytes are
+ * collected into a buffer of one part, which is uploaded once full; the upload is started with the
+ * first part. Closing the stream uploads the last part and completes the upload, or puts the object
+ * in one request if it is smaller than a part. If any request fails, the upload is aborted, so no
+ * parts are left behind in the bucket.
+ * </p>
+ */
+class S3UploadStream extends OutputStream {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(S3UploadStream.class);
+  private static final Pattern UPLOAD_ID = Pattern.compile("<UploadId>([^<]+)</UploadId>");
+
+  private final S3Storage storage;
+  private final String objectKey;
+  private final byte[] buffer;
+  private final List<String> etags = new ArrayList<>();
+
+  private int count = 0;
+  private String uploadId = null;
+  private boolean isClosed = false;
+
+  S3UploadStream(S3Storage storage, String objectKey, int partSize) {
+    this.storage = storage;
+    this.objectKey = objectKey;
+    this.buffer = new byte[partSize];
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    ensureOpen();
+    if (count == buffer.length)
+      uploadPart();
+    buffer[count++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] bytes, int off, int len) throws IOException {
+    ensureOpen();
+    while (len > 0) {
+      if (count == buffer.length)
+        uploadPart();
+      int length = Math.min(len, buffer.length - count);
+      System.arraycopy(bytes, off, buffer, count, length);
+      count += length;
+      off += length;
+      len -= length;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+
+    if (isClosed)
+      return;
+    isClosed = true;
+
+    if (uploadId == null) {
+      try (Response response = storage.execute("PUT", objectKey, null, buffer, 0, count)) {
+        S3Storage.check(response, "PUT", objectKey);
+      }
+      LOGGER.debug("Uploaded {} in one request, {} bytes", objectKey, count);
+      return;
+    }
+
+    try {
+      if (count > 0)
+        uploadPart();
+      complete();
+    } catch (IOException | RuntimeException e) {
+      abort();
+      throw e;
+    }
+  }
+
+  private void ensureOpen() throws IOException {
+    if (isClosed)
+      throw new IOException("Upload of " + objectKey + " is closed");
+  }
+
+  /**
+   * <p>
+   * Uploads the buffer as the next part, starting the upload first if required. The upload is
+   * aborted if the part fails, and the stream cannot be used afterwards
+   * </p>
+   */
+  private void uploadPart() throws IOException {
+    try {
+      if (uploadId == null)
+        initiate();
+
+      int partNumber = etags.size() + 1;
+      try (Response response =
+          storage.execute("PUT", objectKey, uploadQuery(partNumber), buffer, 0, count)) {
+        S3Storage.check(response, "upload part", objectKey);
+        etags.add(response.header("ETag"));
+      }
+      LOGGER.debug("Uploaded part {} of {}, {} bytes", new Object[] {partNumber, objectKey, count});
+      count = 0;
+
+    } catch (IOException | RuntimeException e) {
+      isClosed = true;
+      abort();
+      throw e;
+    }
+  }
+
+  private void initiate() throws IOException {
+    try (Response response =
+        storage.execute("POST", objectKey, Collections.singletonMap("uploads", ""), new byte[0],
+            0, 0)) {
+      S3Storage.check(response, "initiate upload", objectKey);
+      Matcher matcher = UPLOAD_ID.matcher(response.body().string());
+      if (!matcher.find())
+        throw new IOException("No upload id in the response for " + objectKey);
+      uploadId = matcher.group(1);
+    }
+    LOGGER.debug("Started upload {} of {}", uploadId, objectKey);
+  }
+
+  private void complete() throws IOException {
+
+    StringBuilder xml = new StringBuilder("<CompleteMultipartUpload>");
+    for (int i = 0; i < etags.size(); i++) {
+      xml.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+          .append(etags.get(i)).append("</ETag></Part>");
+    }
+    byte[] body = xml.append("</CompleteMultipartUpload>").toString()
+        .getBytes(StandardCharsets.UTF_8);
+
+    try (Response response =
+        storage.execute("POST", objectKey, Collections.singletonMap("uploadId", uploadId), body,
+            0, body.length)) {
+      S3Storage.check(response, "complete upload", objectKey);
+
+      // a failure after the response has started is reported in a 200 response
+      String responseBody = response.body().string();
+      if (responseBody.contains("<Error>"))
+        throw new IOException("S3 complete upload of " + objectKey + " failed - body = "
+            + responseBody);
+    }
+    LOGGER.debug("Completed upload of {} in {} parts", objectKey, etags.size());
+  }
+
+  private void abort() {
+    if (uploadId == null)
+      return;
+    try (Response response =
+        storage.execute("DELETE", objectKey, Collections.singletonMap("uploadId", uploadId),
+            new byte[0], 0, 0)) {
+      S3Storage.check(response, "abort upload", objectKey);
+      LOGGER.debug("Aborted upload {} of {}", uploadId, objectKey);
+    } catch (IOException e) {
+      LOGGER.error("Unable to abort upload " + uploadId + " of " + objectKey, e);
+    }
+  }
+
+  private Map<String, String> uploadQuery(int partNumber) {
+    Map<String, String> query = new HashMap<>();
+    query.put("partNumber", String.valueOf(partNumber));
+    query.put("uploadId", uploadId);
+    return query;
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ebay.feed.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * <div>
+ * Storage of the unzipped and filtered feed files. Files are identified by keys, which are the
+ * paths the SDK would use on local disk, eg /tmp/feed/item-1-20181016-EBAY_US. Implementations
+ * <ul>
+ * <li><b>LocalStorage</b> - Files on local disk. The default</li>
+ * <li><b>InMemoryStorage</b> - Byte arrays on the heap, for tests and small sandbox feeds</li>
+ * <li><b>S3Storage</b> - Objects in an S3 compatible object store, written with streaming
+ * multipart uploads</li>
+ * </ul>
+ * Feed files downloaded with range requests are always written to local disk first, since their
+ * ranges are written out of order and resumed from a manifest.
+ * </div>
+ */
+public interface Storage {
+
+  /**
+   * <p>
+   * Creates or replaces the file. The contents become visible once the stream is closed
+   * </p>
+   *
+   * @param key Key of the file
+   * @return OutputStream Stream of the contents, which must be closed
+   * @throws IOException If the file cannot be created
+   */
+  OutputStream create(String key) throws IOException;
+
+  /**
+   * @param key Key of the file
+   * @return InputStream Stream of the contents, which must be closed
+   * @throws IOException If the file does not exist, or cannot be read
+   */
+  InputStream open(String key) throws IOException;
+
+  /**
+   * @param key Key of the file
+   * @return boolean Indicates whether the file exists
+   * @throws IOException If the storage cannot be reached
+   */
+  boolean exists(String key) throws IOException;
+
+  /**
+   * <p>
+   * Deletes the file, if it exists
+   * </p>
+   *
+   * @param key Key of the file
+   * @throws IOException If the file cannot be deleted
+   */
+  void delete(String key) throws IOException;
+}
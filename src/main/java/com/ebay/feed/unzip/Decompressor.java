@@ -0,0 +1,49 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.unzip;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <div>
+ * Decompresses gzipped feed files. Implementations
+ * <ul>
+ * <li><b>InflaterDecompressor</b> - Inflates with pooled JDK inflaters and large buffers. The
+ * default</li>
+ * <li><b>GzipStreamDecompressor</b> - The JDK GZIPInputStream</li>
+ * </ul>
+ * {@link DecompressorBenchmark} picks the fastest of them on the host.
+ * </div>
+ */
+public interface Decompressor {
+
+  /**
+   * <p>
+   * Returns the decompressed contents of a gzipped stream, which may be made of several gzip
+   * members. The CRC32 and size of each member are checked against its trailer
+   * </p>
+   *
+   * @param compressed The gzipped stream, which is closed with the returned stream
+   * @return InputStream The decompressed contents, which must be closed
+   * @throws IOException If the stream does not start with a gzip header
+   */
+  InputStream decompress(InputStream compressed) throws IOException;
+
+  /**
+   * @return string Name of the implementation, for logs and benchmarks
+   */
+  String getName();
+}
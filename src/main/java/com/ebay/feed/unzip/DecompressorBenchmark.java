@@ -0,0 +1,170 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.unzip;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Measures the throughput of decompressors on a sample of a gzipped feed file, and picks the
+ * fastest on the host. Each decompressor is warmed up once, then timed over a few rounds. The
+ * sample may be cut short, in which case it is decompressed up to the cut.
+ * </p>
+ *
+ * <pre>
+ * java -cp &lt;classpath&gt; com.ebay.feed.unzip.DecompressorBenchmark &lt;gzipped file&gt; [sampleInMB]
+ * </pre>
+ */
+public class DecompressorBenchmark {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DecompressorBenchmark.class);
+  private static final int DEFAULT_SAMPLE_SIZE = 16 * 1024 * 1024;
+  private static final int ROUNDS = 3;
+
+  /**
+   * @return List The decompressors of the SDK, with the settings worth comparing
+   */
+  public static List<Decompressor> getCandidates() {
+    return Arrays.asList(new InflaterDecompressor(), new GzipStreamDecompressor(),
+        new GzipStreamDecompressor(65536));
+  }
+
+  /**
+   * <p>
+   * Picks the fastest of the SDK decompressors on the first bytes of a gzipped feed file
+   * </p>
+   *
+   * @param gzippedFile Path to a gzipped feed file
+   * @return Decompressor The fastest decompressor
+   * @throws IOException If the file cannot be read, or is not gzipped
+   */
+  public static Decompressor pickFastest(Path gzippedFile) throws IOException {
+    return pickFastest(getCandidates(), readSample(gzippedFile, DEFAULT_SAMPLE_SIZE));
+  }
+
+  /**
+   * <p>
+   * Picks the decompressor with the highest throughput on the sample
+   * </p>
+   *
+   * @param candidates The decompressors to compare
+   * @param sample Gzipped bytes, which may be cut short
+   * @return Decompressor The fastest decompressor
+   * @throws IOException If the sample is not gzipped
+   */
+  public static Decompressor pickFastest(List<Decompressor> candidates, byte[] sample)
+      throws IOException {
+
+    Decompressor fastest = null;
+    double fastestThroughput = -1;
+    for (Decompressor candidate : candidates) {
+      double throughput = measure(candidate, sample);
+      LOGGER.debug("Decompressor {} - {} MB/s", candidate.getName(), throughput);
+      if (throughput > fastestThroughput) {
+        fastest = candidate;
+        fastestThroughput = throughput;
+      }
+    }
+    LOGGER.debug("Fastest decompressor is {}", fastest == null ? null : fastest.getName());
+    return fastest;
+  }
+
+  /**
+   * <p>
+   * Decompresses the sample once to warm up, then returns the best throughput of the timed rounds,
+   * in MB of decompressed bytes per second
+   * </p>
+   *
+   * @param decompressor The decompressor to measure
+   * @param sample Gzipped bytes, which may be cut short
+   * @return double Throughput in MB/s
+   * @throws IOException If the sample is not gzipped
+   */
+  public static double measure(Decompressor decompressor, byte[] sample) throws IOException {
+
+    decompress(decompressor, sample);
+    double best = 0;
+    for (int round = 0; round < ROUNDS; round++) {
+      long start = System.nanoTime();
+      long size = decompress(decompressor, sample);
+      double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+      best = Math.max(best, size / 1048576.0 / seconds);
+    }
+    return best;
+  }
+
+  private static long decompress(Decompressor decompressor, byte[] sample) throws IOException {
+
+    byte[] buffer = new byte[65536];
+    long size = 0;
+    try (InputStream in = decompressor.decompress(new ByteArrayInputStream(sample))) {
+      int len;
+      while ((len = in.read(buffer)) != -1) {
+        size += len;
+      }
+    } catch (EOFException e) {
+      // the sample is cut short
+    }
+    return size;
+  }
+
+  private static byte[] readSample(Path gzippedFile, int sampleSize) throws IOException {
+
+    try (InputStream in = Files.newInputStream(gzippedFile)) {
+      byte[] sample = new byte[(int) Math.min(sampleSize, Files.size(gzippedFile))];
+      int length = 0;
+      int bytesRead;
+      while (length < sample.length
+          && (bytesRead = in.read(sample, length, sample.length - length)) != -1) {
+        length += bytesRead;
+      }
+      return Arrays.copyOf(sample, length);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+
+    if (args.length == 0) {
+      System.out.println("Usage: DecompressorBenchmark <gzipped file> [sampleInMB]");
+      return;
+    }
+    int sampleSize =
+        args.length > 1 ? Integer.parseInt(args[1]) * 1024 * 1024 : DEFAULT_SAMPLE_SIZE;
+    byte[] sample = readSample(Paths.get(args[0]), sampleSize);
+
+    Decompressor fastest = null;
+    double fastestThroughput = -1;
+    for (Decompressor candidate : getCandidates()) {
+      double throughput = measure(candidate, sample);
+      System.out.println(String.format("%-20s %8.1f MB/s", candidate.getName(), throughput));
+      if (throughput > fastestThroughput) {
+        fastest = candidate;
+        fastestThroughput = throughput;
+      }
+    }
+    System.out.println("Fastest: " + fastest.getName());
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.unzip;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * <p>
+ * Decompresses with the JDK GZIPInputStream, which creates and releases an inflater for every
+ * stream
+ * </p>
+ */
+public class GzipStreamDecompressor implements Decompressor {
+
+  private final int bufferSize;
+
+  public GzipStreamDecompressor() {
+    this(512);
+  }
+
+  /**
+   *
+   * @param bufferSize Size of the buffer the gzipped bytes are read into
+   */
+  public GzipStreamDecompressor(int bufferSize) {
+    this.bufferSize = bufferSize;
+  }
+
+  @Override
+  public InputStream decompress(InputStream compressed) throws IOException {
+    return new GZIPInputStream(compressed, bufferSize);
+  }
+
+  @Override
+  public String getName() {
+    return "gzip-stream-" + bufferSize;
+  }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.unzip;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import com.ebay.feed.constants.Constants;
+
+/**
+ * <p>
+ * Decompresses with JDK inflaters, which are reused across gzip members and streams instead of
+ * being allocated and released for each one, and inflates straight into the buffer of the reader.
+ * The gzipped bytes are read in large blocks, so that the native inflater is called far less
+ * often than with the small buffer of GZIPInputStream. Concatenated gzip members are decompressed
+ * one after the other; bytes after the last member which are not a gzip header are ignored, as
+ * GZIPInputStream does.
+ * </p>
+ */
+public class InflaterDecompressor implements Decompressor {
+
+  private static final int GZIP_MAGIC = 0x8b1f;
+  private static final int FHCRC = 2;
+  private static final int FEXTRA = 4;
+  private static final int FNAME = 8;
+  private static final int FCOMMENT = 16;
+
+  // inflaters kept for reuse, about one per thread which decompresses
+  private static final int MAX_POOLED_INFLATERS = 16;
+
+  private final int bufferSize;
+  private final BlockingQueue<Inflater> inflaters =
+      new LinkedBlockingQueue<>(MAX_POOLED_INFLATERS);
+
+  public InflaterDecompressor() {
+    this(Constants.DEFAULT_UNZIP_BUFFER_SIZE);
+  }
+
+  /**
+   *
+   * @param bufferSize Size of the buffer the gzipped bytes are read into
+   */
+  public InflaterDecompressor(int bufferSize) {
+    this.bufferSize = bufferSize;
+  }
+
+  @Override
+  public InputStream decompress(InputStream compressed) throws IOException {
+    InflaterStream stream = new InflaterStream(compressed);
+    try {
+      stream.startMember(true);
+      return stream;
+    } catch (IOException | RuntimeException e) {
+      stream.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public String getName() {
+    return "inflater-" + bufferSize;
+  }
+
+  private Inflater acquire() {
+    Inflater inflater = inflaters.poll();
+    return inflater != null ? inflater : new Inflater(true);
+  }
+
+  private void release(Inflater inflater) {
+    inflater.reset();
+    if (!inflaters.offer(inflater))
+      inflater.end();
+  }
+
+  /**
+   * <p>
+   * Decompressed contents of one gzipped stream
+   * </p>
+   */
+  private class InflaterStream extends InputStream {
+
+    private final InputStream compressed;
+    private final byte[] input = new byte[bufferSize];
+    private final CRC32 crc = new CRC32();
+
+    private Inflater inflater = acquire();
+    private int inputPosition = 0;
+    private int inputLength = 0;
+    private long memberSize = 0;
+    private boolean isEnded = false;
+
+    private InflaterStream(InputStream compressed) {
+      this.compressed = compressed;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] single = new byte[1];
+      int bytesRead = read(single, 0, 1);
+      return bytesRead == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+
+      if (inflater == null)
+        throw new IOException("Stream closed");
+      if (len == 0)
+        return 0;
+
+      while (!isEnded) {
+
+        int inflated;
+        try {
+          inflated = inflater.inflate(b, off, len);
+        } catch (DataFormatException e) {
+          throw new ZipException(e.getMessage());
+        }
+        if (inflated > 0) {
+          crc.update(b, off, inflated);
+          memberSize += inflated;
+          return inflated;
+        }
+
+        if (inflater.finished()) {
+          inputPosition = inputLength - inflater.getRemaining();
+          checkTrailer();
+          startMember(false);
+        } else if (inflater.needsDictionary()) {
+          throw new ZipException("Unsupported gzip data, a preset dictionary is required");
+        } else if (inflater.needsInput()) {
+          if (!fill())
+            throw new EOFException("Unexpected end of ZLIB input stream");
+          inflater.setInput(input, 0, inputLength);
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * <p>
+     * Reads the header of the next member, and hands the bytes after it to the inflater. Ends the
+     * stream if there is no further member
+     * </p>
+     */
+    private void startMember(boolean isFirst) throws IOException {
+
+      // like GZIPInputStream, anything after the last member which is not a header is ignored
+      int magic;
+      try {
+        magic = readShort();
+      } catch (EOFException e) {
+        if (isFirst)
+          throw e;
+        isEnded = true;
+        return;
+      }
+      if (magic != GZIP_MAGIC) {
+        if (isFirst)
+          throw new ZipException("Not in GZIP format");
+        isEnded = true;
+        return;
+      }
+      if (readByte() != 8)
+        throw new ZipException("Unsupported compression method");
+
+      int flags = readByte();
+      skip(6);
+      if ((flags & FEXTRA) != 0)
+        skip(readShort());
+      if ((flags & FNAME) != 0)
+        skipString();
+      if ((flags & FCOMMENT) != 0)
+        skipString();
+      if ((flags & FHCRC) != 0)
+        skip(2);
+
+      inflater.reset();
+      crc.reset();
+      memberSize = 0;
+      inflater.setInput(input, inputPosition, inputLength - inputPosition);
+    }
+
+    private void checkTrailer() throws IOException {
+
+      long expectedCrc = readInt();
+      long expectedSize = readInt();
+      if (expectedCrc != crc.getValue())
+        throw new ZipException("Corrupt GZIP trailer");
+      if (expectedSize != (memberSize & 0xffffffffL))
+        throw new ZipException("Corrupt GZIP trailer");
+    }
+
+    private boolean hasInput() throws IOException {
+      return inputPosition < inputLength || fill();
+    }
+
+    private boolean fill() throws IOException {
+      int bytesRead;
+      do {
+        bytesRead = compressed.read(input, 0, input.length);
+      } while (bytesRead == 0);
+      inputPosition = 0;
+      inputLength = Math.max(bytesRead, 0);
+      return bytesRead > 0;
+    }
+
+    private int readByte() throws IOException {
+      if (!hasInput())
+        throw new EOFException();
+      return input[inputPosition++] & 0xff;
+    }
+
+    private int readShort() throws IOException {
+      return readByte() | (readByte() << 8);
+    }
+
+    private long readInt() throws IOException {
+      return readShort() | ((long) readShort() << 16);
+    }
+
+    private void skip(int count) throws IOException {
+      for (int i = 0; i < count; i++) {
+        readByte();
+      }
+    }
+
+    private void skipString() throws IOException {
+      while (readByte() != 0) {
+        continue;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (inflater == null)
+        return;
+      release(inflater);
+      inflater = null;
+      compressed.close();
+    }
+  }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.unzip;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ebay.feed.constants.Constants;
+
+/**
+ * <p>
+ * Unzips a feed file while it is being downloaded. The downloader commits the offset up to which
+ * the gzipped file is complete after each range, and a thread of its own decompresses the file up
+ * to that offset, then waits for the next commit. The unzipped file is therefore complete shortly
+ * after the last range, instead of after a second pass over the whole file.
+ * </p>
+ * <p>
+ * The unzipped bytes are written to a temporary file, which is moved to the unzipped file once the
+ * download has succeeded, since the name of the feed file is only final then. If the download
+ * fails, the temporary file is deleted.
+ * </p>
+ */
+public class PipelinedUnzip {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PipelinedUnzip.class);
+  private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+  public static final String TEMP_SUFFIX = ".unzipping";
+
+  private final Path source;
+  private final Path temp;
+  private final Decompressor decompressor;
+  private final CommittedInputStream committed;
+  private final Thread unzipper;
+
+  private volatile IOException failure;
+
+  /**
+   *
+   * @param source The gzipped file being downloaded
+   * @param temp The temporary unzipped file, which is replaced
+   * @param decompressor Decompressor of the gzipped file
+   */
+  public PipelinedUnzip(Path source, Path temp, Decompressor decompressor) {
+    this.source = source;
+    this.temp = temp;
+    this.decompressor = decompressor;
+    this.committed = new CommittedInputStream();
+    this.unzipper =
+        new Thread(this::unzip, "feed-pipelined-unzip-" + THREAD_COUNT.incrementAndGet());
+    unzipper.setDaemon(true);
+  }
+
+  /**
+   * <p>
+   * Starts the thread which unzips the committed bytes
+   * </p>
+   */
+  public void start() {
+    unzipper.start();
+  }
+
+  /**
+   * <p>
+   * Commits the bytes of the gzipped file up to the offset, which are complete. Offsets lower than
+   * one already committed are ignored. Thread safe
+   * </p>
+   *
+   * @param end Offset up to which the gzipped file is complete
+   */
+  public void commit(long end) {
+    committed.commit(end);
+  }
+
+  /**
+   * <p>
+   * Waits until the committed bytes are unzipped, once the whole file is downloaded and committed
+   * </p>
+   *
+   * @throws IOException If the file could not be unzipped
+   */
+  public void finish() throws IOException {
+    committed.finish();
+    join();
+    if (failure != null)
+      throw failure;
+  }
+
+  /**
+   * <p>
+   * Moves the unzipped file to the target, once finished
+   * </p>
+   *
+   * @param target Path of the unzipped file, which is replaced
+   * @throws IOException If the unzipped file cannot be moved
+   */
+  public void moveTo(Path target) throws IOException {
+    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+    LOGGER.debug("Completed pipelined unzipping of {} into {}", source, target);
+  }
+
+  /**
+   * <p>
+   * Stops unzipping after a failed download or unzipping, and deletes the temporary file
+   * </p>
+   */
+  public void abort() {
+    committed.abort();
+    try {
+      join();
+      Files.deleteIfExists(temp);
+    } catch (IOException e) {
+      LOGGER.error("Unable to delete {}", temp, e);
+    }
+  }
+
+  private void join() throws IOException {
+    try {
+      unzipper.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while unzipping " + source);
+    }
+  }
+
+  /**
+   * <p>
+   * Unzipping thread
+   * </p>
+   */
+  private void unzip() {
+
+    byte[] buffer = new byte[Constants.DEFAULT_UNZIP_BUFFER_SIZE];
+    try (InputStream in = decompressor.decompress(committed);
+        OutputStream out = Files.newOutputStream(temp)) {
+      int len;
+      while ((len = in.read(buffer)) != -1) {
+        out.write(buffer, 0, len);
+      }
+    } catch (IOException e) {
+      if (!committed.isAborted())
+        LOGGER.error("Exception while unzipping {}", source, e);
+      failure = e;
+    } catch (RuntimeException e) {
+      failure = new IOException(e);
+    }
+  }
+
+  /**
+   * <p>
+   * Reads the gzipped file up to the committed offset, and blocks until more bytes are committed,
+   * or until the download is finished
+   * </p>
+   */
+  private class CommittedInputStream extends InputStream {
+
+    private FileChannel channel;
+    private long position = 0;
+
+    // guarded by this
+    private long end = 0;
+    private boolean isFinished = false;
+    private boolean isAborted = false;
+
+    private synchronized void commit(long committedEnd) {
+      if (committedEnd > end) {
+        end = committedEnd;
+        notifyAll();
+      }
+    }
+
+    private synchronized void finish() {
+      isFinished = true;
+      notifyAll();
+    }
+
+    private synchronized void abort() {
+      isAborted = true;
+      notifyAll();
+    }
+
+    private synchronized boolean isAborted() {
+      return isAborted;
+    }
+
+    /**
+     * <p>
+     * Waits until bytes after the position are committed. Returns the committed offset, or -1 at
+     * the end of the finished download
+     * </p>
+     */
+    private synchronized long await() throws IOException {
+      while (end <= position && !isFinished && !isAborted) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while waiting for " + source);
+        }
+      }
+      if (isAborted)
+        throw new IOException("Download of " + source + " failed");
+      return end > position ? end : -1;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] single = new byte[1];
+      int bytesRead = read(single, 0, 1);
+      return bytesRead == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+
+      if (len == 0)
+        return 0;
+      long committedEnd = await();
+      if (committedEnd == -1)
+        return -1;
+
+      if (channel == null)
+        channel = FileChannel.open(source, StandardOpenOption.READ);
+      ByteBuffer buffer = ByteBuffer.wrap(b, off, (int) Math.min(len, committedEnd - position));
+      int bytesRead = channel.read(buffer, position);
+      if (bytesRead == -1)
+        throw new EOFException(source + " ends at " + position + ", expected " + committedEnd);
+      position += bytesRead;
+      return bytesRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (channel != null)
+        channel.close();
+    }
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.unzip;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ebay.feed.constants.Constants;
+
+/**
+ * <p>
+ * Reads a stream ahead of its reader, on a thread of its own, so that producing the bytes, such as
+ * decompressing a feed file, overlaps with consuming them, such as filtering it. The bytes are
+ * handed over in blocks through a bounded queue, which holds the reading thread back when the
+ * reader is slower. The blocks are recycled, and a failure of the source is thrown to the reader
+ * once the blocks before it have been read.
+ * </p>
+ */
+public class ReadAheadInputStream extends InputStream {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ReadAheadInputStream.class);
+  private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+  private static final Block END = new Block(new byte[0]);
+
+  private final InputStream source;
+  private final int blockSize;
+  private final BlockingQueue<Block> filled;
+  private final BlockingQueue<Block> free;
+  private final Thread reader;
+
+  private Block current;
+  private int position;
+  private boolean isEnded = false;
+  private boolean isClosed = false;
+
+  /**
+   *
+   * @param source The stream read ahead, which is closed with this stream
+   */
+  public ReadAheadInputStream(InputStream source) {
+    this(source, Constants.DEFAULT_BUFFER_SIZE, Constants.DEFAULT_READ_AHEAD_BLOCKS);
+  }
+
+  /**
+   *
+   * @param source The stream read ahead, which is closed with this stream
+   * @param blockSize Size of the blocks handed over to the reader, in bytes
+   * @param blocks Number of blocks read ahead of the reader
+   */
+  public ReadAheadInputStream(InputStream source, int blockSize, int blocks) {
+    this.source = source;
+    this.blockSize = blockSize;
+    this.filled = new ArrayBlockingQueue<>(blocks + 1);
+    this.free = new ArrayBlockingQueue<>(blocks + 2);
+    this.reader =
+        new Thread(this::readAhead, "feed-read-ahead-" + THREAD_COUNT.incrementAndGet());
+    reader.setDaemon(true);
+    reader.start();
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] single = new byte[1];
+    int bytesRead = read(single, 0, 1);
+    return bytesRead == -1 ? -1 : single[0] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+
+    if (isClosed)
+      throw new IOException("Stream closed");
+    if (len == 0)
+      return 0;
+
+    while (current == null || position == current.length) {
+      if (isEnded)
+        return -1;
+      nextBlock();
+    }
+
+    int bytesRead = Math.min(len, current.length - position);
+    System.arraycopy(current.bytes, position, b, off, bytesRead);
+    position += bytesRead;
+    return bytesRead;
+  }
+
+  private void nextBlock() throws IOException {
+
+    if (current != null)
+      free.offer(current);
+    current = null;
+
+    Block block;
+    try {
+      block = filled.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the stream");
+    }
+
+    if (block == END) {
+      isEnded = true;
+    } else if (block.failure != null) {
+      isEnded = true;
+      throw block.failure;
+    } else {
+      current = block;
+      position = 0;
+    }
+  }
+
+  /**
+   * <p>
+   * Reading thread. Fills blocks from the source until its end, a failure, or until the stream is
+   * closed, and closes the source
+   * </p>
+   */
+  private void readAhead() {
+
+    try {
+      while (true) {
+        Block block = free.poll();
+        if (block == null)
+          block = new Block(new byte[blockSize]);
+
+        block.length = 0;
+        int bytesRead = 0;
+        while (block.length < blockSize && bytesRead != -1) {
+          bytesRead = source.read(block.bytes, block.length, blockSize - block.length);
+          block.length += Math.max(bytesRead, 0);
+        }
+
+        if (block.length > 0)
+          filled.put(block);
+        if (bytesRead == -1) {
+          filled.put(END);
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      LOGGER.debug("Read ahead stopped, the stream is closed");
+    } catch (IOException | RuntimeException e) {
+      Block failure = new Block(new byte[0]);
+      failure.failure = e instanceof IOException ? (IOException) e : new IOException(e);
+      try {
+        filled.put(failure);
+      } catch (InterruptedException interrupted) {
+        LOGGER.debug("Read ahead stopped, the stream is closed");
+      }
+    } finally {
+      try {
+        source.close();
+      } catch (IOException e) {
+        LOGGER.debug("Exception while closing the source", e);
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Stops the reading thread, and waits until it has closed the source
+   * </p>
+   */
+  @Override
+  public void close() throws IOException {
+
+    if (isClosed)
+      return;
+    isClosed = true;
+
+    reader.interrupt();
+    try {
+      reader.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while closing the stream");
+    }
+  }
+
+  private static class Block {
+    private final byte[] bytes;
+    private int length;
+    private IOException failure;
+
+    private Block(byte[] bytes) {
+      this.bytes = bytes;
+    }
+  }
+}
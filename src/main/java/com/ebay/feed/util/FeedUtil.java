@@ -14,14 +14,18 @@
 
 package com.ebay.feed.util;
 
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.zip.GZIPInputStream;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 
 import okhttp3.Request;
 
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,6 +33,10 @@ import com.ebay.feed.constants.Constants;
 import com.ebay.feed.enums.EnvTypeEnum;
 import com.ebay.feed.enums.FeedTypeEnum;
 import com.ebay.feed.model.feed.operation.feed.FeedRequest;
+import com.ebay.feed.storage.LocalStorage;
+import com.ebay.feed.storage.Storage;
+import com.ebay.feed.unzip.Decompressor;
+import com.ebay.feed.unzip.InflaterDecompressor;
 
 /**
  * <p>
@@ -42,6 +50,27 @@ public class FeedUtil {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(FeedUtil.class);
 
+  private final Decompressor decompressor;
+
+  public FeedUtil() {
+    this(new InflaterDecompressor());
+  }
+
+  /**
+   *
+   * @param decompressor Decompresses the feed files which are unzipped
+   */
+  public FeedUtil(Decompressor decompressor) {
+    this.decompressor = decompressor;
+  }
+
+  /**
+   * @return Decompressor Decompresses the feed files which are unzipped
+   */
+  public Decompressor getDecompressor() {
+    return decompressor;
+  }
+
 
   /**
    * <p>
@@ -141,6 +170,23 @@ public class FeedUtil {
     }
   }
 
+  /**
+   * <p>
+   * Converts the Last-Modified response header to the date format used in the feed file name
+   * </p>
+   * 
+   * @param lastModifiedHeader Value of the Last-Modified header Eg - Tue, 16 Oct 2018 10:00:00 GMT
+   * @return string Date in the format yyyyMMdd, or null if the header is absent
+   */
+  public String getLastModifiedDate(String lastModifiedHeader) {
+
+    if (StringUtils.isEmpty(lastModifiedHeader))
+      return null;
+
+    LocalDate localDate = LocalDate.parse(lastModifiedHeader, DateTimeFormatter.RFC_1123_DATE_TIME);
+    return localDate.format(DateTimeFormatter.BASIC_ISO_DATE);
+  }
+
   /**
    * <p>
    *  Unzips a file and creates a new file and returns the path Returns null in case of errors
@@ -150,29 +196,62 @@ public class FeedUtil {
    * @throws Exception Exception
    */
   public String unzip(Path path) throws Exception {
+    return unzip(path, new LocalStorage());
+  }
+
+  /**
+   * <p>
+   *  Unzips a file into the storage and returns the key of the unzipped file. Returns null in case
+   *  of errors
+   * </p>
+   * @param path Path to the downloaded compressed feed file
+   * @param storage Storage the unzipped file is written to
+   * @return string Key of the unzipped file, which is its path on local storage
+   * @throws Exception Exception
+   */
+  public String unzip(Path path, Storage storage) throws Exception {
+    return unzip(path, storage, 1);
+  }
+
+  /**
+   * <p>
+   *  Unzips a file into the storage and returns the key of the unzipped file. A file made of
+   *  several gzip members is unzipped by several threads, if it is unzipped to local storage, since
+   *  the threads write at their own offsets in the unzipped file. Returns null in case of errors
+   * </p>
+   * @param path Path to the downloaded compressed feed file
+   * @param storage Storage the unzipped file is written to
+   * @param parallelism Number of threads which unzip the file
+   * @return string Key of the unzipped file, which is its path on local storage
+   * @throws Exception Exception
+   */
+  public String unzip(Path path, Storage storage, int parallelism) throws Exception {
 
     if (path == null)
       return null;
 
-    byte[] buffer = new byte[1024];
+    byte[] buffer = new byte[Constants.DEFAULT_UNZIP_BUFFER_SIZE];
 
     try {
 
       LOGGER.debug("Starting unzipping operation for = {}", path.toString());
       String newFilePath = (path.toString().substring(0, path.toString().length() - 3));
 
-      GZIPInputStream gzis = new GZIPInputStream(new FileInputStream(path.toFile()));
+      if (parallelism > 1 && storage instanceof LocalStorage
+          && new ParallelGunzip(parallelism).unzip(path, Paths.get(newFilePath))) {
+        LOGGER.debug("Completed parallel unzipping operation. Unzipped file = {}", newFilePath);
+        return newFilePath;
+      }
 
-      FileOutputStream out = new FileOutputStream(newFilePath);
+      try (InputStream gzis = decompressor.decompress(Files.newInputStream(path));
+          OutputStream out = storage.create(newFilePath)) {
 
-      int len;
-      while ((len = gzis.read(buffer)) > 0) {
-        out.write(buffer, 0, len);
+        int len;
+        while ((len = gzis.read(buffer)) != -1) {
+          out.write(buffer, 0, len);
+        }
       }
 
-      gzis.close();
-      out.close();
-
       LOGGER.debug("Completed unzipping operation. Unzipped file = {}", newFilePath);
       return newFilePath;
 
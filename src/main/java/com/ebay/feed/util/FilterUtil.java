@@ -14,13 +14,16 @@
 
 package com.ebay.feed.util;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.slf4j.Logger;
@@ -30,6 +33,8 @@ import com.ebay.feed.api.TaxonomyImpl;
 import com.ebay.feed.constants.Constants;
 import com.ebay.feed.model.feed.operation.filter.FeedFilterRequest;
 import com.ebay.feed.model.feed.operation.taxonomy.CategoryResponse;
+import com.ebay.feed.storage.LocalStorage;
+import com.ebay.feed.storage.Storage;
 
 /**
  * <p>
@@ -42,6 +47,34 @@ import com.ebay.feed.model.feed.operation.taxonomy.CategoryResponse;
 public class FilterUtil {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(FilterUtil.class);
+  private static final String GZIP_SUFFIX = ".gz";
+  private static final byte[] HEADER = Constants.ITEM_ID.getBytes(StandardCharsets.UTF_8);
+  private static final byte[] LINE_SEPARATOR =
+      System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+  private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8,
+      1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+  private Taxonomy taxonomy = null;
+  private Storage storage = new LocalStorage();
+
+  public FilterUtil() {}
+
+  /**
+   * 
+   * @param taxonomy Used for calculating the leaves of level two and level three categories
+   */
+  public FilterUtil(Taxonomy taxonomy) {
+    this.taxonomy = taxonomy;
+  }
+
+  /**
+   * 
+   * @param taxonomy Used for calculating the leaves of level two and level three categories
+   * @param storage Storage the unzipped files are read from, and the filtered files written to
+   */
+  public FilterUtil(Taxonomy taxonomy, Storage storage) {
+    this.taxonomy = taxonomy;
+    this.storage = storage;
+  }
 
   /**
    * <p>
@@ -60,24 +93,40 @@ public class FilterUtil {
 
     String filteredFile = getFilteredFileName(baseFilePath, filterRequest);
 
-    try (BufferedReader r = new BufferedReader(new FileReader(baseFilePath.toFile()));
-        BufferedWriter w = new BufferedWriter(new FileWriter(filteredFile))) {
+    try (InputStream in = storage.open(baseFilePath.toString())) {
 
-      String line = null;
+      filter(in, filteredFile, filterRequest);
 
-      while ((line = r.readLine()) != null) {
-        String[] tsv = line.split(Constants.SEPARATOR);
+    } catch (Exception e) {
+      LOGGER.error("Error in FilterUtils.filter()", e);
+      throw e;
+    }
+    return filteredFile;
+  }
 
-        // only for header
-        if (evaluateHeader(tsv)) {
-          w.write(line + System.lineSeparator());
-        }
+  /**
+   * <p>
+   * Apply the filters to the unzipped contents of a feed file, as they are read from the stream.
+   * The filtered file is named after the base file path, which does not need to exist
+   * </p>
+   * 
+   * @param unzippedStream Stream of the unzipped feed file contents
+   * @param baseFilePath Path of the unzipped feed file, used to name the filtered file
+   * @param filterRequest Container for capturing the filter parameters
+   * @return string The path of the filtered file
+   * @throws Exception exception
+   */
+  public String filter(InputStream unzippedStream, Path baseFilePath,
+      FeedFilterRequest filterRequest) throws Exception {
 
-        // actual listings
-        if (evaluate(tsv, filterRequest)) {
-          w.write(line + System.lineSeparator());
-        }
-      }
+    LOGGER.debug("******* Begin filtering on stream for = {} with parameters = {}", baseFilePath,
+        filterRequest);
+
+    String filteredFile = getFilteredFileName(baseFilePath, filterRequest);
+
+    try (InputStream in = unzippedStream) {
+
+      filter(in, filteredFile, filterRequest);
 
     } catch (Exception e) {
       LOGGER.error("Error in FilterUtils.filter()", e);
@@ -86,6 +135,64 @@ public class FilterUtil {
     return filteredFile;
   }
 
+  /**
+   * <p>
+   * Apply the filters to each line read from the stream, and write the matching lines to the
+   * filtered file, gzipped on several threads if requested. The lines are scanned as bytes, and
+   * only the columns the filters use are compared with them, as {@link #evaluate} does. If a
+   * subclass overrides {@link #evaluate}, each line is decoded and split for it instead
+   * </p>
+   * 
+   * @param in Stream of the unzipped feed file
+   * @param filteredFile Path of the filtered file
+   * @param filterRequest Container for capturing the filter parameters
+   * @throws IOException exception
+   */
+  private void filter(InputStream in, String filteredFile, FeedFilterRequest filterRequest)
+      throws IOException {
+
+    RowFilter rowFilter = new RowFilter(filterRequest);
+    boolean isOverridden = isEvaluateOverridden();
+    TsvScanner scanner = new TsvScanner(in, rowFilter.columns);
+
+    try (OutputStream out = storage.create(filteredFile);
+        OutputStream gzipped = filterRequest.isGzipOutput() ? gzip(out, filterRequest) : out;
+        OutputStream w = new BufferedOutputStream(gzipped, Constants.DEFAULT_BUFFER_SIZE)) {
+
+      while (scanner.next()) {
+        byte[] row = scanner.getBuffer();
+        int length = scanner.getRowEnd() - scanner.getRowStart();
+
+        // only for header
+        if (evaluateHeader(scanner)) {
+          w.write(row, scanner.getRowStart(), length);
+          w.write(LINE_SEPARATOR);
+        }
+
+        // actual listings, decoded for a subclass which overrides evaluate
+        boolean isMatch;
+        if (isOverridden)
+          isMatch = evaluate(new String(row, scanner.getRowStart(), length, StandardCharsets.UTF_8)
+              .split(Constants.SEPARATOR), filterRequest);
+        else
+          isMatch = rowFilter.evaluate(scanner);
+        if (isMatch) {
+          w.write(row, scanner.getRowStart(), length);
+          w.write(LINE_SEPARATOR);
+        }
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Wraps the output in a stream which gzips it on several threads
+   * </p>
+   */
+  private OutputStream gzip(OutputStream out, FeedFilterRequest filterRequest) {
+    return new ParallelGzipOutputStream(out, filterRequest.getGzipParallelism() == null
+        ? Constants.DEFAULT_GZIP_PARALLELISM : filterRequest.getGzipParallelism());
+  }
 
   /**
    *
@@ -103,6 +210,12 @@ public class FilterUtil {
     </ul>
     </div>
    * 
+   * <p>
+   * The filter methods match the lines as bytes, with the same results, without calling this
+   * method. Subclasses may still override it to customise the matching, in which case each line is
+   * decoded and split on tabs, and passed to the override
+   * </p>
+   * 
    * @param line One record from the feed file
    * @param filterRequest Container for capturing the filter parameters
    * @return boolean Indicates whether any filters apply to this record
@@ -120,14 +233,47 @@ public class FilterUtil {
 
   /**
    * <p>
-   * Evaluate if the line is a headerline
+   * Checks whether a subclass overrides {@link #evaluate}, so that the filter passes the lines to
+   * the override
    * </p>
    * 
-   * @param line One record from the feed file
+   * @return boolean Indicates whether evaluate is overridden
+   */
+  private boolean isEvaluateOverridden() {
+    for (Class<?> c = getClass(); c != FilterUtil.class; c = c.getSuperclass()) {
+      try {
+        c.getDeclaredMethod("evaluate", String[].class, FeedFilterRequest.class);
+        return true;
+      } catch (NoSuchMethodException e) {
+        // not overridden by this class
+      }
+    }
+    return false;
+  }
+
+  /**
+   * <p>
+   * Evaluate if the scanned line is a headerline
+   * </p>
+   * 
+   * @param scanner Scanner of the feed file, at one record
    * @return boolean Checks if the line is a header line
    */
-  private boolean evaluateHeader(String[] line) {
-    return line[0].contains(Constants.ITEM_ID);
+  private boolean evaluateHeader(TsvScanner scanner) {
+
+    if (!scanner.hasColumn(0))
+      return false;
+
+    byte[] row = scanner.getBuffer();
+    int last = scanner.getColumnEnd(0) - HEADER.length;
+    for (int i = scanner.getColumnStart(0); i <= last; i++) {
+      int j = 0;
+      while (j < HEADER.length && row[i + j] == HEADER[j])
+        j++;
+      if (j == HEADER.length)
+        return true;
+    }
+    return false;
   }
 
   /**
@@ -216,7 +362,53 @@ public class FilterUtil {
 
   /**
    * <p>
-   * Generate filtered file name based on base file path and timestamp
+   * Parse a plain decimal number, such as an item price, from the bytes of a column. The number is
+   * exact as long as it has at most 15 significant digits, so that it equals the one
+   * Double.valueOf parses
+   * </p>
+   * 
+   * @param bytes Buffer holding the column
+   * @param start Offset of the column in the buffer
+   * @param end Offset of the end of the column in the buffer
+   * @return double The number, or NaN if the column is not a plain decimal number
+   */
+  static double parseDecimal(byte[] bytes, int start, int end) {
+
+    int i = start;
+    boolean isNegative = false;
+    if (i < end && (bytes[i] == '-' || bytes[i] == '+'))
+      isNegative = bytes[i++] == '-';
+
+    long mantissa = 0;
+    int digits = 0;
+    int scale = -1;
+    boolean hasDigit = false;
+    for (; i < end; i++) {
+      byte b = bytes[i];
+      if (b >= '0' && b <= '9') {
+        hasDigit = true;
+        mantissa = mantissa * 10 + (b - '0');
+        if (mantissa > 0 && ++digits > 15)
+          return Double.NaN;
+        if (scale >= 0 && ++scale >= POWERS_OF_TEN.length)
+          return Double.NaN;
+      } else if (b == '.' && scale < 0) {
+        scale = 0;
+      } else {
+        return Double.NaN;
+      }
+    }
+    if (!hasDigit)
+      return Double.NaN;
+
+    double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+    return isNegative ? -value : value;
+  }
+
+  /**
+   * <p>
+   * Generate filtered file name based on base file path and timestamp, ending with .gz if the
+   * filtered file is gzipped
    * </p>
    * 
    * @param baseFilePath Path of the unzipped file
@@ -226,7 +418,7 @@ public class FilterUtil {
   private String getFilteredFileName(Path baseFilePath, FeedFilterRequest filterRequest) {
     Date d = new Date();
     String filteredFile = baseFilePath.toString() + "-filtered-" + d.getTime();
-    return filteredFile;
+    return filterRequest.isGzipOutput() ? filteredFile + GZIP_SUFFIX : filteredFile;
   }
 
   /**
@@ -246,7 +438,9 @@ public class FilterUtil {
     if (isLevelNAbsent(filterRequest))
       return leafCategories;
 
-    Taxonomy taxonomy = new TaxonomyImpl();
+    // created on first use, and reused for later filters
+    if (taxonomy == null)
+      taxonomy = new TaxonomyImpl();
 
     String categoryTreeId =
         taxonomy.getCategoryTreeId(filterRequest.getToken(), filterRequest.getMarketplace());
@@ -315,4 +509,95 @@ public class FilterUtil {
             .getLevelThreeCategories().isEmpty()) && (filterRequest.getLevelTwoCategories() == null || filterRequest
             .getLevelTwoCategories().isEmpty()));
   }
+
+  /**
+   * <p>
+   * Filters of a request, compiled for the lines scanned as bytes. The sets of filters are looked
+   * up with the bytes of their columns, and the price is parsed from its bytes, with the same
+   * results as {@link FilterUtil#evaluate}
+   * </p>
+   */
+  private static class RowFilter {
+
+    private static final int PRICE_COLUMN = 15;
+
+    private final Utf8StringSet[] sets = new Utf8StringSet[7];
+    private final int[] setColumns = new int[7];
+    private final int setCount;
+    private final Double priceLowerLimit;
+    private final Double priceUpperLimit;
+
+    // number of columns the scanner finds, with the first one for the header
+    private final int columns;
+
+    RowFilter(FeedFilterRequest filterRequest) {
+
+      List<Set<String>> filterSets =
+          Arrays.asList(filterRequest.getLeafCategoryIds(), filterRequest.getSellerNames(),
+              filterRequest.getItemLocationCountries(), filterRequest.getEpids(),
+              filterRequest.getInferredEpids(), filterRequest.getGtins(),
+              filterRequest.getItemIds());
+      int[] filterColumns = {4, 6, 21, 12, 40, 9, 0};
+
+      int count = 0;
+      int maxColumn = 0;
+      for (int i = 0; i < filterColumns.length; i++) {
+        Set<String> filterSet = filterSets.get(i);
+        if (filterSet == null || filterSet.isEmpty())
+          continue;
+        sets[count] = new Utf8StringSet(filterSet);
+        setColumns[count++] = filterColumns[i];
+        maxColumn = Math.max(maxColumn, filterColumns[i]);
+      }
+      setCount = count;
+
+      priceLowerLimit = filterRequest.getPriceLowerLimit();
+      priceUpperLimit = filterRequest.getPriceUpperLimit();
+      if (priceLowerLimit != null || priceUpperLimit != null)
+        maxColumn = Math.max(maxColumn, PRICE_COLUMN);
+      columns = maxColumn + 1;
+    }
+
+    /**
+     * 
+     * @param scanner Scanner of the feed file, at one record
+     * @return boolean Indicates whether any filters apply to this record
+     */
+    boolean evaluate(TsvScanner scanner) {
+
+      byte[] row = scanner.getBuffer();
+      for (int i = 0; i < setCount; i++) {
+        int column = setColumns[i];
+
+        // guard against parsing issues
+        if (scanner.hasColumn(column)
+            && !sets[i].contains(row, scanner.getColumnStart(column), scanner.getColumnEnd(column)))
+          return false;
+      }
+      return evaluateItemPrice(scanner);
+    }
+
+    private boolean evaluateItemPrice(TsvScanner scanner) {
+
+      if ((priceLowerLimit == null && priceUpperLimit == null)
+          || !scanner.hasColumn(PRICE_COLUMN))
+        return true;
+
+      byte[] row = scanner.getBuffer();
+      int start = scanner.getColumnStart(PRICE_COLUMN);
+      int end = scanner.getColumnEnd(PRICE_COLUMN);
+
+      double price = parseDecimal(row, start, end);
+      if (Double.isNaN(price)) {
+        // anything but a plain decimal number, parsed as a string
+        try {
+          price = Double.parseDouble(new String(row, start, end - start, StandardCharsets.UTF_8));
+        } catch (NumberFormatException e) {
+          return false;
+        }
+      }
+      return !(priceLowerLimit != null && price < priceLowerLimit)
+          && !(priceUpperLimit != null && price > priceUpperLimit);
+    }
+  }
 }
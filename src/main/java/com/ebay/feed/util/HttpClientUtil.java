@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ebay.feed.model.client.ClientConfig;
+
+/**
+ * <p>
+ * Creates the http clients used by the feed and taxonomy APIs. One client is created for each
+ * distinct client config, and shared by every API instance created with that config, so that the
+ * connection pool, dispatcher threads and TLS sessions are reused across calls
+ * </p>
+ */
+public class HttpClientUtil {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientUtil.class);
+  private static final Map<ClientConfig, OkHttpClient> CLIENTS = new ConcurrentHashMap<>();
+  private static final ClientConfig DEFAULT_CONFIG =
+      new ClientConfig.ClientConfigBuilder().build();
+
+  private HttpClientUtil() {}
+
+  /**
+   * @return OkHttpClient The client shared by API instances created without a client config
+   */
+  public static OkHttpClient getDefaultClient() {
+    return getClient(DEFAULT_CONFIG);
+  }
+
+  /**
+   * <p>
+   * Returns the shared client for the config, creating it on first use
+   * </p>
+   *
+   * @param clientConfig Settings of the http client
+   * @return OkHttpClient The shared client
+   */
+  public static OkHttpClient getClient(ClientConfig clientConfig) {
+    return CLIENTS.computeIfAbsent(clientConfig, HttpClientUtil::createClient);
+  }
+
+  private static OkHttpClient createClient(ClientConfig clientConfig) {
+
+    Dispatcher dispatcher = new Dispatcher();
+    dispatcher.setMaxRequests(clientConfig.getMaxRequests());
+    dispatcher.setMaxRequestsPerHost(clientConfig.getMaxRequestsPerHost());
+
+    OkHttpClient.Builder builder =
+        new OkHttpClient.Builder()
+            .connectionPool(
+                new ConnectionPool(clientConfig.getMaxIdleConnections(), clientConfig
+                    .getKeepAliveSeconds(), TimeUnit.SECONDS))
+            .dispatcher(dispatcher)
+            .protocols(
+                clientConfig.isHttp2() ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                    : Collections.singletonList(Protocol.HTTP_1_1))
+            .connectTimeout(clientConfig.getConnectTimeout(), TimeUnit.SECONDS)
+            .writeTimeout(clientConfig.getWriteTimeout(), TimeUnit.SECONDS)
+            .readTimeout(clientConfig.getReadTimeout(), TimeUnit.SECONDS);
+
+    RateLimiter requestLimiter = getRequestRateLimiter(clientConfig);
+    RateLimiter byteLimiter = getByteRateLimiter(clientConfig);
+    if (requestLimiter != null || byteLimiter != null)
+      builder.addInterceptor(new RateLimitInterceptor(requestLimiter, byteLimiter));
+
+    OkHttpClient client = builder.build();
+    LOGGER.debug("Initialized http client with {}", clientConfig);
+    return client;
+  }
+
+  private static RateLimiter getRequestRateLimiter(ClientConfig clientConfig) {
+    if (clientConfig.getRequestRateLimiter() != null)
+      return clientConfig.getRequestRateLimiter();
+    if (clientConfig.getMaxRequestsPerMinute() <= 0)
+      return null;
+
+    // allows a burst of one second worth of requests
+    double requestsPerSecond = clientConfig.getMaxRequestsPerMinute() / 60.0;
+    return new TokenBucketRateLimiter(requestsPerSecond, Math.max(1, requestsPerSecond));
+  }
+
+  private static RateLimiter getByteRateLimiter(ClientConfig clientConfig) {
+    if (clientConfig.getByteRateLimiter() != null)
+      return clientConfig.getByteRateLimiter();
+    if (clientConfig.getMaxBytesPerSecond() <= 0)
+      return null;
+
+    return new TokenBucketRateLimiter(clientConfig.getMaxBytesPerSecond(),
+        clientConfig.getMaxBytesPerSecond());
+  }
+}
@@ -0,0 +1,462 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Unzips a gzipped feed file made of several gzip members on a pool of threads. The members are
+ * found by scanning the file for gzip headers, and the size of each member's contents is read from
+ * its trailer, which gives the offset of the contents in the unzipped file. The members are then
+ * split into contiguous shares of about the same compressed size, and each thread inflates its
+ * share into its offsets, checking the CRC32 and size of every member.
+ * </p>
+ * <p>
+ * A header found by the scan may be a false match inside compressed data. The member which holds
+ * it runs past it, and is inflated on until it ends at one of the next headers, while the
+ * inflating of the false member fails and is ignored. Since the false header also gave wrong
+ * offsets to the members after it, those members are inflated again once the false headers are
+ * known, from the member which holds the first one. A file whose members still fail the checks is
+ * reported as not splittable, so that it can be unzipped on one thread instead. A file with a
+ * single member is not splittable either.
+ * </p>
+ */
+public class ParallelGunzip {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ParallelGunzip.class);
+
+  private static final int FHCRC = 2;
+  private static final int FEXTRA = 4;
+  private static final int FNAME = 8;
+  private static final int FCOMMENT = 16;
+  private static final int RESERVED_FLAGS = 0xe0;
+  private static final int HEADER_SIZE = 10;
+  private static final int TRAILER_SIZE = 8;
+  private static final int BUFFER_SIZE = 262144;
+
+  // shares per thread, so that a thread with fast members takes over more of the work
+  private static final int SHARES_PER_THREAD = 4;
+
+  private final int parallelism;
+
+  /**
+   *
+   * @param parallelism Number of threads which inflate the members
+   */
+  public ParallelGunzip(int parallelism) {
+    this.parallelism = Math.max(parallelism, 1);
+  }
+
+  /**
+   * <p>
+   * Unzips the gzipped file into the target file, if the file is made of several gzip members
+   * </p>
+   *
+   * @param source Path to the gzipped file
+   * @param target Path to the unzipped file. It is replaced if present
+   * @return boolean False if the file cannot be split into members, in which case the target is
+   *         not created
+   * @throws IOException If the file cannot be read, or the target cannot be written
+   */
+  public boolean unzip(Path source, Path target) throws IOException {
+
+    try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+
+      List<Long> starts = findMembers(in);
+      if (starts.size() < 2) {
+        LOGGER.debug("{} has a single gzip member, it cannot be split", source);
+        return false;
+      }
+
+      long[] offsets = getOffsets(in, starts);
+
+      LOGGER.debug("Unzipping {} gzip members of {} with {} threads", new Object[] {
+          starts.size(), source, parallelism});
+
+      boolean isUnzipped = false;
+      try (FileChannel out =
+          FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING)) {
+
+        Set<Long> falseStarts = inflateShares(in, out, starts, offsets, 0);
+        if (!falseStarts.isEmpty()) {
+
+          // every write at or after the member holding the first false header may be misplaced
+          long firstFalseStart = Collections.min(falseStarts);
+          starts.removeAll(falseStarts);
+          offsets = getOffsets(in, starts);
+          int from = -Collections.binarySearch(starts, firstFalseStart) - 2;
+          LOGGER.debug("Unzipping {} again from offset {}, after {} false gzip headers",
+              new Object[] {source, starts.get(from), falseStarts.size()});
+
+          if (!inflateShares(in, out, starts, offsets, from).isEmpty())
+            throw new ZipException("False gzip headers after offset " + starts.get(from));
+        }
+
+        // members written at the offsets of a false header may have extended the file
+        out.truncate(offsets[starts.size()]);
+        isUnzipped = true;
+      } catch (ZipException e) {
+        LOGGER.debug("Cannot split {} into gzip members: {}", source, e.getMessage());
+      } finally {
+        if (!isUnzipped)
+          Files.deleteIfExists(target);
+      }
+      return isUnzipped;
+    }
+  }
+
+  /**
+   * <p>
+   * Scans the file for gzip headers, and returns their offsets
+   * </p>
+   */
+  private List<Long> findMembers(FileChannel in) throws IOException {
+
+    List<Long> starts = new ArrayList<>();
+    long fileSize = in.size();
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    byte[] bytes = buffer.array();
+
+    // consecutive reads overlap by the bytes which are checked after a match
+    long position = 0;
+    while (position < fileSize) {
+      buffer.clear();
+      int length = readFully(in, buffer, position);
+      int last = position + length >= fileSize ? length : length - HEADER_SIZE;
+      for (int i = 0; i < last; i++) {
+        long start = position + i;
+        if (isHeader(bytes, i, length) && (start == 0 || start >= HEADER_SIZE + TRAILER_SIZE))
+          starts.add(start);
+      }
+      position += last;
+    }
+    return starts;
+  }
+
+  /**
+   * <p>
+   * Returns the offset of the contents of each member in the unzipped file, from the size in the
+   * trailer before the next member, followed by the size of the unzipped file
+   * </p>
+   */
+  private static long[] getOffsets(FileChannel in, List<Long> starts) throws IOException {
+
+    long[] offsets = new long[starts.size() + 1];
+    ByteBuffer size = ByteBuffer.allocate(4);
+    for (int i = 0; i < starts.size(); i++) {
+      long end = i + 1 < starts.size() ? starts.get(i + 1) : in.size();
+      size.clear();
+      readFully(in, size, end - 4);
+      offsets[i + 1] = offsets[i] + readInt(size.array(), 0);
+    }
+    return offsets;
+  }
+
+  /**
+   * <p>
+   * Checks the fixed part of a gzip header: the magic bytes, the deflate method, and no reserved
+   * flags
+   * </p>
+   */
+  private static boolean isHeader(byte[] bytes, int off, int length) {
+    return off + HEADER_SIZE <= length && bytes[off] == (byte) 0x1f && bytes[off + 1] == (byte) 0x8b
+        && bytes[off + 2] == 8 && (bytes[off + 3] & RESERVED_FLAGS) == 0;
+  }
+
+  /**
+   * <p>
+   * Inflates the members, from the one at the index on, on the thread pool, in contiguous shares of
+   * about the same compressed size. Returns the headers which were found to be false matches inside
+   * other members
+   * </p>
+   *
+   * @throws ZipException If a member fails the checks, and is not a false match
+   */
+  private Set<Long> inflateShares(FileChannel in, FileChannel out, List<Long> starts,
+      long[] offsets, int from) throws IOException {
+
+    long fileSize = in.size();
+    long shareSize =
+        Math.max((fileSize - starts.get(from)) / (parallelism * SHARES_PER_THREAD), 1);
+    Set<Long> falseStarts = ConcurrentHashMap.newKeySet();
+    Set<Long> failedStarts = ConcurrentHashMap.newKeySet();
+
+    // the other shares stop at their next member once one has failed
+    AtomicBoolean isFailed = new AtomicBoolean();
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    try {
+      List<Future<?>> shares = new ArrayList<>();
+      int first = from;
+      while (first < starts.size()) {
+        int last = first;
+        long shareEnd = starts.get(first) + shareSize;
+        while (last + 1 < starts.size() && starts.get(last + 1) < shareEnd) {
+          last++;
+        }
+
+        int shareFrom = first;
+        int to = last;
+        shares.add(executor.submit(() -> {
+          try {
+            inflateMembers(in, out, starts, offsets, shareFrom, to, falseStarts, failedStarts,
+                isFailed);
+          } catch (IOException | RuntimeException e) {
+            isFailed.set(true);
+            throw e;
+          }
+          return null;
+        }));
+        first = last + 1;
+      }
+
+      for (Future<?> share : shares) {
+        share.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while unzipping", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException)
+        throw (IOException) e.getCause();
+      throw new IOException(e.getCause());
+    } finally {
+      // interrupting a thread would close the channels it reads and writes
+      executor.shutdown();
+      awaitTermination(executor);
+    }
+
+    for (Long start : failedStarts) {
+      if (!falseStarts.contains(start))
+        throw new ZipException("Corrupt gzip member at offset " + start);
+    }
+    return falseStarts;
+  }
+
+  private static void awaitTermination(ExecutorService executor) throws IOException {
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while unzipping", e);
+    }
+  }
+
+  /**
+   * <p>
+   * Inflates the members from first to last, both inclusive, into their offsets. A member which
+   * runs past the headers after it records them as false, and the share goes on after the member.
+   * A header where no member can be inflated is recorded as failed, and the share goes on with the
+   * next header
+   * </p>
+   */
+  private void inflateMembers(FileChannel in, FileChannel out, List<Long> starts,
+      long[] offsets, int first, int last, Set<Long> falseStarts, Set<Long> failedStarts,
+      AtomicBoolean isFailed) throws IOException {
+
+    Inflater inflater = new Inflater(true);
+    byte[] output = new byte[BUFFER_SIZE];
+    ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE);
+
+    try {
+      int i = first;
+      while (i <= last && !isFailed.get()) {
+
+        int next;
+        try {
+          next = inflateMember(in, out, starts, offsets, i, inflater, input, output);
+        } catch (ZipException e) {
+          LOGGER.debug("No gzip member at offset {}: {}", starts.get(i), e.getMessage());
+          failedStarts.add(starts.get(i));
+          i++;
+          continue;
+        }
+
+        for (int j = i + 1; j < next; j++) {
+          falseStarts.add(starts.get(j));
+        }
+        i = next;
+      }
+    } finally {
+      inflater.end();
+    }
+  }
+
+  /**
+   * <p>
+   * Inflates the member at the header into its offset, and checks its CRC32 and size. Returns the
+   * index of the header which follows the member, or the number of headers after the last member
+   * </p>
+   *
+   * @throws ZipException If no member can be inflated at the header
+   */
+  private int inflateMember(FileChannel in, FileChannel out, List<Long> starts, long[] offsets,
+      int i, Inflater inflater, ByteBuffer input, byte[] output) throws IOException {
+
+    long fileSize = in.size();
+    long start = starts.get(i);
+    int next = i + 1;
+    long end = next < starts.size() ? starts.get(next) : fileSize;
+    inflater.reset();
+    CRC32 crc = new CRC32();
+
+    // the header of the member
+    input.clear();
+    input.limit((int) Math.min(input.capacity(), end - start));
+    int length = readFully(in, input, start);
+    int headerLength = getHeaderLength(input.array(), length);
+    if (headerLength < 0)
+      throw new ZipException("Invalid gzip header at offset " + start);
+    inflater.setInput(input.array(), headerLength, length - headerLength);
+    long position = start + length;
+
+    long outPosition = offsets[i];
+    long outLimit = offsets[offsets.length - 1];
+    while (!inflater.finished()) {
+
+      if (inflater.needsInput()) {
+
+        // a member which runs past the next header holds it as a false match
+        while (position >= end) {
+          if (next == starts.size())
+            throw new ZipException("Gzip member at offset " + start + " runs past the file");
+          next++;
+          end = next < starts.size() ? starts.get(next) : fileSize;
+        }
+        input.clear();
+        input.limit((int) Math.min(input.capacity(), end - position));
+        length = readFully(in, input, position);
+        inflater.setInput(input.array(), 0, length);
+        position += length;
+      }
+
+      int inflated;
+      try {
+        inflated = inflater.inflate(output);
+      } catch (DataFormatException e) {
+        throw new ZipException("Corrupt gzip member at offset " + start + ": " + e.getMessage());
+      }
+      if (inflated == 0 && inflater.needsDictionary())
+        throw new ZipException("Unsupported gzip member at offset " + start);
+
+      if (outPosition + inflated > outLimit)
+        throw new ZipException("Size mismatch in gzip member at offset " + start);
+      crc.update(output, 0, inflated);
+      ByteBuffer contents = ByteBuffer.wrap(output, 0, inflated);
+      while (contents.hasRemaining()) {
+        outPosition += out.write(contents, outPosition);
+      }
+    }
+
+    // the trailer must end where one of the next members starts, or at the end of the file
+    long trailerEnd = position - inflater.getRemaining() + TRAILER_SIZE;
+    while (next < starts.size() && starts.get(next) < trailerEnd) {
+      next++;
+    }
+    if (trailerEnd != (next < starts.size() ? starts.get(next) : fileSize))
+      throw new ZipException("Gzip member at offset " + start + " does not end at a member");
+
+    ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+    readFully(in, trailer, trailerEnd - TRAILER_SIZE);
+    if (readInt(trailer.array(), 0) != crc.getValue())
+      throw new ZipException("CRC mismatch in gzip member at offset " + start);
+    if (readInt(trailer.array(), 4) != ((outPosition - offsets[i]) & 0xffffffffL))
+      throw new ZipException("Size mismatch in gzip member at offset " + start);
+    return next;
+  }
+
+  /**
+   * <p>
+   * Returns the length of the gzip header at the start of the bytes, or -1 if it is not complete
+   * </p>
+   */
+  private static int getHeaderLength(byte[] header, int length) {
+
+    if (!isHeader(header, 0, length))
+      return -1;
+
+    int flags = header[3] & 0xff;
+    int headerLength = HEADER_SIZE;
+    if ((flags & FEXTRA) != 0) {
+      if (length < headerLength + 2)
+        return -1;
+      headerLength += 2 + readShort(header, headerLength);
+    }
+    if ((flags & FNAME) != 0)
+      headerLength = skipString(header, headerLength, length);
+    if (headerLength > 0 && (flags & FCOMMENT) != 0)
+      headerLength = skipString(header, headerLength, length);
+    if (headerLength > 0 && (flags & FHCRC) != 0)
+      headerLength += 2;
+    return headerLength <= length ? headerLength : -1;
+  }
+
+  private static int skipString(byte[] header, int start, int length) {
+    for (int i = start; i < length; i++) {
+      if (header[i] == 0)
+        return i + 1;
+    }
+    return -1;
+  }
+
+  /**
+   * <p>
+   * Reads from the position until the buffer is full or the end of the file is reached
+   * </p>
+   */
+  private static int readFully(FileChannel in, ByteBuffer buffer, long position)
+      throws IOException {
+    int total = 0;
+    while (buffer.hasRemaining()) {
+      int bytesRead = in.read(buffer, position + total);
+      if (bytesRead == -1)
+        break;
+      total += bytesRead;
+    }
+    return total;
+  }
+
+  private static int readShort(byte[] bytes, int off) {
+    return (bytes[off] & 0xff) | ((bytes[off + 1] & 0xff) << 8);
+  }
+
+  private static long readInt(byte[] bytes, int off) {
+    return ((long) readShort(bytes, off + 2) << 16) | readShort(bytes, off);
+  }
+}
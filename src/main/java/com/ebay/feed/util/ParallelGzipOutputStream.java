@@ -0,0 +1,218 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import com.ebay.feed.constants.Constants;
+
+/**
+ * <p>
+ * Gzips a stream on a pool of threads, in the way pigz does. The stream is cut into blocks, each
+ * block is compressed into a gzip member of its own, and the members are written in order. The
+ * output is a standard gzip file, which any gzip reader unzips as the concatenation of the
+ * blocks, and which ParallelGunzip can unzip on several threads again.
+ * </p>
+ * <p>
+ * Blocks are compressed without the contents of the previous block as a dictionary, which costs
+ * a little compression, well under 1% with blocks of 1 MB. The number of blocks compressed or
+ * waiting to be written is bounded, so that a slow output holds back the writer.
+ * </p>
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+  private static final byte[] HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+  private final OutputStream out;
+  private final int blockSize;
+  private final int maxPending;
+  private final ExecutorService executor;
+  private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+  private final BlockingQueue<Deflater> deflaters = new LinkedBlockingQueue<>();
+
+  private byte[] block;
+  private int length = 0;
+  private boolean isWritten = false;
+  private boolean isClosed = false;
+
+  /**
+   *
+   * @param out The stream the gzip members are written to, which is closed with this stream
+   * @param parallelism Number of threads which compress the blocks
+   */
+  public ParallelGzipOutputStream(OutputStream out, int parallelism) {
+    this(out, parallelism, Constants.DEFAULT_GZIP_BLOCK_SIZE);
+  }
+
+  /**
+   *
+   * @param out The stream the gzip members are written to, which is closed with this stream
+   * @param parallelism Number of threads which compress the blocks
+   * @param blockSize Bytes compressed into each gzip member
+   */
+  public ParallelGzipOutputStream(OutputStream out, int parallelism, int blockSize) {
+    this.out = out;
+    this.blockSize = blockSize;
+    this.maxPending = 2 * Math.max(parallelism, 1);
+    this.executor = Executors.newFixedThreadPool(Math.max(parallelism, 1));
+    this.block = new byte[blockSize];
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[] {(byte) b}, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+
+    if (isClosed)
+      throw new IOException("Stream closed");
+
+    while (len > 0) {
+      int copied = Math.min(len, blockSize - length);
+      System.arraycopy(b, off, block, length, copied);
+      length += copied;
+      off += copied;
+      len -= copied;
+      if (length == blockSize)
+        submit();
+    }
+  }
+
+  /**
+   * <p>
+   * Writes the members compressed so far. The block being filled is not cut short, so that
+   * flushing does not make the members smaller
+   * </p>
+   */
+  @Override
+  public void flush() throws IOException {
+    while (!pending.isEmpty() && pending.peekFirst().isDone()) {
+      writeMember();
+    }
+    out.flush();
+  }
+
+  /**
+   * <p>
+   * Compresses the last block, writes all the members, and closes the output
+   * </p>
+   */
+  @Override
+  public void close() throws IOException {
+
+    if (isClosed)
+      return;
+    isClosed = true;
+
+    try {
+      // an empty stream is written as an empty member, which is still a valid gzip file
+      if (length > 0 || !isWritten)
+        submit();
+      while (!pending.isEmpty()) {
+        writeMember();
+      }
+    } finally {
+      try {
+        out.close();
+      } finally {
+        executor.shutdownNow();
+        Deflater deflater;
+        while ((deflater = deflaters.poll()) != null) {
+          deflater.end();
+        }
+      }
+    }
+  }
+
+  private void submit() throws IOException {
+
+    byte[] contents = block;
+    int contentsLength = length;
+    pending.addLast(executor.submit(() -> compress(contents, contentsLength)));
+    isWritten = true;
+    block = new byte[blockSize];
+    length = 0;
+
+    while (pending.size() > maxPending || (!pending.isEmpty() && pending.peekFirst().isDone())) {
+      writeMember();
+    }
+  }
+
+  private void writeMember() throws IOException {
+    try {
+      out.write(pending.removeFirst().get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while compressing");
+    } catch (ExecutionException e) {
+      throw new IOException("Error while compressing", e.getCause());
+    }
+  }
+
+  /**
+   * <p>
+   * Compresses a block into a gzip member
+   * </p>
+   */
+  private byte[] compress(byte[] contents, int contentsLength) {
+
+    Deflater deflater = deflaters.poll();
+    if (deflater == null)
+      deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+    try {
+      ByteArrayOutputStream member = new ByteArrayOutputStream(contentsLength / 4 + 64);
+      member.write(HEADER, 0, HEADER.length);
+
+      deflater.setInput(contents, 0, contentsLength);
+      deflater.finish();
+      byte[] buffer = new byte[65536];
+      while (!deflater.finished()) {
+        member.write(buffer, 0, deflater.deflate(buffer));
+      }
+
+      CRC32 crc = new CRC32();
+      crc.update(contents, 0, contentsLength);
+      writeInt(member, (int) crc.getValue());
+      writeInt(member, contentsLength);
+      return member.toByteArray();
+    } finally {
+      deflater.reset();
+      deflaters.offer(deflater);
+    }
+  }
+
+  private static void writeInt(ByteArrayOutputStream out, int value) {
+    out.write(value);
+    out.write(value >>> 8);
+    out.write(value >>> 16);
+    out.write(value >>> 24);
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * <p>
+ * Applies the request and byte rate limiters to every call of an http client. A permit is acquired
+ * before each request is sent, and the response body acquires permits for the bytes as they are
+ * read, so the byte rate holds for downloads that are in progress and not only for new ones.
+ * </p>
+ */
+public class RateLimitInterceptor implements Interceptor {
+
+  // bytes read from the network before permits are acquired for them
+  private static final long MAX_READ = 65536;
+
+  private final RateLimiter requestLimiter;
+  private final RateLimiter byteLimiter;
+
+  /**
+   * 
+   * @param requestLimiter Limiter for the number of requests, or null
+   * @param byteLimiter Limiter for the number of response body bytes, or null
+   */
+  public RateLimitInterceptor(RateLimiter requestLimiter, RateLimiter byteLimiter) {
+    this.requestLimiter = requestLimiter;
+    this.byteLimiter = byteLimiter;
+  }
+
+  @Override
+  public Response intercept(Chain chain) throws IOException {
+
+    if (requestLimiter != null)
+      acquire(requestLimiter, 1);
+
+    Response response = chain.proceed(chain.request());
+    if (byteLimiter == null || response.body() == null)
+      return response;
+
+    return response.newBuilder().body(new LimitedResponseBody(response.body())).build();
+  }
+
+  private static void acquire(RateLimiter limiter, long permits) throws IOException {
+    try {
+      limiter.acquire(permits);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the rate limiter");
+    }
+  }
+
+  private class LimitedResponseBody extends ResponseBody {
+
+    private final ResponseBody body;
+    private final BufferedSource source;
+
+    LimitedResponseBody(ResponseBody body) {
+      this.body = body;
+      this.source = Okio.buffer(new ForwardingSource(body.source()) {
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+          long bytesRead = super.read(sink, Math.min(byteCount, MAX_READ));
+          if (bytesRead > 0)
+            acquire(byteLimiter, bytesRead);
+          return bytesRead;
+        }
+      });
+    }
+
+    @Override
+    public MediaType contentType() {
+      return body.contentType();
+    }
+
+    @Override
+    public long contentLength() {
+      return body.contentLength();
+    }
+
+    @Override
+    public BufferedSource source() {
+      return source;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.util;
+
+/**
+ * <p>
+ * Budget for the http calls made by the SDK. The request limiter is asked for one permit before
+ * every call, and the byte limiter for one permit per byte of every response body that is read.
+ * One limiter is shared by all the calls, and all the concurrent downloads, of an http client.
+ * </p>
+ */
+public interface RateLimiter {
+
+  /**
+   * <p>
+   * Blocks until the permits are available
+   * </p>
+   * 
+   * @param permits Number of permits, requests or bytes
+   * @throws InterruptedException If the thread is interrupted while waiting
+   */
+  public void acquire(long permits) throws InterruptedException;
+}
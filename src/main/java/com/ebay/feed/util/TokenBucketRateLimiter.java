@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Token bucket which refills at a fixed rate, up to its capacity. A caller takes its permits
+ * straight away, even if that leaves the bucket in debt, and then waits until the debt would have
+ * been refilled. Callers are therefore served in order, and a request for more permits than the
+ * capacity, such as a large read, still completes at the configured rate.
+ * </p>
+ */
+public class TokenBucketRateLimiter implements RateLimiter {
+
+  private final double permitsPerNano;
+  private final double capacity;
+
+  private double available;
+  private long lastRefill;
+
+  /**
+   * 
+   * @param permitsPerSecond Rate at which the bucket refills
+   * @param capacity Max number of permits that can be taken at once after the bucket was idle
+   */
+  public TokenBucketRateLimiter(double permitsPerSecond, double capacity) {
+    if (permitsPerSecond <= 0 || capacity <= 0)
+      throw new IllegalArgumentException("Rate and capacity must be positive");
+    this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+    this.capacity = capacity;
+    this.available = capacity;
+    this.lastRefill = System.nanoTime();
+  }
+
+  @Override
+  public void acquire(long permits) throws InterruptedException {
+    long waitNanos = reserve(permits, System.nanoTime());
+    if (waitNanos > 0)
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+  }
+
+  /**
+   * <p>
+   * Takes the permits from the bucket
+   * </p>
+   * 
+   * @param permits Number of permits
+   * @param now Current time, in nanos
+   * @return long How long the caller has to wait before using the permits, in nanos
+   */
+  synchronized long reserve(long permits, long now) {
+
+    if (now > lastRefill) {
+      available = Math.min(capacity, available + (now - lastRefill) * permitsPerNano);
+      lastRefill = now;
+    }
+
+    available -= permits;
+    return available >= 0 ? 0 : (long) Math.ceil(-available / permitsPerNano);
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import com.ebay.feed.constants.Constants;
+
+/**
+ * <p>
+ * Scans the rows of a feed file as UTF-8 bytes, without decoding them into strings. The rows are
+ * read into a large buffer, and for each row only the bounds of the first columns, up to the last
+ * column which is needed, are found. The bytes of the row and of its columns are then read in
+ * place, from the buffer of the scanner, until the next row is scanned.
+ * </p>
+ * <p>
+ * Rows end with \n or \r\n. A column is present as it would be in the array returned by
+ * String.split on tabs, which drops the empty columns at the end of the row.
+ * </p>
+ */
+public class TsvScanner {
+
+  private static final byte TAB = '\t';
+  private static final byte NEWLINE = '\n';
+  private static final byte CARRIAGE_RETURN = '\r';
+
+  private final InputStream in;
+  private final int columns;
+  private final int[] starts;
+  private final int[] ends;
+
+  private byte[] buffer;
+  private int position = 0;
+  private int limit = 0;
+  private boolean isEnded = false;
+
+  private int rowStart;
+  private int rowEnd;
+  private int columnCount;
+  private boolean hasTab;
+
+  /**
+   *
+   * @param in Stream of the unzipped feed file
+   * @param columns Number of columns whose bounds are found, from the first one
+   */
+  public TsvScanner(InputStream in, int columns) {
+    this(in, columns, Constants.DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   *
+   * @param in Stream of the unzipped feed file
+   * @param columns Number of columns whose bounds are found, from the first one
+   * @param bufferSize Initial size of the buffer, which grows for longer rows
+   */
+  public TsvScanner(InputStream in, int columns, int bufferSize) {
+    this.in = in;
+    this.columns = Math.max(columns, 1);
+    this.starts = new int[this.columns];
+    this.ends = new int[this.columns];
+    this.buffer = new byte[bufferSize];
+  }
+
+  /**
+   * <p>
+   * Scans the next row
+   * </p>
+   *
+   * @return boolean False at the end of the stream
+   * @throws IOException If the stream cannot be read
+   */
+  public boolean next() throws IOException {
+
+    int searched = position;
+    while (true) {
+      for (int i = searched; i < limit; i++) {
+        if (buffer[i] == NEWLINE) {
+          scan(position, i);
+          position = i + 1;
+          return true;
+        }
+      }
+      searched = limit;
+
+      if (isEnded) {
+        if (position == limit)
+          return false;
+        scan(position, limit);
+        position = limit;
+        return true;
+      }
+      searched -= fill();
+    }
+  }
+
+  /**
+   * @return byte[] Buffer holding the row, valid until the next row is scanned
+   */
+  public byte[] getBuffer() {
+    return buffer;
+  }
+
+  /**
+   * @return int Offset of the row in the buffer
+   */
+  public int getRowStart() {
+    return rowStart;
+  }
+
+  /**
+   * @return int Offset of the end of the row in the buffer, without the line separator
+   */
+  public int getRowEnd() {
+    return rowEnd;
+  }
+
+  /**
+   * @param column Column, lower than the number of columns of the scanner
+   * @return boolean Indicates whether the row has the column, as String.split would
+   */
+  public boolean hasColumn(int column) {
+
+    // without any tab, the row is a single column, even if it is empty
+    if (!hasTab)
+      return column == 0;
+    if (column >= columnCount)
+      return false;
+
+    // the column is dropped by String.split if it and all the columns after it are empty
+    for (int i = starts[column]; i < rowEnd; i++) {
+      if (buffer[i] != TAB)
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * @param column Column, lower than the number of columns of the scanner
+   * @return int Offset of the column in the buffer
+   */
+  public int getColumnStart(int column) {
+    return starts[column];
+  }
+
+  /**
+   * @param column Column, lower than the number of columns of the scanner
+   * @return int Offset of the end of the column in the buffer
+   */
+  public int getColumnEnd(int column) {
+    return ends[column];
+  }
+
+  /**
+   * <p>
+   * Finds the bounds of the columns of the row, up to the number of columns of the scanner
+   * </p>
+   */
+  private void scan(int start, int end) {
+
+    if (end > start && buffer[end - 1] == CARRIAGE_RETURN)
+      end--;
+    rowStart = start;
+    rowEnd = end;
+    hasTab = false;
+
+    int column = 0;
+    starts[0] = start;
+    for (int i = start; i < end; i++) {
+      if (buffer[i] == TAB) {
+        hasTab = true;
+        ends[column++] = i;
+        if (column == columns)
+          break;
+        starts[column] = i + 1;
+      }
+    }
+    if (column < columns)
+      ends[column++] = end;
+    columnCount = column;
+  }
+
+  /**
+   * <p>
+   * Moves the partial row to the start of the buffer, growing the buffer if the row fills it, and
+   * reads more bytes after it. Returns the number of bytes the partial row moved by
+   * </p>
+   */
+  private int fill() throws IOException {
+
+    int moved = position;
+    if (position > 0) {
+      System.arraycopy(buffer, position, buffer, 0, limit - position);
+      limit -= position;
+      position = 0;
+    }
+    if (limit == buffer.length)
+      buffer = Arrays.copyOf(buffer, buffer.length * 2);
+
+    int bytesRead = in.read(buffer, limit, buffer.length - limit);
+    if (bytesRead == -1)
+      isEnded = true;
+    else
+      limit += bytesRead;
+    return moved;
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * <p>
+ * Set of strings, encoded as UTF-8, which is looked up with a range of bytes, so that the columns
+ * of a feed file are compared with the filters without being decoded into strings
+ * </p>
+ */
+final class Utf8StringSet {
+
+  private final byte[][] table;
+  private final int mask;
+
+  /**
+   *
+   * @param strings Strings in the set
+   */
+  Utf8StringSet(Set<String> strings) {
+
+    int capacity = Integer.highestOneBit(Math.max(strings.size(), 1) * 4);
+    table = new byte[capacity][];
+    mask = capacity - 1;
+
+    for (String string : strings) {
+      byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+      if (!contains(bytes, 0, bytes.length))
+        table[find(bytes, 0, bytes.length)] = bytes;
+    }
+  }
+
+  /**
+   *
+   * @param bytes Buffer holding the string
+   * @param start Offset of the string in the buffer
+   * @param end Offset of the end of the string in the buffer
+   * @return boolean Indicates whether the string is in the set
+   */
+  boolean contains(byte[] bytes, int start, int end) {
+    return table[find(bytes, start, end - start)] != null;
+  }
+
+  /**
+   * <p>
+   * Finds the slot of the string, or the empty slot it would be added to
+   * </p>
+   */
+  private int find(byte[] bytes, int start, int length) {
+
+    int hash = 0;
+    for (int i = start; i < start + length; i++) {
+      hash = 31 * hash + bytes[i];
+    }
+    hash ^= hash >>> 16;
+
+    for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+      byte[] entry = table[slot];
+      if (entry == null || equals(entry, bytes, start, length))
+        return slot;
+    }
+  }
+
+  private static boolean equals(byte[] entry, byte[] bytes, int start, int length) {
+
+    if (entry.length != length)
+      return false;
+    for (int i = 0; i < length; i++) {
+      if (entry[i] != bytes[start + i])
+        return false;
+    }
+    return true;
+  }
+}
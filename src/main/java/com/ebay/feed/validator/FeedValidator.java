@@ -14,10 +14,18 @@
 
 package com.ebay.feed.validator;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ebay.feed.model.feed.operation.feed.FeedRequest;
 import com.ebay.feed.model.feed.operation.filter.FeedFilterRequest;
+import com.ebay.feed.storage.LocalStorage;
+import com.ebay.feed.storage.Storage;
 
 /**
  * <p>
@@ -29,6 +37,19 @@ import com.ebay.feed.model.feed.operation.filter.FeedFilterRequest;
  */
 public class FeedValidator {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(FeedValidator.class);
+  private Storage storage = new LocalStorage();
+
+  public FeedValidator() {}
+
+  /**
+   * 
+   * @param storage Storage the unzipped files are read from, which holds the input of the filters
+   */
+  public FeedValidator(Storage storage) {
+    this.storage = storage;
+  }
+
   /**
    * Check path validity
    * 
@@ -47,7 +68,25 @@ public class FeedValidator {
 
   /**
    * <p>
-   * Check feed filter request
+   * Check feed request
+   * </p>
+   * 
+   * @param feedRequest Container for capturing parameters related to downloading feed files
+   * @return boolean Indicates whether all the mandatory parameters are present
+   */
+  public boolean isValidFeedRequest(FeedRequest feedRequest) {
+
+    if (feedRequest == null)
+      return false;
+
+    return feedRequest.getToken() != null && feedRequest.getType() != null
+        && feedRequest.getCategoryId() != null && feedRequest.getMarketplaceId() != null;
+  }
+
+  /**
+   * <p>
+   * Check feed filter request. The input file is looked up on local disk, where gzipped feed files
+   * always are, and else in the storage, where unzipped files are
    * </p>
    * 
    * @param filterRequest Container for capturing parameters related to filtering the feed files
@@ -61,9 +100,38 @@ public class FeedValidator {
     if (filterRequest.getInputFilePath() == null || filterRequest.getInputFilePath().isEmpty())
       return false;
 
-    Path path = Paths.get(filterRequest.getInputFilePath());
+    if (!isExistingInput(filterRequest.getInputFilePath()))
+      return false;
+
+    return isValidFilterCriteria(filterRequest);
+  }
+
+  private boolean isExistingInput(String inputFilePath) {
+
+    if (Files.exists(Paths.get(inputFilePath)))
+      return true;
+
+    try {
+      return storage.exists(inputFilePath);
+    } catch (IOException e) {
+      LOGGER.error("Exception while checking {} in the storage", inputFilePath, e);
+      return false;
+    }
+  }
+
+  /**
+   * <p>
+   * Check the filter criteria of a feed filter request, without an input file. Used when the feed
+   * file is filtered while it is being downloaded
+   * </p>
+   * 
+   * @param filterRequest Container for capturing parameters related to filtering the feed files
+   * @return boolean Indicates whether at least one filter, and the parameters mandatory for it, are
+   *         present
+   */
+  public boolean isValidFilterCriteria(FeedFilterRequest filterRequest) {
 
-    if (!Files.exists(path))
+    if (filterRequest == null)
       return false;
 
     if (filterRequest.isEmpty())
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.api;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ebay.feed.model.client.ClientConfig;
+import com.ebay.feed.model.feed.download.DownloadConfig;
+import com.ebay.feed.model.feed.operation.filter.FeedFilterRequest;
+import com.ebay.feed.model.feed.operation.filter.Response;
+import com.ebay.feed.storage.InMemoryStorage;
+
+public class FeedImplTest {
+
+  @Test
+  public void filterGzippedTest() throws Exception {
+
+    Path directory = Files.createTempDirectory("feed");
+    Path gzipped = directory.resolve("item_bootstrap-1-20181016-EBAY_US.gz");
+
+    StringBuilder feed = new StringBuilder("ItemId\tTitle\tCategory\n");
+    for (int i = 0; i < 50000; i++) {
+      feed.append(i).append("\ttitle ").append(i * 7919 % 10007).append('\t').append(i % 5)
+          .append('\n');
+    }
+    try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzipped))) {
+      out.write(feed.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    FeedFilterRequest filterRequest = new FeedFilterRequest();
+    filterRequest.setInputFilePath(gzipped.toString());
+    filterRequest.setItemIds(Collections.singleton("42000"));
+
+    Response response = new FeedImpl().filter(filterRequest);
+
+    Assert.assertEquals(Integer.valueOf(0), response.getStatusCode());
+    Path filtered = Paths.get(response.getFilePath());
+    Assert.assertTrue(filtered.getFileName().toString()
+        .startsWith("item_bootstrap-1-20181016-EBAY_US-filtered-"));
+    List<String> lines = Files.readAllLines(filtered);
+    Assert.assertEquals(2, lines.size());
+    Assert.assertEquals("42000\ttitle " + 42000 * 7919 % 10007 + "\t0", lines.get(1));
+
+    // the unzipped file is never created
+    Assert.assertFalse(Files.exists(directory.resolve("item_bootstrap-1-20181016-EBAY_US")));
+
+    Files.delete(filtered);
+    Files.delete(gzipped);
+    Files.delete(directory);
+  }
+
+  @Test
+  public void unzipAndFilterInMemoryTest() throws Exception {
+
+    Path directory = Files.createTempDirectory("feed");
+    Path gzipped = directory.resolve("item_bootstrap-1-20181016-EBAY_US.gz");
+
+    StringBuilder feed = new StringBuilder("ItemId\tTitle\tCategory\n");
+    for (int i = 0; i < 1000; i++) {
+      feed.append(i).append("\ttitle ").append(i).append('\t').append(i % 5).append('\n');
+    }
+    try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzipped))) {
+      out.write(feed.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    InMemoryStorage storage = new InMemoryStorage();
+    FeedImpl feedImpl =
+        new FeedImpl(new DownloadConfig.DownloadConfigBuilder().build(),
+            new ClientConfig.ClientConfigBuilder().build(), storage);
+
+    // the unzipped file is only in the storage
+    Response unzipResponse = feedImpl.unzip(gzipped.toString());
+    Assert.assertEquals(Integer.valueOf(0), unzipResponse.getStatusCode());
+    Assert.assertFalse(Files.exists(Paths.get(unzipResponse.getFilePath())));
+
+    FeedFilterRequest filterRequest = new FeedFilterRequest();
+    filterRequest.setInputFilePath(unzipResponse.getFilePath());
+    filterRequest.setItemIds(Collections.singleton("42"));
+
+    Response response = feedImpl.filter(filterRequest);
+
+    Assert.assertEquals(Integer.valueOf(0), response.getStatusCode());
+    Assert.assertFalse(Files.exists(Paths.get(response.getFilePath())));
+    String[] lines =
+        new String(storage.get(response.getFilePath()), StandardCharsets.UTF_8).split("\n");
+    Assert.assertEquals(2, lines.length);
+    Assert.assertEquals("42\ttitle 42\t2", lines[1].trim());
+
+    Files.delete(gzipped);
+    Files.delete(directory);
+  }
+}
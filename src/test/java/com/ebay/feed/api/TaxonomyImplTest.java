@@ -0,0 +1,41 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.api;
+
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TaxonomyImplTest {
+
+  @Test
+  public void readLevelOneCategoriesTest() throws Exception {
+
+    String tree =
+        "{\"categoryTreeId\":\"0\",\"categoryTreeVersion\":\"119\",\"rootCategoryNode\":{"
+            + "\"category\":{\"categoryId\":\"0\",\"categoryName\":\"Root\"},"
+            + "\"categoryTreeNodeLevel\":0,\"childCategoryTreeNodes\":["
+            + "{\"category\":{\"categoryId\":\"20081\",\"categoryName\":\"Antiques\"},"
+            + "\"categoryTreeNodeLevel\":1,\"childCategoryTreeNodes\":["
+            + "{\"category\":{\"categoryId\":\"37903\"},\"leafCategoryTreeNode\":true}]},"
+            + "{\"categoryTreeNodeLevel\":1,\"category\":{\"categoryName\":\"Art\","
+            + "\"categoryId\":\"550\"},\"leafCategoryTreeNode\":false}]}}";
+
+    Assert.assertEquals(Arrays.asList("20081", "550"),
+        TaxonomyImpl.readLevelOneCategories(new StringReader(tree)));
+  }
+}
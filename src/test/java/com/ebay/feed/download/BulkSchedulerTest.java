@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BulkSchedulerTest {
+
+  OkHttpClient client = new OkHttpClient();
+
+  @Test
+  public void probeSizesTest() throws Exception {
+
+    RangeServer closed = new RangeServer(new byte[1]);
+    String closedUrl = closed.url();
+    closed.close();
+
+    try (RangeServer small = new RangeServer(new byte[10]);
+        RangeServer large = new RangeServer(new byte[1000])) {
+
+      Map<String, Request> requests = new LinkedHashMap<>();
+      requests.put("1", new Request.Builder().url(small.url()).build());
+      requests.put("2", new Request.Builder().url(large.url()).build());
+      requests.put("3", new Request.Builder().url(closedUrl).build());
+
+      Map<String, Long> sizes = new BulkScheduler(client, 2).probeSizes(requests).get();
+      Assert.assertEquals(Long.valueOf(10), sizes.get("1"));
+      Assert.assertEquals(Long.valueOf(1000), sizes.get("2"));
+      Assert.assertEquals(Long.valueOf(-1), sizes.get("3"));
+      Assert.assertEquals(Arrays.asList("2", "1", "3"), BulkScheduler.largestFirst(sizes));
+    }
+  }
+
+  @Test
+  public void largestFirstTest() throws Exception {
+
+    Map<String, Long> sizes = new HashMap<>();
+    sizes.put("a", 5L);
+    sizes.put("b", 50L);
+    sizes.put("c", 500L);
+
+    List<String> started = Collections.synchronizedList(new ArrayList<String>());
+    Map<String, String> results =
+        new BulkScheduler(client, 1).schedule(sizes, key -> {
+          started.add(key);
+          return CompletableFuture.completedFuture(key.toUpperCase());
+        }).get();
+
+    Assert.assertEquals(Arrays.asList("c", "b", "a"), started);
+    Assert.assertEquals(Arrays.asList("c", "b", "a"), new ArrayList<>(results.keySet()));
+    Assert.assertEquals("B", results.get("b"));
+  }
+
+  @Test
+  public void concurrencyLimitTest() throws Exception {
+
+    Map<String, Long> sizes = new HashMap<>();
+    for (int i = 0; i < 10; i++) {
+      sizes.put(String.valueOf(i), (long) i);
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(10);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+
+    try {
+      Map<String, Integer> results =
+          new BulkScheduler(client, 3).schedule(sizes, key -> CompletableFuture.supplyAsync(() -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+              Thread.sleep(20);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            return Integer.valueOf(key);
+          }, executor)).get();
+
+      Assert.assertEquals(10, results.size());
+      Assert.assertEquals(Integer.valueOf(9), results.values().iterator().next());
+      Assert.assertTrue(maxRunning.get() <= 3);
+      Assert.assertTrue(maxRunning.get() > 1);
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
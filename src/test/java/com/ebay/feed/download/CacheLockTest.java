@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CacheLockTest {
+
+  @Test
+  public void waitForLockTest() throws Exception {
+
+    Path directory = Files.createTempDirectory("feed");
+    Path pathToFile = directory.resolve("item-1-20181016-EBAY_US.gz");
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    try {
+      CacheLock lock = CacheLock.acquire(pathToFile);
+      CountDownLatch acquired = new CountDownLatch(1);
+      Future<?> waiter = executor.submit(() -> {
+        try (CacheLock other = CacheLock.acquire(pathToFile)) {
+          Assert.assertNotNull(other);
+          acquired.countDown();
+        }
+        return null;
+      });
+
+      Assert.assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+      lock.close();
+      Assert.assertTrue(acquired.await(5, TimeUnit.SECONDS));
+      waiter.get();
+
+      // released twice without effect
+      lock.close();
+      try (CacheLock again = CacheLock.acquire(pathToFile)) {
+        Assert.assertNotNull(again);
+      }
+    } finally {
+      executor.shutdownNow();
+      Files.deleteIfExists(CacheLock.getLockPath(pathToFile));
+      Files.delete(directory);
+    }
+  }
+
+  @Test
+  public void publishTest() throws Exception {
+
+    Path directory = Files.createTempDirectory("feed");
+    Path pathToFile = directory.resolve("item-1-null-EBAY_US.gz");
+    Path target = directory.resolve("item-1-20181016-EBAY_US.gz");
+
+    try (CacheLock lock = CacheLock.acquire(pathToFile)) {
+      Files.write(target, "old".getBytes(StandardCharsets.UTF_8));
+      Files.write(lock.getTempPath(), "new".getBytes(StandardCharsets.UTF_8));
+
+      lock.publish(target);
+
+      Assert.assertFalse(Files.exists(lock.getTempPath()));
+      Assert.assertEquals("new", new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+    } finally {
+      Files.deleteIfExists(target);
+      Files.deleteIfExists(CacheLock.getLockPath(pathToFile));
+      Files.delete(directory);
+    }
+  }
+}
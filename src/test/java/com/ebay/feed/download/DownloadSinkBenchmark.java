@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import com.ebay.feed.constants.Constants;
+import com.ebay.feed.model.feed.operation.internal.ByteRange;
+
+/**
+ * <p>
+ * Compares the append-and-copy loop, which reopens the file for every range and copies through a
+ * 1 KB array, against the {@link DownloadSink}. Both download the same file in ranges from a local
+ * {@link RangeServer}. Not run as part of the tests.
+ * </p>
+ *
+ * <pre>
+ * java -cp &lt;test classpath&gt; com.ebay.feed.download.DownloadSinkBenchmark [sizeInMB] [chunkInMB]
+ * </pre>
+ */
+public class DownloadSinkBenchmark {
+
+  private static final int ROUNDS = 5;
+
+  public static void main(String[] args) throws Exception {
+
+    int size = (args.length > 0 ? Integer.parseInt(args[0]) : 256) * 1024 * 1024;
+    long chunkSize = (args.length > 1 ? Long.parseLong(args[1]) : 16) * 1024 * 1024;
+
+    byte[] content = new byte[size];
+    new Random(0).nextBytes(content);
+
+    OkHttpClient client = new OkHttpClient();
+    Path path = Files.createTempFile("feed", ".gz");
+
+    try (RangeServer server = new RangeServer(content)) {
+
+      Request request = new Request.Builder().url(server.url()).build();
+
+      for (int round = 0; round < ROUNDS; round++) {
+
+        Files.write(path, new byte[0]);
+        long start = System.nanoTime();
+        appendLoop(client, request, path, size, chunkSize);
+        report("append loop", size, start);
+
+        Files.write(path, new byte[0]);
+        start = System.nanoTime();
+        sink(client, request, path, size, chunkSize);
+        report("download sink", size, start);
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  private static void appendLoop(OkHttpClient client, Request request, Path path, long total,
+      long chunkSize) throws Exception {
+
+    RangePlanner planner = new RangePlanner(0, total, chunkSize);
+    ByteRange range = null;
+    while ((range = planner.next()) != null) {
+      try (Response response = client.newCall(rangeRequest(request, range)).execute()) {
+        InputStream is = response.body().byteStream();
+        OutputStream outStream = new FileOutputStream(path.toString(), true);
+        byte[] buffer = new byte[1024];
+        int bytesRead;
+        while ((bytesRead = is.read(buffer)) != -1) {
+          outStream.write(buffer, 0, bytesRead);
+        }
+        outStream.flush();
+        outStream.close();
+        is.close();
+      }
+    }
+  }
+
+  private static void sink(OkHttpClient client, Request request, Path path, long total,
+      long chunkSize) throws Exception {
+
+    RangePlanner planner = new RangePlanner(0, total, chunkSize);
+    try (DownloadSink sink = new DownloadSink(path, Constants.DEFAULT_BUFFER_SIZE)) {
+      ByteRange range = null;
+      while ((range = planner.next()) != null) {
+        try (Response response = client.newCall(rangeRequest(request, range)).execute()) {
+          sink.write(response.body().source(), range.getStart());
+        }
+      }
+    }
+  }
+
+  private static Request rangeRequest(Request request, ByteRange range) {
+    return request.newBuilder().header(Constants.RANGE_HEADER, range.toHeaderValue()).build();
+  }
+
+  private static void report(String name, long size, long start) {
+    long millis = (System.nanoTime() - start) / 1000000;
+    System.out.println(String.format("%-14s %6d ms %8.1f MB/s", name, millis,
+        (size / 1048576.0) / Math.max(millis, 1) * 1000));
+  }
+}
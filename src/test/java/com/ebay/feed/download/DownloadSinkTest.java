@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DownloadSinkTest {
+
+  @Test
+  public void writeOutOfOrderTest() throws Exception {
+
+    byte[] content = new byte[10000];
+    new Random(1).nextBytes(content);
+    Path path = Files.createTempFile("feed", ".gz");
+
+    // buffer smaller than a range, so each range needs several writes
+    try (DownloadSink sink = new DownloadSink(path, 300)) {
+      Assert.assertEquals(4000, sink.write(source(content, 6000, 10000), 6000));
+      Assert.assertEquals(6000, sink.write(source(content, 0, 6000), 0));
+    }
+
+    Assert.assertArrayEquals(content, Files.readAllBytes(path));
+    Files.delete(path);
+  }
+
+  @Test
+  public void preallocateTest() throws Exception {
+
+    byte[] content = new byte[1000];
+    new Random(2).nextBytes(content);
+    Path path = Files.createTempFile("feed", ".gz");
+
+    try (DownloadSink sink = new DownloadSink(path, 300)) {
+      sink.preallocate(content.length);
+      Assert.assertEquals(content.length, Files.size(path));
+      Assert.assertTrue(sink.getUsableSpace() > 0);
+
+      Assert.assertEquals(500, sink.write(source(content, 500, 1000), 500));
+      Assert.assertEquals(500, sink.write(source(content, 0, 500), 0));
+
+      // never shrinks the file
+      sink.preallocate(10);
+      Assert.assertEquals(content.length, sink.size());
+    }
+
+    Assert.assertArrayEquals(content, Files.readAllBytes(path));
+    Files.delete(path);
+  }
+
+  private ReadableByteChannel source(byte[] content, int from, int to) {
+    return Channels.newChannel(new ByteArrayInputStream(Arrays.copyOfRange(content, from, to)));
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FeedCacheTest {
+
+  OkHttpClient client = new OkHttpClient();
+
+  @Test
+  public void lookupTest() throws Exception {
+
+    byte[] content = new byte[1000];
+    Path directory = Files.createTempDirectory("feed");
+    FeedCache feedCache = new FeedCache(client, 0, 0);
+
+    try (RangeServer server = new RangeServer(content)) {
+
+      Request request = new Request.Builder().url(server.url()).build();
+      FeedCache.Probe probe =
+          feedCache.lookup(request, directory.resolve("item_bootstrap-1-null-EBAY_US.gz"));
+
+      Assert.assertFalse(probe.isFresh());
+      Assert.assertEquals(1000, probe.getTotal());
+      Assert.assertEquals(directory.resolve("item_bootstrap-1-20181016-EBAY_US.gz"),
+          probe.getPath());
+
+      // downloaded file is fresh once published
+      Files.write(probe.getPath(), content);
+      feedCache.publish(probe.getPath(), probe);
+      Assert.assertTrue(feedCache.lookup(request, probe.getPath()).isFresh());
+
+      // a partial download is never fresh
+      Files.createFile(RangeManifest.getManifestPath(probe.getPath()));
+      Assert.assertFalse(feedCache.lookup(request, probe.getPath()).isFresh());
+      Files.delete(RangeManifest.getManifestPath(probe.getPath()));
+
+      // size differs from the file on the server
+      Files.write(probe.getPath(), new byte[999]);
+      feedCache.publish(probe.getPath(), probe);
+      Assert.assertFalse(feedCache.lookup(request, probe.getPath()).isFresh());
+    }
+  }
+
+  @Test
+  public void lookupFailureTest() throws Exception {
+
+    RangeServer server = new RangeServer(new byte[10]);
+    Request request = new Request.Builder().url(server.url()).build();
+    server.close();
+
+    Assert.assertNull(new FeedCache(client, 0, 0).lookup(request,
+        Files.createTempDirectory("feed").resolve("item_daily-1-20181016-EBAY_US.gz")));
+  }
+
+  @Test
+  public void evictTest() throws Exception {
+
+    Path directory = Files.createTempDirectory("feed");
+    long now = System.currentTimeMillis();
+
+    Path expired = createEntry(directory, "expired.gz", now - TimeUnit.HOURS.toMillis(5));
+    Path oldest = createEntry(directory, "oldest.gz", now - TimeUnit.HOURS.toMillis(3));
+    Path newer = createEntry(directory, "newer.gz", now - TimeUnit.HOURS.toMillis(2));
+    Path partial = createEntry(directory, "partial.gz", now - TimeUnit.HOURS.toMillis(9));
+    Files.createFile(RangeManifest.getManifestPath(partial));
+    Path kept = createEntry(directory, "kept.gz", now - TimeUnit.HOURS.toMillis(8));
+
+    // files which are not cache entries, such as filtered files and new downloads
+    Path filtered = directory.resolve("newer-filtered-1539684000000.gz");
+    Files.write(filtered, new byte[1000]);
+    Files.setLastModifiedTime(filtered, FileTime.fromMillis(now - TimeUnit.HOURS.toMillis(9)));
+    Path orphan = FeedCache.getCachedPath(directory.resolve("deleted.gz"));
+    Files.createFile(orphan);
+
+    new FeedCache(client, TimeUnit.HOURS.toMillis(4), 250).evict(directory, kept);
+
+    Assert.assertFalse(Files.exists(expired));
+    Assert.assertFalse(Files.exists(FeedCache.getCachedPath(expired)));
+    Assert.assertFalse(Files.exists(oldest));
+    Assert.assertTrue(Files.exists(newer));
+    Assert.assertTrue(Files.exists(partial));
+    Assert.assertTrue(Files.exists(kept));
+    Assert.assertTrue(Files.exists(filtered));
+    Assert.assertFalse(Files.exists(orphan));
+  }
+
+  @Test
+  public void evictByCachedTimeTest() throws Exception {
+
+    Path directory = Files.createTempDirectory("feed");
+    long now = System.currentTimeMillis();
+    FeedCache feedCache = new FeedCache(client, TimeUnit.HOURS.toMillis(4), 0);
+
+    // last changed on the server days ago, but cached just now
+    Path fresh = directory.resolve("item_bootstrap-1-20181016-EBAY_US.gz");
+    Files.write(fresh, new byte[100]);
+    feedCache.publish(fresh, new FeedCache.Probe(fresh, 100,
+        FileTime.fromMillis(now - TimeUnit.DAYS.toMillis(3)), false));
+    feedCache.record(fresh);
+
+    // expired, but locked by a download in a shared directory
+    Path locked = createEntry(directory, "item-1-20181016-EBAY_US.gz", now
+        - TimeUnit.HOURS.toMillis(5));
+    try (CacheLock lock = CacheLock.acquire(locked)) {
+      Assert.assertNotNull(lock);
+      Assert.assertNull(CacheLock.tryAcquire(locked));
+      feedCache.evict(directory, null);
+      Assert.assertTrue(Files.exists(locked));
+    }
+    Assert.assertTrue(Files.exists(fresh));
+
+    feedCache.evict(directory, null);
+    Assert.assertFalse(Files.exists(locked));
+    Assert.assertTrue(Files.exists(fresh));
+  }
+
+  private Path createEntry(Path directory, String name, long cachedMillis) throws Exception {
+    Path path = directory.resolve(name);
+    Files.write(path, new byte[100]);
+    Files.createFile(FeedCache.getCachedPath(path));
+    Files.setLastModifiedTime(FeedCache.getCachedPath(path), FileTime.fromMillis(cachedMillis));
+    return path;
+  }
+}
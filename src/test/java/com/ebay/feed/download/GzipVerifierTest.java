@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ebay.feed.model.feed.download.DownloadConfig.DownloadConfigBuilder;
+import com.ebay.feed.model.feed.operation.internal.InvokeResponse;
+
+public class GzipVerifierTest {
+
+  OkHttpClient client = new OkHttpClient();
+
+  @Test
+  public void multipleMembersTest() throws Exception {
+
+    byte[] content = getContent(3);
+    GzipVerifier verifier = new GzipVerifier();
+
+    // out of order and repeated bytes are skipped
+    verifier.offer(100, ByteBuffer.wrap(content, 100, 50));
+    for (int offset = 0; offset < content.length; offset += 7) {
+      verifier.offer(offset, ByteBuffer.wrap(content, offset, Math.min(13, content.length - offset))
+          .slice());
+    }
+
+    Assert.assertEquals(content.length, verifier.getPosition());
+    verifier.finish(content.length);
+  }
+
+  @Test(expected = ZipException.class)
+  public void corruptMemberTest() throws Exception {
+
+    byte[] content = getContent(2);
+    content[content.length / 3] ^= 0x55;
+
+    GzipVerifier verifier = new GzipVerifier();
+    verifier.offer(0, ByteBuffer.wrap(content));
+    verifier.finish(content.length);
+  }
+
+  @Test(expected = ZipException.class)
+  public void truncatedTest() throws Exception {
+
+    byte[] content = getContent(1);
+    GzipVerifier verifier = new GzipVerifier();
+    verifier.offer(0, ByteBuffer.wrap(content, 0, content.length - 4));
+    verifier.finish(content.length - 4);
+  }
+
+  @Test
+  public void verifiedDownloadTest() throws Exception {
+
+    byte[] content = getContent(4);
+    Path path = Files.createTempFile("feed", ".gz");
+
+    try (RangeServer server = new RangeServer(content)) {
+
+      server.fail(2000, RetryPolicy.IO_ERROR, 1);
+
+      InvokeResponse response =
+          new RangeDownloader(client, new DownloadConfigBuilder().parallelism(3).bufferSize(256)
+              .retryBackoffMillis(1).retryMaxBackoffMillis(5).verifyIntegrity(true).build())
+              .download(new Request.Builder().url(server.url()).build(), path,
+                  new RangeManifest(path), 999);
+
+      Assert.assertEquals(206, response.getStatusCode());
+      Assert.assertArrayEquals(content, Files.readAllBytes(path));
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void corruptDownloadTest() throws Exception {
+
+    byte[] content = getContent(4);
+    content[content.length / 2 + 100] ^= 0x55;
+    Path path = Files.createTempFile("feed", ".gz");
+
+    try (RangeServer server = new RangeServer(content)) {
+
+      InvokeResponse response =
+          new RangeDownloader(client, new DownloadConfigBuilder().bufferSize(256)
+              .verifyIntegrity(true).build()).download(
+              new Request.Builder().url(server.url()).build(), path, new RangeManifest(path), 999);
+
+      Assert.assertEquals(400, response.getStatusCode());
+      Assert.assertTrue(response.getMessage().startsWith("Integrity check failed"));
+
+      // fails before the remaining ranges are requested, and is not resumed
+      Assert.assertTrue(server.getRequestCount() < content.length / 1000);
+      Assert.assertEquals(0, Files.size(path));
+      Assert.assertFalse(Files.exists(RangeManifest.getManifestPath(path)));
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  /**
+   * <p>
+   * Concatenated gzip members of random, hence incompressible, text
+   * </p>
+   */
+  private byte[] getContent(int members) throws IOException {
+
+    Random random = new Random(members);
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    for (int i = 0; i < members; i++) {
+      StringBuilder member = new StringBuilder();
+      for (int line = 0; line < 200; line++) {
+        member.append(random.nextLong()).append('\t').append(random.nextInt()).append('\n');
+      }
+      try (GZIPOutputStream gos = new GZIPOutputStream(bos) {
+        @Override
+        public void close() throws IOException {
+          finish();
+        }
+      }) {
+        gos.write(member.toString().getBytes("UTF-8"));
+      }
+    }
+    return bos.toByteArray();
+  }
+}
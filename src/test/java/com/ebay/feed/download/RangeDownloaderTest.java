@@ -0,0 +1,493 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ebay.feed.model.feed.download.DownloadConfig;
+import com.ebay.feed.model.feed.download.DownloadConfig.DownloadConfigBuilder;
+import com.ebay.feed.model.feed.download.DownloadProgress;
+import com.ebay.feed.model.feed.operation.internal.ByteRange;
+import com.ebay.feed.model.feed.operation.internal.InvokeResponse;
+
+public class RangeDownloaderTest {
+
+  OkHttpClient client = new OkHttpClient();
+
+  @Test
+  public void downloadSequentialTest() throws Exception {
+    downloadAndCompare(1);
+  }
+
+  @Test
+  public void downloadParallelTest() throws Exception {
+    downloadAndCompare(4);
+  }
+
+  @Test
+  public void downloadWholeFileTest() throws Exception {
+
+    byte[] content = getContent(500);
+    Path path = Files.createTempFile("feed", ".gz");
+
+    try (RangeServer server = new RangeServer(content)) {
+
+      InvokeResponse response =
+          new RangeDownloader(client, config(2)).download(request(server), path, new RangeManifest(path),
+              999);
+
+      Assert.assertEquals(206, response.getStatusCode());
+      Assert.assertEquals("20181016", response.getLastModified());
+      Assert.assertEquals(1, server.getRequestCount());
+      Assert.assertArrayEquals(content, Files.readAllBytes(path));
+      Assert.assertFalse(Files.exists(RangeManifest.getManifestPath(path)));
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void downloadFailureTest() throws Exception {
+
+    Path path = Files.createTempFile("feed", ".gz");
+    RangeServer server = new RangeServer(getContent(1000));
+    server.close();
+
+    RangeDownloader downloader = new RangeDownloader(client, config(2));
+    InvokeResponse response =
+        downloader.download(request(server), path, new RangeManifest(path), 99);
+
+    Assert.assertNotEquals(206, response.getStatusCode());
+    Files.delete(path);
+  }
+
+  @Test
+  public void discardCorruptFileTest() throws Exception {
+
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (GZIPOutputStream gos = new GZIPOutputStream(bos)) {
+      for (int i = 0; i < 5000; i++) {
+        gos.write(("item " + i + "\ttitle " + i * 7919 % 10007 + "\n")
+            .getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    byte[] content = bos.toByteArray();
+    content[content.length / 3] ^= 0x55;
+    Path path = Files.createTempFile("feed", ".gz");
+
+    try (RangeServer server = new RangeServer(content)) {
+
+      DownloadConfig config =
+          new DownloadConfigBuilder().parallelism(4).bufferSize(256).verifyIntegrity(true)
+              .build();
+      InvokeResponse response =
+          new RangeDownloader(client, config).download(request(server), path,
+              new RangeManifest(path), 999);
+
+      // discarded once all the workers have stopped, so no range is recorded over the discarded
+      // bytes
+      Assert.assertEquals(400, response.getStatusCode());
+      Assert.assertTrue(response.getMessage().startsWith("Integrity check failed"));
+      Assert.assertEquals(0, Files.size(path));
+      Assert.assertFalse(Files.exists(RangeManifest.getManifestPath(path)));
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void retryTransientFailureTest() throws Exception {
+
+    byte[] content = getContent(10000);
+    Path path = Files.createTempFile("feed", ".gz");
+
+    try (RangeServer server = new RangeServer(content)) {
+
+      server.fail(0, 503, 1);
+      server.fail(5000, 429, 2);
+      server.fail(2000, RetryPolicy.IO_ERROR, 1);
+
+      InvokeResponse response =
+          new RangeDownloader(client, config(3)).download(request(server), path,
+              new RangeManifest(path), 999);
+
+      Assert.assertEquals(206, response.getStatusCode());
+      Assert.assertEquals(14, server.getRequestCount());
+      Assert.assertArrayEquals(content, Files.readAllBytes(path));
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void listenerTest() throws Exception {
+
+    byte[] content = getContent(10000);
+    Path path = Files.createTempFile("feed", ".gz");
+
+    AtomicInteger starts = new AtomicInteger();
+    AtomicInteger completes = new AtomicInteger();
+    AtomicLong written = new AtomicLong();
+    AtomicLong completedBytes = new AtomicLong();
+    AtomicReference<String> retry = new AtomicReference<>();
+    AtomicReference<DownloadProgress> progress = new AtomicReference<>();
+
+    try (RangeServer server = new RangeServer(content)) {
+
+      server.fail(5000, 503, 1);
+
+      RangeDownloader downloader = new RangeDownloader(client, config(2));
+      downloader.setListener(new DownloadListener() {
+
+        @Override
+        public void onRangeStart(Path file, ByteRange range) {
+          starts.incrementAndGet();
+        }
+
+        @Override
+        public void onBytesWritten(Path file, ByteRange range, long bytes) {
+          written.addAndGet(bytes);
+        }
+
+        @Override
+        public void onRangeComplete(Path file, ByteRange range, long bytes, long elapsedMillis) {
+          completes.incrementAndGet();
+          completedBytes.addAndGet(bytes);
+        }
+
+        @Override
+        public void onRetry(Path file, ByteRange range, int retries, int statusCode,
+            long backoffMillis) {
+          retry.set(range.getStart() + ":" + retries + ":" + statusCode);
+        }
+
+        @Override
+        public synchronized void onProgress(DownloadProgress current) {
+          DownloadProgress last = progress.get();
+          if (last == null || current.getDownloadedBytes() >= last.getDownloadedBytes())
+            progress.set(current);
+        }
+      });
+
+      InvokeResponse response =
+          downloader.download(request(server), path, new RangeManifest(path), 999);
+
+      Assert.assertEquals(206, response.getStatusCode());
+      Assert.assertEquals(11, starts.get());
+      Assert.assertEquals(10, completes.get());
+      Assert.assertEquals(10000, written.get());
+      Assert.assertEquals(10000, completedBytes.get());
+      Assert.assertEquals("5000:1:503", retry.get());
+      Assert.assertEquals(path, progress.get().getPath());
+      Assert.assertEquals(10000, progress.get().getTotalBytes());
+      Assert.assertEquals(10000, progress.get().getDownloadedBytes());
+      Assert.assertEquals(0, progress.get().getEtaMillis());
+      Assert.assertTrue(progress.get().getBytesPerSecond() > 0);
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void hedgeSlowRangeTest() throws Exception {
+
+    byte[] content = getContent(10000);
+    Path path = Files.createTempFile("feed", ".gz");
+
+    try (RangeServer server = new RangeServer(content)) {
+
+      server.delay(7000, 5000, 1);
+
+      DownloadConfig config =
+          new DownloadConfigBuilder().bufferSize(256).verifyIntegrity(false).hedgePercentile(95)
+              .hedgeMinDelayMillis(200).build();
+      AtomicLong written = new AtomicLong();
+      RangeDownloader downloader = new RangeDownloader(client, config);
+      downloader.setListener(new DownloadListener() {
+        @Override
+        public void onBytesWritten(Path file, ByteRange range, long bytes) {
+          written.addAndGet(bytes);
+        }
+      });
+      long startNanos = System.nanoTime();
+      InvokeResponse response =
+          downloader.download(request(server), path, new RangeManifest(path), 999);
+
+      Assert.assertEquals(206, response.getStatusCode());
+      Assert.assertTrue(System.nanoTime() - startNanos < TimeUnit.SECONDS.toNanos(4));
+      Assert.assertArrayEquals(content, Files.readAllBytes(path));
+      // only one attempt of the hedged range writes its bytes
+      Assert.assertEquals(10000, written.get());
+      Assert.assertTrue(response.getDownloadMetrics().getHedgesFired() >= 1);
+      Assert.assertEquals(1, response.getDownloadMetrics().getHedgesWon());
+      Assert.assertEquals(10, response.getDownloadMetrics().getRangeCount());
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void hedgeClientErrorTest() throws Exception {
+
+    Path path = Files.createTempFile("feed", ".gz");
+
+    try (RangeServer server = new RangeServer(getContent(10000))) {
+
+      // the hedge gets its 404 first, and the late first attempt gets one too
+      server.delay(7000, 1000, 1);
+      server.fail(7000, 404, 2);
+
+      DownloadConfig config =
+          new DownloadConfigBuilder().bufferSize(256).verifyIntegrity(false).hedgePercentile(95)
+              .hedgeMinDelayMillis(200).build();
+      AtomicInteger starts = new AtomicInteger();
+      RangeDownloader downloader = new RangeDownloader(client, config);
+      downloader.setListener(new DownloadListener() {
+        @Override
+        public void onRangeStart(Path file, ByteRange range) {
+          if (range.getStart() == 7000)
+            starts.incrementAndGet();
+        }
+      });
+      InvokeResponse response =
+          downloader.download(request(server), path, new RangeManifest(path), 999);
+
+      Assert.assertEquals(404, response.getStatusCode());
+      Assert.assertEquals(1, starts.get());
+      Assert.assertEquals(1, response.getDownloadMetrics().getHedgesFired());
+      Assert.assertEquals(0, response.getDownloadMetrics().getHedgesWon());
+    } finally {
+      Files.deleteIfExists(RangeManifest.getManifestPath(path));
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void noRetryOnClientErrorTest() throws Exception {
+
+    Path path = Files.createTempFile("feed", ".gz");
+
+    try (RangeServer server = new RangeServer(getContent(10000))) {
+
+      server.fail(5000, 404, 1);
+
+      InvokeResponse response =
+          new RangeDownloader(client, config(1)).download(request(server), path,
+              new RangeManifest(path), 999);
+
+      Assert.assertEquals(404, response.getStatusCode());
+      Assert.assertEquals(6, server.getRequestCount());
+
+      // the ranges before the failed one can be resumed
+      Assert.assertEquals(5000, RangeManifest.load(path).getCompletedBytes());
+
+      // the file was extended to the total size after the first range
+      Assert.assertEquals(10000, Files.size(path));
+    } finally {
+      Files.deleteIfExists(RangeManifest.getManifestPath(path));
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void adaptiveChunkSizeTest() throws Exception {
+
+    byte[] content = getContent(100000);
+    Path path = Files.createTempFile("feed", ".gz");
+
+    try (RangeServer server = new RangeServer(content)) {
+
+      DownloadConfig downloadConfig =
+          new DownloadConfigBuilder().parallelism(2).bufferSize(256).adaptiveChunkSize(true)
+              .minChunkSize(100).verifyIntegrity(false).build();
+      InvokeResponse response =
+          new RangeDownloader(client, downloadConfig).download(request(server), path,
+              new RangeManifest(path), 9999);
+
+      Assert.assertEquals(206, response.getStatusCode());
+      Assert.assertArrayEquals(content, Files.readAllBytes(path));
+      Assert.assertEquals(100000, response.getDownloadMetrics().getBytes());
+      for (long rangeSize : response.getDownloadMetrics().getRangeSizes()) {
+        Assert.assertTrue(rangeSize >= 100 && rangeSize <= 10000);
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void downloadAsyncTest() throws Exception {
+
+    byte[] content = getContent(10000);
+    Path path = Files.createTempFile("feed", ".gz");
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    try (RangeServer server = new RangeServer(content)) {
+
+      server.fail(3000, 503, 1);
+
+      CompletableFuture<InvokeResponse> future =
+          new RangeDownloader(client, config(3)).downloadAsync(request(server), path,
+              new RangeManifest(path), 999, executor);
+      InvokeResponse response = future.get(30, TimeUnit.SECONDS);
+
+      Assert.assertEquals(206, response.getStatusCode());
+      Assert.assertEquals(11, server.getRequestCount());
+      Assert.assertEquals(10, response.getDownloadMetrics().getRangeCount());
+      Assert.assertArrayEquals(content, Files.readAllBytes(path));
+      Assert.assertFalse(Files.exists(RangeManifest.getManifestPath(path)));
+    } finally {
+      executor.shutdown();
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void downloadAsyncFailureTest() throws Exception {
+
+    Path path = Files.createTempFile("feed", ".gz");
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    try (RangeServer server = new RangeServer(getContent(10000))) {
+
+      server.fail(5000, 404, 1);
+
+      InvokeResponse response =
+          new RangeDownloader(client, config(2)).downloadAsync(request(server), path,
+              new RangeManifest(path), 999, executor).get(30, TimeUnit.SECONDS);
+
+      Assert.assertEquals(404, response.getStatusCode());
+      Assert.assertTrue(Files.exists(RangeManifest.getManifestPath(path)));
+    } finally {
+      executor.shutdown();
+      Files.deleteIfExists(RangeManifest.getManifestPath(path));
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void resumeTest() throws Exception {
+
+    byte[] content = getContent(10000);
+    Path path = Files.createTempFile("feed", ".gz");
+
+    // ranges 0-999 and 5000-5999 were downloaded by an earlier attempt
+    RangeManifest manifest = new RangeManifest(path);
+    manifest.reset(content.length, "20181016");
+    manifest.markCompleted(new ByteRange(0, 999));
+    manifest.markCompleted(new ByteRange(5000, 5999));
+    byte[] partial = new byte[6000];
+    System.arraycopy(content, 0, partial, 0, 1000);
+    System.arraycopy(content, 5000, partial, 5000, 1000);
+    Files.write(path, partial);
+
+    try (RangeServer server = new RangeServer(content)) {
+
+      RangeManifest loaded = RangeManifest.load(path);
+      Assert.assertTrue(loaded.isConsistent(Files.size(path)));
+
+      InvokeResponse response =
+          new RangeDownloader(client, config(3)).download(request(server), path, loaded, 999);
+
+      Assert.assertEquals(206, response.getStatusCode());
+      Assert.assertEquals(8, server.getRequestCount());
+      Assert.assertArrayEquals(content, Files.readAllBytes(path));
+      Assert.assertFalse(Files.exists(RangeManifest.getManifestPath(path)));
+    } finally {
+      Files.deleteIfExists(RangeManifest.getManifestPath(path));
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void resumeChangedFileTest() throws Exception {
+
+    byte[] content = getContent(10000);
+    Path path = Files.createTempFile("feed", ".gz");
+
+    // an earlier attempt downloaded part of an older, smaller file
+    RangeManifest manifest = new RangeManifest(path);
+    manifest.reset(8000, "20181015");
+    manifest.markCompleted(new ByteRange(0, 999));
+    Files.write(path, new byte[1000]);
+
+    try (RangeServer server = new RangeServer(content)) {
+
+      InvokeResponse response =
+          new RangeDownloader(client, config(2)).download(request(server), path, manifest, 999);
+
+      Assert.assertEquals(206, response.getStatusCode());
+      Assert.assertArrayEquals(content, Files.readAllBytes(path));
+    } finally {
+      Files.deleteIfExists(RangeManifest.getManifestPath(path));
+      Files.delete(path);
+    }
+  }
+
+  private void downloadAndCompare(int parallelism) throws Exception {
+
+    byte[] content = getContent(10000);
+    Path path = Files.createTempFile("feed", ".gz");
+
+    try (RangeServer server = new RangeServer(content)) {
+
+      RangeDownloader downloader = new RangeDownloader(client, config(parallelism));
+      InvokeResponse response =
+          downloader.download(request(server), path, new RangeManifest(path), 999);
+
+      Assert.assertEquals(206, response.getStatusCode());
+      Assert.assertEquals(10, server.getRequestCount());
+      Assert.assertArrayEquals(content, Files.readAllBytes(path));
+      Assert.assertEquals(10, response.getDownloadMetrics().getRangeCount());
+      Assert.assertEquals(10000, response.getDownloadMetrics().getBytes());
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  // the random content is not gzipped, integrity checks are covered by GzipVerifierTest
+  private DownloadConfig config(int parallelism) {
+    return new DownloadConfigBuilder().parallelism(parallelism).bufferSize(256)
+        .retryBackoffMillis(1).retryMaxBackoffMillis(5).verifyIntegrity(false).build();
+  }
+
+  private Request request(RangeServer server) {
+    return new Request.Builder().url(server.url()).build();
+  }
+
+  private byte[] getContent(int size) {
+    byte[] content = new byte[size];
+    new Random(size).nextBytes(content);
+    return content;
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ebay.feed.model.feed.operation.filter.FeedFilterRequest;
+import com.ebay.feed.util.FilterUtil;
+
+public class RangeInputStreamTest {
+
+  OkHttpClient client = new OkHttpClient();
+
+  @Test
+  public void readAndFilterTest() throws Exception {
+
+    StringBuilder feed = new StringBuilder("ItemId\tTitle\tCategory\n");
+    for (int i = 0; i < 500; i++) {
+      feed.append(i).append("\ttitle ").append(i).append('\t').append(i % 5).append('\n');
+    }
+
+    try (RangeServer server = new RangeServer(gzip(feed.toString()))) {
+
+      RangeInputStream rangeStream =
+          new RangeInputStream(client, new Request.Builder().url(server.url()).build(), 99);
+      rangeStream.open();
+      Assert.assertEquals("20181016", rangeStream.getLastModified());
+
+      FeedFilterRequest filterRequest = new FeedFilterRequest();
+      filterRequest.setItemIds(Collections.singleton("42"));
+
+      Path basePath =
+          Files.createTempDirectory("feed").resolve("item_bootstrap-1-20181016-EBAY_US");
+      String filteredFile =
+          new FilterUtil().filter(new GZIPInputStream(rangeStream), basePath, filterRequest);
+      rangeStream.close();
+
+      List<String> lines = Files.readAllLines(Paths.get(filteredFile));
+      Assert.assertEquals(2, lines.size());
+      Assert.assertEquals("42\ttitle 42\t2", lines.get(1));
+      Assert.assertTrue(server.getRequestCount() > 1);
+      Assert.assertFalse(Files.exists(basePath));
+    }
+  }
+
+  @Test
+  public void previewAndFilterTest() throws Exception {
+
+    StringBuilder feed = new StringBuilder("ItemId\tTitle\tCategory\n");
+    for (int i = 0; i < 2000; i++) {
+      feed.append(i).append("\ttitle ").append(i * 7919 % 10007).append('\t').append(i % 5)
+          .append('\n');
+    }
+    byte[] gzipped = gzip(feed.toString());
+    long previewBytes = gzipped.length / 2;
+
+    try (RangeServer server = new RangeServer(gzipped)) {
+
+      Path basePath =
+          Files.createTempDirectory("feed").resolve("item_bootstrap-1-20181016-EBAY_US-preview");
+      FeedFilterRequest filterRequest = new FeedFilterRequest();
+      filterRequest.setItemIds(Collections.singleton("42"));
+
+      try (RangeInputStream rangeStream =
+          new RangeInputStream(client, new Request.Builder().url(server.url()).build(), 99,
+              new RetryPolicy(0, 0, 0), previewBytes)) {
+
+        TruncatedGzipInputStream rows = new TruncatedGzipInputStream(rangeStream);
+        String filteredFile = new FilterUtil().filter(rows, basePath, filterRequest);
+
+        Assert.assertTrue(rows.isTruncated());
+        List<String> lines = Files.readAllLines(Paths.get(filteredFile));
+        Assert.assertEquals(2, lines.size());
+        Assert.assertEquals("42\ttitle " + 42 * 7919 % 10007 + "\t2", lines.get(1));
+      }
+
+      // ranges are never requested past the preview
+      Assert.assertEquals((previewBytes + 99) / 100, server.getRequestCount());
+    }
+  }
+
+  @Test
+  public void resumeChangedFileTest() throws Exception {
+
+    byte[] content = new byte[300];
+    try (RangeServer server = new RangeServer(content);
+        RangeInputStream rangeStream =
+            new RangeInputStream(client, new Request.Builder().url(server.url()).build(), 99,
+                new RetryPolicy(3, 0, 0))) {
+
+      // the first body breaks half way, and the file is replaced before the stream resumes
+      server.fail(0, RetryPolicy.IO_ERROR, 1);
+      rangeStream.open();
+      server.setLastModified("Wed, 17 Oct 2018 10:00:00 GMT");
+
+      byte[] buffer = new byte[content.length];
+      try {
+        while (rangeStream.read(buffer, 0, buffer.length) != -1) {
+        }
+        Assert.fail("A resumed response of a replaced file must fail the stream");
+      } catch (IOException e) {
+        Assert.assertTrue(e.getMessage().startsWith("Feed file changed"));
+      }
+      Assert.assertEquals(2, server.getRequestCount());
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void errorResponseTest() throws Exception {
+
+    RangeServer server = new RangeServer(new byte[10]);
+    String url = server.url() + "/missing";
+    server.close();
+
+    try (RangeInputStream rangeStream =
+        new RangeInputStream(client, new Request.Builder().url(url).build(), 99)) {
+      rangeStream.open();
+    }
+  }
+
+  private byte[] gzip(String contents) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (GZIPOutputStream gos = new GZIPOutputStream(bos)) {
+      gos.write(contents.getBytes("UTF-8"));
+    }
+    return bos.toByteArray();
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ebay.feed.constants.Constants;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * <p>
+ * Local stand in for the feed API, which serves a byte array and honours the Range header
+ * </p>
+ */
+public class RangeServer implements AutoCloseable {
+
+  public static final String LAST_MODIFIED = "Tue, 16 Oct 2018 10:00:00 GMT";
+
+  private final HttpServer server;
+  private final byte[] content;
+  private final AtomicInteger requestCount = new AtomicInteger();
+  private final Map<Integer, int[]> failures = new ConcurrentHashMap<>();
+  private final Map<Integer, int[]> delays = new ConcurrentHashMap<>();
+  private volatile String lastModified = LAST_MODIFIED;
+
+  public RangeServer(byte[] content) throws IOException {
+    this.content = content;
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/", this::handle);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+  }
+
+  public String url() {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + "/feed";
+  }
+
+  public int getRequestCount() {
+    return requestCount.get();
+  }
+
+  /**
+   * <p>
+   * Fails the next requests for the range starting at the offset. With RetryPolicy.IO_ERROR, half
+   * of the body is sent before the connection is closed
+   * </p>
+   */
+  public void fail(int start, int status, int times) {
+    failures.put(start, new int[] {status, times});
+  }
+
+  /**
+   * <p>
+   * Delays the response headers of the next requests for the range starting at the offset
+   * </p>
+   */
+  public void delay(int start, int millis, int times) {
+    delays.put(start, new int[] {millis, times});
+  }
+
+  /**
+   * <p>
+   * Changes the last modified date of the next responses, as if the feed file was replaced
+   * </p>
+   */
+  public void setLastModified(String lastModified) {
+    this.lastModified = lastModified;
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+
+    requestCount.incrementAndGet();
+    String range = exchange.getRequestHeaders().getFirst(Constants.RANGE_HEADER);
+    exchange.getResponseHeaders().add(Constants.LAST_MODIFIED_DATE_HEADER, lastModified);
+
+    int start = 0;
+    int end = content.length - 1;
+    int status = 200;
+    if (range != null) {
+      String[] bounds = range.substring("bytes=".length()).split("-");
+      start = Integer.parseInt(bounds[0]);
+      end = Math.min(Integer.parseInt(bounds[1]), content.length - 1);
+      status = 206;
+      exchange.getResponseHeaders().add(Constants.CONTENT_RANGE_HEADER,
+          "bytes " + start + "-" + end + "/" + content.length);
+    }
+
+    int[] delay = delays.get(start);
+    if (delay != null && delay[1] > 0) {
+      delay[1]--;
+      try {
+        Thread.sleep(delay[0]);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    int[] failure = failures.get(start);
+    if (failure != null && failure[1] > 0) {
+      failure[1]--;
+      if (failure[0] == RetryPolicy.IO_ERROR) {
+        exchange.sendResponseHeaders(status, end - start + 1);
+        exchange.getResponseBody().write(content, start, (end - start + 1) / 2);
+        exchange.getResponseBody().flush();
+        exchange.close();
+      } else {
+        exchange.getResponseHeaders().remove(Constants.CONTENT_RANGE_HEADER);
+        exchange.sendResponseHeaders(failure[0], -1);
+        exchange.close();
+      }
+      return;
+    }
+
+    exchange.sendResponseHeaders(status, end - start + 1);
+    try (OutputStream os = exchange.getResponseBody()) {
+      os.write(content, start, end - start + 1);
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RangeSizerTest {
+
+  private static final long MB = 1024 * 1024;
+
+  @Test
+  public void fixedSizeTest() {
+
+    RangeSizer sizer = new RangeSizer(100 * MB);
+    sizer.record(100 * MB, 100 * MB, millis(50), millis(60000));
+
+    Assert.assertEquals(100 * MB, sizer.getChunkSize());
+    Assert.assertEquals(1, sizer.getMetrics().getRangeCount());
+  }
+
+  @Test
+  public void shrinkOnSlowTransferTest() {
+
+    // 1 MB/s with 50 ms to first byte - 1 second ranges are enough to keep the overhead low
+    RangeSizer sizer = new RangeSizer(100 * MB, MB / 2, true);
+    long previous = sizer.getChunkSize();
+    for (int i = 0; i < 20; i++) {
+      long size = sizer.getChunkSize();
+      sizer.record(size, size, millis(50), millis(50) + size * 1000 / MB * 1000000);
+      Assert.assertTrue(sizer.getChunkSize() >= previous / 2);
+      previous = sizer.getChunkSize();
+    }
+
+    Assert.assertEquals(MB, sizer.getChunkSize(), MB / 10);
+  }
+
+  @Test
+  public void growOnHighLatencyTest() {
+
+    // 2 MB/s with 500 ms to first byte - ranges take 10 seconds, capped at the max chunk size
+    RangeSizer sizer = new RangeSizer(16 * MB, MB, true);
+    for (int i = 0; i < 20; i++) {
+      sizer.record(MB, MB, millis(500), millis(1000));
+    }
+
+    Assert.assertEquals(16 * MB, sizer.getChunkSize());
+
+    RangeSizer boundedSizer = new RangeSizer(100 * MB, MB, true);
+    for (int i = 0; i < 20; i++) {
+      boundedSizer.record(MB, MB, millis(500), millis(1000));
+    }
+    Assert.assertEquals(20 * MB, boundedSizer.getChunkSize(), MB);
+  }
+
+  @Test
+  public void metricsTest() {
+
+    RangeSizer sizer = new RangeSizer(100, 10, true);
+    sizer.record(101, 101, millis(10), millis(110));
+    sizer.record(50, 50, millis(30), millis(80));
+
+    Assert.assertEquals(2, sizer.getMetrics().getRangeCount());
+    Assert.assertEquals(151, sizer.getMetrics().getBytes());
+    Assert.assertEquals(Arrays.asList(101L, 50L), sizer.getMetrics().getRangeSizes());
+    Assert.assertEquals(1006, sizer.getMetrics().getThroughput());
+    Assert.assertEquals(20, sizer.getMetrics().getAverageTimeToFirstByte());
+  }
+
+  @Test
+  public void timeToFirstBytePercentileTest() {
+
+    RangeSizer sizer = new RangeSizer(MB);
+    for (int i = 1; i <= 4; i++) {
+      sizer.record(MB, MB, millis(i * 10), millis(1000));
+    }
+    Assert.assertEquals(-1, sizer.getTimeToFirstBytePercentile(95));
+
+    for (int i = 5; i <= 20; i++) {
+      sizer.record(MB, MB, millis(i * 10), millis(1000));
+    }
+    Assert.assertEquals(millis(190), sizer.getTimeToFirstBytePercentile(95));
+    Assert.assertEquals(millis(100), sizer.getTimeToFirstBytePercentile(50));
+    Assert.assertEquals(millis(200), sizer.getTimeToFirstBytePercentile(100));
+  }
+
+  private long millis(long millis) {
+    return TimeUnit.MILLISECONDS.toNanos(millis);
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RetryPolicyTest {
+
+  RetryPolicy retryPolicy = new RetryPolicy(3, 100, 1000);
+
+  @Test
+  public void retryableTest() {
+
+    Assert.assertTrue(retryPolicy.isRetryable(RetryPolicy.IO_ERROR));
+    Assert.assertTrue(retryPolicy.isRetryable(408));
+    Assert.assertTrue(retryPolicy.isRetryable(429));
+    Assert.assertTrue(retryPolicy.isRetryable(500));
+    Assert.assertTrue(retryPolicy.isRetryable(503));
+    Assert.assertFalse(retryPolicy.isRetryable(400));
+    Assert.assertFalse(retryPolicy.isRetryable(401));
+    Assert.assertFalse(retryPolicy.isRetryable(404));
+    Assert.assertFalse(retryPolicy.isRetryable(416));
+
+    Assert.assertTrue(retryPolicy.shouldRetry(503, 2));
+    Assert.assertFalse(retryPolicy.shouldRetry(503, 3));
+  }
+
+  @Test
+  public void backoffTest() {
+
+    for (int i = 0; i < 100; i++) {
+      Assert.assertTrue(retryPolicy.getBackoffMillis(1, null) <= 100);
+      Assert.assertTrue(retryPolicy.getBackoffMillis(3, null) <= 400);
+      Assert.assertTrue(retryPolicy.getBackoffMillis(40, null) <= 1000);
+    }
+
+    Assert.assertEquals(0, retryPolicy.getBackoffMillis(1, " 0 "));
+    Assert.assertEquals(1000, retryPolicy.getBackoffMillis(1, "120"));
+    Assert.assertTrue(retryPolicy.getBackoffMillis(1, "Wed, 21 Oct 2015 07:28:00 GMT") <= 100);
+  }
+}
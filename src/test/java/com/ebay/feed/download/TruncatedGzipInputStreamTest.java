@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.download;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TruncatedGzipInputStreamTest {
+
+  @Test
+  public void truncatedTest() throws Exception {
+
+    StringBuilder feed = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      feed.append(i).append('\t').append(i * 7919 % 10007).append('\n');
+    }
+    byte[] gzipped = gzip(feed.toString());
+
+    for (int length : new int[] {0, 5, 20, gzipped.length / 3, gzipped.length - 4}) {
+
+      TruncatedGzipInputStream in =
+          new TruncatedGzipInputStream(new ByteArrayInputStream(Arrays.copyOf(gzipped, length)));
+      String rows = read(in);
+
+      Assert.assertTrue(in.isTruncated());
+      Assert.assertTrue(feed.toString().startsWith(rows));
+      Assert.assertTrue(rows.isEmpty() || rows.endsWith("\n"));
+      if (length == gzipped.length - 4)
+        Assert.assertEquals(feed.toString(), rows);
+    }
+  }
+
+  @Test
+  public void completeTest() throws Exception {
+
+    // the last line is returned when the file is not truncated, even without a new line
+    String feed = "ItemId\tTitle\n1\tfirst\n2\tsecond";
+    TruncatedGzipInputStream in =
+        new TruncatedGzipInputStream(new ByteArrayInputStream(gzip(feed)));
+
+    Assert.assertEquals(feed, read(in));
+    Assert.assertFalse(in.isTruncated());
+  }
+
+  private String read(TruncatedGzipInputStream in) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    byte[] buffer = new byte[333];
+    int len;
+    while ((len = in.read(buffer)) != -1) {
+      bos.write(buffer, 0, len);
+    }
+    in.close();
+    return new String(bos.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  private byte[] gzip(String contents) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (GZIPOutputStream gos = new GZIPOutputStream(bos)) {
+      gos.write(contents.getBytes(StandardCharsets.UTF_8));
+    }
+    return bos.toByteArray();
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.index;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FeedIndexTest {
+
+  @Test
+  public void lookupTest() throws Exception {
+
+    Path directory = Files.createTempDirectory("feed");
+    Path gzipped = directory.resolve("item_bootstrap-1-20181016-EBAY_US.gz");
+
+    try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzipped))) {
+      out.write(feed(0, 100000).getBytes(StandardCharsets.UTF_8));
+    }
+
+    FeedIndex built = FeedIndex.build(gzipped, FeedIndex.getIndexPath(gzipped), 65536);
+    Assert.assertTrue(built.getCheckpointCount() > 20);
+    Assert.assertEquals(100001, built.getRowCount());
+
+    FeedIndex opened = FeedIndex.open(gzipped);
+    for (FeedIndex index : new FeedIndex[] {built, opened}) {
+      Assert.assertEquals("ItemId\tTitle\tCategory", index.lookup("ItemId"));
+      for (int i = 0; i < 100000; i += 997) {
+        Assert.assertEquals(row(i), index.lookup(String.valueOf(i)));
+      }
+      Assert.assertEquals(row(99999), index.lookup("99999"));
+      // prefixes of item ids, and item ids not in the feed file
+      Assert.assertNull(index.lookup("ItemI"));
+      Assert.assertNull(index.lookup("100000"));
+    }
+
+    // an index is not used once the feed file changes
+    Files.setLastModifiedTime(gzipped, FileTime.fromMillis(0));
+    try {
+      FeedIndex.open(gzipped);
+      Assert.fail("Stale index opened");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage().contains("build it again"));
+    }
+
+    Files.delete(FeedIndex.getIndexPath(gzipped));
+    Files.delete(gzipped);
+    Files.delete(directory);
+  }
+
+  @Test
+  public void membersTest() throws Exception {
+
+    Path directory = Files.createTempDirectory("feed");
+    Path gzipped = directory.resolve("item_bootstrap-1-20181016-EBAY_US.gz");
+
+    // members of stored, fixed and dynamic blocks, with rows across members
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    String feed = feed(0, 30000);
+    int[] levels = {Deflater.NO_COMPRESSION, Deflater.BEST_SPEED, Deflater.BEST_COMPRESSION};
+    int memberSize = feed.length() / levels.length + 1;
+    for (int i = 0; i < levels.length; i++) {
+      String member = feed.substring(i * memberSize, Math.min(feed.length(), (i + 1) * memberSize));
+      bos.write(gzip(member, levels[i]));
+    }
+    bos.write(gzip("a\tb", Deflater.DEFAULT_COMPRESSION));
+    Files.write(gzipped, bos.toByteArray());
+
+    FeedIndex index = FeedIndex.build(gzipped, FeedIndex.getIndexPath(gzipped), 16384);
+    for (int i = 0; i < 30000; i += 101) {
+      Assert.assertEquals(row(i), index.lookup(String.valueOf(i)));
+    }
+    Assert.assertEquals("a\tb", index.lookup("a"));
+
+    // a damaged feed file is not indexed
+    byte[] damaged = bos.toByteArray();
+    damaged[damaged.length - 30] ^= 1;
+    Files.write(gzipped, damaged);
+    try {
+      FeedIndex.build(gzipped);
+      Assert.fail("Damaged feed file indexed");
+    } catch (IOException e) {
+      Assert.assertFalse(Files.exists(FeedIndex.getIndexPath(gzipped)));
+    }
+
+    Files.delete(gzipped);
+    Files.delete(directory);
+  }
+
+  private String feed(int from, int to) {
+    StringBuilder feed = new StringBuilder("ItemId\tTitle\tCategory\n");
+    for (int i = from; i < to; i++) {
+      feed.append(row(i)).append('\n');
+    }
+    return feed.toString();
+  }
+
+  private String row(int i) {
+    return i + "\ttitle " + i * 7919 % 10007 + "\t" + i % 5;
+  }
+
+  private byte[] gzip(String contents, int level) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (GZIPOutputStream gos = new GZIPOutputStream(bos) {
+      {
+        def.setLevel(level);
+      }
+    }) {
+      gos.write(contents.getBytes(StandardCharsets.UTF_8));
+    }
+    return bos.toByteArray();
+  }
+}
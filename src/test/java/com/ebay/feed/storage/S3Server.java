@@ -0,0 +1,241 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ebay.feed.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * <p>
+ * Local stand in for an S3 compatible object store, with path style addressing. Supports put, get,
+ * head and delete of objects, and multipart uploads. Every request must carry a valid signature,
+ * which is checked against the request as received
+ * </p>
+ */
+public class S3Server implements AutoCloseable {
+
+  public static final String ACCESS_KEY = "AKIDEXAMPLE";
+  public static final String SECRET_KEY = "secret";
+  public static final String REGION = "us-east-1";
+
+  private static final Pattern SIGNATURE = Pattern.compile("Signature=([0-9a-f]+)");
+  private static final Pattern PART =
+      Pattern.compile("<PartNumber>(\\d+)</PartNumber><ETag>([^<]+)</ETag>");
+
+  private final HttpServer server;
+  private final AwsSigner signer = new AwsSigner(ACCESS_KEY, SECRET_KEY, REGION);
+  private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+  private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+  private final AtomicInteger uploadIds = new AtomicInteger();
+  private final AtomicInteger partRequests = new AtomicInteger();
+  private final AtomicInteger aborts = new AtomicInteger();
+  private volatile int failPart = -1;
+
+  public S3Server() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/", this::handle);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+  }
+
+  public String url() {
+    return "http://127.0.0.1:" + server.getAddress().getPort();
+  }
+
+  /**
+   * @param path Path of the object, bucket first Eg /bucket/key
+   * @return byte[] Contents of the object, or null
+   */
+  public byte[] getObject(String path) {
+    return objects.get(path);
+  }
+
+  public int getPartRequests() {
+    return partRequests.get();
+  }
+
+  public int getAborts() {
+    return aborts.get();
+  }
+
+  public int getPendingUploads() {
+    return uploads.size();
+  }
+
+  /**
+   * <p>
+   * Fails the upload of the part with the number, with a 500
+   * </p>
+   */
+  public void failPart(int partNumber) {
+    this.failPart = partNumber;
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+
+    byte[] body = read(exchange.getRequestBody());
+    String method = exchange.getRequestMethod();
+    String path = exchange.getRequestURI().getRawPath();
+    String query = exchange.getRequestURI().getRawQuery();
+
+    if (!isSigned(exchange, method, path, query, body)) {
+      send(exchange, 403, "<Error><Code>SignatureDoesNotMatch</Code></Error>");
+      return;
+    }
+
+    Map<String, String> parameters = parse(query);
+    String uploadId = parameters.get("uploadId");
+
+    if ("POST".equals(method) && parameters.containsKey("uploads")) {
+      String id = "upload-" + uploadIds.incrementAndGet();
+      uploads.put(id, new ConcurrentHashMap<>());
+      send(exchange, 200, "<InitiateMultipartUploadResult><UploadId>" + id
+          + "</UploadId></InitiateMultipartUploadResult>");
+
+    } else if ("PUT".equals(method) && uploadId != null) {
+      partRequests.incrementAndGet();
+      int partNumber = Integer.parseInt(parameters.get("partNumber"));
+      Map<Integer, byte[]> parts = uploads.get(uploadId);
+      if (parts == null || partNumber == failPart) {
+        send(exchange, parts == null ? 404 : 500, "<Error><Code>InternalError</Code></Error>");
+        return;
+      }
+      parts.put(partNumber, body);
+      exchange.getResponseHeaders().add("ETag", "\"etag-" + partNumber + "\"");
+      send(exchange, 200, "");
+
+    } else if ("POST".equals(method) && uploadId != null) {
+      Map<Integer, byte[]> parts = uploads.remove(uploadId);
+      ByteArrayOutputStream object = new ByteArrayOutputStream();
+      Matcher matcher = PART.matcher(new String(body, StandardCharsets.UTF_8));
+      int expected = 1;
+      while (matcher.find()) {
+        int partNumber = Integer.parseInt(matcher.group(1));
+        if (parts == null || partNumber != expected++ || !parts.containsKey(partNumber)
+            || !matcher.group(2).equals("\"etag-" + partNumber + "\"")) {
+          send(exchange, 400, "<Error><Code>InvalidPart</Code></Error>");
+          return;
+        }
+        object.write(parts.get(partNumber));
+      }
+      objects.put(path, object.toByteArray());
+      send(exchange, 200, "<CompleteMultipartUploadResult></CompleteMultipartUploadResult>");
+
+    } else if ("DELETE".equals(method) && uploadId != null) {
+      aborts.incrementAndGet();
+      uploads.remove(uploadId);
+      send(exchange, 204, null);
+
+    } else if ("PUT".equals(method)) {
+      objects.put(path, body);
+      send(exchange, 200, "");
+
+    } else if ("GET".equals(method) || "HEAD".equals(method)) {
+      byte[] object = objects.get(path);
+      if (object == null) {
+        send(exchange, 404, "<Error><Code>NoSuchKey</Code></Error>");
+      } else if ("HEAD".equals(method)) {
+        exchange.sendResponseHeaders(200, -1);
+        exchange.close();
+      } else {
+        exchange.sendResponseHeaders(200, object.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+          os.write(object);
+        }
+      }
+
+    } else if ("DELETE".equals(method)) {
+      objects.remove(path);
+      send(exchange, 204, null);
+
+    } else {
+      send(exchange, 405, "");
+    }
+  }
+
+  private boolean isSigned(HttpExchange exchange, String method, String path, String query,
+      byte[] body) {
+
+    String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+    String payloadHash = exchange.getRequestHeaders().getFirst(AwsSigner.CONTENT_SHA256_HEADER);
+    String amzDate = exchange.getRequestHeaders().getFirst(AwsSigner.DATE_HEADER);
+    String host = exchange.getRequestHeaders().getFirst("Host");
+    if (authorization == null || payloadHash == null || amzDate == null || host == null)
+      return false;
+    if (!payloadHash.equals(AwsSigner.sha256Hex(body, 0, body.length)))
+      return false;
+
+    Matcher matcher = SIGNATURE.matcher(authorization);
+    return authorization.startsWith(AwsSigner.ALGORITHM + " Credential=" + ACCESS_KEY + "/")
+        && matcher.find()
+        && matcher.group(1).equals(
+            signer.signature(method, path, query, host, payloadHash, amzDate));
+  }
+
+  private static Map<String, String> parse(String query) {
+    Map<String, String> parameters = new TreeMap<>();
+    if (query == null)
+      return parameters;
+    for (String parameter : query.split("&")) {
+      int separator = parameter.indexOf('=');
+      if (separator < 0)
+        parameters.put(parameter, "");
+      else
+        parameters.put(parameter.substring(0, separator), parameter.substring(separator + 1));
+    }
+    return parameters;
+  }
+
+  private static byte[] read(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int n;
+    while ((n = in.read(buffer)) != -1) {
+      out.write(buffer, 0, n);
+    }
+    return out.toByteArray();
+  }
+
+  private static void send(HttpExchange exchange, int status, String body) throws IOException {
+    if (body == null || "HEAD".equals(exchange.getRequestMethod())) {
+      exchange.sendResponseHeaders(status, -1);
+      exchange.close();
+      return;
+    }
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+    try (OutputStream os = exchange.getResponseBody()) {
+      os.write(bytes);
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ebay.feed.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import okhttp3.OkHttpClient;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ebay.feed.model.storage.S3Config;
+
+public class S3StorageTest {
+
+  private final OkHttpClient client = new OkHttpClient();
+
+  @Test
+  public void putSmallFileTest() throws Exception {
+
+    try (S3Server server = new S3Server()) {
+      S3Storage storage = storage(server, 1000);
+      byte[] content = getContent(999);
+
+      try (OutputStream out = storage.create("/tmp/feed/item-1-20181016-EBAY_US")) {
+        out.write(content);
+      }
+
+      Assert.assertEquals(0, server.getPartRequests());
+      Assert.assertArrayEquals(content,
+          server.getObject("/feeds/feeds/tmp/feed/item-1-20181016-EBAY_US"));
+      Assert.assertTrue(storage.exists("/tmp/feed/item-1-20181016-EBAY_US"));
+      Assert.assertArrayEquals(content, read(storage, "/tmp/feed/item-1-20181016-EBAY_US"));
+
+      storage.delete("/tmp/feed/item-1-20181016-EBAY_US");
+      Assert.assertFalse(storage.exists("/tmp/feed/item-1-20181016-EBAY_US"));
+    }
+  }
+
+  @Test
+  public void multipartUploadTest() throws Exception {
+
+    try (S3Server server = new S3Server()) {
+      S3Storage storage = storage(server, 1000);
+      byte[] content = getContent(4500);
+
+      // written in pieces which do not line up with the parts, to a key with special characters
+      try (OutputStream out = storage.create("out/item filtered+1.tsv")) {
+        out.write(content[0]);
+        for (int offset = 1; offset < content.length; offset += 700) {
+          out.write(content, offset, Math.min(700, content.length - offset));
+        }
+      }
+
+      Assert.assertEquals(5, server.getPartRequests());
+      Assert.assertEquals(0, server.getPendingUploads());
+      Assert.assertArrayEquals(content, read(storage, "out/item filtered+1.tsv"));
+    }
+  }
+
+  @Test
+  public void abortFailedUploadTest() throws Exception {
+
+    try (S3Server server = new S3Server()) {
+      S3Storage storage = storage(server, 1000);
+      server.failPart(2);
+
+      OutputStream out = storage.create("item");
+      try {
+        out.write(getContent(3000));
+        out.close();
+        Assert.fail("Upload should fail");
+      } catch (IOException e) {
+        Assert.assertTrue(e.getMessage().contains("status = 500"));
+      }
+
+      Assert.assertEquals(1, server.getAborts());
+      Assert.assertEquals(0, server.getPendingUploads());
+      Assert.assertFalse(storage.exists("item"));
+    }
+  }
+
+  @Test(expected = FileNotFoundException.class)
+  public void openMissingTest() throws Exception {
+    try (S3Server server = new S3Server()) {
+      storage(server, 1000).open("missing").close();
+    }
+  }
+
+  @Test
+  public void wrongSecretTest() throws Exception {
+
+    try (S3Server server = new S3Server()) {
+      S3Config config =
+          new S3Config.S3ConfigBuilder().endpoint(server.url()).bucket("feeds")
+              .accessKey(S3Server.ACCESS_KEY).secretKey("wrong").build();
+      try {
+        new S3Storage(config, client).exists("item");
+        Assert.fail("Request should be rejected");
+      } catch (IOException e) {
+        Assert.assertTrue(e.getMessage().contains("status = 403"));
+      }
+    }
+  }
+
+  private S3Storage storage(S3Server server, int partSize) {
+    S3Config config =
+        new S3Config.S3ConfigBuilder().endpoint(server.url()).bucket("feeds").prefix("feeds/")
+            .region(S3Server.REGION).accessKey(S3Server.ACCESS_KEY)
+            .secretKey(S3Server.SECRET_KEY).partSize(partSize).build();
+    return new S3Storage(config, client);
+  }
+
+  private byte[] read(Storage storage, String key) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (InputStream in = storage.open(key)) {
+      byte[] buffer = new byte[512];
+      int n;
+      while ((n = in.read(buffer)) != -1) {
+        out.write(buffer, 0, n);
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private byte[] getContent(int size) {
+    byte[] content = new byte[size];
+    new Random(size).nextBytes(content);
+    return content;
+  }
+}
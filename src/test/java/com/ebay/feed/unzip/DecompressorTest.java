@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.unzip;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DecompressorTest {
+
+  @Test
+  public void membersTest() throws Exception {
+
+    StringBuilder feed = new StringBuilder();
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+    for (int member = 0; member < 5; member++) {
+      StringBuilder rows = new StringBuilder();
+      for (int i = 0; i < member * 3000; i++) {
+        rows.append(member).append('\t').append(i * 7919 % 10007).append('\n');
+      }
+      feed.append(rows);
+      gzipped.write(gzip(rows.toString()));
+    }
+    // padding after the last member is ignored
+    gzipped.write(new byte[3]);
+
+    for (Decompressor decompressor : DecompressorBenchmark.getCandidates()) {
+      Assert.assertEquals(decompressor.getName(), feed.toString(),
+          read(decompressor, gzipped.toByteArray()));
+    }
+
+    // inflaters are reused by the next streams
+    InflaterDecompressor decompressor = new InflaterDecompressor(1024);
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals(feed.toString(), read(decompressor, gzipped.toByteArray()));
+    }
+  }
+
+  @Test
+  public void damagedTest() throws Exception {
+
+    Decompressor decompressor = new InflaterDecompressor();
+    byte[] gzipped = gzip("1\tfirst\n2\tsecond\n");
+
+    byte[] damaged = gzipped.clone();
+    damaged[damaged.length - 8] ^= 1;
+    try {
+      read(decompressor, damaged);
+      Assert.fail("CRC mismatch not detected");
+    } catch (ZipException e) {
+      Assert.assertEquals("Corrupt GZIP trailer", e.getMessage());
+    }
+
+    try {
+      read(decompressor, Arrays.copyOf(gzipped, gzipped.length - 12));
+      Assert.fail("Truncated stream not detected");
+    } catch (EOFException e) {
+      Assert.assertNotNull(e);
+    }
+
+    try {
+      read(decompressor, "1\tfirst\n".getBytes(StandardCharsets.UTF_8));
+      Assert.fail("Plain text not detected");
+    } catch (ZipException e) {
+      Assert.assertEquals("Not in GZIP format", e.getMessage());
+    }
+  }
+
+  @Test
+  public void pickFastestTest() throws Exception {
+
+    StringBuilder feed = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      feed.append(i).append("\ttitle ").append(i * 7919 % 10007).append('\n');
+    }
+    byte[] gzipped = gzip(feed.toString());
+
+    // a sample cut short is measured up to the cut
+    Decompressor fastest =
+        DecompressorBenchmark.pickFastest(DecompressorBenchmark.getCandidates(),
+            Arrays.copyOf(gzipped, gzipped.length / 2));
+    Assert.assertNotNull(fastest);
+    Assert.assertEquals(feed.toString(), read(fastest, gzipped));
+  }
+
+  private String read(Decompressor decompressor, byte[] gzipped) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (InputStream in = decompressor.decompress(new ByteArrayInputStream(gzipped))) {
+      byte[] buffer = new byte[777];
+      int len;
+      while ((len = in.read(buffer)) != -1) {
+        bos.write(buffer, 0, len);
+      }
+    }
+    return new String(bos.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  private byte[] gzip(String contents) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (GZIPOutputStream gos = new GZIPOutputStream(bos)) {
+      gos.write(contents.getBytes(StandardCharsets.UTF_8));
+    }
+    return bos.toByteArray();
+  }
+}
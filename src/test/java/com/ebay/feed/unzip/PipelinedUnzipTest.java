@@ -0,0 +1,133 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.unzip;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ebay.feed.download.RangeDownloader;
+import com.ebay.feed.download.RangeManifest;
+import com.ebay.feed.download.RangeServer;
+import com.ebay.feed.model.feed.download.DownloadConfig;
+import com.ebay.feed.model.feed.download.DownloadConfig.DownloadConfigBuilder;
+import com.ebay.feed.model.feed.operation.internal.InvokeResponse;
+
+public class PipelinedUnzipTest {
+
+  OkHttpClient client = new OkHttpClient();
+
+  @Test
+  public void unzipWhileDownloadingTest() throws Exception {
+
+    StringBuilder feed = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      feed.append(i).append("\ttitle ").append(i * 7919 % 10007).append('\n');
+    }
+    byte[] gzipped = gzip(feed.toString());
+
+    Path directory = Files.createTempDirectory("feed");
+    Path source = directory.resolve("item-1-20181016-EBAY_US.gz");
+    Path temp = directory.resolve("item-1-20181016-EBAY_US" + PipelinedUnzip.TEMP_SUFFIX);
+    Path target = directory.resolve("item-1-20181016-EBAY_US");
+    Files.createFile(source);
+
+    // ranges downloaded in parallel are committed up to the first missing range
+    AtomicInteger commits = new AtomicInteger();
+    PipelinedUnzip pipeline = new PipelinedUnzip(source, temp, new InflaterDecompressor(1024));
+    pipeline.start();
+    try (RangeServer server = new RangeServer(gzipped)) {
+      InvokeResponse response =
+          new RangeDownloader(client, config(3)).download(request(server), source,
+              new RangeManifest(source), 4999, end -> {
+                commits.incrementAndGet();
+                pipeline.commit(end);
+              });
+      Assert.assertEquals(206, response.getStatusCode());
+    }
+    pipeline.finish();
+    pipeline.moveTo(target);
+
+    Assert.assertTrue(commits.get() > 1);
+    Assert.assertEquals(feed.toString(),
+        new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+    Assert.assertFalse(Files.exists(temp));
+
+    Files.delete(target);
+    Files.delete(source);
+    Files.delete(directory);
+  }
+
+  @Test
+  public void failureTest() throws Exception {
+
+    Path directory = Files.createTempDirectory("feed");
+    Path source = directory.resolve("item-1-20181016-EBAY_US.gz");
+    Path temp = directory.resolve("item-1-20181016-EBAY_US" + PipelinedUnzip.TEMP_SUFFIX);
+    byte[] gzipped = gzip("1\tfirst\n2\tsecond\n");
+    Files.write(source, gzipped);
+
+    // a failed download stops the unzipping thread, which waits for more bytes
+    PipelinedUnzip aborted = new PipelinedUnzip(source, temp, new InflaterDecompressor());
+    aborted.start();
+    aborted.commit(gzipped.length / 2);
+    aborted.abort();
+    Assert.assertFalse(Files.exists(temp));
+
+    // a damaged file fails the unzipping
+    gzipped[gzipped.length - 8] ^= 1;
+    Files.write(source, gzipped);
+    PipelinedUnzip damaged = new PipelinedUnzip(source, temp, new InflaterDecompressor());
+    damaged.start();
+    damaged.commit(gzipped.length);
+    try {
+      damaged.finish();
+      Assert.fail("Damaged file unzipped");
+    } catch (IOException e) {
+      damaged.abort();
+      Assert.assertFalse(Files.exists(temp));
+    }
+
+    Files.delete(source);
+    Files.delete(directory);
+  }
+
+  private DownloadConfig config(int parallelism) {
+    return new DownloadConfigBuilder().parallelism(parallelism).bufferSize(256)
+        .retryBackoffMillis(1).retryMaxBackoffMillis(5).verifyIntegrity(true).build();
+  }
+
+  private Request request(RangeServer server) {
+    return new Request.Builder().url(server.url()).build();
+  }
+
+  private byte[] gzip(String contents) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (GZIPOutputStream gos = new GZIPOutputStream(bos)) {
+      gos.write(contents.getBytes(StandardCharsets.UTF_8));
+    }
+    return bos.toByteArray();
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.unzip;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReadAheadInputStreamTest {
+
+  @Test
+  public void readTest() throws Exception {
+
+    byte[] contents = new byte[100000];
+    new Random(0).nextBytes(contents);
+
+    // blocks smaller than the reads, and reads smaller than the blocks
+    for (int blockSize : new int[] {333, 4096, 200000}) {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      try (InputStream in =
+          new ReadAheadInputStream(new ByteArrayInputStream(contents), blockSize, 2)) {
+        byte[] buffer = new byte[1000];
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+          bos.write(buffer, 0, len);
+        }
+        Assert.assertEquals(-1, in.read());
+      }
+      Assert.assertArrayEquals(contents, bos.toByteArray());
+    }
+  }
+
+  @Test
+  public void failureTest() throws Exception {
+
+    // the bytes before the failure are read first
+    InputStream failing = new InputStream() {
+      private int count = 0;
+
+      @Override
+      public int read() throws IOException {
+        if (count == 10)
+          throw new IOException("Source failed");
+        return count++;
+      }
+    };
+
+    byte[] buffer = new byte[20];
+    try (InputStream in = new ReadAheadInputStream(failing, 4, 2)) {
+      int length = 0;
+      try {
+        int len;
+        while ((len = in.read(buffer, length, buffer.length - length)) != -1) {
+          length += len;
+        }
+        Assert.fail("Failure of the source not thrown");
+      } catch (IOException e) {
+        Assert.assertEquals("Source failed", e.getMessage());
+      }
+      Assert.assertEquals(8, length);
+      Assert.assertArrayEquals(new byte[] {0, 1, 2, 3, 4, 5, 6, 7}, Arrays.copyOf(buffer, 8));
+    }
+  }
+
+  @Test
+  public void closeTest() throws Exception {
+
+    // an endless source, closed by the reading thread once the stream is closed
+    AtomicBoolean isSourceClosed = new AtomicBoolean();
+    InputStream endless = new InputStream() {
+      @Override
+      public int read() {
+        return 1;
+      }
+
+      @Override
+      public void close() {
+        isSourceClosed.set(true);
+      }
+    };
+
+    InputStream in = new ReadAheadInputStream(endless, 64, 2);
+    Assert.assertEquals(1, in.read());
+    in.close();
+    Assert.assertTrue(isSourceClosed.get());
+  }
+}
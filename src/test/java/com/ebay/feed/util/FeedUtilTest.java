@@ -14,6 +14,13 @@
 
 package com.ebay.feed.util;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.zip.GZIPOutputStream;
+
 import okhttp3.Request;
 
 import org.junit.Assert;
@@ -24,6 +31,7 @@ import com.ebay.feed.enums.EnvTypeEnum;
 import com.ebay.feed.enums.FeedTypeEnum;
 import com.ebay.feed.model.feed.operation.feed.FeedRequest;
 import com.ebay.feed.model.feed.operation.feed.FeedRequest.FeedRequestBuilder;
+import com.ebay.feed.storage.InMemoryStorage;
 
 public class FeedUtilTest {
 
@@ -117,4 +125,25 @@ public class FeedUtilTest {
     builder.env(EnvTypeEnum.SANDBOX.name());
     Assert.assertEquals(expectedChunkSize, feedUtil.getChunkSizeLimit(builder.build()));
   }
+
+  @Test
+  public void unzipToStorageTest() throws Exception {
+
+    byte[] content = "ItemId\tTitle\n1\tItem one\n".getBytes(StandardCharsets.UTF_8);
+    Path path = Files.createTempFile("item", ".gz");
+    try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(path))) {
+      out.write(content);
+    }
+
+    try {
+      InMemoryStorage storage = new InMemoryStorage();
+      String unzipped = feedUtil.unzip(path, storage);
+
+      Assert.assertEquals(path.toString().substring(0, path.toString().length() - 3), unzipped);
+      Assert.assertArrayEquals(content, storage.get(unzipped));
+      Assert.assertFalse(Files.exists(Paths.get(unzipped)));
+    } finally {
+      Files.delete(path);
+    }
+  }
 }
@@ -14,6 +14,11 @@
 
 package com.ebay.feed.util;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 import org.junit.Assert;
@@ -42,6 +47,116 @@ public class FilterUtilTest {
 
   }
 
+  @Test
+  public void filterBytesTest() throws Exception {
+
+    // rows with trailing empty columns, missing columns, CRLF, non ASCII values and odd prices
+    String[] rows =
+        {"ItemId\tTitle", row("1", "123", "seller", "10.5"), row("2", "456", "seller", "10.5"),
+            row("3", "123", "sell\u00e9r", "9.99"), row("4", "123", "seller", "1e1") + "\r",
+            row("5", "123", "seller", " 11 "), row("6", "123", "seller", "abc"),
+            row("7", "123", "seller", "NaN"), row("8", "123", "", "10.5"),
+            row("9", "123", "seller", "") + "\t\t", "10\t\t\t\t123", "11\t\t\t\t456", "", "12",
+            row("13", "123", "seller", "-0.0001"), row("14", "123", "seller", ".5"),
+            row("15", "123", "seller", "123456789012.3456789")};
+    String feed = String.join("\n", rows) + "\n";
+
+    Path directory = Files.createTempDirectory("feed");
+    Path unzipped = directory.resolve("item_bootstrap-1-20181016-EBAY_US");
+    Files.write(unzipped, feed.getBytes(StandardCharsets.UTF_8));
+
+    FeedFilterRequest request = new FeedFilterRequest();
+    request.setLeafCategoryIds(getFilterSet());
+    assertFiltered(unzipped, rows, request);
+
+    request.setSellerNames(new HashSet<>(Arrays.asList("seller", "sell\u00e9r")));
+    request.setPriceLowerLimit(10.0);
+    assertFiltered(unzipped, rows, request);
+
+    request = new FeedFilterRequest();
+    request.setPriceUpperLimit(10.0);
+    assertFiltered(unzipped, rows, request);
+
+    request = new FeedFilterRequest();
+    request.setItemIds(new HashSet<>(Arrays.asList("12", "")));
+    assertFiltered(unzipped, rows, request);
+
+    Files.delete(unzipped);
+    Files.delete(directory);
+  }
+
+  @Test
+  public void evaluateOverrideTest() throws Exception {
+
+    String feed = "ItemId\tTitle\n1\tshoes\n2\tboots\n3\tshoes\n";
+    Path directory = Files.createTempDirectory("feed");
+    Path unzipped = directory.resolve("item_bootstrap-1-20181016-EBAY_US");
+    Files.write(unzipped, feed.getBytes(StandardCharsets.UTF_8));
+
+    // rows are still passed to a subclass which customises the matching
+    FilterUtil custom = new FilterUtil() {
+      @Override
+      protected boolean evaluate(String[] line, FeedFilterRequest filterRequest) {
+        return line.length > 1 && line[1].equals("shoes");
+      }
+    };
+    Path filtered = Paths.get(custom.filter(unzipped, new FeedFilterRequest()));
+    String separator = System.lineSeparator();
+    Assert.assertEquals("ItemId\tTitle" + separator + "1\tshoes" + separator + "3\tshoes"
+        + separator, new String(Files.readAllBytes(filtered), StandardCharsets.UTF_8));
+
+    Files.delete(filtered);
+    Files.delete(unzipped);
+    Files.delete(directory);
+  }
+
+  @Test
+  public void parseDecimalTest() {
+    for (String decimal : new String[] {"0", "-0", "10.5", "+3.", ".25", "0.1", "99999.99",
+        "123456789012345", "0.000000000000001", "000.5"}) {
+      byte[] bytes = ("\t" + decimal + "\t").getBytes(StandardCharsets.UTF_8);
+      Assert.assertEquals(Double.valueOf(decimal),
+          Double.valueOf(FilterUtil.parseDecimal(bytes, 1, bytes.length - 1)));
+    }
+    for (String other : new String[] {"", ".", "-", "1e5", " 1", "1.2.3", "1234567890123456",
+        "0.00000000000000000000001"}) {
+      byte[] bytes = other.getBytes(StandardCharsets.UTF_8);
+      Assert.assertTrue(Double.isNaN(FilterUtil.parseDecimal(bytes, 0, bytes.length)));
+    }
+  }
+
+  /**
+   * Filters the feed file, and compares the filtered file with the rows evaluated as strings
+   */
+  private void assertFiltered(Path unzipped, String[] rows, FeedFilterRequest request)
+      throws Exception {
+
+    StringBuilder expected = new StringBuilder();
+    for (String row : rows) {
+      String line = row.endsWith("\r") ? row.substring(0, row.length() - 1) : row;
+      String[] tsv = line.split("\t");
+      if (tsv[0].contains("ItemId"))
+        expected.append(line).append(System.lineSeparator());
+      if (filterUtil.evaluate(tsv, request))
+        expected.append(line).append(System.lineSeparator());
+    }
+
+    Path filtered = Paths.get(filterUtil.filter(unzipped, request));
+    Assert.assertEquals(expected.toString(),
+        new String(Files.readAllBytes(filtered), StandardCharsets.UTF_8));
+    Files.delete(filtered);
+  }
+
+  private String row(String itemId, String category, String seller, String price) {
+    String[] columns = new String[16];
+    Arrays.fill(columns, "x");
+    columns[0] = itemId;
+    columns[4] = category;
+    columns[6] = seller;
+    columns[15] = price;
+    return String.join("\t", columns);
+  }
+
   private Set<String> getFilterSet() {
     Set<String> filterSet = new HashSet<>();
     filterSet.add("123");
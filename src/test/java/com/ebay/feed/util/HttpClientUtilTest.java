@@ -0,0 +1,56 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.util;
+
+import java.util.Collections;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ebay.feed.model.client.ClientConfig;
+import com.ebay.feed.model.client.ClientConfig.ClientConfigBuilder;
+
+public class HttpClientUtilTest {
+
+  @Test
+  public void sharedClientTest() {
+
+    OkHttpClient client = HttpClientUtil.getClient(new ClientConfigBuilder().build());
+
+    Assert.assertSame(client, HttpClientUtil.getDefaultClient());
+    Assert.assertSame(client, HttpClientUtil.getClient(new ClientConfigBuilder().build()));
+    Assert.assertNotSame(client,
+        HttpClientUtil.getClient(new ClientConfigBuilder().readTimeout(60).build()));
+  }
+
+  @Test
+  public void clientSettingsTest() {
+
+    ClientConfig clientConfig =
+        new ClientConfigBuilder().http2(false).maxRequests(16).maxRequestsPerHost(8)
+            .connectTimeout(5).readTimeout(7).writeTimeout(9).build();
+    OkHttpClient client = HttpClientUtil.getClient(clientConfig);
+
+    Assert.assertEquals(Collections.singletonList(Protocol.HTTP_1_1), client.protocols());
+    Assert.assertEquals(16, client.dispatcher().getMaxRequests());
+    Assert.assertEquals(8, client.dispatcher().getMaxRequestsPerHost());
+    Assert.assertEquals(5000, client.connectTimeoutMillis());
+    Assert.assertEquals(7000, client.readTimeoutMillis());
+    Assert.assertEquals(9000, client.writeTimeoutMillis());
+  }
+}
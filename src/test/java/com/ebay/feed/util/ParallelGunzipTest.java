@@ -0,0 +1,144 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ebay.feed.storage.LocalStorage;
+
+public class ParallelGunzipTest {
+
+  @Test
+  public void unzipMembersTest() throws Exception {
+
+    Path directory = Files.createTempDirectory("feed");
+    Path source = directory.resolve("item-1-20181016-EBAY_US.gz");
+    Path target = directory.resolve("item-1-20181016-EBAY_US");
+
+    // members of different sizes, one of them empty
+    StringBuilder feed = new StringBuilder();
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+    for (int member = 0; member < 40; member++) {
+      StringBuilder rows = new StringBuilder();
+      for (int i = 0; i < member * 50; i++) {
+        rows.append(member).append('\t').append(i * 7919 % 10007).append('\n');
+      }
+      feed.append(rows);
+      gzipped.write(gzip(rows.toString()));
+    }
+    Files.write(source, gzipped.toByteArray());
+
+    Assert.assertTrue(new ParallelGunzip(4).unzip(source, target));
+    Assert.assertEquals(feed.toString(),
+        new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+
+    // feed util unzips to local storage in parallel, and to other storage on one thread
+    Files.delete(target);
+    Assert.assertEquals(target.toString(),
+        new FeedUtil().unzip(source, new LocalStorage(), 4));
+    Assert.assertEquals(feed.toString(),
+        new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+
+    Files.delete(target);
+    Files.delete(source);
+    Files.delete(directory);
+  }
+
+  @Test
+  public void falseHeaderTest() throws Exception {
+
+    Path directory = Files.createTempDirectory("feed");
+    Path source = directory.resolve("item-1-20181016-EBAY_US.gz");
+    Path target = directory.resolve("item-1-20181016-EBAY_US");
+
+    // stored members keep the bytes of their rows, so the scan finds the header in the row
+    byte[] falseHeader = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    ByteArrayOutputStream feed = new ByteArrayOutputStream();
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+    for (int member = 0; member < 16; member++) {
+      ByteArrayOutputStream rows = new ByteArrayOutputStream();
+      for (int i = 0; i < 200; i++) {
+        rows.write((member + "\t" + i * 7919 % 10007 + "\n").getBytes(StandardCharsets.UTF_8));
+        if (member % 5 == 1 && i == 100)
+          rows.write(falseHeader);
+      }
+      feed.write(rows.toByteArray());
+      gzipped.write(gzipStored(rows.toByteArray()));
+    }
+    Files.write(source, gzipped.toByteArray());
+
+    Assert.assertTrue(new ParallelGunzip(4).unzip(source, target));
+    Assert.assertArrayEquals(feed.toByteArray(), Files.readAllBytes(target));
+
+    Files.delete(target);
+    Files.delete(source);
+    Files.delete(directory);
+  }
+
+  @Test
+  public void notSplittableTest() throws Exception {
+
+    Path directory = Files.createTempDirectory("feed");
+    Path source = directory.resolve("item-1-20181016-EBAY_US.gz");
+    Path target = directory.resolve("item-1-20181016-EBAY_US");
+
+    // a single member
+    Files.write(source, gzip("1\tfirst\n2\tsecond\n"));
+    Assert.assertFalse(new ParallelGunzip(4).unzip(source, target));
+    Assert.assertFalse(Files.exists(target));
+
+    // a damaged trailer of the first member
+    byte[] first = gzip("1\tfirst\n");
+    first[first.length - 8] ^= 1;
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+    gzipped.write(first);
+    gzipped.write(gzip("2\tsecond\n"));
+    Files.write(source, gzipped.toByteArray());
+    Assert.assertFalse(new ParallelGunzip(4).unzip(source, target));
+    Assert.assertFalse(Files.exists(target));
+
+    Files.delete(source);
+    Files.delete(directory);
+  }
+
+  private byte[] gzip(String contents) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (GZIPOutputStream gos = new GZIPOutputStream(bos)) {
+      gos.write(contents.getBytes(StandardCharsets.UTF_8));
+    }
+    return bos.toByteArray();
+  }
+
+  private byte[] gzipStored(byte[] contents) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (GZIPOutputStream gos = new GZIPOutputStream(bos) {
+      {
+        def.setLevel(Deflater.NO_COMPRESSION);
+      }
+    }) {
+      gos.write(contents);
+    }
+    return bos.toByteArray();
+  }
+}
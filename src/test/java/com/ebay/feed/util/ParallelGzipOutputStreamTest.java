@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ebay.feed.model.feed.operation.filter.FeedFilterRequest;
+
+public class ParallelGzipOutputStreamTest {
+
+  @Test
+  public void membersTest() throws Exception {
+
+    StringBuilder feed = new StringBuilder();
+    for (int i = 0; i < 100000; i++) {
+      feed.append(i).append("\ttitle ").append(i * 7919 % 10007).append('\n');
+    }
+    byte[] contents = feed.toString().getBytes(StandardCharsets.UTF_8);
+
+    // writes of odd sizes across blocks, and fewer threads than blocks
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+    try (OutputStream out = new ParallelGzipOutputStream(gzipped, 3, 65536)) {
+      for (int off = 0; off < contents.length; off += 777) {
+        out.write(contents, off, Math.min(777, contents.length - off));
+      }
+      out.write('\n');
+    }
+    Assert.assertEquals(feed.toString() + "\n", gunzip(gzipped.toByteArray()));
+
+    // the members are split again to unzip them on several threads
+    Path directory = Files.createTempDirectory("feed");
+    Path source = directory.resolve("item-1-20181016-EBAY_US.gz");
+    Path target = directory.resolve("item-1-20181016-EBAY_US");
+    Files.write(source, gzipped.toByteArray());
+    Assert.assertTrue(new ParallelGunzip(4).unzip(source, target));
+    Assert.assertEquals(feed.toString() + "\n",
+        new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+
+    // an empty stream is a valid gzip file
+    ByteArrayOutputStream empty = new ByteArrayOutputStream();
+    new ParallelGzipOutputStream(empty, 2).close();
+    Assert.assertEquals("", gunzip(empty.toByteArray()));
+
+    Files.delete(target);
+    Files.delete(source);
+    Files.delete(directory);
+  }
+
+  @Test
+  public void filterTest() throws Exception {
+
+    Path directory = Files.createTempDirectory("feed");
+    Path unzipped = directory.resolve("item-1-20181016-EBAY_US");
+    StringBuilder feed = new StringBuilder("ItemId\tTitle\n");
+    for (int i = 0; i < 1000; i++) {
+      feed.append(i).append("\ttitle ").append(i).append('\n');
+    }
+    Files.write(unzipped, feed.toString().getBytes(StandardCharsets.UTF_8));
+
+    FeedFilterRequest filterRequest = new FeedFilterRequest();
+    filterRequest.setItemIds(Collections.singleton("42"));
+    filterRequest.setGzipOutput(true);
+    filterRequest.setGzipParallelism(2);
+
+    Path filtered = directory.resolve(new FilterUtil().filter(unzipped, filterRequest));
+    Assert.assertTrue(filtered.getFileName().toString().endsWith(".gz"));
+    Assert.assertEquals("ItemId\tTitle" + System.lineSeparator() + "42\ttitle 42"
+        + System.lineSeparator(), gunzip(Files.readAllBytes(filtered)));
+
+    Files.delete(filtered);
+    Files.delete(unzipped);
+    Files.delete(directory);
+  }
+
+  private String gunzip(byte[] gzipped) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+      byte[] buffer = new byte[4096];
+      int len;
+      while ((len = in.read(buffer)) != -1) {
+        bos.write(buffer, 0, len);
+      }
+    }
+    return new String(bos.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
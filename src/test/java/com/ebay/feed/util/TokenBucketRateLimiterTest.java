@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ebay.feed.download.RangeServer;
+import com.ebay.feed.model.client.ClientConfig.ClientConfigBuilder;
+
+public class TokenBucketRateLimiterTest {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  public void reserveTest() {
+
+    TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(100, 100);
+    long now = System.nanoTime();
+
+    // full bucket
+    Assert.assertEquals(0, limiter.reserve(100, now));
+
+    // empty bucket, 50 permits take half a second
+    Assert.assertEquals(SECOND / 2, limiter.reserve(50, now));
+
+    // callers queue up behind the debt
+    Assert.assertEquals(SECOND, limiter.reserve(50, now));
+
+    // refilled after the debt is paid, but never beyond the capacity
+    Assert.assertEquals(0, limiter.reserve(100, now + 10 * SECOND));
+    Assert.assertEquals(SECOND / 10, limiter.reserve(10, now + 10 * SECOND));
+  }
+
+  @Test
+  public void interceptorTest() throws Exception {
+
+    AtomicLong requests = new AtomicLong();
+    AtomicLong bytes = new AtomicLong();
+    OkHttpClient client =
+        HttpClientUtil.getClient(new ClientConfigBuilder()
+            .requestRateLimiter(permits -> requests.addAndGet(permits))
+            .byteRateLimiter(permits -> bytes.addAndGet(permits)).build());
+
+    try (RangeServer server = new RangeServer(new byte[200000])) {
+      for (int i = 0; i < 3; i++) {
+        try (Response response =
+            client.newCall(new Request.Builder().url(server.url()).build()).execute()) {
+          Assert.assertEquals(200000, response.body().bytes().length);
+        }
+      }
+    }
+
+    Assert.assertEquals(3, requests.get());
+    Assert.assertEquals(600000, bytes.get());
+  }
+
+  @Test
+  public void byteRateTest() throws Exception {
+
+    OkHttpClient client =
+        HttpClientUtil.getClient(new ClientConfigBuilder().maxBytesPerSecond(100000).build());
+
+    try (RangeServer server = new RangeServer(new byte[150000])) {
+      long start = System.nanoTime();
+      try (Response response =
+          client.newCall(new Request.Builder().url(server.url()).build()).execute()) {
+        response.body().bytes();
+      }
+
+      // the first 100000 bytes are the burst, the rest takes half a second
+      Assert.assertTrue(System.nanoTime() - start >= SECOND / 2 - SECOND / 20);
+    }
+  }
+}
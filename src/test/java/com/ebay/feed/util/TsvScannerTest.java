@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 eBay Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ebay.feed.util;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TsvScannerTest {
+
+  @Test
+  public void scanTest() throws Exception {
+
+    // rows longer than the buffer, which grows for them
+    StringBuilder longRow = new StringBuilder("long\ta\t");
+    for (int i = 0; i < 100; i++) {
+      longRow.append("column ").append(i).append('\t');
+    }
+    String[] rows = {"a\tb\tc", "\t\tc\t", "", "single", "a\t\t", longRow.toString(), "x\ty"};
+    String feed = String.join("\n", rows) + "\r\n";
+
+    TsvScanner scanner =
+        new TsvScanner(new ByteArrayInputStream(feed.getBytes(StandardCharsets.UTF_8)), 3, 16);
+    for (String row : rows) {
+      Assert.assertTrue(scanner.next());
+      Assert.assertEquals(row, string(scanner, scanner.getRowStart(), scanner.getRowEnd()));
+
+      // the columns are present as in String.split
+      String[] columns = row.split("\t");
+      for (int column = 0; column < 3; column++) {
+        Assert.assertEquals(column < columns.length, scanner.hasColumn(column));
+        if (column < columns.length)
+          Assert.assertEquals(columns[column], string(scanner,
+              scanner.getColumnStart(column), scanner.getColumnEnd(column)));
+      }
+    }
+    Assert.assertFalse(scanner.next());
+    Assert.assertFalse(scanner.next());
+  }
+
+  private String string(TsvScanner scanner, int start, int end) {
+    return new String(scanner.getBuffer(), start, end - start, StandardCharsets.UTF_8);
+  }
+}